@@ -0,0 +1,104 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+/**
+ * Every {@link Activation_Function} method on a first hidden layer [batch x 128], and the
+ * softmax on the output layer [batch x 10]. The allocating and in-place overloads are
+ * measured separately.
+ */
+public class ActivationFunctionJmh extends JmhShapes {
+
+    private double[][] net, gradient, hidden, logits, probabilities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(2);
+        net = random(batchSize, H1, random);
+        gradient = random(batchSize, H1, random);
+        hidden = new double[batchSize][H1];
+        logits = random(batchSize, OUTPUT, random);
+        probabilities = new double[batchSize][OUTPUT];
+    }
+
+    // ---------------- ReLU ---------------- //
+
+    @Benchmark
+    public double[][] relu() {
+        return Activation_Function.relu(net);
+    }
+
+    @Benchmark
+    public double[][] reluInto() {
+        Activation_Function.relu(net, hidden);
+        return hidden;
+    }
+
+    @Benchmark
+    public double[][] reluDerivativeFromOutput() {
+        return Activation_Function.reluDerivativeFromOutput(net);
+    }
+
+    @Benchmark
+    public double[][] reluDerivativeFromNet() {
+        return Activation_Function.reluDerivativeFromNet(net);
+    }
+
+    @Benchmark
+    public double[][] reluBackward() {
+        Activation_Function.reluBackward(gradient, net, hidden);
+        return hidden;
+    }
+
+    @Benchmark
+    public double[][] batchNormAfterRelu() {
+        return Activation_Function.batchNormAfterRelu(net, 1e-8);
+    }
+
+    // ---------------- Softmax ---------------- //
+
+    @Benchmark
+    public double[][] softmax() {
+        return Activation_Function.softmax(logits);
+    }
+
+    @Benchmark
+    public double[][] softmaxInto() {
+        Activation_Function.softmax(logits, probabilities);
+        return probabilities;
+    }
+
+    // ---------------- Sigmoid, Tanh, Leaky ReLU ---------------- //
+
+    @Benchmark
+    public double[][] sigmoid() {
+        return Activation_Function.sigmoid(net);
+    }
+
+    @Benchmark
+    public double[][] sigmoidDerivative() {
+        return Activation_Function.sigmoidDerivative(net);
+    }
+
+    @Benchmark
+    public double[][] tanh() {
+        return Activation_Function.tanh(net);
+    }
+
+    @Benchmark
+    public double[][] tanhDerivative() {
+        return Activation_Function.tanhDerivative(net);
+    }
+
+    @Benchmark
+    public double[][] leakyRelu() {
+        return Activation_Function.leakyRelu(net, 0.01);
+    }
+
+    @Benchmark
+    public double[][] leakyReluDerivative() {
+        return Activation_Function.leakyReluDerivative(net, 0.01);
+    }
+}
@@ -0,0 +1,55 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parameters shared by the JMH benchmarks: the batch size and the size of the
+ * {@link Parallel} pool, at the MNIST layer widths of {@link Main} (784 -> 128 -> 64 -> 10).
+ * Times are averages per call, in a JVM forked with the SIMD kernels enabled.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public abstract class JmhShapes {
+
+    static final int INPUT = 784, H1 = 128, H2 = 64, OUTPUT = 10;
+
+    @Param({"32", "256"})
+    public int batchSize;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Setup(Level.Trial)
+    public void setParallelism() {
+        Parallel.setParallelism(threads);
+    }
+
+    static double[][] random(int rows, int cols, Random random) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m)
+            for (int j = 0; j < cols; j++) row[j] = random.nextGaussian();
+        return m;
+    }
+
+    // Rows of positive values summing to 1, like the softmax output
+    static double[][] probabilities(int rows, int cols, Random random) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m) {
+            double sum = 0.0;
+            for (int j = 0; j < cols; j++) sum += row[j] = random.nextDouble() + 1e-3;
+            for (int j = 0; j < cols; j++) row[j] /= sum;
+        }
+        return m;
+    }
+
+    static double[][] oneHot(int rows, int classes, Random random) {
+        double[][] m = new double[rows][classes];
+        for (double[] row : m) row[random.nextInt(classes)] = 1.0;
+        return m;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Load_dataset#loadData} of a synthetic MNIST-sized training set (60000 x 28 x 28)
+ * written to a temp directory, alone (mapping the images, decoding the labels) and
+ * followed by the normalized double matrix {@link Main} trains on. Batch size and pool
+ * size do not apply, so this benchmark has no parameters.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoadDatasetJmh {
+
+    private static final int SAMPLES = 60000, ROWS = 28, COLS = 28;
+
+    private final Load_dataset loader = new Load_dataset();
+    private Path dir;
+    private String images, labels;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("idx-jmh");
+        images = dir.resolve("images-idx3-ubyte").toString();
+        labels = dir.resolve("labels-idx1-ubyte").toString();
+
+        Random random = new Random(5);
+        byte[] pixels = new byte[SAMPLES * ROWS * COLS];
+        random.nextBytes(pixels);
+        byte[] classes = new byte[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) classes[i] = (byte) random.nextInt(10);
+
+        IdxLoaderBenchmark.write(images, IdxLoaderBenchmark.header(0x00, 0x08, 3, SAMPLES, ROWS, COLS), pixels);
+        IdxLoaderBenchmark.write(labels, IdxLoaderBenchmark.header(0x00, 0x08, 1, SAMPLES), classes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Path.of(images));
+        Files.deleteIfExists(Path.of(labels));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public DataSet loadData() throws IOException {
+        return loader.loadData(images, labels);
+    }
+
+    @Benchmark
+    public double[][] loadDataNormalized() throws IOException {
+        return loader.loadData(images, labels).normalizedImages();
+    }
+}
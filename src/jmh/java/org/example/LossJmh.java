@@ -0,0 +1,34 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+/**
+ * {@link Loss} on the output layer [batch x 10]: the per-sample cross-entropy over every
+ * row of the batch, and the batch mean.
+ */
+public class LossJmh extends JmhShapes {
+
+    private final Loss loss = new Loss();
+    private double[][] labels, predictions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(4);
+        labels = oneHot(batchSize, OUTPUT, random);
+        predictions = probabilities(batchSize, OUTPUT, random);
+    }
+
+    @Benchmark
+    public double calculateLoss() {
+        double sum = 0.0;
+        for (int i = 0; i < batchSize; i++) sum += loss.calculate_loss(labels[i], predictions[i]);
+        return sum;
+    }
+
+    @Benchmark
+    public double calculateBatchLoss() {
+        return loss.calculate_batch_loss(labels, predictions);
+    }
+}
@@ -0,0 +1,45 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+/**
+ * {@link Matrix_Operations} at the shapes of the first layer: the batch times W1, the
+ * batch transposed (as for X^T dZ1) and the sum of two hidden activations.
+ */
+public class MatrixOperationsJmh extends JmhShapes {
+
+    private double[][] x, w1, hidden, other, product;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        x = random(batchSize, INPUT, random);
+        w1 = random(INPUT, H1, random);
+        hidden = random(batchSize, H1, random);
+        other = random(batchSize, H1, random);
+        product = new double[batchSize][H1];
+    }
+
+    @Benchmark
+    public double[][] multiply() {
+        return Matrix_Operations.multiply(x, w1);
+    }
+
+    @Benchmark
+    public double[][] multiplyInto() {
+        Matrix_Operations.multiply(x, w1, product);
+        return product;
+    }
+
+    @Benchmark
+    public double[][] transpose() {
+        return Matrix_Operations.transpose(x);
+    }
+
+    @Benchmark
+    public double[][] add() {
+        return Matrix_Operations.add(hidden, other);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * {@link Techniques} as the training step uses them: batch normalization of the second
+ * hidden layer [batch x 64] into caller-owned buffers and its backward pass, and dropout
+ * of the first hidden layer [batch x 128] with its bitmask, forward and backward.
+ */
+public class TechniquesJmh extends JmhShapes {
+
+    private static final double DROPOUT = 0.3;
+
+    private double[][] input, output, normalized, dOut, dInput, gamma, beta;
+    private double[] mean, variance;
+    private double[][] hidden, dropped, dHidden, dDropped;
+    private long[] mask;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random values = new Random(3);
+        input = random(batchSize, H2, values);
+        output = new double[batchSize][H2];
+        normalized = new double[batchSize][H2];
+        dOut = random(batchSize, H2, values);
+        dInput = new double[batchSize][H2];
+        gamma = Techniques.initializeGamma(H2);
+        beta = Techniques.initializeBeta(H2);
+        mean = new double[H2];
+        variance = new double[H2];
+        Techniques.batchNormalization(input, gamma, beta, 1e-8, mean, variance, normalized, output);
+
+        hidden = random(batchSize, H1, values);
+        dropped = new double[batchSize][H1];
+        dHidden = random(batchSize, H1, values);
+        dDropped = new double[batchSize][H1];
+        mask = Techniques.newMask(batchSize, H1);
+        random = new SplittableRandom(3);
+    }
+
+    @Benchmark
+    public double[][] batchNormalization() {
+        Techniques.batchNormalization(input, gamma, beta, 1e-8, mean, variance, normalized, output);
+        return output;
+    }
+
+    @Benchmark
+    public double[][] batchNormBackward() {
+        Techniques.batchNormBackward(dOut, input, gamma, mean, variance, dInput);
+        return dInput;
+    }
+
+    @Benchmark
+    public double[][] dropout() {
+        Techniques.dropout(hidden, DROPOUT, random, mask, dropped);
+        return dropped;
+    }
+
+    @Benchmark
+    public double[][] dropoutBackward() {
+        Techniques.dropoutBackward(dHidden, DROPOUT, mask, dDropped);
+        return dDropped;
+    }
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * One training step of the {@link Forward} / {@link Backward} network at the MNIST shapes:
+ * {@link Backward#computeGradients} (its single forward pass, then backpropagation) and an
+ * SGD {@link Backward#updateWeights}, all in one {@link Workspace}. The forward pass alone
+ * is measured as well.
+ */
+public class TrainingStepJmh extends JmhShapes {
+
+    private static final double LEARNING_RATE = 0.001;
+
+    private final Forward forward = new Forward();
+    private final Backward backward = new Backward();
+    private double[][] x, y, W1, W2, W3, b1, b2, b3;
+    private Workspace ws;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(6);
+        x = probabilities(batchSize, INPUT, random);
+        y = oneHot(batchSize, OUTPUT, random);
+        W1 = scaled(INPUT, H1, random);
+        W2 = scaled(H1, H2, random);
+        W3 = scaled(H2, OUTPUT, random);
+        b1 = new double[1][H1];
+        b2 = new double[1][H2];
+        b3 = new double[1][OUTPUT];
+
+        backward.setForward(forward);
+        ws = new Workspace(batchSize, INPUT, H1, H2, OUTPUT, new SplittableRandom(6));
+    }
+
+    @Benchmark
+    public double[][] forward() {
+        return forward.forward(x, W1, b1, W2, b2, W3, b3, ws);
+    }
+
+    @Benchmark
+    public double[][] step() {
+        backward.computeGradients(x, y, W1, W2, W3, b1, b2, b3, ws);
+        backward.updateWeights(W1, W2, W3, b1, b2, b3, LEARNING_RATE, ws);
+        return ws.out3;
+    }
+
+    // He initialization, as for the ReLU layers in Main
+    private static double[][] scaled(int rows, int cols, Random random) {
+        double[][] m = random(rows, cols, random);
+        double scale = Math.sqrt(2.0 / rows);
+        for (double[] row : m)
+            for (int j = 0; j < cols; j++) row[j] *= scale;
+        return m;
+    }
+}
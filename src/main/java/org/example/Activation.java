@@ -0,0 +1,25 @@
+package org.example;
+
+/**
+ * Activation applied by the fused layer kernels ({@link FusedLayer}).
+ * Element-wise activations are applied inside the GEMM epilogue; SOFTMAX needs a
+ * complete row and is applied once the row is finished.
+ */
+public enum Activation {
+    IDENTITY,
+    RELU,
+    LEAKY_RELU,
+    SIGMOID,
+    TANH,
+    SOFTMAX;
+
+    // Negative-side slope used by LEAKY_RELU
+    public static final double LEAKY_RELU_SLOPE = 0.01;
+
+    /**
+     * True if f(x) depends on x alone, so it can be applied to any column range
+     */
+    public boolean isElementWise() {
+        return this != SOFTMAX;
+    }
+}
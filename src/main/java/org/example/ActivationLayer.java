@@ -0,0 +1,64 @@
+package org.example;
+
+import java.util.Random;
+
+/**
+ * Stand-alone activation, for when it cannot be fused into the preceding
+ * {@link DenseLayer} (e.g. after batch normalization). Has no parameters.
+ */
+public class ActivationLayer implements Layer {
+
+    private static final Kernels KERNELS = Kernels.INSTANCE;
+
+    private final Activation activation;
+    private int size;
+
+    // Zero bias, so the fused kernels can apply the activation alone
+    private double[] zeros;
+
+    // Bias gradient the fused backward kernel writes and this layer ignores
+    private double[][] unusedBiasGradient;
+
+    public ActivationLayer(Activation activation) {
+        this.activation = activation;
+    }
+
+    public Activation activation() {
+        return activation;
+    }
+
+    @Override
+    public int build(int inputSize, Random random) {
+        size = inputSize;
+        zeros = new double[inputSize];
+        unusedBiasGradient = new double[1][inputSize];
+        return inputSize;
+    }
+
+    @Override
+    public State allocate(int batchSize) {
+        return new State(batchSize, size, size);
+    }
+
+    @Override
+    public double[][] forward(double[][] input, State state, boolean training) {
+        double[][] out = state.output;
+        if (activation == Activation.SOFTMAX) {
+            Activation_Function.softmax(input, out);
+            return out;
+        }
+
+        for (int i = 0; i < input.length; i++) {
+            System.arraycopy(input[i], 0, out[i], 0, size);
+            KERNELS.biasActivation(out[i], zeros, activation, out[i], 0, size);
+        }
+        return out;
+    }
+
+    @Override
+    public double[][] backward(double[][] input, double[][] dOut, State state, boolean inputGradient) {
+        if (!inputGradient) return null;
+        FusedLayer.backward(dOut, input, state.output, activation, state.inputGradient(), unusedBiasGradient);
+        return state.inputGradient();
+    }
+}
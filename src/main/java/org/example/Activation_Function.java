@@ -3,14 +3,25 @@ package org.example;
 public class Activation_Function {
     // ---------------- ReLU ---------------- //
     public static double[][] relu(double[][] input) {
+        double[][] result = new double[input.length][input[0].length];
+        relu(input, result);
+        return result;
+    }
+
+    // ReLU into result (may be the input itself)
+    public static void relu(double[][] input, double[][] result) {
         int rows = input.length, cols = input[0].length;
-        double[][] result = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++)
-            for (int j = 0; j < cols; j++)
-                result[i][j] = Math.max(0, input[i][j]);
+        if (Parallel.runsInline((long) rows * cols)) {
+            reluRows(input, result, 0, rows);
+            return;
+        }
+        Parallel.forRows(rows, cols, (from, to) -> reluRows(input, result, from, to));
+    }
 
-        return result;
+    private static void reluRows(double[][] input, double[][] result, int from, int to) {
+        for (int i = from; i < to; i++)
+            Kernels.INSTANCE.relu(input[i], result[i], input[i].length);
     }
 
     // ---------------- ReLU Derivative From Output ---------------- //
@@ -18,12 +29,14 @@ public class Activation_Function {
         int rows = reluOutput.length, cols = reluOutput[0].length;
         double[][] derivative = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                // If ReLU output > 0 → derivative = 1, otherwise = 0
-                derivative[i][j] = reluOutput[i][j] > 0 ? 1.0 : 0.0;
+        Parallel.forRows(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j < cols; j++) {
+                    // If ReLU output > 0 → derivative = 1, otherwise = 0
+                    derivative[i][j] = reluOutput[i][j] > 0 ? 1.0 : 0.0;
+                }
             }
-        }
+        });
 
         return derivative;
     }
@@ -33,16 +46,36 @@ public class Activation_Function {
         int rows = netInput.length, cols = netInput[0].length;
         double[][] derivative = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                // If net input > 0 → derivative = 1, otherwise = 0
-                derivative[i][j] = netInput[i][j] > 0 ? 1.0 : 0.0;
-            }
-        }
+        Parallel.forRows(rows, cols, (from, to) -> {
+            // If net input > 0 → derivative = 1, otherwise = 0
+            for (int i = from; i < to; i++)
+                Kernels.INSTANCE.reluDerivative(netInput[i], derivative[i], cols);
+        });
 
         return derivative;
     }
 
+    // ---------------- ReLU Backward ---------------- //
+    // result = gradient * relu'(net), without materializing the derivative (result may alias gradient)
+    public static void reluBackward(double[][] gradient, double[][] netInput, double[][] result) {
+        int rows = gradient.length, cols = gradient[0].length;
+
+        if (Parallel.runsInline((long) rows * cols)) {
+            reluBackwardRows(gradient, netInput, result, 0, rows);
+            return;
+        }
+        Parallel.forRows(rows, cols, (from, to) -> reluBackwardRows(gradient, netInput, result, from, to));
+    }
+
+    private static void reluBackwardRows(double[][] gradient, double[][] netInput, double[][] result,
+                                         int from, int to) {
+        for (int i = from; i < to; i++) {
+            double[] g = gradient[i], net = netInput[i], out = result[i];
+            for (int j = 0; j < out.length; j++)
+                out[j] = net[j] > 0 ? g[j] : 0.0;
+        }
+    }
+
     // ---------------- Batch Normalization After Relu ---------------- //
     public static double[][] batchNormAfterRelu(double[][] input, double epsilon) {
         // Step 1: Apply ReLU first
@@ -82,10 +115,24 @@ public class Activation_Function {
 
     // ---------------- Softmax ---------------- //
     public static double[][] softmax(double[][] input) {
+        double[][] result = new double[input.length][input[0].length];
+        softmax(input, result);
+        return result;
+    }
+
+    // Softmax into result (may be the input itself)
+    public static void softmax(double[][] input, double[][] result) {
         int rows = input.length, cols = input[0].length;
-        double[][] result = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++) {
+        if (Parallel.runsInline((long) rows * cols)) {
+            softmaxRows(input, result, 0, rows);
+            return;
+        }
+        Parallel.forRows(rows, cols, (from, to) -> softmaxRows(input, result, from, to));
+    }
+
+    static void softmaxRows(double[][] input, double[][] result, int from, int to) {
+        for (int i = from; i < to; i++) {
             // 1. Find max for numerical stability
             double maxLogit = Matrix_Operations.findMax(input[i]);
 
@@ -93,12 +140,10 @@ public class Activation_Function {
             double expSum = Matrix_Operations.sumExp(input[i], maxLogit, result[i]);
 
             // 3. Normalize
-            for (int j = 0; j < cols; j++) {
+            for (int j = 0; j < result[i].length; j++) {
                 result[i][j] /= expSum;
             }
         }
-
-        return result;
     }
 
     // ---------------- Sigmoid (Optional Addition) ---------------- //
@@ -106,11 +151,10 @@ public class Activation_Function {
         int rows = input.length, cols = input[0].length;
         double[][] result = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                result[i][j] = 1.0 / (1.0 + Math.exp(-input[i][j]));
-            }
-        }
+        Parallel.forRows(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++)
+                Kernels.INSTANCE.sigmoid(input[i], result[i], cols);
+        });
 
         return result;
     }
@@ -120,12 +164,14 @@ public class Activation_Function {
         int rows = sigmoidOutput.length, cols = sigmoidOutput[0].length;
         double[][] derivative = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                // derivative = sigmoid(x) * (1 - sigmoid(x))
-                derivative[i][j] = sigmoidOutput[i][j] * (1.0 - sigmoidOutput[i][j]);
+        Parallel.forRows(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j < cols; j++) {
+                    // derivative = sigmoid(x) * (1 - sigmoid(x))
+                    derivative[i][j] = sigmoidOutput[i][j] * (1.0 - sigmoidOutput[i][j]);
+                }
             }
-        }
+        });
 
         return derivative;
     }
@@ -135,11 +181,13 @@ public class Activation_Function {
         int rows = input.length, cols = input[0].length;
         double[][] result = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                result[i][j] = Math.tanh(input[i][j]);
+        Parallel.forRows(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j < cols; j++) {
+                    result[i][j] = Math.tanh(input[i][j]);
+                }
             }
-        }
+        });
 
         return result;
     }
@@ -149,12 +197,14 @@ public class Activation_Function {
         int rows = tanhOutput.length, cols = tanhOutput[0].length;
         double[][] derivative = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                // derivative = 1 - tanh²(x)
-                derivative[i][j] = 1.0 - (tanhOutput[i][j] * tanhOutput[i][j]);
+        Parallel.forRows(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j < cols; j++) {
+                    // derivative = 1 - tanh²(x)
+                    derivative[i][j] = 1.0 - (tanhOutput[i][j] * tanhOutput[i][j]);
+                }
             }
-        }
+        });
 
         return derivative;
     }
@@ -164,11 +214,10 @@ public class Activation_Function {
         int rows = input.length, cols = input[0].length;
         double[][] result = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                result[i][j] = input[i][j] > 0 ? input[i][j] : alpha * input[i][j];
-            }
-        }
+        Parallel.forRows(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++)
+                Kernels.INSTANCE.leakyRelu(input[i], alpha, result[i], cols);
+        });
 
         return result;
     }
@@ -178,11 +227,13 @@ public class Activation_Function {
         int rows = input.length, cols = input[0].length;
         double[][] derivative = new double[rows][cols];
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                derivative[i][j] = input[i][j] > 0 ? 1.0 : alpha;
+        Parallel.forRows(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j < cols; j++) {
+                    derivative[i][j] = input[i][j] > 0 ? 1.0 : alpha;
+                }
             }
-        }
+        });
 
         return derivative;
     }
@@ -0,0 +1,106 @@
+package org.example;
+
+/**
+ * Adam, and AdamW when weightDecay is set:
+ * m = beta1 * m + (1 - beta1) * g, v = beta2 * v + (1 - beta2) * g^2, then
+ * p -= learningRate * (m / (1 - beta1^t)) / (sqrt(v / (1 - beta2^t)) + epsilon).
+ * Weight decay is decoupled from the moments (Loshchilov & Hutter): decayed tensors
+ * are shrunk by (1 - learningRate * weightDecay) in the same pass.
+ */
+public class Adam implements Optimizer {
+
+    private double learningRate;
+    private final double beta1, beta2, epsilon, weightDecay;
+
+    // First and second moment estimates, one per parameter element
+    private double[] m, v;
+
+    // Steps taken, for the bias correction
+    private long t;
+
+    public Adam(double learningRate) {
+        this(learningRate, 0.9, 0.999, 1e-8, 0.0);
+    }
+
+    /**
+     * @param beta1 Decay of the gradient average, in [0, 1)
+     * @param beta2 Decay of the squared-gradient average, in [0, 1)
+     * @param epsilon Added to the root mean square to avoid dividing by zero
+     * @param weightDecay Decoupled weight decay (0 for Adam, e.g. 0.01 for AdamW)
+     */
+    public Adam(double learningRate, double beta1, double beta2, double epsilon, double weightDecay) {
+        Optimizer.checkLearningRate(learningRate);
+        if (beta1 < 0.0 || beta1 >= 1.0 || beta2 < 0.0 || beta2 >= 1.0)
+            throw new IllegalArgumentException("Beta1 and beta2 must be in [0, 1).");
+        if (!(epsilon > 0.0))
+            throw new IllegalArgumentException("Epsilon must be positive.");
+        if (weightDecay < 0.0)
+            throw new IllegalArgumentException("Weight decay must not be negative.");
+        this.learningRate = learningRate;
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+        this.weightDecay = weightDecay;
+    }
+
+    @Override
+    public void update(double[][][] parameters, double[][][] gradients, boolean[] decay) {
+        if (m == null) {
+            m = new double[Optimizer.size(parameters)];
+            v = new double[m.length];
+        }
+        Optimizer.checkState(m, parameters);
+
+        t++;
+        double correction1 = 1.0 / (1.0 - Math.pow(beta1, t));
+        double correction2 = 1.0 / (1.0 - Math.pow(beta2, t));
+        double lr = learningRate;
+
+        int k = 0;
+        for (int s = 0; s < parameters.length; s++) {
+            double shrink = decay[s] ? 1.0 - lr * weightDecay : 1.0;
+            for (int i = 0; i < parameters[s].length; i++) {
+                double[] p = parameters[s][i], g = gradients[s][i];
+                for (int j = 0; j < p.length; j++, k++) {
+                    double gj = g[j];
+                    double mk = beta1 * m[k] + (1.0 - beta1) * gj;
+                    double vk = beta2 * v[k] + (1.0 - beta2) * gj * gj;
+                    m[k] = mk;
+                    v[k] = vk;
+                    p[j] = shrink * p[j] - lr * (mk * correction1) / (Math.sqrt(vk * correction2) + epsilon);
+                }
+            }
+        }
+    }
+
+    @Override
+    public double[][] state() {
+        return m == null ? new double[0][] : new double[][]{m, v};
+    }
+
+    @Override
+    public long steps() {
+        return t;
+    }
+
+    @Override
+    public void restore(double[][] state, long steps) {
+        if (state.length != 2 || state[0].length != state[1].length)
+            throw new IllegalArgumentException("Adam state is two moment buffers of equal length.");
+        m = state[0].clone();
+        v = state[1].clone();
+        t = steps;
+    }
+
+    @Override
+    public double learningRate() { return learningRate; }
+
+    @Override
+    public double weightDecay() { return weightDecay; }
+
+    @Override
+    public void setLearningRate(double learningRate) {
+        Optimizer.checkLearningRate(learningRate);
+        this.learningRate = learningRate;
+    }
+}
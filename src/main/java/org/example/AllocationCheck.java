@@ -0,0 +1,119 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Verifies that a steady-state training step with a {@link Workspace} allocates nothing
+ * on the heap: runs the same per-batch sequence as Main (one forward pass, loss,
+ * backward, weight decay, update) until the JIT has compiled it, then reads the
+ * thread's allocation counter around a few hundred more steps, once with the SGD update
+ * and once with an {@link Optimizer} (Adam). Also checks that the
+ * workspace forward pass produces exactly the same output as the allocating one.
+ * Exits with status 1 on failure.
+ *
+ * The pool is pinned to one thread: above {@link Parallel#THRESHOLD} the parallel path
+ * allocates a handful of ForkJoin task objects per product, which are not per-element
+ * garbage but would not be seen by a per-thread counter anyway.
+ *
+ * Run with: java -cp target/classes org.example.AllocationCheck
+ */
+public class AllocationCheck {
+
+    private static final int INPUT = 784, H1 = 128, H2 = 64, OUTPUT = 10;
+    private static final int SAMPLES = 1024, BATCH = 32;
+    private static final int WARMUP_STEPS = 5000, MEASURED_STEPS = 500;
+    private static final double LEARNING_RATE = 0.001, L2_LAMBDA = 0.001;
+
+    public static void main(String[] args) {
+        Parallel.setParallelism(1);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("⚠️ Thread allocation counters are not supported by this JVM");
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        double[][] X = GemmBenchmark.randomMatrix(SAMPLES, INPUT);
+        double[][] Y = new double[SAMPLES][OUTPUT];
+        for (int i = 0; i < SAMPLES; i++) Y[i][i % OUTPUT] = 1.0;
+
+        double[][] W1 = GemmBenchmark.randomMatrix(INPUT, H1), W2 = GemmBenchmark.randomMatrix(H1, H2),
+                W3 = GemmBenchmark.randomMatrix(H2, OUTPUT);
+        scale(W1, Math.sqrt(2.0 / INPUT));
+        scale(W2, Math.sqrt(2.0 / H1));
+        scale(W3, Math.sqrt(2.0 / H2));
+        double[][] b1 = new double[1][H1], b2 = new double[1][H2], b3 = new double[1][OUTPUT];
+
+        Forward forward = new Forward();
+        Backward backward = new Backward();
+        Loss loss = new Loss();
+        backward.setForward(forward);
+        Workspace ws = new Workspace(BATCH, INPUT, H1, H2, OUTPUT);
+
+        // The workspace path must compute exactly what the allocating path computes
+        double[][] xBatch = Arrays.copyOf(X, BATCH);
+        forward.setRandomSeed(3);
+        double[][] expected = forward.forward(xBatch, W1, b1, W2, b2, W3, b3);
+        ws.setRandomSeed(3);
+        double[][] actual = forward.forward(xBatch, W1, b1, W2, b2, W3, b3, ws);
+        boolean identical = Arrays.deepEquals(expected, actual);
+
+        for (int step = 0; step < WARMUP_STEPS; step++) trainStep(backward, loss, ws, X, Y, step,
+                W1, W2, W3, b1, b2, b3, null);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int step = 0; step < MEASURED_STEPS; step++) trainStep(backward, loss, ws, X, Y, step,
+                W1, W2, W3, b1, b2, b3, null);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        Optimizer adam = new Adam(LEARNING_RATE);
+        for (int step = 0; step < WARMUP_STEPS; step++) trainStep(backward, loss, ws, X, Y, step,
+                W1, W2, W3, b1, b2, b3, adam);
+
+        before = threads.getCurrentThreadAllocatedBytes();
+        for (int step = 0; step < MEASURED_STEPS; step++) trainStep(backward, loss, ws, X, Y, step,
+                W1, W2, W3, b1, b2, b3, adam);
+        long allocatedAdam = threads.getCurrentThreadAllocatedBytes() - before;
+
+        System.out.println("Workspace forward matches allocating forward: " + identical);
+        System.out.printf("Allocated over %d steps: %d bytes (%.1f bytes/step)%n",
+                MEASURED_STEPS, allocated, (double) allocated / MEASURED_STEPS);
+        System.out.printf("Allocated over %d Adam steps: %d bytes (%.1f bytes/step)%n",
+                MEASURED_STEPS, allocatedAdam, (double) allocatedAdam / MEASURED_STEPS);
+
+        boolean ok = identical && allocated == 0 && allocatedAdam == 0;
+        System.out.println(ok ? "✅ Training step is allocation-free" : "❌ Training step allocates");
+        if (!ok) System.exit(1);
+    }
+
+    // Same per-batch sequence as the training loop in Main; SGD when optimizer is null
+    private static double trainStep(Backward backward, Loss loss, Workspace ws,
+                                    double[][] X, double[][] Y, int step,
+                                    double[][] W1, double[][] W2, double[][] W3,
+                                    double[][] b1, double[][] b2, double[][] b3, Optimizer optimizer) {
+        double[][] xBatch = ws.loadBatch(X, Y, (step * BATCH) % SAMPLES);
+        double[][] yBatch = ws.labels();
+
+        double[][] predictions = backward.forwardBackward(xBatch, yBatch, W1, W2, W3, b1, b2, b3, ws);
+        double batchLoss = loss.calculate_batch_loss(yBatch, predictions)
+                + Techniques.l2Regularization(W1, L2_LAMBDA)
+                + Techniques.l2Regularization(W2, L2_LAMBDA)
+                + Techniques.l2Regularization(W3, L2_LAMBDA);
+
+        Techniques.addWeightDecay(ws.dW1, W1, L2_LAMBDA);
+        Techniques.addWeightDecay(ws.dW2, W2, L2_LAMBDA);
+        Techniques.addWeightDecay(ws.dW3, W3, L2_LAMBDA);
+        if (optimizer == null) backward.updateWeights(W1, W2, W3, b1, b2, b3, LEARNING_RATE, ws);
+        else backward.updateWeights(W1, W2, W3, b1, b2, b3, optimizer, ws);
+
+        return batchLoss;
+    }
+
+    private static void scale(double[][] a, double factor) {
+        for (double[] row : a)
+            for (int j = 0; j < row.length; j++) row[j] *= factor;
+    }
+}
@@ -1,118 +1,138 @@
 package org.example;
 
+/**
+ * Backpropagation for the 3-layer network of {@link Forward}. Gradients are written to
+ * the {@link Workspace} of the pass (ws.dW1 .. ws.dBeta1), never to this instance, so
+ * one Backward can serve several threads that each use their own workspace.
+ */
 public class Backward {
-    private Forward forward;
-    private Loss loss;
-
-    // Gradients for weights and biases
-    public double[][] dW1, dW2, dW3;
-    public double[][] db1, db2, db3;
+    // Tensors of updateWeights(..., Optimizer, ws) that take weight decay: W1, W2, W3
+    private static final boolean[] WEIGHT_DECAY = {true, false, true, false, false, false, true, false};
 
-    // Gradients for batch normalization
-    public double[][] dGamma1, dBeta1;
+    private Forward forward;
 
-    public void setForwardAndLoss(Forward forward, Loss loss) {
+    public void setForward(Forward forward) {
         this.forward = forward;
-        this.loss = loss;
     }
 
     /**
      * Compute gradients for a 3-layer neural network with dropout and batch norm
+     * @return A fresh workspace holding the gradients (dropout drawn from the Forward's generator)
+     */
+    public Workspace computeGradients(double[][] X_batch, double[][] Y_batch,
+                                      double[][] W1, double[][] W2, double[][] W3,
+                                      double[][] b1, double[][] b2, double[][] b3) {
+
+        Workspace ws = forward.newWorkspace(X_batch, W1, W2, W3);
+        computeGradients(X_batch, Y_batch, W1, W2, W3, b1, b2, b3, ws);
+        return ws;
+    }
+
+    /**
+     * Same as above, but every intermediate and gradient lives in the given workspace,
+     * so the step allocates nothing. ws.dW1 .. ws.dBeta1 are overwritten by the next
+     * call with the same workspace.
      */
     public void computeGradients(double[][] X_batch, double[][] Y_batch,
                                  double[][] W1, double[][] W2, double[][] W3,
-                                 double[][] b1, double[][] b2, double[][] b3) {
+                                 double[][] b1, double[][] b2, double[][] b3,
+                                 Workspace ws) {
+        forwardBackward(X_batch, Y_batch, W1, W2, W3, b1, b2, b3, ws);
+    }
 
-        int m = X_batch.length; // number of examples
+    /**
+     * One training step's only forward pass, followed by backpropagation from its
+     * cached activations
+     * @return The probabilities the gradients were computed from (ws.out3), for the loss
+     *         and accuracy of the step; same dropout mask and batch statistics
+     */
+    public double[][] forwardBackward(double[][] X_batch, double[][] Y_batch,
+                                      double[][] W1, double[][] W2, double[][] W3,
+                                      double[][] b1, double[][] b2, double[][] b3,
+                                      Workspace ws) {
+        double[][] out3 = forward.forward(X_batch, W1, b1, W2, b2, W3, b3, ws);
+        backpropagate(X_batch, Y_batch, W2, W3, ws);
+        return out3;
+    }
 
-        // ===== Forward pass outputs =====
-        double[][] out3 = forward.forward(X_batch, W1, b1, W2, b2, W3, b3);
-        double[][] out2 = forward.getOut2();
-        double[][] out1 = forward.getOut1();
-        double[][] net2 = forward.getNet2();
-        double[][] net1 = forward.getNet1();
+    /**
+     * Gradients from the activations, dropout mask and batch statistics that the last
+     * forward pass left in ws, without running the network again
+     */
+    public void backpropagate(double[][] X_batch, double[][] Y_batch,
+                              double[][] W2, double[][] W3, Workspace ws) {
+        double[][] out3 = ws.out3;
 
         // ================= Output Layer =================
-        double[][] dZ3 = new double[m][Y_batch[0].length];
-        for (int i = 0; i < m; i++)
-            for (int j = 0; j < Y_batch[0].length; j++)
-                dZ3[i][j] = out3[i][j] - Y_batch[i][j]; // dZ = out - Y
-
-        dW3 = Matrix_Operations.multiply(Matrix_Operations.transpose(out2), dZ3);
-        db3 = new double[1][dZ3[0].length];
-        for (int j = 0; j < dZ3[0].length; j++) {
-            double sum = 0;
-            for (int i = 0; i < m; i++) sum += dZ3[i][j];
-            db3[0][j] = sum;
-        }
+        FusedLayer.softmaxCrossEntropyBackward(out3, Y_batch, ws.dZ3, ws.db3); // dZ = out - Y
+
+        Matrix_Operations.multiplyTransposeA(ws.out2, ws.dZ3, ws.dW3);
 
         // ================= Hidden Layer 2 (with Batch Norm) =================
-        double[][] dA2 = Matrix_Operations.multiply(dZ3, Matrix_Operations.transpose(W3));
+        Matrix_Operations.multiplyTransposeB(ws.dZ3, W3, ws.dA2);
 
         // Backprop through batch normalization
-        double[][] dA2_bn = Techniques.batchNormBackward(dA2, out2,
-                forward.getGamma1(), forward.getBeta1());
+        Techniques.batchNormBackward(ws.dA2, ws.out2, forward.getGamma1(),
+                ws.bnMean, ws.bnVariance, ws.dZ2);
 
         // Store batch norm gradients
-        dGamma1 = Techniques.computeGammaGradient(dA2, out2);
-        dBeta1 = Techniques.computeBetaGradient(dA2);
-
-        double[][] dZ2 = new double[dA2_bn.length][dA2_bn[0].length];
-        double[][] reluDer2 = Activation_Function.reluDerivativeFromNet(net2);
-        for (int i = 0; i < dA2_bn.length; i++)
-            for (int j = 0; j < dA2_bn[0].length; j++)
-                dZ2[i][j] = dA2_bn[i][j] * reluDer2[i][j];
-
-        dW2 = Matrix_Operations.multiply(Matrix_Operations.transpose(out1), dZ2);
-        db2 = new double[1][dZ2[0].length];
-        for (int j = 0; j < dZ2[0].length; j++) {
-            double sum = 0;
-            for (int i = 0; i < m; i++) sum += dZ2[i][j];
-            db2[0][j] = sum;
-        }
+        Techniques.computeGammaGradient(ws.dA2, ws.bnNormalized, ws.dGamma1);
+        Matrix_Operations.columnSums(ws.dA2, ws.dBeta1);
+
+        FusedLayer.backward(ws.dZ2, ws.net2, null, Activation.RELU, ws.dZ2, ws.db2);
+
+        Matrix_Operations.multiplyTransposeA(ws.out1, ws.dZ2, ws.dW2);
 
         // ================= Hidden Layer 1 (with Dropout) =================
-        double[][] dA1 = Matrix_Operations.multiply(dZ2, Matrix_Operations.transpose(W2));
-
-        // Backprop through dropout (assuming dropout mask is saved in Techniques)
-        dA1 = Techniques.dropoutBackward(dA1, 0.3);
-
-        double[][] dZ1 = new double[dA1.length][dA1[0].length];
-        double[][] reluDer1 = Activation_Function.reluDerivativeFromNet(net1);
-        for (int i = 0; i < dA1.length; i++)
-            for (int j = 0; j < dA1[0].length; j++)
-                dZ1[i][j] = dA1[i][j] * reluDer1[i][j];
-
-        dW1 = Matrix_Operations.multiply(Matrix_Operations.transpose(X_batch), dZ1);
-        db1 = new double[1][dZ1[0].length];
-        for (int j = 0; j < dZ1[0].length; j++) {
-            double sum = 0;
-            for (int i = 0; i < m; i++) sum += dZ1[i][j];
-            db1[0][j] = sum;
-        }
+        Matrix_Operations.multiplyTransposeB(ws.dZ2, W2, ws.dZ1);
+
+        // Backprop through dropout with the mask saved by the forward pass
+        Techniques.dropoutBackward(ws.dZ1, 0.3, ws.dropoutMask, ws.dZ1);
+
+        FusedLayer.backward(ws.dZ1, ws.net1, null, Activation.RELU, ws.dZ1, ws.db1);
+
+        Matrix_Operations.multiplyTransposeA(X_batch, ws.dZ1, ws.dW1);
     }
 
     /**
-     * Apply gradient descent update - Fixed version
+     * Apply gradient descent update with the gradients held in ws
      */
     public void updateWeights(double[][] W1, double[][] W2, double[][] W3,
                               double[][] b1, double[][] b2, double[][] b3,
-                              double learningRate) {
+                              double learningRate, Workspace ws) {
 
         // Update weights in-place
-        updateMatrixInPlace(W1, dW1, learningRate);
-        updateMatrixInPlace(W2, dW2, learningRate);
-        updateMatrixInPlace(W3, dW3, learningRate);
+        updateMatrixInPlace(W1, ws.dW1, learningRate);
+        updateMatrixInPlace(W2, ws.dW2, learningRate);
+        updateMatrixInPlace(W3, ws.dW3, learningRate);
 
-        updateMatrixInPlace(b1, db1, learningRate);
-        updateMatrixInPlace(b2, db2, learningRate);
-        updateMatrixInPlace(b3, db3, learningRate);
+        updateMatrixInPlace(b1, ws.db1, learningRate);
+        updateMatrixInPlace(b2, ws.db2, learningRate);
+        updateMatrixInPlace(b3, ws.db3, learningRate);
 
         // Update batch normalization parameters
-        if (dGamma1 != null && dBeta1 != null) {
-            updateMatrixInPlace(forward.getGamma1(), dGamma1, learningRate);
-            updateMatrixInPlace(forward.getBeta1(), dBeta1, learningRate);
-        }
+        updateMatrixInPlace(forward.getGamma1(), ws.dGamma1, learningRate);
+        updateMatrixInPlace(forward.getBeta1(), ws.dBeta1, learningRate);
+    }
+
+    /**
+     * Apply one step of the given optimizer with the gradients held in ws. Parameters are
+     * passed in the order W1, b1, W2, b2, gamma1, beta1, W3, b3; decoupled weight decay
+     * applies to W1..W3.
+     */
+    public void updateWeights(double[][] W1, double[][] W2, double[][] W3,
+                              double[][] b1, double[][] b2, double[][] b3,
+                              Optimizer optimizer, Workspace ws) {
+        double[][][] parameters = ws.parameters;
+        parameters[0] = W1;
+        parameters[1] = b1;
+        parameters[2] = W2;
+        parameters[3] = b2;
+        parameters[4] = forward.getGamma1();
+        parameters[5] = forward.getBeta1();
+        parameters[6] = W3;
+        parameters[7] = b3;
+        optimizer.update(parameters, ws.gradients, WEIGHT_DECAY);
     }
 
     /**
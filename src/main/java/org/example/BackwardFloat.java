@@ -0,0 +1,137 @@
+package org.example;
+
+/**
+ * Single-precision version of {@link Backward}, driven by a {@link ForwardFloat}.
+ */
+public class BackwardFloat {
+    private ForwardFloat forward;
+
+    // Gradients for weights and biases
+    public float[][] dW1, dW2, dW3;
+    public float[][] db1, db2, db3;
+
+    // Gradients for batch normalization
+    public float[][] dGamma1, dBeta1;
+
+    public void setForward(ForwardFloat forward) {
+        this.forward = forward;
+    }
+
+    /**
+     * Compute gradients for a 3-layer neural network with dropout and batch norm
+     */
+    public void computeGradients(float[][] X_batch, float[][] Y_batch,
+                                 float[][] W1, float[][] W2, float[][] W3,
+                                 float[][] b1, float[][] b2, float[][] b3) {
+        forwardBackward(X_batch, Y_batch, W1, W2, W3, b1, b2, b3);
+    }
+
+    /**
+     * One training step's only forward pass, followed by backpropagation from its
+     * cached activations
+     * @return The probabilities the gradients were computed from, for the step's loss and accuracy
+     */
+    public float[][] forwardBackward(float[][] X_batch, float[][] Y_batch,
+                                     float[][] W1, float[][] W2, float[][] W3,
+                                     float[][] b1, float[][] b2, float[][] b3) {
+        float[][] out3 = forward.forward(X_batch, W1, b1, W2, b2, W3, b3);
+        backpropagate(X_batch, Y_batch, W2, W3);
+        return out3;
+    }
+
+    /**
+     * Same with one class index per row instead of one-hot label rows
+     */
+    public float[][] forwardBackward(float[][] X_batch, int[] labels,
+                                     float[][] W1, float[][] W2, float[][] W3,
+                                     float[][] b1, float[][] b2, float[][] b3) {
+        float[][] out3 = forward.forward(X_batch, W1, b1, W2, b2, W3, b3);
+        backpropagate(X_batch, labels, W2, W3);
+        return out3;
+    }
+
+    /**
+     * Gradients from the activations, dropout mask and batch statistics the forward
+     * pass last cached, without running the network again
+     */
+    public void backpropagate(float[][] X_batch, float[][] Y_batch, float[][] W2, float[][] W3) {
+        int m = X_batch.length;
+        float[][] out3 = forward.getOut3();
+
+        // ================= Output Layer =================
+        float[][] dZ3 = new float[m][Y_batch[0].length];
+        for (int i = 0; i < m; i++)
+            for (int j = 0; j < Y_batch[0].length; j++)
+                dZ3[i][j] = out3[i][j] - Y_batch[i][j]; // dZ = out - Y
+
+        backpropagateFrom(dZ3, X_batch, W2, W3);
+    }
+
+    /**
+     * Same with one class index per row: dZ = out, less 1 at the labelled column
+     */
+    public void backpropagate(float[][] X_batch, int[] labels, float[][] W2, float[][] W3) {
+        int m = X_batch.length;
+        float[][] out3 = forward.getOut3();
+
+        // ================= Output Layer =================
+        float[][] dZ3 = new float[m][];
+        for (int i = 0; i < m; i++) {
+            LossFunction.checkLabel(labels[i], out3[i].length);
+            dZ3[i] = out3[i].clone();
+            dZ3[i][labels[i]] -= 1f;
+        }
+
+        backpropagateFrom(dZ3, X_batch, W2, W3);
+    }
+
+    // The layers below the output, from its dZ
+    private void backpropagateFrom(float[][] dZ3, float[][] X_batch, float[][] W2, float[][] W3) {
+        float[][] out2 = forward.getOut2();
+        float[][] out1 = forward.getOut1();
+        float[][] net2 = forward.getNet2();
+        float[][] net1 = forward.getNet1();
+
+        dW3 = FloatGemm.multiply(out2, true, dZ3, false);
+        db3 = FloatOps.columnSums(dZ3);
+
+        // ================= Hidden Layer 2 (with Batch Norm) =================
+        float[][] dA2 = FloatGemm.multiply(dZ3, false, W3, true);
+
+        float[][] dA2_bn = forward.batchNormBackward(dA2, out2);
+        dGamma1 = forward.gammaGradient(dA2);
+        dBeta1 = FloatOps.columnSums(dA2);
+
+        float[][] dZ2 = FloatOps.maskByReluDerivative(dA2_bn, net2);
+        dW2 = FloatGemm.multiply(out1, true, dZ2, false);
+        db2 = FloatOps.columnSums(dZ2);
+
+        // ================= Hidden Layer 1 (with Dropout) =================
+        float[][] dA1 = forward.dropoutBackward(FloatGemm.multiply(dZ2, false, W2, true));
+
+        float[][] dZ1 = FloatOps.maskByReluDerivative(dA1, net1);
+        dW1 = FloatGemm.multiply(X_batch, true, dZ1, false);
+        db1 = FloatOps.columnSums(dZ1);
+    }
+
+    /**
+     * Apply gradient descent update
+     */
+    public void updateWeights(float[][] W1, float[][] W2, float[][] W3,
+                              float[][] b1, float[][] b2, float[][] b3,
+                              float learningRate) {
+
+        FloatOps.updateInPlace(W1, dW1, learningRate);
+        FloatOps.updateInPlace(W2, dW2, learningRate);
+        FloatOps.updateInPlace(W3, dW3, learningRate);
+
+        FloatOps.updateInPlace(b1, db1, learningRate);
+        FloatOps.updateInPlace(b2, db2, learningRate);
+        FloatOps.updateInPlace(b3, db3, learningRate);
+
+        if (dGamma1 != null && dBeta1 != null) {
+            FloatOps.updateInPlace(forward.getGamma1(), dGamma1, learningRate);
+            FloatOps.updateInPlace(forward.getBeta1(), dBeta1, learningRate);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Checks batch normalization in {@link Techniques} and {@link BatchNormLayer}:
+ *
+ * 1. The single-pass Welford statistics match a two-pass mean and variance, also for
+ *    activations with a large common offset.
+ * 2. The backward pass matches the textbook formula (per-element {@code Math.pow}),
+ *    both for the layer's real input and for the arbitrary input {@link Backward} passes.
+ * 3. Running statistics, trained on batches from a fixed distribution, approach its
+ *    mean and variance.
+ * 4. In eval mode a row alone gets the same output as inside a batch, equal to
+ *    {@link InferenceEngine}'s, and a single row no longer divides by sqrt(epsilon).
+ *
+ * Also times the Welford kernel (a statistics pass and a normalize pass) against the
+ * three-pass formulation it replaced. The eval check trains on the same data as
+ * {@link DataParallelCheck} (MNIST when its four IDX files are passed). Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.BatchNormCheck [images labels testImages testLabels]
+ */
+public class BatchNormCheck {
+
+    private static final int BATCH = 64, FEATURES = 128, STEPS = 400;
+    private static final double EPSILON = 1e-8, TOLERANCE = 1e-12;
+
+    public static void main(String[] args) throws IOException {
+        boolean ok = checkStatistics(0.0) & checkStatistics(1e8) & checkBackward() & checkRunning() & checkEval(args);
+        benchmark();
+        if (!ok) {
+            System.out.println("❌ Batch-norm check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Batch normalization matches its reference formulas");
+    }
+
+    // ---------------- Statistics ---------------- //
+
+    private static boolean checkStatistics(double offset) {
+        Random random = new Random(1);
+        double[][] x = gaussian(BATCH, FEATURES, random);
+        for (double[] row : x)
+            for (int j = 0; j < FEATURES; j++) row[j] += offset;
+        double[][] gamma = gaussian(1, FEATURES, random), beta = gaussian(1, FEATURES, random);
+
+        double[] mean = new double[FEATURES], variance = new double[FEATURES];
+        double[][] normalized = new double[BATCH][FEATURES], out = new double[BATCH][FEATURES];
+        Techniques.batchNormalization(x, gamma, beta, EPSILON, mean, variance, normalized, out);
+
+        double[] expectedMean = new double[FEATURES], expectedVariance = new double[FEATURES];
+        double[][] expected = threePass(x, gamma, beta, expectedMean, expectedVariance);
+
+        // Variance relative to its own size; outputs relative to the unit scale of a normalized value
+        double worst = 0.0;
+        for (int j = 0; j < FEATURES; j++) {
+            worst = Math.max(worst, Math.abs(mean[j] - expectedMean[j]) / Math.max(1.0, Math.abs(expectedMean[j])));
+            worst = Math.max(worst, Math.abs(variance[j] - expectedVariance[j]) / expectedVariance[j]);
+        }
+        double output = 0.0;
+        for (int i = 0; i < BATCH; i++)
+            for (int j = 0; j < FEATURES; j++) output = Math.max(output, Math.abs(out[i][j] - expected[i][j]));
+
+        // An offset of 1e8 leaves about 8 significant digits for unit-variance data
+        double tolerance = offset == 0.0 ? TOLERANCE : 1e-6;
+        boolean ok = worst <= tolerance && output <= tolerance;
+        System.out.printf("%s Welford statistics vs two-pass, offset %.0e: max error %.2e, outputs %.2e%n",
+                ok ? "✔" : "✘", offset, worst, output);
+        return ok;
+    }
+
+    // The previous formulation: mean pass, variance pass, normalize pass with a square root per element
+    private static double[][] threePass(double[][] x, double[][] gamma, double[][] beta, double[] mean, double[] variance) {
+        int batch = x.length, features = x[0].length;
+        for (int j = 0; j < features; j++) {
+            double sum = 0.0;
+            for (int i = 0; i < batch; i++) sum += x[i][j];
+            mean[j] = sum / batch;
+        }
+        for (int j = 0; j < features; j++) {
+            double sum = 0.0;
+            for (int i = 0; i < batch; i++) {
+                double diff = x[i][j] - mean[j];
+                sum += diff * diff;
+            }
+            variance[j] = sum / batch;
+        }
+        double[][] result = new double[batch][features];
+        for (int i = 0; i < batch; i++)
+            for (int j = 0; j < features; j++)
+                result[i][j] = gamma[0][j] * (x[i][j] - mean[j]) / Math.sqrt(variance[j] + EPSILON) + beta[0][j];
+        return result;
+    }
+
+    // ---------------- Backward ---------------- //
+
+    private static boolean checkBackward() {
+        Random random = new Random(2);
+        double[][] x = gaussian(BATCH, FEATURES, random), dOut = gaussian(BATCH, FEATURES, random);
+        double[][] gamma = gaussian(1, FEATURES, random), beta = gaussian(1, FEATURES, random);
+        double[] mean = new double[FEATURES], variance = new double[FEATURES];
+        double[][] out = new double[BATCH][FEATURES];
+        Techniques.batchNormalization(x, gamma, beta, EPSILON, mean, variance, new double[BATCH][FEATURES], out);
+
+        boolean ok = true;
+        String[] names = {"layer input", "layer output (as Backward passes it)"};
+        double[][][] inputs = {x, out};
+        for (int k = 0; k < inputs.length; k++) {
+            double[][] actual = new double[BATCH][FEATURES];
+            Techniques.batchNormBackward(dOut, inputs[k], gamma, mean, variance, actual);
+            double[][] expected = textbookBackward(dOut, inputs[k], gamma, mean, variance);
+
+            double worst = 0.0;
+            for (int i = 0; i < BATCH; i++)
+                for (int j = 0; j < FEATURES; j++)
+                    worst = Math.max(worst, Math.abs(actual[i][j] - expected[i][j]) / Math.max(1.0, Math.abs(expected[i][j])));
+            boolean same = worst <= TOLERANCE;
+            ok &= same;
+            System.out.printf("%s backward vs textbook formula, %s: max error %.2e%n", same ? "✔" : "✘", names[k], worst);
+        }
+        return ok;
+    }
+
+    private static double[][] textbookBackward(double[][] dOut, double[][] x, double[][] gamma,
+                                               double[] mean, double[] variance) {
+        int batch = dOut.length, features = dOut[0].length;
+        double[][] dInput = new double[batch][features];
+        for (int j = 0; j < features; j++) {
+            double stdDev = Math.sqrt(variance[j] + EPSILON), dVar = 0.0, dMean = 0.0, centered = 0.0;
+            for (int i = 0; i < batch; i++)
+                dVar += dOut[i][j] * gamma[0][j] * (x[i][j] - mean[j]) * (-0.5) * Math.pow(stdDev, -3);
+            for (int i = 0; i < batch; i++) {
+                dMean += dOut[i][j] * gamma[0][j] * (-1.0 / stdDev);
+                centered += x[i][j] - mean[j];
+            }
+            dMean += dVar * (-2.0 / batch) * centered;
+            for (int i = 0; i < batch; i++)
+                dInput[i][j] = dOut[i][j] * gamma[0][j] / stdDev + dVar * 2.0 * (x[i][j] - mean[j]) / batch + dMean / batch;
+        }
+        return dInput;
+    }
+
+    // ---------------- Running statistics ---------------- //
+
+    private static boolean checkRunning() {
+        Random random = new Random(3);
+        double[] mu = new double[FEATURES], sigma = new double[FEATURES];
+        for (int j = 0; j < FEATURES; j++) {
+            mu[j] = 5 * random.nextGaussian();
+            sigma[j] = 0.5 + 3 * random.nextDouble();
+        }
+
+        BatchNormLayer layer = new BatchNormLayer();
+        layer.build(FEATURES, random);
+        Layer.State state = layer.allocate(BATCH);
+        double[][] x = new double[BATCH][FEATURES];
+        for (int step = 0; step < STEPS; step++) {
+            for (double[] row : x)
+                for (int j = 0; j < FEATURES; j++) row[j] = mu[j] + sigma[j] * random.nextGaussian();
+            layer.forward(x, state, true);
+        }
+
+        // Measured in standard deviations of each feature
+        double meanError = 0.0, varianceError = 0.0;
+        for (int j = 0; j < FEATURES; j++) {
+            meanError = Math.max(meanError, Math.abs(layer.runningMean()[0][j] - mu[j]) / sigma[j]);
+            varianceError = Math.max(varianceError, Math.abs(layer.runningVariance()[0][j] / (sigma[j] * sigma[j]) - 1.0));
+        }
+
+        boolean ok = meanError < 0.15 && varianceError < 0.3;
+        System.out.printf("%s running statistics after %d batches: mean within %.3f sigma, variance within %.1f%%%n",
+                ok ? "✔" : "✘", STEPS, meanError, 100 * varianceError);
+        return ok;
+    }
+
+    // ---------------- Eval mode ---------------- //
+
+    private static boolean checkEval(String[] args) throws IOException {
+        double[][][] data = DataParallelCheck.data(args);
+        double[][] X = data[0], Y = data[1];
+        Sequential model = DataParallelCheck.model(4, 0);
+        Optimizer adam = new Adam(0.001);
+        for (int b = 0; b < 100; b++) {
+            model.forward(DataParallelCheck.slice(X, b * 32, 32), true);
+            model.backward(DataParallelCheck.slice(Y, b * 32, 32));
+            model.update(adam);
+        }
+
+        double[][] batch = DataParallelCheck.slice(X, 0, BATCH);
+        double[][] inBatch = copy(model.forward(batch));
+        double[][] engine = new InferenceEngine(model).predict(batch);
+        double alone = 0.0, folded = 0.0, confidence = 0.0;
+        for (int i = 0; i < BATCH; i++) {
+            double[] single = model.forward(new double[][]{X[i]})[0];
+            double top = 0.0;
+            for (int j = 0; j < single.length; j++) {
+                alone = Math.max(alone, Math.abs(single[j] - inBatch[i][j]));
+                folded = Math.max(folded, Math.abs(engine[i][j] - inBatch[i][j]));
+                top = Math.max(top, single[j]);
+            }
+            confidence += top / BATCH;
+        }
+
+        // With batch statistics a single row normalizes to beta, and every digit got the same answer
+        boolean ok = alone <= TOLERANCE && folded <= TOLERANCE && Double.isFinite(confidence);
+        System.out.printf("%s eval mode: a row alone vs in a batch %.2e, vs InferenceEngine %.2e (mean confidence %.1f%%)%n",
+                ok ? "✔" : "✘", alone, folded, 100 * confidence);
+        return ok;
+    }
+
+    // ---------------- Timing ---------------- //
+
+    private static void benchmark() {
+        Random random = new Random(5);
+        double[][] x = gaussian(BATCH, FEATURES, random), gamma = gaussian(1, FEATURES, random), beta = gaussian(1, FEATURES, random);
+        double[] mean = new double[FEATURES], variance = new double[FEATURES];
+        double[][] normalized = new double[BATCH][FEATURES], out = new double[BATCH][FEATURES];
+        int calls = 20_000;
+
+        double welford = Double.MAX_VALUE, separate = Double.MAX_VALUE, sink = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int c = 0; c < calls; c++) Techniques.batchNormalization(x, gamma, beta, EPSILON, mean, variance, normalized, out);
+            welford = Math.min(welford, (System.nanoTime() - start) / 1e3 / calls);
+            sink += out[0][0];
+
+            start = System.nanoTime();
+            for (int c = 0; c < calls; c++) sink += threePass(x, gamma, beta, mean, variance)[0][0];
+            separate = Math.min(separate, (System.nanoTime() - start) / 1e3 / calls);
+        }
+        System.out.printf("  %dx%d batch norm: Welford kernel %.2f us, three passes %.2f us (%.2fx)%n",
+                BATCH, FEATURES, welford, separate, separate / welford);
+        if (sink == 0) System.out.println();
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    private static double[][] gaussian(int rows, int cols, Random random) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m)
+            for (int j = 0; j < cols; j++) row[j] = random.nextGaussian();
+        return m;
+    }
+
+    private static double[][] copy(double[][] a) {
+        double[][] result = new double[a.length][];
+        for (int i = 0; i < a.length; i++) result[i] = a[i].clone();
+        return result;
+    }
+}
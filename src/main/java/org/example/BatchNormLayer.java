@@ -0,0 +1,132 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Batch normalization over the batch dimension with a learned scale (gamma, starting
+ * at 1) and shift (beta, starting at 0).
+ *
+ * In training the statistics come from the current batch, and each pass folds the batch
+ * mean and unbiased variance into running averages:
+ * running += momentum * (batch - running). At inference (training = false) rows are
+ * normalized with the running averages, so a prediction does not depend on the rest of
+ * its batch, and a single row works. {@link InferenceEngine} folds the same statistics
+ * into the neighbouring dense layer.
+ */
+public class BatchNormLayer implements Layer {
+
+    static final double EPSILON = 1e-8;
+
+    // Default weight of the newest batch in the running statistics
+    static final double MOMENTUM = 0.1;
+
+    private final double momentum;
+    private int size;
+    private double[][] gamma, beta, dGamma, dBeta;
+
+    // [1 x size], starting at mean 0 and variance 1
+    private double[][] runningMean, runningVariance;
+
+    static final class BatchNormState extends State {
+        // Batch statistics in training; per-feature scale and shift at inference
+        final double[] mean, variance;
+        final double[][] normalized;
+
+        BatchNormState(int batchSize, int size) {
+            super(batchSize, size, size);
+            mean = new double[size];
+            variance = new double[size];
+            normalized = new double[batchSize][size];
+        }
+    }
+
+    public BatchNormLayer() {
+        this(MOMENTUM);
+    }
+
+    /**
+     * @param momentum Weight of each training batch in the running statistics, in (0, 1]
+     */
+    public BatchNormLayer(double momentum) {
+        if (!(momentum > 0.0 && momentum <= 1.0))
+            throw new IllegalArgumentException("Batch-norm momentum must be in (0, 1].");
+        this.momentum = momentum;
+    }
+
+    @Override
+    public int build(int inputSize, Random random) {
+        size = inputSize;
+        gamma = Techniques.initializeGamma(inputSize);
+        beta = Techniques.initializeBeta(inputSize);
+        dGamma = new double[1][inputSize];
+        dBeta = new double[1][inputSize];
+        runningMean = new double[1][inputSize];
+        runningVariance = new double[1][inputSize];
+        Arrays.fill(runningVariance[0], 1.0);
+        return inputSize;
+    }
+
+    @Override
+    public State allocate(int batchSize) {
+        return new BatchNormState(batchSize, size);
+    }
+
+    @Override
+    public double[][] forward(double[][] input, State state, boolean training) {
+        BatchNormState s = (BatchNormState) state;
+        if (!training) {
+            Techniques.batchNormalizationInference(input, gamma, beta, EPSILON, runningMean[0], runningVariance[0],
+                    s.mean, s.variance, s.output);
+            return s.output;
+        }
+        Techniques.batchNormalization(input, gamma, beta, EPSILON, s.mean, s.variance, s.normalized, s.output);
+        updateRunningStatistics(s.mean, s.variance, input.length);
+        return s.output;
+    }
+
+    private void updateRunningStatistics(double[] mean, double[] variance, int batchSize) {
+        double unbiased = batchSize > 1 ? (double) batchSize / (batchSize - 1) : 1.0;
+        double[] m = runningMean[0], v = runningVariance[0];
+        for (int j = 0; j < size; j++) {
+            m[j] += momentum * (mean[j] - m[j]);
+            v[j] += momentum * (variance[j] * unbiased - v[j]);
+        }
+    }
+
+    @Override
+    public double[][] backward(double[][] input, double[][] dOut, State state, boolean inputGradient) {
+        BatchNormState s = (BatchNormState) state;
+        Techniques.computeGammaGradient(dOut, s.normalized, dGamma);
+        Matrix_Operations.columnSums(dOut, dBeta);
+        if (!inputGradient) return null;
+
+        Techniques.batchNormBackward(dOut, input, gamma, s.mean, s.variance, s.inputGradient());
+        return s.inputGradient();
+    }
+
+    public double momentum() { return momentum; }
+
+    public double[][] gamma() { return gamma; }
+
+    public double[][] beta() { return beta; }
+
+    public double[][] runningMean() { return runningMean; }
+
+    public double[][] runningVariance() { return runningVariance; }
+
+    @Override
+    public double[][][] parameters() {
+        return new double[][][]{gamma, beta};
+    }
+
+    @Override
+    public double[][][] gradients() {
+        return new double[][][]{dGamma, dBeta};
+    }
+
+    @Override
+    public double[][][] buffers() {
+        return new double[][][]{runningMean, runningVariance};
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Binary cross-entropy of independent sigmoid outputs (one yes/no decision per column),
+ * from the logits.
+ *
+ * Per element: loss = max(z, 0) - z y + log(1 + exp(-|z|)), which equals
+ * -y log(sigmoid(z)) - (1 - y) log(1 - sigmoid(z)) without overflowing or taking the
+ * log of 0 for large |z|, and dZ = sigmoid(z) - y. The row loss is the sum over its
+ * columns. A sparse label marks the one positive column of its row.
+ */
+public class BinaryCrossEntropy implements LossFunction {
+
+    static final BinaryCrossEntropy INSTANCE = new BinaryCrossEntropy();
+
+    // Same guard as Loss, for loss(outputs, labels) on probabilities
+    private static final double EPSILON = 1e-15;
+
+    @Override
+    public Activation activation() {
+        return Activation.SIGMOID;
+    }
+
+    @Override
+    public double forwardBackward(double[][] logits, double[][] labels, double[][] outputs, double[][] dZ, double[][] db) {
+        int cols = logits[0].length;
+        if (db != null) Arrays.fill(db[0], 0, cols, 0.0);
+
+        double total = 0.0;
+        for (int i = 0; i < logits.length; i++) {
+            double[] z = logits[i], y = labels[i], out = outputs[i], d = dZ[i];
+            for (int j = 0; j < cols; j++) {
+                total += element(z[j], y[j], out, j);
+                d[j] = out[j] - y[j];
+            }
+            if (db != null) SoftmaxCrossEntropy.addTo(db[0], d, cols);
+        }
+        return total / logits.length;
+    }
+
+    @Override
+    public double forwardBackward(double[][] logits, int[] labels, double[][] outputs, double[][] dZ, double[][] db) {
+        int cols = logits[0].length;
+        if (db != null) Arrays.fill(db[0], 0, cols, 0.0);
+
+        double total = 0.0;
+        for (int i = 0; i < logits.length; i++) {
+            int label = labels[i];
+            LossFunction.checkLabel(label, cols);
+            double[] z = logits[i], out = outputs[i], d = dZ[i];
+            for (int j = 0; j < cols; j++) {
+                double y = j == label ? 1.0 : 0.0;
+                total += element(z[j], y, out, j);
+                d[j] = out[j] - y;
+            }
+            if (db != null) SoftmaxCrossEntropy.addTo(db[0], d, cols);
+        }
+        return total / logits.length;
+    }
+
+    @Override
+    public double loss(double[][] outputs, double[][] labels) {
+        double total = 0.0;
+        for (int i = 0; i < outputs.length; i++)
+            for (int j = 0; j < outputs[i].length; j++)
+                total += element(outputs[i][j], labels[i][j]);
+        return total / outputs.length;
+    }
+
+    @Override
+    public double loss(double[][] outputs, int[] labels) {
+        double total = 0.0;
+        for (int i = 0; i < outputs.length; i++) {
+            LossFunction.checkLabel(labels[i], outputs[i].length);
+            for (int j = 0; j < outputs[i].length; j++)
+                total += element(outputs[i][j], j == labels[i] ? 1.0 : 0.0);
+        }
+        return total / outputs.length;
+    }
+
+    // Loss of one logit; writes sigmoid(z) to out[j]
+    private static double element(double z, double y, double[] out, int j) {
+        double e = Math.exp(-Math.abs(z));
+        out[j] = z >= 0 ? 1.0 / (1.0 + e) : e / (1.0 + e);
+        return Math.max(z, 0.0) - z * y + Math.log1p(e);
+    }
+
+    // Loss of one probability
+    private static double element(double p, double y) {
+        return -(y * Math.log(p + EPSILON) + (1.0 - y) * Math.log(1.0 - p + EPSILON));
+    }
+}
@@ -0,0 +1,317 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary checkpoint of a {@link Sequential} model and its {@link Optimizer}.
+ *
+ * The file is little-endian throughout:
+ * <pre>
+ * "NNCK"  version:int  elementBytes:int (8 = float64)  epoch:int  inputSize:int
+ * layers:int      then per layer a kind byte and its configuration
+ *                 (dense: units:int activation:str; activation: activation:str;
+ *                  dropout: rate:double; batch norm: momentum:double)
+ * tensors:int     then rows:int cols:int for each parameter, then each buffer
+ *                 (batch-norm running statistics), in model order
+ * optimizer:str   (empty for none)  learningRate:double  steps:long
+ * buffers:int     then length:int for each optimizer state buffer
+ * padding to a multiple of 8 bytes
+ * every tensor row-major, then every optimizer buffer, as contiguous doubles
+ * </pre>
+ * (str = length:short + UTF-8 bytes). Version 1 files have no layer buffers and load
+ * with fresh running statistics; versions 1 and 2 have no batch-norm momentum and load
+ * with the default. Files are written to a temporary sibling and
+ * renamed over the target, so a reader never sees a half-written checkpoint.
+ *
+ * {@link #load} reads the whole file into a heap buffer and closes it before parsing,
+ * rebuilds the layers from the header, then fills each parameter row and optimizer
+ * buffer with one bulk copy out of a DoubleBuffer view; nothing is parsed element by
+ * element. Since the file is closed, the next save of a resumed run can rename over it.
+ */
+public final class Checkpoint {
+
+    private static final int MAGIC = 0x4B434E4E;    // "NNCK" read as a little-endian int
+    private static final int VERSION = 3;
+    private static final int ELEMENT_BYTES = Double.BYTES;
+
+    private static final byte DENSE = 1, ACTIVATION = 2, DROPOUT = 3, BATCH_NORM = 4;
+
+    private final Path path;
+    private final int epoch;
+    private final Sequential model;
+
+    // Optimizer section
+    private final String optimizer;
+    private final double learningRate;
+    private final long steps;
+    private final double[][] state;
+
+    private Checkpoint(Path path, int epoch, Sequential model, String optimizer, double learningRate, long steps,
+                       double[][] state) {
+        this.path = path;
+        this.epoch = epoch;
+        this.model = model;
+        this.optimizer = optimizer;
+        this.learningRate = learningRate;
+        this.steps = steps;
+        this.state = state;
+    }
+
+    public Path path() { return path; }
+
+    // Epochs completed when the checkpoint was taken
+    public int epoch() { return epoch; }
+
+    // The rebuilt model, with the saved parameters
+    public Sequential model() { return model; }
+
+    // Simple class name of the saved optimizer, or "" if none was saved
+    public String optimizer() { return optimizer; }
+
+    // ---------------- Saving ---------------- //
+
+    /**
+     * Write a checkpoint synchronously
+     * @param optimizer Optimizer whose state is saved with the model, or null
+     * @param epoch Epochs completed so far
+     */
+    public static void save(Path file, Sequential model, Optimizer optimizer, int epoch) throws IOException {
+        write(file, encode(model, optimizer, epoch, null));
+    }
+
+    /**
+     * Encode a checkpoint into {@code reuse} if it is large enough, otherwise into a new
+     * direct buffer; returns the buffer, positioned at 0 with the checkpoint's length as limit
+     */
+    static ByteBuffer encode(Sequential model, Optimizer optimizer, int epoch, ByteBuffer reuse) {
+        List<Layer> layers = model.layers();
+        double[][][] params = tensors(model);
+        double[][] state = optimizer == null ? new double[0][] : optimizer.state();
+        byte[] name = optimizer == null ? new byte[0] : optimizer.getClass().getSimpleName().getBytes(StandardCharsets.UTF_8);
+
+        // Layer entries hold at most a kind byte, an int and a short activation name
+        ByteBuffer header = ByteBuffer.allocate(64 + 32 * layers.size() + 8 * params.length + 4 * state.length + name.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(ELEMENT_BYTES).putInt(epoch).putInt(model.inputSize());
+        header.putInt(layers.size());
+        for (Layer layer : layers) putLayer(header, layer);
+        header.putInt(params.length);
+        for (double[][] p : params) header.putInt(p.length).putInt(p[0].length);
+        putString(header, name);
+        header.putDouble(optimizer == null ? 0.0 : optimizer.learningRate());
+        header.putLong(optimizer == null ? 0 : optimizer.steps());
+        header.putInt(state.length);
+        for (double[] s : state) header.putInt(s.length);
+        int dataOffset = align(header.position());
+
+        long elements = Optimizer.size(params);
+        for (double[] s : state) elements += s.length;
+        long size = dataOffset + elements * ELEMENT_BYTES;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Checkpoints are limited to 2 GB.");
+
+        ByteBuffer out = reuse != null && reuse.capacity() >= size ? reuse : ByteBuffer.allocateDirect((int) size);
+        out.clear().limit((int) size);
+        out.put(header.flip());
+        while (out.position() < dataOffset) out.put((byte) 0);
+
+        DoubleBuffer data = out.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        for (double[][] p : params)
+            for (double[] row : p) data.put(row);
+        for (double[] s : state) data.put(s);
+        return out.position(0);
+    }
+
+    /**
+     * Write an encoded checkpoint to a temporary sibling of the file, force it to disk
+     * and rename it over the file
+     */
+    static void write(Path file, ByteBuffer encoded) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (encoded.hasRemaining()) channel.write(encoded);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putLayer(ByteBuffer header, Layer layer) {
+        if (layer instanceof DenseLayer) {
+            DenseLayer dense = (DenseLayer) layer;
+            header.put(DENSE).putInt(dense.units());
+            putString(header, dense.activation().name().getBytes(StandardCharsets.UTF_8));
+        } else if (layer instanceof ActivationLayer) {
+            header.put(ACTIVATION);
+            putString(header, ((ActivationLayer) layer).activation().name().getBytes(StandardCharsets.UTF_8));
+        } else if (layer instanceof DropoutLayer) {
+            header.put(DROPOUT).putDouble(((DropoutLayer) layer).rate());
+        } else if (layer instanceof BatchNormLayer) {
+            header.put(BATCH_NORM).putDouble(((BatchNormLayer) layer).momentum());
+        } else {
+            throw new IllegalArgumentException("Cannot checkpoint layer type " + layer.getClass().getSimpleName() + ".");
+        }
+    }
+
+    private static void putString(ByteBuffer header, byte[] bytes) {
+        header.putShort((short) bytes.length).put(bytes);
+    }
+
+    // ---------------- Loading ---------------- //
+
+    /**
+     * Read a checkpoint and rebuild its model. The file is closed when this returns, so
+     * it can be replaced by the next save.
+     * @throws IOException If the file cannot be read or is not a well-formed checkpoint
+     */
+    public static Checkpoint load(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE)
+                throw new IOException(file + ": checkpoint larger than 2 GB");
+            buffer = ByteBuffer.allocate((int) fileSize).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0) throw new IOException(file + ": file shrank while it was read");
+        }
+        buffer.flip();
+        try {
+            return parse(file, buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException(file + ": truncated checkpoint header (file is " + buffer.limit() + " bytes)", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": malformed checkpoint (" + e.getMessage() + ")", e);
+        }
+    }
+
+    private static Checkpoint parse(Path file, ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < 4 || buffer.getInt() != MAGIC)
+            throw new IOException(file + ": bad checkpoint magic number");
+        int version = buffer.getInt();
+        if (version < 1 || version > VERSION)
+            throw new IOException(file + ": unsupported checkpoint version " + version + " (expected 1 to " + VERSION + ")");
+        int elementBytes = buffer.getInt();
+        if (elementBytes != ELEMENT_BYTES)
+            throw new IOException(file + ": unsupported element size " + elementBytes + " (expected 8, float64)");
+        int epoch = buffer.getInt();
+
+        // No weight initialization: every parameter is copied from the file below
+        Sequential model = new Sequential(buffer.getInt(), null);
+        int layers = buffer.getInt();
+        for (int l = 0; l < layers; l++) model.add(getLayer(file, buffer, version));
+
+        double[][][] params = version == 1 ? model.parameters() : tensors(model);
+        int tensors = buffer.getInt();
+        if (tensors != params.length)
+            throw new IOException(file + ": " + tensors + " tensors saved for a model with " + params.length);
+        for (double[][] p : params) {
+            int rows = buffer.getInt(), cols = buffer.getInt();
+            if (rows != p.length || cols != p[0].length)
+                throw new IOException(file + ": saved tensor " + rows + "x" + cols
+                        + " does not match the layer's " + p.length + "x" + p[0].length);
+        }
+
+        String optimizer = getString(file, buffer);
+        double learningRate = buffer.getDouble();
+        long steps = buffer.getLong();
+        int buffers = buffer.getInt();
+        if (buffers < 0 || buffers > buffer.remaining() / Integer.BYTES)
+            throw new IOException(file + ": optimizer buffer count " + buffers + " does not fit the header");
+        int[] bufferLengths = new int[buffers];
+        long elements = Optimizer.size(params);
+        for (int s = 0; s < bufferLengths.length; s++) {
+            bufferLengths[s] = buffer.getInt();
+            if (bufferLengths[s] < 0)
+                throw new IOException(file + ": negative optimizer buffer length");
+            elements += bufferLengths[s];
+        }
+
+        int dataOffset = align(buffer.position());
+        long expected = dataOffset + elements * ELEMENT_BYTES;
+        if (expected != buffer.limit())
+            throw new IOException(file + ": header needs " + expected + " bytes, file has " + buffer.limit());
+
+        DoubleBuffer data = buffer.slice(dataOffset, buffer.limit() - dataOffset).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        for (double[][] p : params)
+            for (double[] row : p) data.get(row);
+        double[][] state = new double[buffers][];
+        for (int s = 0; s < buffers; s++) {
+            state[s] = new double[bufferLengths[s]];
+            data.get(state[s]);
+        }
+
+        return new Checkpoint(file, epoch, model, optimizer, learningRate, steps, state);
+    }
+
+    private static Layer getLayer(Path file, ByteBuffer buffer, int version) throws IOException {
+        byte kind = buffer.get();
+        switch (kind) {
+            case DENSE:
+                int units = buffer.getInt();
+                return new DenseLayer(units, Activation.valueOf(getString(file, buffer)));
+            case ACTIVATION:
+                return new ActivationLayer(Activation.valueOf(getString(file, buffer)));
+            case DROPOUT:
+                return new DropoutLayer(buffer.getDouble());
+            case BATCH_NORM:
+                return version < 3 ? new BatchNormLayer() : new BatchNormLayer(buffer.getDouble());
+            default:
+                throw new IOException(file + ": unknown layer kind " + kind);
+        }
+    }
+
+    private static String getString(Path file, ByteBuffer buffer) throws IOException {
+        int length = buffer.getShort();
+        if (length < 0 || length > buffer.remaining())
+            throw new IOException(file + ": string length " + length + " at byte " + (buffer.position() - 2)
+                    + " does not fit the file");
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---------------- Optimizer ---------------- //
+
+    /**
+     * Continue an optimizer from the saved state: learning rate, step count and buffers.
+     * An optimizer saved before its first update has no buffers and is left to start
+     * fresh apart from the learning rate.
+     * @throws IllegalArgumentException If the checkpoint holds another optimizer's state
+     */
+    public void restore(Optimizer target) {
+        String name = target.getClass().getSimpleName();
+        if (!name.equals(optimizer))
+            throw new IllegalArgumentException("Checkpoint holds " + (optimizer.isEmpty() ? "no" : optimizer)
+                    + " optimizer state, not " + name + ".");
+
+        target.setLearningRate(learningRate);
+        if (state.length == 0) return;
+        target.restore(state, steps);
+    }
+
+    // Parameters, then buffers
+    private static double[][][] tensors(Sequential model) {
+        double[][][] params = model.parameters(), buffers = model.buffers();
+        double[][][] tensors = Arrays.copyOf(params, params.length + buffers.length);
+        System.arraycopy(buffers, 0, tensors, params.length, buffers.length);
+        return tensors;
+    }
+
+    private static int align(int position) {
+        return (position + ELEMENT_BYTES - 1) / ELEMENT_BYTES * ELEMENT_BYTES;
+    }
+}
@@ -0,0 +1,300 @@
+package org.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Checks {@link Checkpoint} and {@link CheckpointWriter}:
+ *
+ * 1. The MNIST stack trained with Adam round-trips bit for bit, and the loaded model
+ *    predicts exactly what the original predicts.
+ * 2. A model and optimizer restored mid-training continue bit-identically to the run
+ *    that was never interrupted.
+ * 3. Loading is timed against Java serialization of the same parameter arrays.
+ * 4. An asynchronous save returns without waiting for the disk, and the file it
+ *    leaves behind holds the snapshot taken at the call.
+ * 5. Files with a bad magic number, a wrong version, a truncated header or body, or a
+ *    string length that does not fit are rejected with an IOException, and a loaded
+ *    file can be overwritten by the next save.
+ *
+ * Uses the same data as {@link DataParallelCheck} (MNIST when its four IDX files are passed).
+ * Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.CheckpointCheck [images labels testImages testLabels]
+ */
+public class CheckpointCheck {
+
+    private static final int BATCH = 32, STEPS = 20, LOADS = 50;
+    private static final double LEARNING_RATE = 0.001;
+
+    public static void main(String[] args) throws IOException {
+        double[][][] data = DataParallelCheck.data(args);
+        double[][] xTrain = data[0], yTrain = data[1], xTest = data[2];
+
+        Path directory = Files.createTempDirectory("checkpoint-check");
+        boolean ok;
+        try {
+            ok = checkRoundTrip(directory, xTrain, yTrain, xTest) & checkResume(directory, xTrain, yTrain)
+                    & checkLoadTime(directory, xTrain, yTrain) & checkAsync(directory, xTrain, yTrain)
+                    & checkCorrupt(directory);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+        if (!ok) {
+            System.out.println("❌ Checkpoint check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Checkpoints round-trip bit for bit");
+    }
+
+    // ---------------- Round trip ---------------- //
+
+    private static boolean checkRoundTrip(Path directory, double[][] X, double[][] Y, double[][] xTest) throws IOException {
+        Sequential model = DataParallelCheck.model(1, 0);
+        Optimizer adam = new Adam(LEARNING_RATE);
+        train(model, adam, X, Y, 0, STEPS);
+
+        Path file = directory.resolve("roundtrip.ckpt");
+        Checkpoint.save(file, model, adam, 7);
+        Checkpoint loaded = Checkpoint.load(file);
+
+        boolean ok = DataParallelCheck.hash(loaded.model()) == DataParallelCheck.hash(model)
+                && loaded.epoch() == 7 && loaded.optimizer().equals("Adam")
+                && describe(loaded.model()).equals(describe(model))
+                && hash(loaded.model().forward(xTest)) == hash(model.forward(xTest));
+        System.out.printf("%s %s (%d bytes): parameters, layers and test predictions identical after loading%n",
+                ok ? "✔" : "✘", describe(model), Files.size(file));
+        return ok;
+    }
+
+    // ---------------- Resume ---------------- //
+
+    private static boolean checkResume(Path directory, double[][] X, double[][] Y) throws IOException {
+        Optimizer[] optimizers = {new SGD(LEARNING_RATE), new Momentum(LEARNING_RATE, 0.9, true),
+                new RMSProp(LEARNING_RATE), new Adam(LEARNING_RATE, 0.9, 0.999, 1e-8, 0.01)};
+        Optimizer[] fresh = {new SGD(1.0), new Momentum(1.0, 0.9, true), new RMSProp(1.0), new Adam(1.0, 0.9, 0.999, 1e-8, 0.01)};
+
+        boolean ok = true;
+        for (int o = 0; o < optimizers.length; o++) {
+            // No dropout, so the continuation does not depend on the masks' generator
+            Sequential uninterrupted = resumable(o);
+            train(uninterrupted, optimizers[o], X, Y, 0, 2 * STEPS);
+
+            Sequential first = resumable(o);
+            Optimizer optimizer = copyOf(optimizers[o]);
+            train(first, optimizer, X, Y, 0, STEPS);
+            Path file = directory.resolve("resume-" + o + ".ckpt");
+            Checkpoint.save(file, first, optimizer, 1);
+
+            Checkpoint checkpoint = Checkpoint.load(file);
+            Sequential resumed = checkpoint.model();
+            checkpoint.restore(fresh[o]);
+            train(resumed, fresh[o], X, Y, STEPS, STEPS);
+
+            boolean same = DataParallelCheck.hash(resumed) == DataParallelCheck.hash(uninterrupted);
+            ok &= same;
+            System.out.printf("%s %-9s %d steps, save, load, %d more steps: matches the uninterrupted run bit for bit%n",
+                    same ? "✔" : "✘", optimizers[o].getClass().getSimpleName(), STEPS, STEPS);
+        }
+        return ok;
+    }
+
+    private static Sequential resumable(long seed) {
+        return new Sequential(784, new Random(seed))
+                .add(new DenseLayer(64, Activation.RELU))
+                .add(new BatchNormLayer())
+                .add(new DenseLayer(10, Activation.SOFTMAX));
+    }
+
+    // Same kind and hyperparameters, no state
+    private static Optimizer copyOf(Optimizer optimizer) {
+        if (optimizer instanceof SGD) return new SGD(LEARNING_RATE);
+        if (optimizer instanceof Momentum) return new Momentum(LEARNING_RATE, 0.9, true);
+        if (optimizer instanceof RMSProp) return new RMSProp(LEARNING_RATE);
+        return new Adam(LEARNING_RATE, 0.9, 0.999, 1e-8, 0.01);
+    }
+
+    // ---------------- Load time ---------------- //
+
+    private static boolean checkLoadTime(Path directory, double[][] X, double[][] Y) throws IOException {
+        Sequential model = DataParallelCheck.model(2, 0);
+        Optimizer adam = new Adam(LEARNING_RATE);
+        train(model, adam, X, Y, 0, 1);
+        Path file = directory.resolve("timed.ckpt");
+        Checkpoint.save(file, model, adam, 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(model.parameters());
+            out.writeObject(adam.state());
+        }
+        Path serialized = directory.resolve("timed.ser");
+        Files.write(serialized, bytes.toByteArray());
+
+        long checkpointNanos = Long.MAX_VALUE, serializedNanos = Long.MAX_VALUE;
+        long sink = 0;
+        for (int i = 0; i < LOADS; i++) {
+            long start = System.nanoTime();
+            Sequential loaded = Checkpoint.load(file).model();
+            checkpointNanos = Math.min(checkpointNanos, System.nanoTime() - start);
+            sink += loaded.parameters().length;
+
+            start = System.nanoTime();
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(Files.readAllBytes(serialized)))) {
+                sink += ((double[][][]) in.readObject()).length + ((double[][]) in.readObject()).length;
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+            serializedNanos = Math.min(serializedNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("  best of %d loads: checkpoint %.2f ms (model rebuilt), ObjectInputStream %.2f ms (arrays only)%n",
+                LOADS, checkpointNanos / 1e6, serializedNanos / 1e6);
+        boolean ok = checkpointNanos < 1_000_000_000L && sink > 0;
+        System.out.println((ok ? "✔" : "✘") + " a bulk-read load serves the MNIST model in well under a second");
+        return ok;
+    }
+
+    // ---------------- Async ---------------- //
+
+    private static boolean checkAsync(Path directory, double[][] X, double[][] Y) throws IOException {
+        Sequential model = DataParallelCheck.model(3, 0);
+        Optimizer adam = new Adam(LEARNING_RATE);
+        train(model, adam, X, Y, 0, 1);
+        Path file = directory.resolve("async.ckpt");
+
+        long syncNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            Checkpoint.save(file, model, adam, 0);
+            syncNanos = Math.min(syncNanos, System.nanoTime() - start);
+        }
+
+        long snapshot, asyncNanos = Long.MAX_VALUE;
+        try (CheckpointWriter writer = new CheckpointWriter(file)) {
+            for (int i = 0; i < 5; i++) {
+                awaitIdle(writer);
+                long start = System.nanoTime();
+                writer.save(model, adam, 0);
+                asyncNanos = Math.min(asyncNanos, System.nanoTime() - start);
+            }
+
+            awaitIdle(writer);
+            snapshot = DataParallelCheck.hash(model);
+            writer.save(model, adam, 5);
+
+            // Training goes on while the writer thread runs; a second request finds it busy or idle
+            train(model, adam, X, Y, 1, 3);
+            writer.save(model, adam, 6);
+            System.out.printf("  save on the training thread: synchronous %.2f ms, asynchronous %.2f ms (%d written, %d skipped)%n",
+                    syncNanos / 1e6, asyncNanos / 1e6, writer.saved(), writer.skipped());
+        }
+
+        Checkpoint loaded = Checkpoint.load(file);
+        boolean ok = loaded.epoch() == 6 ? DataParallelCheck.hash(loaded.model()) == DataParallelCheck.hash(model)
+                : loaded.epoch() == 5 && DataParallelCheck.hash(loaded.model()) == snapshot;
+        System.out.println((ok ? "✔" : "✘") + " the background writer leaves the snapshot taken at the last accepted save");
+        return ok;
+    }
+
+    private static void awaitIdle(CheckpointWriter writer) {
+        while (writer.busy()) Thread.onSpinWait();
+    }
+
+    // ---------------- Corrupt files ---------------- //
+
+    private static boolean checkCorrupt(Path directory) throws IOException {
+        Path good = directory.resolve("good.ckpt");
+        Checkpoint.save(good, DataParallelCheck.model(4, 0), null, 0);
+        byte[] bytes = Files.readAllBytes(good);
+
+        boolean ok = true;
+        ok &= rejects(directory, "bad magic", patch(bytes, 0, 0x12345678));
+        ok &= rejects(directory, "wrong version", patch(bytes, 4, 99));
+        ok &= rejects(directory, "wrong element size", patch(bytes, 8, 4));
+        ok &= rejects(directory, "truncated", java.util.Arrays.copyOf(bytes, bytes.length - 8));
+        ok &= rejects(directory, "header only", java.util.Arrays.copyOf(bytes, 40));
+        ok &= rejects(directory, "empty", new byte[0]);
+        // The first layer is dense: kind at 24, units at 25, activation name length at 29
+        ok &= rejects(directory, "truncated header", java.util.Arrays.copyOf(bytes, 27));
+        ok &= rejects(directory, "negative string length", patchShort(bytes, 29, (short) -1));
+        ok &= rejects(directory, "string past the end", patchShort(java.util.Arrays.copyOf(bytes, 100), 29, (short) 200));
+
+        // Nothing of the file may stay open after load, or Windows could not replace it
+        Checkpoint loaded = Checkpoint.load(good);
+        Checkpoint.save(good, loaded.model(), null, 1);
+        boolean replaced = Checkpoint.load(good).epoch() == 1;
+        System.out.println((replaced ? "✔" : "✘") + " a loaded checkpoint can be overwritten in place");
+        return ok & replaced;
+    }
+
+    private static boolean rejects(Path directory, String name, byte[] bytes) throws IOException {
+        Path file = directory.resolve("corrupt.ckpt");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes));
+        }
+        try {
+            Checkpoint.load(file);
+            System.out.println("✘ " + name + ": loaded without an error");
+            return false;
+        } catch (IOException e) {
+            System.out.println("✔ " + name + ": " + e.getMessage());
+            return true;
+        }
+    }
+
+    private static byte[] patch(byte[] bytes, int offset, int value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        return copy;
+    }
+
+    private static byte[] patchShort(byte[] bytes, int offset, short value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putShort(offset, value);
+        return copy;
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    private static void train(Sequential model, Optimizer optimizer, double[][] X, double[][] Y, int first, int steps) {
+        for (int b = first; b < first + steps; b++) {
+            int start = b * BATCH % (X.length - BATCH + 1);
+            model.forward(DataParallelCheck.slice(X, start, BATCH), true);
+            model.backward(DataParallelCheck.slice(Y, start, BATCH));
+            model.update(optimizer);
+        }
+    }
+
+    private static String describe(Sequential model) {
+        StringBuilder s = new StringBuilder().append(model.inputSize());
+        for (Layer layer : model.layers()) {
+            s.append(" → ").append(layer.getClass().getSimpleName().replace("Layer", ""));
+            if (layer instanceof DenseLayer)
+                s.append('(').append(((DenseLayer) layer).units()).append(' ').append(((DenseLayer) layer).activation()).append(')');
+            if (layer instanceof DropoutLayer) s.append('(').append(((DropoutLayer) layer).rate()).append(')');
+        }
+        return s.toString();
+    }
+
+    private static long hash(double[][] a) {
+        long h = 1;
+        for (double[] row : a)
+            for (double v : row) h = 31 * h + Double.doubleToLongBits(v);
+        return h;
+    }
+}
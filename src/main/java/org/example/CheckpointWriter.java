@@ -0,0 +1,111 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes {@link Checkpoint}s from a background thread so training never waits on disk.
+ *
+ * {@link #save} snapshots the model and optimizer into a reusable direct buffer on the
+ * calling thread (one bulk copy of the parameters, so the snapshot is consistent) and
+ * hands the buffer to a single writer thread, which writes, forces and renames the file.
+ * If the previous checkpoint is still being written the request is skipped rather than
+ * queued: the training loop never blocks, and the next save catches up. A failed write
+ * is reported by the next call to save() or close().
+ */
+public class CheckpointWriter implements AutoCloseable {
+
+    private final Path file;
+    private final ExecutorService writer;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private volatile IOException failure;
+
+    // Encoded checkpoint, reused once the previous write has finished
+    private ByteBuffer buffer;
+    private int saved, skipped;
+
+    public CheckpointWriter(Path file) {
+        this.file = file;
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Path file() { return file; }
+
+    // Checkpoints handed to the writer thread
+    public int saved() { return saved; }
+
+    // Requests skipped because the previous write was still running
+    public int skipped() { return skipped; }
+
+    // True while a checkpoint is being written
+    public boolean busy() {
+        return writing.get();
+    }
+
+    /**
+     * Snapshot the model and optimizer and write them in the background
+     * @return False if the previous checkpoint is still being written and this one was skipped
+     * @throws IOException If the previous write failed
+     */
+    public boolean save(Sequential model, Optimizer optimizer, int epoch) throws IOException {
+        checkFailure();
+        if (!writing.compareAndSet(false, true)) {
+            skipped++;
+            return false;
+        }
+
+        ByteBuffer encoded;
+        try {
+            encoded = buffer = Checkpoint.encode(model, optimizer, epoch, buffer);
+        } catch (RuntimeException e) {
+            writing.set(false);
+            throw e;
+        }
+        saved++;
+        writer.execute(() -> {
+            try {
+                Checkpoint.write(file, encoded);
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                writing.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Wait for the write in progress, if any, and stop the writer thread
+     * @throws IOException If the last write failed
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            while (!writer.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Keep waiting: the file must not be left half-renamed
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the checkpoint writer.", e);
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            failure = null;
+            throw new IOException(file + ": checkpoint write failed", e);
+        }
+    }
+}
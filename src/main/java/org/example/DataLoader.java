@@ -0,0 +1,220 @@
+package org.example;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams shuffled mini-batches of a {@link DataSet} from a background thread.
+ *
+ * A worker thread shuffles the sample order each epoch, decodes and normalizes every
+ * batch into one of a small pool of reusable batch buffers, and queues it up to
+ * {@code prefetch} batches ahead of training. The training thread only takes filled
+ * buffers off the queue, so it never waits on I/O or copying unless the worker falls
+ * behind. Only the pool and the index order live on the heap; the images stay in
+ * their memory-mapped file, so datasets larger than the heap stream the same way.
+ *
+ * Each epoch is read with {@link #next()} until it returns null. A batch stays valid
+ * until the following call to next(), which hands its buffers back to the worker.
+ * A loader is used by one training thread and must be closed to stop its worker.
+ */
+public class DataLoader implements AutoCloseable {
+
+    /**
+     * One batch of inputs, in the loader's precision, and their class indices. The arrays
+     * are reused: they are overwritten once the next batch is requested.
+     */
+    public static final class Batch {
+        // Row arrays for a full batch and for the shorter last batch (sharing the same rows)
+        private final double[][] inputs, tailInputs;
+        private final float[][] inputsFloat, tailInputsFloat;
+        private final int[] labels, tailLabels;
+
+        private int size, index;
+
+        private Batch(Precision precision, int batchSize, int tailSize, int features) {
+            if (precision == Precision.FLOAT) {
+                inputs = tailInputs = null;
+                inputsFloat = new float[batchSize][features];
+                tailInputsFloat = java.util.Arrays.copyOf(inputsFloat, tailSize);
+            } else {
+                inputsFloat = tailInputsFloat = null;
+                inputs = new double[batchSize][features];
+                tailInputs = java.util.Arrays.copyOf(inputs, tailSize);
+            }
+            labels = new int[batchSize];
+            tailLabels = new int[tailSize];
+        }
+
+        // Marker queued at the end of an epoch or after a failure
+        private Batch() {
+            inputs = tailInputs = null;
+            inputsFloat = tailInputsFloat = null;
+            labels = tailLabels = null;
+        }
+
+        // Number of samples (batchSize, or fewer for the last batch of an epoch)
+        public int size() { return size; }
+
+        // Position of this batch within its epoch
+        public int index() { return index; }
+
+        public double[][] inputs() { return full() ? inputs : tailInputs; }
+
+        public float[][] inputsFloat() { return full() ? inputsFloat : tailInputsFloat; }
+
+        // Class of every sample, in both precisions
+        public int[] labels() { return full() ? labels : tailLabels; }
+
+        private boolean full() {
+            return size == labels.length;
+        }
+    }
+
+    private static final Batch END_OF_EPOCH = new Batch();
+    private static final Batch FAILED = new Batch();
+
+    private final DataSet data;
+    private final int batchSize, batchesPerEpoch;
+    private final Precision precision;
+    private final boolean shuffle;
+    private final Random random;
+
+    private final BlockingQueue<Batch> free, ready;
+    private final Thread worker;
+
+    private Batch current;
+    private volatile Throwable failure;
+
+    /**
+     * @param data Dataset to stream
+     * @param batchSize Samples per batch; the last batch of an epoch may be smaller
+     * @param prefetch Number of batches prepared ahead of the training thread
+     * @param shuffle Visit the samples in a new random order every epoch
+     */
+    public DataLoader(DataSet data, int batchSize, int prefetch, Precision precision, boolean shuffle) {
+        this(data, batchSize, prefetch, precision, shuffle, new Random());
+    }
+
+    public DataLoader(DataSet data, int batchSize, int prefetch, Precision precision, boolean shuffle,
+                      Random random) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        if (prefetch < 1)
+            throw new IllegalArgumentException("Prefetch depth must be at least 1.");
+
+        this.data = data;
+        this.batchSize = batchSize;
+        this.batchesPerEpoch = (data.getSize() + batchSize - 1) / batchSize;
+        this.precision = precision;
+        this.shuffle = shuffle;
+        this.random = random;
+
+        // One buffer in use by training plus `prefetch` filled or being filled
+        int pool = prefetch + 1;
+        int tailSize = data.getSize() % batchSize;
+        free = new ArrayBlockingQueue<>(pool);
+        for (int i = 0; i < pool; i++)
+            free.add(new Batch(precision, batchSize, tailSize, data.getFeatureCount()));
+
+        // Room for every buffer plus an end-of-epoch marker after each of them
+        ready = new ArrayBlockingQueue<>(2 * pool + 1);
+
+        worker = new Thread(this::produce, "data-loader");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public int batchesPerEpoch() {
+        return batchesPerEpoch;
+    }
+
+    // ---------------- Consumer ---------------- //
+
+    /**
+     * Next batch of the current epoch, or null once the epoch is exhausted (the
+     * following call starts the next epoch). Blocks only if no batch is ready yet.
+     * @throws IllegalStateException If the worker failed or the waiting thread was interrupted
+     */
+    public Batch next() {
+        if (current != null) {
+            free.add(current);
+            current = null;
+        }
+
+        Batch batch;
+        try {
+            batch = ready.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batch.", e);
+        }
+
+        if (batch == FAILED)
+            throw new IllegalStateException("Data loader failed: " + failure, failure);
+        if (batch == END_OF_EPOCH)
+            return null;
+        return current = batch;
+    }
+
+    /**
+     * Stop the worker thread. Batches already handed out must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------------- Worker ---------------- //
+
+    private void produce() {
+        int size = data.getSize();
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+
+        try {
+            while (true) {
+                if (shuffle) shuffleOrder(order);
+
+                for (int b = 0; b < batchesPerEpoch; b++) {
+                    Batch batch = free.take();
+                    int start = b * batchSize;
+                    batch.size = Math.min(batchSize, size - start);
+                    batch.index = b;
+
+                    if (precision == Precision.FLOAT)
+                        data.loadBatch(order, start, batch.inputsFloat(), batch.labels());
+                    else
+                        data.loadBatch(order, start, batch.inputs(), batch.labels());
+                    ready.put(batch);
+                }
+                ready.put(END_OF_EPOCH);
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            ready.offer(FAILED);
+        }
+    }
+
+    private void shuffleOrder(int[] order) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+
+            // Swap sample indices
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Checks {@link DataLoader} and measures how long the training thread waits for data.
+ *
+ * Correctness: every epoch must visit each sample exactly once (pixels 0-2 of the
+ * synthetic images encode the sample index), carry the matching label and pixels,
+ * reshuffle between epochs, keep file order when shuffling is off, and surface a
+ * failure on the worker thread as an exception from next(). Closing must stop the worker.
+ *
+ * Timing: one epoch of real forward/backward steps, first with each batch decoded on
+ * the training thread (as Main did before), then with the loader prefetching. The
+ * printed wait is the training thread's time spent obtaining batches. The overlap
+ * needs a spare core; on a single CPU both threads share it and the totals match.
+ *
+ * Run with: java -cp target/classes org.example.DataLoaderBenchmark
+ */
+public class DataLoaderBenchmark {
+
+    private static final int INPUT = 784, H1 = 128, H2 = 64, OUTPUT = 10;
+    private static final int SAMPLES = 60000, BATCH = 32, PREFETCH = 4;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("loader-bench");
+        String images = dir.resolve("images.idx3-ubyte").toString();
+        String labels = dir.resolve("labels.idx1-ubyte").toString();
+        writeSynthetic(images, labels);
+        DataSet data = new Load_dataset().loadData(images, labels);
+
+        boolean ok = checkEpochs(data, Precision.DOUBLE, true) & checkEpochs(data, Precision.FLOAT, true)
+                & checkEpochs(data, Precision.DOUBLE, false) & checkFailure(data, images) & checkClose(data);
+        if (!ok) {
+            System.out.println("❌ DataLoader check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ DataLoader streams every sample once per epoch and stops cleanly");
+
+        Forward forward = new Forward();
+        Backward backward = new Backward();
+        backward.setForward(forward);
+        double[][] W1 = GemmBenchmark.randomMatrix(INPUT, H1), W2 = GemmBenchmark.randomMatrix(H1, H2),
+                W3 = GemmBenchmark.randomMatrix(H2, OUTPUT);
+        double[][] b1 = new double[1][H1], b2 = new double[1][H2], b3 = new double[1][OUTPUT];
+        Workspace ws = new Workspace(BATCH, INPUT, H1, H2, OUTPUT);
+        double[][] x = new double[BATCH][INPUT], y = new double[BATCH][OUTPUT];
+        int[] classes = new int[BATCH];
+        int[] order = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) order[i] = i;
+        int batches = SAMPLES / BATCH;
+
+        System.out.printf("%n%-22s %12s %12s%n", "batches from", "epoch", "data wait");
+        System.out.println("-".repeat(48));
+        for (int run = 0; run < 2; run++) {
+            long waited = 0, start = System.nanoTime();
+            for (int b = 0; b < batches; b++) {
+                long t = System.nanoTime();
+                data.loadBatch(order, b * BATCH, x, classes);
+                waited += System.nanoTime() - t;
+                step(backward, ws, ws.loadBatch(x, oneHot(classes, y), 0), W1, W2, W3, b1, b2, b3);
+            }
+            report(run, "training thread", System.nanoTime() - start, waited);
+
+            try (DataLoader loader = new DataLoader(data, BATCH, PREFETCH, Precision.DOUBLE, true)) {
+                waited = 0;
+                start = System.nanoTime();
+                for (int b = 0; b < batches; b++) {
+                    long t = System.nanoTime();
+                    DataLoader.Batch batch = loader.next();
+                    waited += System.nanoTime() - t;
+                    step(backward, ws, ws.loadBatch(batch.inputs(), oneHot(batch.labels(), y), 0), W1, W2, W3, b1, b2, b3);
+                }
+                report(run, "DataLoader (prefetch " + PREFETCH + ")", System.nanoTime() - start, waited);
+            }
+        }
+
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    private static void step(Backward backward, Workspace ws, double[][] xBatch,
+                             double[][] W1, double[][] W2, double[][] W3,
+                             double[][] b1, double[][] b2, double[][] b3) {
+        backward.forwardBackward(xBatch, ws.labels(), W1, W2, W3, b1, b2, b3, ws);
+    }
+
+    // The fixed three-layer network trains on one-hot rows
+    private static double[][] oneHot(int[] labels, double[][] y) {
+        for (int i = 0; i < labels.length; i++) {
+            java.util.Arrays.fill(y[i], 0.0);
+            y[i][labels[i]] = 1.0;
+        }
+        return y;
+    }
+
+    private static void report(int run, String source, long elapsed, long waited) {
+        // First run is warm-up
+        if (run > 0)
+            System.out.printf("%-22s %10.1fms %10.1fms%n", source, elapsed / 1e6, waited / 1e6);
+    }
+
+    // ---------------- Correctness ---------------- //
+
+    private static boolean checkEpochs(DataSet data, Precision precision, boolean shuffle) {
+        boolean ok = true;
+        int[] firstOrder = null;
+        try (DataLoader loader = new DataLoader(data, BATCH, PREFETCH, precision, shuffle, new java.util.Random(7))) {
+            for (int epoch = 0; epoch < 3; epoch++) {
+                boolean[] seen = new boolean[SAMPLES];
+                int[] order = new int[SAMPLES];
+                int position = 0, batches = 0;
+
+                for (DataLoader.Batch batch = loader.next(); batch != null; batch = loader.next()) {
+                    ok &= batch.index() == batches++;
+                    ok &= batch.size() == Math.min(BATCH, SAMPLES - position);
+                    for (int r = 0; r < batch.size(); r++) {
+                        int sample = precision == Precision.FLOAT
+                                ? checkRow(batch.inputsFloat()[r], batch.labels()[r])
+                                : checkRow(batch.inputs()[r], batch.labels()[r]);
+                        if (sample < 0 || seen[sample]) return fail(precision, shuffle, "bad or repeated sample " + sample);
+                        seen[sample] = true;
+                        order[position++] = sample;
+                    }
+                }
+                ok &= position == SAMPLES && batches == loader.batchesPerEpoch();
+
+                if (!shuffle)
+                    for (int i = 0; i < SAMPLES; i++) ok &= order[i] == i;
+                if (shuffle && firstOrder != null)
+                    ok &= !java.util.Arrays.equals(order, firstOrder);
+                firstOrder = order;
+            }
+        }
+        System.out.printf("%s %s, shuffle=%s: 3 epochs of %d samples%n", ok ? "✔" : "✘", precision, shuffle, SAMPLES);
+        return ok;
+    }
+
+    private static boolean fail(Precision precision, boolean shuffle, String message) {
+        System.out.printf("✘ %s, shuffle=%s: %s%n", precision, shuffle, message);
+        return false;
+    }
+
+    // Returns the sample index if the row's pixels and label match it, else -1
+    private static int checkRow(double[] x, int label) {
+        float[] xf = new float[x.length];
+        for (int j = 0; j < x.length; j++) xf[j] = (float) x[j];
+        return checkRow(xf, label);
+    }
+
+    private static int checkRow(float[] x, int label) {
+        int sample = pixel(x[0]) | pixel(x[1]) << 8 | pixel(x[2]) << 16;
+        if (sample >= SAMPLES) return -1;
+        for (int j = 3; j < x.length; j++)
+            if (pixel(x[j]) != expectedPixel(sample, j)) return -1;
+        return label == sample % OUTPUT ? sample : -1;
+    }
+
+    private static int pixel(float normalized) {
+        return Math.round(normalized * 255);
+    }
+
+    private static boolean checkFailure(DataSet data, String images) throws IOException {
+        // A label file shorter than the image file makes the worker throw while filling a batch
+        int[] labels = java.util.Arrays.copyOf(data.getLabels(), BATCH * 3 + 5);
+        DataSet broken = new DataSet(IdxFile.map(images), labels);
+
+        boolean ok = false;
+        try (DataLoader loader = new DataLoader(broken, BATCH, PREFETCH, Precision.DOUBLE, false)) {
+            for (int b = 0; b < loader.batchesPerEpoch(); b++) loader.next();
+        } catch (IllegalStateException e) {
+            ok = e.getCause() instanceof ArrayIndexOutOfBoundsException;
+        }
+        System.out.println((ok ? "✔" : "✘") + " worker failure is rethrown by next()");
+        return ok;
+    }
+
+    private static boolean checkClose(DataSet data) {
+        DataLoader loader = new DataLoader(data, BATCH, PREFETCH, Precision.DOUBLE, true);
+        loader.next();
+        loader.close();
+
+        boolean ok = Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(t -> t.getName().equals("data-loader") && t.isAlive());
+        System.out.println((ok ? "✔" : "✘") + " close() stops the worker thread");
+        return ok;
+    }
+
+    // ---------------- Synthetic Data ---------------- //
+
+    // Pixels 0-2 hold the sample index, the rest a pattern derived from it; label = index % 10
+    private static void writeSynthetic(String images, String labelFile) throws IOException {
+        byte[] pixels = new byte[SAMPLES * INPUT];
+        byte[] labels = new byte[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            pixels[i * INPUT] = (byte) i;
+            pixels[i * INPUT + 1] = (byte) (i >> 8);
+            pixels[i * INPUT + 2] = (byte) (i >> 16);
+            for (int j = 3; j < INPUT; j++) pixels[i * INPUT + j] = (byte) expectedPixel(i, j);
+            labels[i] = (byte) (i % OUTPUT);
+        }
+
+        IdxLoaderBenchmark.write(images, IdxLoaderBenchmark.header(0x00, 0x08, 3, SAMPLES, 28, 28), pixels);
+        IdxLoaderBenchmark.write(labelFile, IdxLoaderBenchmark.header(0x00, 0x08, 1, SAMPLES), labels);
+    }
+
+    private static int expectedPixel(int sample, int j) {
+        return (sample * 31 + j * 7) & 0xFF;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Training throughput (samples/sec) of {@link DataParallelTrainer} against the number of
+ * workers, for the MNIST stack at 32 rows per worker and at a fixed batch of 256. Each
+ * step is the full forward, backward, all-reduce, weight decay and update. The
+ * "hogwild" rows are {@link HogwildTrainer} with each worker updating on its own
+ * batches of 32.
+ *
+ * The shared kernel pool is pinned to one thread so the numbers show the data
+ * parallelism alone; the "pool" row is the single-model step with the pool at its
+ * default size, the speedup that parallel kernels give instead.
+ *
+ * Run with: java -cp target/classes org.example.DataParallelBenchmark
+ */
+public class DataParallelBenchmark {
+
+    private static final int[] WORKERS = {1, 2, 4, 8};
+    private static final int ROWS_PER_WORKER = 32, FIXED_BATCH = 256;
+    private static final int INPUT = 784, OUTPUT = 10;
+    private static final long MIN_NANOS = 1_000_000_000L;
+
+    public static void main(String[] args) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Available processors: %d%n%n", processors);
+        System.out.printf("%-14s %8s %8s %14s %9s%n", "mode", "workers", "batch", "samples/sec", "scaling");
+        System.out.println("-".repeat(57));
+
+        double[][] x = GemmBenchmark.randomMatrix(FIXED_BATCH * WORKERS[WORKERS.length - 1], INPUT);
+        int[] y = new int[x.length];
+        for (int i = 0; i < y.length; i++) y[i] = i % OUTPUT;
+
+        int parallelism = Parallel.parallelism();
+        Parallel.setParallelism(processors);
+        double pool = samplesPerSecond(1, FIXED_BATCH, x, y);
+        Parallel.setParallelism(1);
+        double serial = samplesPerSecond(1, FIXED_BATCH, x, y);
+        System.out.printf("%-14s %8d %8d %14.0f %8.2fx%n", "pool", 1, FIXED_BATCH, pool, pool / serial);
+
+        for (boolean scaled : new boolean[]{true, false}) {
+            double base = 0;
+            for (int workers : WORKERS) {
+                int batch = scaled ? ROWS_PER_WORKER * workers : FIXED_BATCH;
+                double rate = samplesPerSecond(workers, batch, x, y);
+                if (workers == 1) base = rate;
+                System.out.printf("%-14s %8d %8d %14.0f %8.2fx%n",
+                        scaled ? "32 per worker" : "fixed batch", workers, batch, rate, rate / base);
+            }
+        }
+
+        double base = 0;
+        for (int workers : WORKERS) {
+            double rate = hogwildSamplesPerSecond(workers, x, y);
+            if (workers == 1) base = rate;
+            System.out.printf("%-14s %8d %8d %14.0f %8.2fx%n", "hogwild", workers, ROWS_PER_WORKER, rate, rate / base);
+        }
+        Parallel.setParallelism(parallelism);
+    }
+
+    // Steps per second over MIN_NANOS, after half as long of warm-up
+    private static double samplesPerSecond(int workers, int batch, double[][] x, int[] y) {
+        Sequential model = SequentialCheck.mnistModel(new Random(1), new SplittableRandom(2));
+        double[][] xb = new double[batch][];
+        int[] yb = new int[batch];
+        System.arraycopy(x, 0, xb, 0, batch);
+        System.arraycopy(y, 0, yb, 0, batch);
+
+        int[] next = {1};
+        try (DataParallelTrainer trainer = new DataParallelTrainer(model, workers,
+                () -> SequentialCheck.mnistModel(new Random(1), new SplittableRandom(2 + next[0]++)))) {
+            train(trainer, model, xb, yb, MIN_NANOS / 2);
+            long start = System.nanoTime();
+            long steps = train(trainer, model, xb, yb, MIN_NANOS);
+            return (double) steps * batch / ((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    // Epochs over x until MIN_NANOS have passed, after one warm-up epoch
+    private static double hogwildSamplesPerSecond(int workers, double[][] x, int[] y) {
+        int[] next = {1};
+        HogwildTrainer trainer = new HogwildTrainer(SequentialCheck.mnistModel(new Random(1), new SplittableRandom(2)), workers,
+                () -> SequentialCheck.mnistModel(new Random(1), new SplittableRandom(2 + next[0]++)),
+                ROWS_PER_WORKER, true, new Random(3));
+        Samples samples = (order, start, xb, yb) -> {
+            for (int i = 0; i < xb.length; i++) {
+                xb[i] = x[order[start + i]];
+                yb[i] = y[order[start + i]];
+            }
+        };
+
+        trainer.epoch(samples, x.length, 0.001, 0.001);
+        long samplesSeen = 0, start = System.nanoTime();
+        while (System.nanoTime() - start < MIN_NANOS)
+            samplesSeen += trainer.epoch(samples, x.length, 0.001, 0.001).samples();
+        return samplesSeen / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static long train(DataParallelTrainer trainer, Sequential model, double[][] x, int[] y, long nanos) {
+        long steps = 0, start = System.nanoTime();
+        while (System.nanoTime() - start < nanos) {
+            trainer.forwardBackward(x, y);
+            model.addWeightDecay(0.001);
+            model.update(0.001);
+            steps++;
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,226 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Checks {@link DataParallelTrainer} against single-threaded training of the MNIST stack:
+ *
+ * 1. With one worker, training is bit-identical to plain forward/backward/update.
+ * 2. With four workers, the reduced gradients equal the sum of the shard gradients
+ *    computed one after another on the same models.
+ * 3. Two runs with the same seeds end with bit-identical weights, whatever the thread timing.
+ * 4. Trained for a few epochs on batches of 128, the four-worker and single-threaded
+ *    models reach the same test accuracy within a tolerance.
+ *
+ * The accuracy comparison uses MNIST when its four IDX files are passed as arguments
+ * (train images, train labels, test images, test labels) and synthetic 784-pixel,
+ * 10-class data otherwise. Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.DataParallelCheck [images labels testImages testLabels]
+ */
+public class DataParallelCheck {
+
+    private static final int INPUT = 784, OUTPUT = 10, BATCH = 32, WORKERS = 4;
+    private static final int EPOCHS = 3, SYNTHETIC_TRAIN = 4096, SYNTHETIC_TEST = 1024;
+    private static final double LEARNING_RATE = 0.001, L2_LAMBDA = 0.001;
+    private static final double GRADIENT_TOLERANCE = 1e-12;  // relative, summation order only
+    private static final double ACCURACY_TOLERANCE = 2.0;    // percentage points
+
+    // Training batch split across the workers, so each shard keeps BATCH rows for batch norm
+    private static final int PARALLEL_BATCH = BATCH * WORKERS;
+
+    // Pixel noise of the synthetic data, enough that 3 epochs do not reach 100% test accuracy
+    private static final double NOISE = 1.0;
+
+    public static void main(String[] args) throws IOException {
+        double[][][] data = data(args);
+        double[][] xTrain = data[0], yTrain = data[1], xTest = data[2], yTest = data[3];
+
+        boolean ok = checkSingleWorker(xTrain, yTrain) & checkReduction(xTrain, yTrain)
+                & checkDeterminism(xTrain, yTrain) & checkConvergence(xTrain, yTrain, xTest, yTest);
+        if (!ok) {
+            System.out.println("❌ Data-parallel check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Data-parallel training matches single-threaded training");
+    }
+
+    // ---------------- Gradients ---------------- //
+
+    private static boolean checkSingleWorker(double[][] X, double[][] Y) {
+        Sequential expected = model(1, 0), actual = model(1, 0);
+        train(expected, 1, X, Y, BATCH, 0, 1);
+        train(actual, 1, X, Y, BATCH, 1, 1);
+
+        boolean ok = hash(expected) == hash(actual);
+        System.out.println((ok ? "✔" : "✘") + " one worker: an epoch of training matches plain training bit for bit");
+        return ok;
+    }
+
+    private static boolean checkReduction(double[][] X, double[][] Y) {
+        double[][] x = slice(X, 0, BATCH), y = slice(Y, 0, BATCH);
+
+        // Same initial weights and dropout seeds as the trainer's model and replicas
+        int rows = BATCH / WORKERS;
+        double[][][] expected = null;
+        for (int k = 0; k < WORKERS; k++) {
+            Sequential shard = model(1, k);
+            shard.forward(slice(x, k * rows, rows), true);
+            shard.backward(slice(y, k * rows, rows));
+            if (expected == null) expected = shard.gradients();
+            else DataParallelTrainer.add(expected, shard.gradients());
+        }
+
+        Sequential model = model(1, 0);
+        int[] next = {1};
+        try (DataParallelTrainer trainer = new DataParallelTrainer(model, WORKERS, () -> model(1, next[0]++))) {
+            trainer.forwardBackward(x, classes(y));
+        }
+
+        double error = relativeError(expected, model.gradients());
+        boolean ok = error <= GRADIENT_TOLERANCE;
+        System.out.printf("%s %d workers: all-reduced gradients vs serial shard sum: max relative error %.2e%n",
+                ok ? "✔" : "✘", WORKERS, error);
+        return ok;
+    }
+
+    // ---------------- Training ---------------- //
+
+    private static boolean checkDeterminism(double[][] X, double[][] Y) {
+        Sequential first = model(2, 0), second = model(2, 0);
+        train(first, 2, X, Y, PARALLEL_BATCH, WORKERS, 1);
+        train(second, 2, X, Y, PARALLEL_BATCH, WORKERS, 1);
+
+        boolean ok = hash(first) == hash(second);
+        System.out.println((ok ? "✔" : "✘") + " two " + WORKERS + "-worker runs end with identical weights");
+        return ok;
+    }
+
+    private static boolean checkConvergence(double[][] xTrain, double[][] yTrain, double[][] xTest, double[][] yTest) {
+        Sequential serial = model(3, 0), parallel = model(3, 0);
+        train(serial, 3, xTrain, yTrain, PARALLEL_BATCH, 0, EPOCHS);
+        train(parallel, 3, xTrain, yTrain, PARALLEL_BATCH, WORKERS, EPOCHS);
+
+        double serialAccuracy = accuracy(serial, xTest, yTest), parallelAccuracy = accuracy(parallel, xTest, yTest);
+        boolean ok = Math.abs(serialAccuracy - parallelAccuracy) <= ACCURACY_TOLERANCE;
+        System.out.printf("%s test accuracy after %d epochs: single-threaded %.2f%%, %d workers %.2f%% (tolerance %.1f pts)%n",
+                ok ? "✔" : "✘", EPOCHS, serialAccuracy, WORKERS, parallelAccuracy, ACCURACY_TOLERANCE);
+        return ok;
+    }
+
+    // workers = 0 trains the model directly on the calling thread; replicas come from seed
+    private static void train(Sequential model, long seed, double[][] X, double[][] Y, int batch,
+                              int workers, int epochs) {
+        int[] next = {1};
+        try (DataParallelTrainer trainer = new DataParallelTrainer(model, Math.max(1, workers),
+                () -> model(seed, next[0]++))) {
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                for (int start = 0; start + batch <= X.length; start += batch) {
+                    double[][] x = slice(X, start, batch), y = slice(Y, start, batch);
+                    if (workers == 0) {
+                        model.forward(x, true);
+                        model.backward(y);
+                    } else {
+                        trainer.forwardBackward(x, classes(y));
+                    }
+                    model.addWeightDecay(L2_LAMBDA);
+                    model.update(LEARNING_RATE);
+                }
+            }
+        }
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    /**
+     * {xTrain, yTrain, xTest, yTest}: MNIST when args name its four IDX files, synthetic otherwise
+     */
+    static double[][][] data(String[] args) throws IOException {
+        if (args.length == 4) {
+            Load_dataset loader = new Load_dataset();
+            DataSet train = loader.loadData(args[0], args[1]), test = loader.loadData(args[2], args[3]);
+            System.out.printf("MNIST: %d training, %d test samples%n", train.getSize(), test.getSize());
+            return new double[][][]{train.normalizedImages(), oneHot(train.getLabels()),
+                    test.normalizedImages(), oneHot(test.getLabels())};
+        }
+
+        Random random = new Random(7);
+        double[][] prototypes = new double[OUTPUT][INPUT];
+        for (double[] p : prototypes)
+            for (int j = 0; j < INPUT; j++) p[j] = random.nextDouble();
+        int[] trainLabels = new int[SYNTHETIC_TRAIN], testLabels = new int[SYNTHETIC_TEST];
+        double[][] xTrain = sample(prototypes, trainLabels, random), xTest = sample(prototypes, testLabels, random);
+        System.out.printf("Synthetic data: %d training, %d test samples%n", xTrain.length, xTest.length);
+        return new double[][][]{xTrain, oneHot(trainLabels), xTest, oneHot(testLabels)};
+    }
+
+    // The MNIST stack, with weights from seed and dropout masks from seed and replica
+    static Sequential model(long seed, int replica) {
+        return SequentialCheck.mnistModel(new Random(seed), new SplittableRandom(31 * seed + replica));
+    }
+
+    static double accuracy(Sequential model, double[][] X, double[][] Y) {
+        double[][] p = model.forward(X);
+        int correct = 0;
+        for (int i = 0; i < p.length; i++)
+            if (argmax(p[i]) == argmax(Y[i])) correct++;
+        return 100.0 * correct / p.length;
+    }
+
+    static long hash(Sequential model) {
+        long h = 17;
+        for (double[][] m : model.parameters())
+            for (double[] row : m)
+                for (double v : row) h = 31 * h + Double.doubleToLongBits(v);
+        return h;
+    }
+
+    // Largest relative difference over all matrices
+    private static double relativeError(double[][][] a, double[][][] b) {
+        double worst = 0.0;
+        for (int p = 0; p < a.length; p++)
+            for (int i = 0; i < a[p].length; i++)
+                for (int j = 0; j < a[p][i].length; j++) {
+                    double x = a[p][i][j], y = b[p][i][j];
+                    worst = Math.max(worst, Math.abs(x - y) / Math.max(1.0, Math.abs(x) + Math.abs(y)));
+                }
+        return worst;
+    }
+
+    static double[][] slice(double[][] a, int start, int rows) {
+        double[][] result = new double[rows][];
+        System.arraycopy(a, start, result, 0, rows);
+        return result;
+    }
+
+    // Noisy copies of one prototype per class, clipped to [0, 1] like normalized pixels
+    private static double[][] sample(double[][] prototypes, int[] labels, Random random) {
+        double[][] x = new double[labels.length][INPUT];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = random.nextInt(OUTPUT);
+            for (int j = 0; j < INPUT; j++)
+                x[i][j] = Math.min(1, Math.max(0, prototypes[labels[i]][j] + NOISE * random.nextGaussian()));
+        }
+        return x;
+    }
+
+    static double[][] oneHot(int[] labels) {
+        double[][] y = new double[labels.length][OUTPUT];
+        for (int i = 0; i < labels.length; i++) y[i][labels[i]] = 1.0;
+        return y;
+    }
+
+    // Class index of every one-hot row
+    static int[] classes(double[][] y) {
+        int[] labels = new int[y.length];
+        for (int i = 0; i < y.length; i++) labels[i] = argmax(y[i]);
+        return labels;
+    }
+
+    private static int argmax(double[] row) {
+        int best = 0;
+        for (int j = 1; j < row.length; j++) if (row[j] > row[best]) best = j;
+        return best;
+    }
+}
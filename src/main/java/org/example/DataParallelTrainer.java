@@ -0,0 +1,208 @@
+package org.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Synchronous data-parallel training of a {@link Sequential} model.
+ *
+ * Every mini-batch is cut into one contiguous shard per worker thread. Worker 0 runs
+ * the model itself; every other worker runs a replica of the same architecture, whose
+ * parameters it refreshes from the model before its shard. The workers run forward
+ * and backward on their shards at the same time. The gradients are sums over the batch,
+ * so adding up the shard gradients gives the gradient of the whole batch. The sums are
+ * formed pairwise up a binary tree (replica 1 into 0 and 3 into 2, then 2 into 0, ...):
+ * the log2(workers) rounds run in parallel, and the order of summation, hence every bit
+ * of the result, does not depend on thread timing. The model's gradients then hold the
+ * full-batch gradient, for one addWeightDecay / update as in single-threaded training.
+ *
+ * Batch normalization uses per-shard statistics and each replica draws its own dropout
+ * masks, so training matches the single-threaded loop statistically, not bit for bit.
+ * Batch statistics over a handful of rows are noisy, so grow the batch with the worker
+ * count (e.g. 4 workers x 32 rows) rather than cutting a batch of 32 into shards of 8.
+ * A trainer drives one training loop and is not itself thread-safe.
+ */
+public class DataParallelTrainer implements AutoCloseable {
+
+    // Shard layouts kept at once: the training batch and the short last batch of an epoch
+    private static final int MAX_BATCH_SIZES = 2;
+
+    private final Sequential[] models;
+    private final ForkJoinPool pool;
+    private double loss;
+
+    private final Map<Integer, Shards> layouts = new LinkedHashMap<>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Shards> eldest) {
+            return size() > MAX_BATCH_SIZES;
+        }
+    };
+
+    // Row views of each shard, refilled for every batch
+    private static final class Shards {
+        final int[] starts;
+        final double[][][] inputs;
+        final int[][] labels;
+
+        // Rows of the whole batch's predictions, pointing into the shard outputs
+        final double[][] outputs;
+
+        // Summed loss of each shard's rows
+        final double[] losses;
+
+        Shards(int batchSize, int count) {
+            starts = new int[count + 1];
+            inputs = new double[count][][];
+            labels = new int[count][];
+            for (int k = 0; k <= count; k++) starts[k] = (int) ((long) k * batchSize / count);
+            for (int k = 0; k < count; k++) {
+                inputs[k] = new double[starts[k + 1] - starts[k]][];
+                labels[k] = new int[starts[k + 1] - starts[k]];
+            }
+            outputs = new double[batchSize][];
+            losses = new double[count];
+        }
+    }
+
+    /**
+     * @param model The model to train; it computes shard 0 and receives the reduced gradients
+     * @param workers Number of worker threads (and shards per batch)
+     * @param replica Builds a model with the same layers as {@code model}, called workers - 1 times
+     */
+    public DataParallelTrainer(Sequential model, int workers, Supplier<Sequential> replica) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Worker count must be at least 1.");
+
+        models = new Sequential[workers];
+        models[0] = model;
+        double[][][] params = model.parameters();
+        for (int k = 1; k < workers; k++) {
+            models[k] = replica.get();
+            double[][][] other = models[k].parameters();
+            boolean same = other.length == params.length;
+            for (int p = 0; same && p < params.length; p++)
+                same = other[p].length == params[p].length && other[p][0].length == params[p][0].length;
+            if (!same)
+                throw new IllegalArgumentException("Replica parameters do not match the model.");
+        }
+        pool = new ForkJoinPool(workers);
+    }
+
+    /**
+     * Mean loss of the last batch, from the same pass as its gradients
+     */
+    public double loss() {
+        return loss;
+    }
+
+    public int workers() {
+        return models.length;
+    }
+
+    /**
+     * Training forward and backward pass of one batch, split across the workers. On return
+     * the model's gradients() hold the gradient of the whole batch.
+     * @param labels Class of every row
+     * @return Predictions [batchSize x outputSize] in batch order; valid until the next call
+     */
+    public double[][] forwardBackward(double[][] inputs, int[] labels) {
+        Shards shards = layouts.get(inputs.length);
+        if (shards == null) {
+            shards = new Shards(inputs.length, Math.min(models.length, inputs.length));
+            layouts.put(inputs.length, shards);
+        }
+
+        int count = shards.inputs.length;
+        for (int k = 0; k < count; k++) {
+            System.arraycopy(inputs, shards.starts[k], shards.inputs[k], 0, shards.inputs[k].length);
+            System.arraycopy(labels, shards.starts[k], shards.labels[k], 0, shards.labels[k].length);
+        }
+
+        ShardTask root = new ShardTask(shards, 0, count);
+        if (count == 1) {
+            root.compute();
+        } else {
+            // Running statistics continue from the model's and are averaged back over the shards
+            for (int k = 1; k < count; k++) copy(models[0].buffers(), models[k].buffers());
+            pool.invoke(root);
+            average(models, count);
+        }
+
+        // Summed in shard order, so the result does not depend on thread timing
+        double total = 0.0;
+        for (int k = 0; k < count; k++) total += shards.losses[k];
+        loss = total / inputs.length;
+        return shards.outputs;
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // ---------------- Workers ---------------- //
+
+    // Gradients of shards [lo, hi), summed into the gradients of models[lo]
+    @SuppressWarnings("serial") // Never serialized; RecursiveAction is Serializable by inheritance
+    private final class ShardTask extends RecursiveAction {
+        private final Shards shards;
+        private final int lo, hi;
+
+        ShardTask(Shards shards, int lo, int hi) {
+            this.shards = shards;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                runShard(shards, lo);
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ShardTask(shards, lo, mid), new ShardTask(shards, mid, hi));
+            add(models[lo].gradients(), models[mid].gradients());
+        }
+    }
+
+    private void runShard(Shards shards, int k) {
+        Sequential model = models[k];
+        if (k > 0) copy(models[0].parameters(), model.parameters());
+
+        double[][] out = model.forward(shards.inputs[k], true);
+        shards.losses[k] = model.backward(shards.labels[k]) * out.length;
+        System.arraycopy(out, 0, shards.outputs, shards.starts[k], out.length);
+    }
+
+    // target += source, matrix by matrix
+    static void add(double[][][] target, double[][][] source) {
+        for (int p = 0; p < target.length; p++)
+            for (int i = 0; i < target[p].length; i++) {
+                double[] t = target[p][i], s = source[p][i];
+                for (int j = 0; j < t.length; j++) t[j] += s[j];
+            }
+    }
+
+    // models[0].buffers() = mean of the buffers of models[0 .. count)
+    static void average(Sequential[] models, int count) {
+        double[][][] target = models[0].buffers();
+        for (int k = 1; k < count; k++) add(target, models[k].buffers());
+        for (double[][] b : target)
+            for (double[] row : b)
+                for (int j = 0; j < row.length; j++) row[j] /= count;
+    }
+
+    private static void copy(double[][][] source, double[][][] target) {
+        for (int p = 0; p < source.length; p++)
+            for (int i = 0; i < source[p].length; i++)
+                System.arraycopy(source[p][i], 0, target[p][i], 0, source[p][i].length);
+    }
+}
@@ -0,0 +1,129 @@
+package org.example;
+
+import java.util.Random;
+
+/**
+ * Fully connected layer: out = activation(input * W + b), with the bias and activation
+ * fused into the GEMM ({@link FusedLayer}). Weights use He initialization, biases start at zero.
+ */
+public class DenseLayer implements Layer {
+
+    private final int units;
+    private final Activation activation;
+
+    private double[][] W, b, dW, db;
+
+    static final class DenseState extends State {
+        final double[][] net;
+        private double[][] dZ;
+
+        DenseState(int batchSize, int inputSize, int units) {
+            super(batchSize, inputSize, units);
+            net = new double[batchSize][units];
+        }
+
+        // Gradient with respect to net, created by the first backward pass
+        double[][] dZ() {
+            if (dZ == null) dZ = new double[batchSize][net[0].length];
+            return dZ;
+        }
+    }
+
+    public DenseLayer(int units, Activation activation) {
+        if (units < 1)
+            throw new IllegalArgumentException("A dense layer needs at least one unit.");
+        this.units = units;
+        this.activation = activation;
+    }
+
+    @Override
+    public int build(int inputSize, Random random) {
+        W = new double[inputSize][units];
+        double std = Math.sqrt(2.0 / inputSize); // He initialization
+        for (int i = 0; random != null && i < inputSize; i++)
+            for (int j = 0; j < units; j++)
+                W[i][j] = random.nextGaussian() * std;
+
+        b = new double[1][units];
+        dW = new double[inputSize][units];
+        db = new double[1][units];
+        return units;
+    }
+
+    @Override
+    public State allocate(int batchSize) {
+        return new DenseState(batchSize, W.length, units);
+    }
+
+    @Override
+    public double[][] forward(double[][] input, State state, boolean training) {
+        DenseState s = (DenseState) state;
+        FusedLayer.forward(input, W, b, activation, s.net, s.output);
+        return s.output;
+    }
+
+    @Override
+    public double[][] backward(double[][] input, double[][] dOut, State state, boolean inputGradient) {
+        DenseState s = (DenseState) state;
+        FusedLayer.backward(dOut, s.net, s.output, activation, s.dZ(), db);
+        return backwardLinear(input, s, inputGradient);
+    }
+
+    /**
+     * First half of the backward pass of an output layer trained with the loss fused with
+     * its activation: dZ and the bias gradient from the logits kept by the forward pass
+     * (for softmax dZ = probabilities - labels). {@link #backwardLinear} continues it.
+     * @return Mean loss of the batch
+     */
+    double lossGradient(double[][] labels, LossFunction loss, State state) {
+        DenseState s = (DenseState) state;
+        return loss.forwardBackward(s.net, labels, s.output, s.dZ(), db);
+    }
+
+    /**
+     * Same with one class index per row
+     */
+    double lossGradient(int[] labels, LossFunction loss, State state) {
+        DenseState s = (DenseState) state;
+        return loss.forwardBackward(s.net, labels, s.output, s.dZ(), db);
+    }
+
+    // dW = input^T * dZ and dInput = dZ * W^T
+    double[][] backwardLinear(double[][] input, State state, boolean inputGradient) {
+        DenseState s = (DenseState) state;
+        double[][] dZ = s.dZ();
+        Matrix_Operations.multiplyTransposeA(input, dZ, dW);
+        if (!inputGradient) return null;
+
+        Matrix_Operations.multiplyTransposeB(dZ, W, s.inputGradient());
+        return s.inputGradient();
+    }
+
+    public int units() {
+        return units;
+    }
+
+    public Activation activation() {
+        return activation;
+    }
+
+    // Live weight matrix [in x units] and bias [1 x units]
+    public double[][] weights() { return W; }
+
+    public double[][] bias() { return b; }
+
+    @Override
+    public double[][][] parameters() {
+        return new double[][][]{W, b};
+    }
+
+    @Override
+    public double[][][] gradients() {
+        return new double[][][]{dW, db};
+    }
+
+    @Override
+    public double[][][] regularized() {
+        return new double[][][]{W};
+    }
+}
@@ -0,0 +1,178 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Checks the bitmask dropout of {@link Techniques} and times it against the former
+ * per-unit {@code Random.nextDouble()} with a {@code boolean[][]} mask and a freshly
+ * allocated gradient.
+ *
+ * 1. The kept fraction is 1 - rate, and bits past the end of a row stay clear.
+ * 2. A seed gives the same mask on one thread and on the whole pool.
+ * 3. Forward and backward in place match the result written to separate buffers.
+ * 4. A forward and backward pass allocates nothing.
+ *
+ * Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.DropoutBenchmark
+ */
+public class DropoutBenchmark {
+
+    private static final double RATE = 0.3;
+
+    public static void main(String[] args) {
+        boolean ok = checkRate() & checkParallel() & checkInPlace() & checkAllocation();
+        if (!ok) {
+            System.out.println("❌ Dropout check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Bitmask dropout keeps 1 - rate of the units, reproducibly and in place");
+
+        System.out.printf("%n%-12s %16s %16s %9s%n", "batch", "Random+boolean", "bitmask", "speedup");
+        System.out.println("-".repeat(57));
+        benchmark(32, 128);
+        benchmark(256, 1024);
+    }
+
+    // ---------------- Correctness ---------------- //
+
+    private static boolean checkRate() {
+        int rows = 512, cols = 1000;
+        long[] mask = Techniques.newMask(rows, cols);
+        Techniques.dropoutMask(new SplittableRandom(1), RATE, mask, rows, cols);
+
+        long kept = 0;
+        for (long word : mask) kept += Long.bitCount(word);
+        double fraction = (double) kept / ((long) rows * cols);
+        // Four standard deviations of a binomial fraction
+        double tolerance = 4 * Math.sqrt(RATE * (1 - RATE) / ((long) rows * cols));
+
+        boolean clear = true;
+        int words = Techniques.maskWords(cols);
+        for (int i = 0; i < rows; i++) clear &= mask[i * words + words - 1] >>> (cols & 63) == 0;
+
+        boolean ok = Math.abs(fraction - (1 - RATE)) <= tolerance && clear;
+        System.out.printf("%s kept fraction %.4f for rate %.1f (tolerance %.4f), bits past each row %s%n",
+                ok ? "✔" : "✘", fraction, RATE, tolerance, clear ? "clear" : "set");
+        return ok;
+    }
+
+    private static boolean checkParallel() {
+        // Large enough to be split across the pool
+        int rows = 1024, cols = 700;
+        long[] serial = Techniques.newMask(rows, cols), pooled = Techniques.newMask(rows, cols);
+
+        int parallelism = Parallel.parallelism();
+        Parallel.setParallelism(1);
+        Techniques.dropoutMask(new SplittableRandom(2), RATE, serial, rows, cols);
+        Parallel.setParallelism(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        Techniques.dropoutMask(new SplittableRandom(2), RATE, pooled, rows, cols);
+        Parallel.setParallelism(parallelism);
+
+        boolean ok = java.util.Arrays.equals(serial, pooled);
+        System.out.println((ok ? "✔" : "✘") + " same seed, same mask on one thread and on the pool");
+        return ok;
+    }
+
+    private static boolean checkInPlace() {
+        int rows = 32, cols = 130;
+        double[][] input = GemmBenchmark.randomMatrix(rows, cols), dOut = GemmBenchmark.randomMatrix(rows, cols);
+        double[][] output = new double[rows][cols], dInput = new double[rows][cols];
+        long[] mask = Techniques.newMask(rows, cols), again = Techniques.newMask(rows, cols);
+
+        Techniques.dropout(input, RATE, new SplittableRandom(3), mask, output);
+        Techniques.dropoutBackward(dOut, RATE, mask, dInput);
+
+        // Every unit is either kept and scaled or zeroed, as its bit says
+        boolean masked = true;
+        double scale = 1.0 / (1.0 - RATE);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                masked &= output[i][j] == (Techniques.kept(mask, cols, i, j) ? input[i][j] * scale : 0.0);
+
+        Techniques.dropout(input, RATE, new SplittableRandom(3), again, input);
+        Techniques.dropoutBackward(dOut, RATE, mask, dOut);
+
+        boolean ok = masked && java.util.Arrays.equals(mask, again) && java.util.Arrays.deepEquals(output, input)
+                && java.util.Arrays.deepEquals(dInput, dOut);
+        System.out.println((ok ? "✔" : "✘") + " forward and backward in place match separate buffers");
+        return ok;
+    }
+
+    private static boolean checkAllocation() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("⚠️ Thread allocation counters are not supported by this JVM");
+            return true;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        int rows = 32, cols = 128;
+        double[][] x = GemmBenchmark.randomMatrix(rows, cols), d = GemmBenchmark.randomMatrix(rows, cols);
+        long[] mask = Techniques.newMask(rows, cols);
+        SplittableRandom random = new SplittableRandom(4);
+        for (int step = 0; step < 20000; step++) pass(x, d, random, mask);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int step = 0; step < 1000; step++) pass(x, d, random, mask);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        boolean ok = allocated == 0;
+        System.out.printf("%s forward + backward allocated %d bytes over 1000 passes%n", ok ? "✔" : "✘", allocated);
+        return ok;
+    }
+
+    private static void pass(double[][] x, double[][] d, SplittableRandom random, long[] mask) {
+        Techniques.dropout(x, RATE, random, mask, x);
+        Techniques.dropoutBackward(d, RATE, mask, d);
+    }
+
+    // ---------------- Timing ---------------- //
+
+    private static void benchmark(int rows, int cols) {
+        double[][] x = GemmBenchmark.randomMatrix(rows, cols), d = GemmBenchmark.randomMatrix(rows, cols);
+        double[][] out = new double[rows][cols];
+        boolean[][] flags = new boolean[rows][cols];
+        long[] mask = Techniques.newMask(rows, cols);
+        Random random = new Random(5);
+        SplittableRandom splittable = new SplittableRandom(5);
+
+        int reps = Math.max(100, 20_000_000 / (rows * cols));
+        double former = Double.MAX_VALUE, bitmask = Double.MAX_VALUE, sink = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < reps; r++) sink += former(x, d, random, flags, out)[0][0];
+            former = Math.min(former, (System.nanoTime() - start) / (double) reps);
+
+            start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                Techniques.dropout(x, RATE, splittable, mask, out);
+                Techniques.dropoutBackward(d, RATE, mask, out);
+                sink += out[0][0];
+            }
+            bitmask = Math.min(bitmask, (System.nanoTime() - start) / (double) reps);
+        }
+
+        System.out.printf("%-12s %14.1fus %14.1fus %8.2fx%n", rows + " x " + cols, former / 1e3, bitmask / 1e3, former / bitmask);
+        if (sink == 0) System.out.println();
+    }
+
+    // The former forward and backward: a nextDouble() per unit, a boolean mask and a new gradient matrix
+    private static double[][] former(double[][] x, double[][] d, Random random, boolean[][] mask, double[][] out) {
+        int rows = x.length, cols = x[0].length;
+        double scale = 1.0 / (1.0 - RATE);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++) {
+                mask[i][j] = random.nextDouble() > RATE;
+                out[i][j] = mask[i][j] ? x[i][j] * scale : 0.0;
+            }
+
+        double[][] dInput = new double[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (mask[i][j]) dInput[i][j] = d[i][j] * scale;
+        return dInput;
+    }
+}
@@ -0,0 +1,79 @@
+package org.example;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Inverted dropout: in training, each unit is zeroed with probability rate and the
+ * survivors are scaled by 1 / (1 - rate); at inference the input passes through.
+ * Masks come from the layer's own generator, so models never share random state, and
+ * are kept as one bit per unit ({@link Techniques#dropoutMask}).
+ */
+public class DropoutLayer implements Layer {
+
+    private final double rate;
+    private final SplittableRandom random;
+    private int size;
+
+    static final class DropoutState extends State {
+        final long[] mask;
+
+        DropoutState(int batchSize, int size) {
+            super(batchSize, size, size);
+            mask = Techniques.newMask(batchSize, size);
+        }
+    }
+
+    public DropoutLayer(double rate) {
+        this(rate, new SplittableRandom());
+    }
+
+    /**
+     * @param random Generator for the dropout masks (seed it for reproducible training;
+     *               give each replica of a model its own, e.g. from {@link SplittableRandom#split()})
+     */
+    public DropoutLayer(double rate, SplittableRandom random) {
+        if (rate < 0.0 || rate >= 1.0)
+            throw new IllegalArgumentException("Dropout rate must be in [0, 1).");
+        this.rate = rate;
+        this.random = random;
+    }
+
+    public double rate() {
+        return rate;
+    }
+
+    @Override
+    public int build(int inputSize, Random random) {
+        size = inputSize;
+        return inputSize;
+    }
+
+    @Override
+    public State allocate(int batchSize) {
+        return new DropoutState(batchSize, size);
+    }
+
+    @Override
+    public double[][] forward(double[][] input, State state, boolean training) {
+        if (!training || rate == 0.0) return input;
+
+        DropoutState s = (DropoutState) state;
+        Techniques.dropout(input, rate, random, s.mask, s.output);
+        return s.output;
+    }
+
+    /**
+     * Must follow a training-mode forward pass (which recorded the mask). Masks dOut in
+     * place: it is the next layer's scratch, which nothing reads once it has been passed down.
+     */
+    @Override
+    public double[][] backward(double[][] input, double[][] dOut, State state, boolean inputGradient) {
+        if (!inputGradient) return null;
+
+        DropoutState s = (DropoutState) state;
+        if (rate == 0.0) return dOut;
+        Techniques.dropoutBackward(dOut, rate, s.mask, dOut);
+        return dOut;
+    }
+}
@@ -0,0 +1,274 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scores a model on a labelled set in fixed-size chunks, spread over worker threads.
+ *
+ * Each worker takes the next chunk of rows, decodes it into its own chunk buffer,
+ * predicts it with an {@link InferenceEngine} and adds the chunk's predictions to a
+ * {@link Report}: accuracy, mean cross-entropy, per-class precision and recall, and the
+ * confusion matrix, all in that one pass over the outputs. Memory stays at one chunk of
+ * inputs and outputs per worker whatever the size of the set, and the rows are decoded
+ * straight from a {@link Samples} source such as the memory-mapped {@code DataSet}.
+ *
+ * Reports do not depend on the number of workers or their timing: counts are integers,
+ * and the loss is summed chunk by chunk in row order.
+ *
+ * {@link #evaluateAsync} snapshots the weights and scores them in the background, so
+ * the test set can be scored while the next epoch trains.
+ */
+public class Evaluator implements AutoCloseable {
+
+    /**
+     * Class probabilities of a chunk of rows, one row each. Called by every worker at once
+     * with its own chunk, e.g. {@code InferenceEngine::predict}.
+     */
+    public interface Predictor {
+        double[][] predict(double[][] inputs);
+    }
+
+    /**
+     * Metrics of one evaluation
+     */
+    public static final class Report {
+        private final long[][] confusion;
+        private final double loss;
+        private final int samples;
+
+        Report(long[][] confusion, double loss, int samples) {
+            this.confusion = confusion;
+            this.loss = loss;
+            this.samples = samples;
+        }
+
+        public int samples() { return samples; }
+
+        public int classes() { return confusion.length; }
+
+        // Mean cross-entropy of the true class
+        public double loss() { return loss; }
+
+        // Percentage of samples whose most probable class is the label
+        public double accuracy() {
+            long correct = 0;
+            for (int c = 0; c < confusion.length; c++) correct += confusion[c][c];
+            return samples == 0 ? 0.0 : 100.0 * correct / samples;
+        }
+
+        /**
+         * Samples of class actual predicted as class predicted
+         */
+        public long count(int actual, int predicted) {
+            return confusion[actual][predicted];
+        }
+
+        // Rows: actual class, columns: predicted class
+        public long[][] confusionMatrix() {
+            long[][] copy = new long[confusion.length][];
+            for (int c = 0; c < copy.length; c++) copy[c] = confusion[c].clone();
+            return copy;
+        }
+
+        // Fraction of the samples predicted as this class that have it (0 if none were)
+        public double precision(int c) {
+            long predicted = 0;
+            for (long[] row : confusion) predicted += row[c];
+            return predicted == 0 ? 0.0 : (double) confusion[c][c] / predicted;
+        }
+
+        // Fraction of the samples of this class predicted as it (0 if there are none)
+        public double recall(int c) {
+            long actual = 0;
+            for (long n : confusion[c]) actual += n;
+            return actual == 0 ? 0.0 : (double) confusion[c][c] / actual;
+        }
+
+        /**
+         * Per-class precision and recall followed by the confusion matrix
+         */
+        public String table() {
+            StringBuilder s = new StringBuilder("class  precision  recall |");
+            for (int c = 0; c < confusion.length; c++) s.append(String.format("%6d", c));
+            s.append('\n');
+            for (int c = 0; c < confusion.length; c++) {
+                s.append(String.format("%5d  %8.2f%%  %5.2f%% |", c, 100 * precision(c), 100 * recall(c)));
+                for (long n : confusion[c]) s.append(String.format("%6d", n));
+                s.append('\n');
+            }
+            return s.toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("accuracy %.2f%%, loss %.4f over %d samples", accuracy(), loss, samples);
+        }
+    }
+
+    // Same guard as Loss
+    private static final double EPSILON = 1e-15;
+
+    private final int classes, chunkSize;
+    private final ExecutorService workers, background;
+    private final int threads;
+
+    /**
+     * @param classes Number of classes (model outputs)
+     * @param chunkSize Rows decoded and predicted at once per worker
+     * @param threads Worker threads
+     */
+    public Evaluator(int classes, int chunkSize, int threads) {
+        if (classes < 2)
+            throw new IllegalArgumentException("Evaluation needs at least two classes.");
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunk size must be at least 1.");
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+
+        this.classes = classes;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        AtomicInteger created = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "evaluator-" + created.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.background = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "evaluator-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ---------------- Evaluation ---------------- //
+
+    /**
+     * Score samples [0, size) of data, against the labels it loads with them
+     */
+    public Report evaluate(InferenceEngine engine, Samples data, int size) {
+        if (engine.outputSize() != classes)
+            throw new IllegalArgumentException("Model has " + engine.outputSize() + " outputs, evaluator expects " + classes + ".");
+        return evaluate(engine::predict, engine.inputSize(), data, size);
+    }
+
+    /**
+     * Score samples [0, size) of data with a model that is not an {@link InferenceEngine},
+     * such as the float network
+     * @param inputSize Columns of every input row
+     */
+    public Report evaluate(Predictor model, int inputSize, Samples data, int size) {
+        int chunks = (size + chunkSize - 1) / chunkSize;
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+
+        double[] chunkLoss = new double[chunks];
+        AtomicInteger next = new AtomicInteger();
+        int count = Math.min(threads, chunks);
+        List<Future<long[][]>> partial = new ArrayList<>(count);
+        for (int k = 0; k < count; k++)
+            partial.add(workers.submit(() -> work(model, inputSize, data, size, order, next, chunks, chunkLoss)));
+
+        long[][] confusion = new long[classes][classes];
+        for (Future<long[][]> f : partial) {
+            long[][] counts = join(f);
+            for (int c = 0; c < classes; c++)
+                for (int p = 0; p < classes; p++) confusion[c][p] += counts[c][p];
+        }
+
+        double loss = 0.0;
+        for (double l : chunkLoss) loss += l;
+        return new Report(confusion, size == 0 ? 0.0 : loss / size, size);
+    }
+
+    /**
+     * Score rows already in memory
+     * @param labels Class of every row
+     */
+    public Report evaluate(InferenceEngine engine, double[][] inputs, int[] labels) {
+        if (inputs.length != labels.length)
+            throw new IllegalArgumentException("Inputs and labels must have the same number of rows.");
+        return evaluate(engine, (order, start, x, y) -> {
+            for (int i = 0; i < x.length; i++) {
+                System.arraycopy(inputs[order[start + i]], 0, x[i], 0, x[i].length);
+                y[i] = labels[order[start + i]];
+            }
+        }, labels.length);
+    }
+
+    /**
+     * Snapshot the model's weights now and score them in the background; the model may
+     * go on training as soon as this returns
+     */
+    public CompletableFuture<Report> evaluateAsync(Sequential model, Samples data, int size) {
+        InferenceEngine snapshot = new InferenceEngine(model);
+        return CompletableFuture.supplyAsync(() -> evaluate(snapshot, data, size), background);
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    @Override
+    public void close() {
+        background.shutdown();
+        workers.shutdown();
+    }
+
+    // ---------------- Workers ---------------- //
+
+    // Chunks taken from next until none are left; returns this worker's confusion counts
+    private long[][] work(Predictor model, int inputSize, Samples data, int size, int[] order,
+                          AtomicInteger next, int chunks, double[] chunkLoss) {
+        double[][] x = new double[chunkSize][inputSize];
+        int[] y = new int[chunkSize];
+        int tail = size % chunkSize;
+        double[][] tailX = Arrays.copyOf(x, tail);
+        int[] tailY = new int[tail];
+        long[][] confusion = new long[classes][classes];
+
+        for (int chunk = next.getAndIncrement(); chunk < chunks; chunk = next.getAndIncrement()) {
+            int start = chunk * chunkSize;
+            boolean full = start + chunkSize <= size;
+            double[][] xc = full ? x : tailX;
+            int[] yc = full ? y : tailY;
+            data.load(order, start, xc, yc);
+
+            double[][] predictions = model.predict(xc);
+            double loss = 0.0;
+            for (int i = 0; i < predictions.length; i++) {
+                double[] p = predictions[i];
+                if (p.length != classes)
+                    throw new IllegalArgumentException("Model has " + p.length + " outputs, evaluator expects " + classes + ".");
+                int predicted = 0;
+                for (int j = 1; j < p.length; j++)
+                    if (p[j] > p[predicted]) predicted = j;
+                int actual = yc[i];
+                LossFunction.checkLabel(actual, classes);
+                confusion[actual][predicted]++;
+                loss -= Math.log(p[actual] + EPSILON);
+            }
+            chunkLoss[chunk] = loss;
+        }
+        return confusion;
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the evaluation.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Evaluation failed.", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks {@link Evaluator}:
+ *
+ * 1. Accuracy, loss, precision, recall and the confusion matrix match a single-threaded
+ *    computation over one full-batch prediction.
+ * 2. Chunk sizes from 1 row to more than the whole set and 1 to 4 threads give the same
+ *    counts; the same chunk size gives a bit-identical loss whatever the thread count.
+ * 3. No chunk asks the sample source for more than chunkSize rows.
+ * 4. An asynchronous evaluation started before the model is trained further reports the
+ *    weights it was started with.
+ *
+ * Also times chunked evaluation against the full-batch prediction. Uses the same data
+ * as {@link DataParallelCheck} (MNIST when its four IDX files are passed).
+ * Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.EvaluatorCheck [images labels testImages testLabels]
+ */
+public class EvaluatorCheck {
+
+    private static final int CLASSES = 10, BATCH = 32, STEPS = 100, CHUNK = 256;
+    private static final double TOLERANCE = 1e-12;
+
+    public static void main(String[] args) throws Exception {
+        double[][][] data = DataParallelCheck.data(args);
+        double[][] xTrain = data[0], yTrain = data[1], xTest = data[2];
+        int[] labels = labels(data[3]);
+
+        Sequential model = DataParallelCheck.model(1, 0);
+        Optimizer adam = new Adam(0.001);
+        train(model, adam, xTrain, yTrain, 0);
+
+        boolean ok = checkReference(model, xTest, labels) & checkChunks(model, xTest, labels)
+                & checkBounded(model, xTest, labels) & checkAsync(model, adam, xTrain, yTrain, xTest, labels);
+        benchmark(model, xTest, labels);
+        if (!ok) {
+            System.out.println("❌ Evaluator check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Chunked evaluation matches the full-batch reference");
+    }
+
+    // ---------------- Reference ---------------- //
+
+    private static boolean checkReference(Sequential model, double[][] X, int[] labels) {
+        double[][] predictions = new InferenceEngine(model).predict(X);
+        long[][] confusion = new long[CLASSES][CLASSES];
+        double loss = 0.0;
+        for (int i = 0; i < X.length; i++) {
+            confusion[labels[i]][argmax(predictions[i])]++;
+            loss -= Math.log(predictions[i][labels[i]] + 1e-15);
+        }
+        loss /= X.length;
+
+        Evaluator.Report report;
+        try (Evaluator evaluator = new Evaluator(CLASSES, CHUNK, 4)) {
+            report = evaluator.evaluate(new InferenceEngine(model), X, labels);
+        }
+
+        boolean same = Arrays.deepEquals(confusion, report.confusionMatrix());
+        double worst = Math.abs(report.loss() - loss) / loss;
+        for (int c = 0; c < CLASSES; c++) {
+            long predicted = 0, actual = 0;
+            for (int k = 0; k < CLASSES; k++) {
+                predicted += confusion[k][c];
+                actual += confusion[c][k];
+            }
+            double precision = predicted == 0 ? 0.0 : (double) confusion[c][c] / predicted;
+            double recall = actual == 0 ? 0.0 : (double) confusion[c][c] / actual;
+            worst = Math.max(worst, Math.abs(report.precision(c) - precision));
+            worst = Math.max(worst, Math.abs(report.recall(c) - recall));
+        }
+
+        boolean ok = same && worst <= TOLERANCE && report.samples() == X.length;
+        System.out.printf("%s %s: confusion matrix %s, max metric error %.2e%n",
+                ok ? "✔" : "✘", report, same ? "equal" : "differs", worst);
+        return ok;
+    }
+
+    // ---------------- Chunks and threads ---------------- //
+
+    private static boolean checkChunks(Sequential model, double[][] X, int[] labels) {
+        InferenceEngine engine = new InferenceEngine(model);
+        Evaluator.Report base;
+        try (Evaluator evaluator = new Evaluator(CLASSES, CHUNK, 1)) {
+            base = evaluator.evaluate(engine, X, labels);
+        }
+
+        boolean ok = true;
+        for (int chunk : new int[]{1, 7, CHUNK, X.length + 1}) {
+            long bits = 0;
+            boolean counts = true, bitwise = true;
+            for (int threads : new int[]{1, 4}) {
+                Evaluator.Report report;
+                try (Evaluator evaluator = new Evaluator(CLASSES, chunk, threads)) {
+                    report = evaluator.evaluate(engine, X, labels);
+                }
+                counts &= Arrays.deepEquals(base.confusionMatrix(), report.confusionMatrix())
+                        && Math.abs(report.loss() - base.loss()) <= TOLERANCE;
+                long b = Double.doubleToLongBits(report.loss());
+                if (threads > 1) bitwise &= b == bits;
+                bits = b;
+            }
+            boolean same = counts && bitwise;
+            ok &= same;
+            System.out.printf("%s chunks of %d rows, 1 and 4 threads: %s%n", same ? "✔" : "✘", chunk,
+                    same ? "same counts, identical loss" : counts ? "loss differs between thread counts" : "counts differ");
+        }
+        return ok;
+    }
+
+    private static boolean checkBounded(Sequential model, double[][] X, int[] labels) {
+        AtomicInteger largest = new AtomicInteger(), rows = new AtomicInteger();
+        Samples source = (order, start, x, y) -> {
+            largest.accumulateAndGet(x.length, Math::max);
+            rows.addAndGet(x.length);
+            copy(X, labels, order, start, x, y);
+        };
+        try (Evaluator evaluator = new Evaluator(CLASSES, CHUNK, 4)) {
+            evaluator.evaluate(new InferenceEngine(model), source, labels.length);
+        }
+
+        boolean ok = largest.get() <= CHUNK && rows.get() == X.length;
+        System.out.printf("%s %d rows loaded once each, at most %d per chunk (chunk size %d)%n",
+                ok ? "✔" : "✘", rows.get(), largest.get(), CHUNK);
+        return ok;
+    }
+
+    // ---------------- Asynchronous ---------------- //
+
+    private static boolean checkAsync(Sequential model, Optimizer adam, double[][] xTrain, double[][] yTrain,
+                                      double[][] X, int[] labels) {
+        Samples source = (order, start, x, y) -> copy(X, labels, order, start, x, y);
+
+        Evaluator.Report before, async, after;
+        long hash = DataParallelCheck.hash(model);
+        try (Evaluator evaluator = new Evaluator(CLASSES, CHUNK, 2)) {
+            before = evaluator.evaluate(new InferenceEngine(model), source, labels.length);
+            CompletableFuture<Evaluator.Report> pending = evaluator.evaluateAsync(model, source, labels.length);
+            // The next "epoch" trains while the snapshot is scored
+            train(model, adam, xTrain, yTrain, STEPS);
+            async = pending.join();
+            after = evaluator.evaluate(new InferenceEngine(model), source, labels.length);
+        }
+
+        boolean ok = Arrays.deepEquals(before.confusionMatrix(), async.confusionMatrix())
+                && before.loss() == async.loss() && DataParallelCheck.hash(model) != hash;
+        System.out.printf("%s async evaluation during training reports the snapshot: loss %.4f (trained on: %.4f)%n",
+                ok ? "✔" : "✘", async.loss(), after.loss());
+        return ok;
+    }
+
+    // ---------------- Timing ---------------- //
+
+    private static void benchmark(Sequential model, double[][] X, int[] labels) {
+        InferenceEngine engine = new InferenceEngine(model);
+        int threads = Runtime.getRuntime().availableProcessors();
+        double full = Double.MAX_VALUE, chunked = Double.MAX_VALUE, sink = 0;
+        try (Evaluator evaluator = new Evaluator(CLASSES, CHUNK, threads)) {
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                sink += engine.predict(X)[0][0];
+                full = Math.min(full, (System.nanoTime() - start) / 1e6);
+
+                start = System.nanoTime();
+                sink += evaluator.evaluate(engine, X, labels).loss();
+                chunked = Math.min(chunked, (System.nanoTime() - start) / 1e6);
+            }
+        }
+        System.out.printf("  %d rows: full-batch predict %.1f ms (%d output rows held), chunked evaluation %.1f ms on %d threads%n",
+                X.length, full, X.length, chunked, threads);
+        if (sink == 0) System.out.println();
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    // Rows and labels of in-memory arrays, in the given order
+    private static void copy(double[][] X, int[] labels, int[] order, int start, double[][] x, int[] y) {
+        for (int i = 0; i < x.length; i++) {
+            System.arraycopy(X[order[start + i]], 0, x[i], 0, x[i].length);
+            y[i] = labels[order[start + i]];
+        }
+    }
+
+    private static void train(Sequential model, Optimizer optimizer, double[][] X, double[][] Y, int offset) {
+        for (int b = 0; b < STEPS; b++) {
+            int start = (offset + b) * BATCH % (X.length - BATCH + 1);
+            model.forward(DataParallelCheck.slice(X, start, BATCH), true);
+            model.backward(DataParallelCheck.slice(Y, start, BATCH));
+            model.update(optimizer);
+        }
+    }
+
+    private static int[] labels(double[][] oneHot) {
+        int[] labels = new int[oneHot.length];
+        for (int i = 0; i < labels.length; i++) labels[i] = argmax(oneHot[i]);
+        return labels;
+    }
+
+    private static int argmax(double[] row) {
+        int best = 0;
+        for (int j = 1; j < row.length; j++)
+            if (row[j] > row[best]) best = j;
+        return best;
+    }
+}
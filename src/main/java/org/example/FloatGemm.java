@@ -0,0 +1,133 @@
+package org.example;
+
+/**
+ * Single-precision counterpart of {@link Gemm} for float[][] operands.
+ *
+ * Same blocking (KC x NC), same 4-row micro-kernel and the same tile partitioning on
+ * the shared {@link Parallel} pool; only the element type differs, which halves the
+ * memory traffic and doubles the number of SIMD lanes per instruction.
+ */
+public class FloatGemm {
+
+    private static final int KC = Gemm.KC;
+    private static final int NC = Gemm.NC;
+
+    private static final ThreadLocal<float[][]> PANEL = new ThreadLocal<>();
+    private static final ThreadLocal<float[]> A_PACK = new ThreadLocal<>();
+
+    private static final Kernels KERNELS = Kernels.INSTANCE;
+
+    // ---------------- Public API ---------------- //
+
+    /**
+     * Compute op(A) * op(B) into a new matrix
+     */
+    public static float[][] multiply(float[][] a, boolean transA, float[][] b, boolean transB) {
+        int rows = transA ? a[0].length : a.length;
+        int cols = transB ? b.length : b[0].length;
+        float[][] c = new float[rows][cols];
+        multiplyInto(a, transA, b, transB, c, false);
+        return c;
+    }
+
+    /**
+     * Compute op(A) * op(B) into an existing matrix
+     * @param accumulate Add to the current contents of c instead of overwriting them
+     */
+    public static void multiplyInto(float[][] a, boolean transA, float[][] b, boolean transB,
+                                    float[][] c, boolean accumulate) {
+        int rows = transA ? a[0].length : a.length;
+        int common = transA ? a.length : a[0].length;
+        int bRows = transB ? b[0].length : b.length;
+        int cols = transB ? b.length : b[0].length;
+
+        if (common != bRows)
+            throw new IllegalArgumentException("Invalid matrix dimensions for multiplication.");
+        if (c.length != rows || c[0].length != cols)
+            throw new IllegalArgumentException("Output matrix has the wrong dimensions.");
+
+        Parallel.forTiles(rows, cols, 4, common, (r0, r1, c0, c1) ->
+                multiplyTile(a, transA, b, transB, c, accumulate, common, r0, r1, c0, c1));
+    }
+
+    // ---------------- Tiles ---------------- //
+
+    private static void multiplyTile(float[][] a, boolean transA, float[][] b, boolean transB,
+                                     float[][] c, boolean accumulate, int common,
+                                     int r0, int r1, int c0, int c1) {
+        if (!accumulate) {
+            for (int i = r0; i < r1; i++)
+                java.util.Arrays.fill(c[i], c0, c1, 0f);
+        }
+
+        float[][] panel = transB ? panel(Math.min(common, KC), c1) : null;
+        float[] aPack = aPack();
+
+        for (int kk = 0; kk < common; kk += KC) {
+            int kEnd = Math.min(common, kk + KC);
+
+            if (transB) {
+                for (int j = c0; j < c1; j++) {
+                    float[] bj = b[j];
+                    for (int k = kk; k < kEnd; k++)
+                        panel[k - kk][j] = bj[k];
+                }
+            }
+
+            float[][] bRows = transB ? panel : b;
+            int bFirst = transB ? 0 : kk;
+
+            for (int jj = c0; jj < c1; jj += NC) {
+                int jEnd = Math.min(c1, jj + NC);
+                int i = r0;
+
+                for (; i + 3 < r1; i += 4) {
+                    for (int k = kk; k < kEnd; k++) {
+                        int p = 4 * (k - kk);
+                        if (transA) {
+                            float[] ak = a[k];
+                            aPack[p] = ak[i];
+                            aPack[p + 1] = ak[i + 1];
+                            aPack[p + 2] = ak[i + 2];
+                            aPack[p + 3] = ak[i + 3];
+                        } else {
+                            aPack[p] = a[i][k];
+                            aPack[p + 1] = a[i + 1][k];
+                            aPack[p + 2] = a[i + 2][k];
+                            aPack[p + 3] = a[i + 3][k];
+                        }
+                    }
+                    KERNELS.gemm4(aPack, bRows, bFirst, kEnd - kk, c[i], c[i + 1], c[i + 2], c[i + 3], jj, jEnd);
+                }
+
+                for (; i < r1; i++) {
+                    for (int k = kk; k < kEnd; k++)
+                        aPack[k - kk] = transA ? a[k][i] : a[i][k];
+                    KERNELS.gemm1(aPack, bRows, bFirst, kEnd - kk, c[i], jj, jEnd);
+                }
+            }
+        }
+    }
+
+    // ---------------- Scratch ---------------- //
+
+    private static float[] aPack() {
+        float[] buf = A_PACK.get();
+        if (buf == null) {
+            buf = new float[4 * KC];
+            A_PACK.set(buf);
+        }
+        return buf;
+    }
+
+    private static float[][] panel(int rows, int cols) {
+        float[][] buf = PANEL.get();
+        if (buf == null || buf.length < rows || buf[0].length < cols) {
+            int r = Math.max(rows, buf == null ? 0 : buf.length);
+            int c = Math.max(cols, buf == null ? 0 : buf[0].length);
+            buf = new float[r][c];
+            PANEL.set(buf);
+        }
+        return buf;
+    }
+}
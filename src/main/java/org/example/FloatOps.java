@@ -0,0 +1,174 @@
+package org.example;
+
+/**
+ * Single-precision matrix helpers used by {@link ForwardFloat} and {@link BackwardFloat}.
+ *
+ * Element-wise work is done in float; reductions over a batch (column sums, L2 norms)
+ * are accumulated in double and rounded once, so the float path tracks the double
+ * path closely even for large batches.
+ */
+public class FloatOps {
+
+    // ---------------- Conversion ---------------- //
+
+    public static float[][] toFloat(double[][] a) {
+        int rows = a.length, cols = a[0].length;
+        float[][] result = new float[rows][cols];
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                result[i][j] = (float) a[i][j];
+
+        return result;
+    }
+
+    public static double[][] toDouble(float[][] a) {
+        int rows = a.length, cols = a[0].length;
+        double[][] result = new double[rows][cols];
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                result[i][j] = a[i][j];
+
+        return result;
+    }
+
+    /**
+     * Convert raw pixels straight to normalized floats (pixel / 255) in one pass
+     */
+    public static float[][] normalizePixels(int[][] pixels) {
+        int rows = pixels.length, cols = pixels[0].length;
+        float[][] result = new float[rows][cols];
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                result[i][j] = pixels[i][j] / 255.0f;
+
+        return result;
+    }
+
+    // ---------------- Layer Helpers ---------------- //
+
+    /**
+     * input * W + b, with the [1 x n] bias added row by row instead of broadcast
+     */
+    public static float[][] affine(float[][] input, float[][] W, float[][] b) {
+        float[][] net = FloatGemm.multiply(input, false, W, false);
+        float[] bias = b[0];
+
+        for (float[] row : net)
+            for (int j = 0; j < row.length; j++)
+                row[j] += bias[j];
+
+        return net;
+    }
+
+    public static float[][] relu(float[][] input) {
+        int rows = input.length, cols = input[0].length;
+        float[][] result = new float[rows][cols];
+
+        Parallel.forRows(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++)
+                for (int j = 0; j < cols; j++)
+                    result[i][j] = Math.max(0f, input[i][j]);
+        });
+
+        return result;
+    }
+
+    public static float[][] softmax(float[][] input) {
+        int rows = input.length, cols = input[0].length;
+        float[][] result = new float[rows][cols];
+
+        Parallel.forRows(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                float max = Float.NEGATIVE_INFINITY;
+                for (float v : input[i]) max = Math.max(max, v);
+
+                double sum = 0;
+                for (int j = 0; j < cols; j++) {
+                    result[i][j] = (float) Math.exp(input[i][j] - max);
+                    sum += result[i][j];
+                }
+
+                float inv = (float) (1.0 / sum);
+                for (int j = 0; j < cols; j++)
+                    result[i][j] *= inv;
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * gradient * relu'(net), where relu'(net) = net > 0 ? 1 : 0
+     */
+    public static float[][] maskByReluDerivative(float[][] gradient, float[][] net) {
+        int rows = gradient.length, cols = gradient[0].length;
+        float[][] result = new float[rows][cols];
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                result[i][j] = net[i][j] > 0 ? gradient[i][j] : 0f;
+
+        return result;
+    }
+
+    /**
+     * Sum over the batch dimension: [m x n] -> [1 x n]
+     */
+    public static float[][] columnSums(float[][] a) {
+        int cols = a[0].length;
+        double[] sums = new double[cols];
+
+        for (float[] row : a)
+            for (int j = 0; j < cols; j++)
+                sums[j] += row[j];
+
+        float[][] result = new float[1][cols];
+        for (int j = 0; j < cols; j++)
+            result[0][j] = (float) sums[j];
+        return result;
+    }
+
+    // ---------------- Parameters ---------------- //
+
+    public static float[][] initializeWeights(int rows, int cols, java.util.Random random) {
+        float[][] weights = new float[rows][cols];
+        double std = Math.sqrt(2.0 / rows); // He initialization
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                weights[i][j] = (float) (random.nextGaussian() * std);
+
+        return weights;
+    }
+
+    /**
+     * matrix -= learningRate * gradient
+     */
+    public static void updateInPlace(float[][] matrix, float[][] gradient, float learningRate) {
+        for (int i = 0; i < matrix.length; i++)
+            for (int j = 0; j < matrix[0].length; j++)
+                matrix[i][j] -= learningRate * gradient[i][j];
+    }
+
+    /**
+     * gradient += lambda * weights (L2 weight decay), in place
+     */
+    public static void addWeightDecay(float[][] gradient, float[][] weights, float lambda) {
+        for (int i = 0; i < gradient.length; i++)
+            for (int j = 0; j < gradient[0].length; j++)
+                gradient[i][j] += lambda * weights[i][j];
+    }
+
+    public static double l2Regularization(float[][] weights, double lambda) {
+        double sum = 0.0;
+
+        for (float[] row : weights)
+            for (float w : row)
+                sum += (double) w * w;
+
+        return lambda * sum * 0.5;
+    }
+}
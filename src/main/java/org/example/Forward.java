@@ -1,61 +1,89 @@
 package org.example;
 
+import java.util.SplittableRandom;
+
+/**
+ * Forward pass of the 3-layer network: ReLU + dropout 0.3, ReLU + batch norm, softmax.
+ *
+ * The only state kept here is the batch-norm scale and shift (gamma1, beta1) and the
+ * generator used by the allocating overload. Everything a pass produces (activations,
+ * dropout mask, batch statistics) goes into a {@link Workspace}, so threads that each
+ * use their own workspace can run passes on one Forward at the same time.
+ */
 public class Forward {
     // input -> X_batch, W1, b1, W2, b2, W3, b3
-    // output -> net1, out1, net2, out2, net3, out3
-
-    double[][] net1;
-    double[][] out1;
-    double[][] net2;
-    double[][] out2;
-    private double[][] net3, out3;
+    // output -> net1, out1, net2, out2, net3, out3 (in the workspace)
 
     // Batch normalization parameters
-    private double[][] gamma1, beta1; // For layer 1
+    private volatile double[][] gamma1, beta1; // For layer 1
 
+    // Dropout generator for the allocating overload (one thread at a time)
+    private SplittableRandom random = new SplittableRandom();
 
+    /**
+     * Forward pass into a fresh {@link Workspace} that draws dropout from this
+     * instance's generator (see {@link #setRandomSeed(long)})
+     */
     public double[][] forward(double[][] X_batch,
                               double[][] W1, double[][] b1,
                               double[][] W2, double[][] b2,
                               double[][] W3, double[][] b3) {
+        return forward(X_batch, W1, b1, W2, b2, W3, b3, newWorkspace(X_batch, W1, W2, W3));
+    }
+
+    Workspace newWorkspace(double[][] X_batch, double[][] W1, double[][] W2, double[][] W3) {
+        return new Workspace(X_batch.length, W1.length, W1[0].length, W2[0].length, W3[0].length, random);
+    }
+
+    /**
+     * Forward pass into the buffers of a {@link Workspace}, with dropout drawn from the
+     * workspace's generator. The dropout mask and batch-norm statistics are kept in the
+     * workspace for {@link Backward}; the returned probabilities are ws.out3 and are
+     * overwritten by the next call with the same workspace.
+     */
+    public double[][] forward(double[][] X_batch,
+                              double[][] W1, double[][] b1,
+                              double[][] W2, double[][] b2,
+                              double[][] W3, double[][] b3,
+                              Workspace ws) {
 
-        int batchSize = X_batch.length;
+        ws.requireBatchSize(X_batch.length);
 
-        // Layer 1: Input -> Hidden1
-        net1 = Matrix_Operations.add(Matrix_Operations.multiply(X_batch, W1),
-                Matrix_Operations.broadcastBias(b1, batchSize));
-        out1 = Activation_Function.relu(net1);
-        out1 = Techniques.dropout(out1, 0.3, true);
+        // Layer 1: Input -> Hidden1 (GEMM, bias and ReLU in one pass)
+        FusedLayer.forward(X_batch, W1, b1, Activation.RELU, ws.net1, ws.out1);
+        Techniques.dropout(ws.out1, 0.3, ws.random, ws.dropoutMask, ws.out1);
 
 
         // Layer 2: Hidden1 -> Hidden2
-        net2 = Matrix_Operations.add(Matrix_Operations.multiply(out1, W2),
-                Matrix_Operations.broadcastBias(b2, batchSize));
-        out2 = Activation_Function.relu(net2);
-        // Initialize gamma/beta if using batch norm for first time
-        if (gamma1 == null) {
-            gamma1 = Techniques.initializeGamma(out2[0].length);
-            beta1 = Techniques.initializeBeta(out2[0].length);
-        }
-        out2 = Techniques.batchNormalization(out2, gamma1, beta1);
+        FusedLayer.forward(ws.out1, W2, b2, Activation.RELU, ws.net2, ws.out2);
+        initializeBatchNorm(ws.out2[0].length);
+        Techniques.batchNormalization(ws.out2, gamma1, beta1, 1e-8,
+                ws.bnMean, ws.bnVariance, ws.bnNormalized, ws.out2);
 
 
         // Layer 3: Hidden2 -> Output
-        net3 = Matrix_Operations.add(Matrix_Operations.multiply(out2, W3),
-                Matrix_Operations.broadcastBias(b3, batchSize));
-        out3 = Activation_Function.softmax(net3);
+        FusedLayer.forward(ws.out2, W3, b3, Activation.SOFTMAX, ws.net3, ws.out3);
 
+        return ws.out3;
+    }
 
-        return out3;
+    // Created on first use, once, even when several threads get here together
+    private void initializeBatchNorm(int features) {
+        if (gamma1 != null) return;
+        synchronized (this) {
+            if (gamma1 == null) {
+                beta1 = Techniques.initializeBeta(features);
+                gamma1 = Techniques.initializeGamma(features);
+            }
+        }
     }
 
-    // Getters for backpropagation
-    public double[][] getNet1() { return net1; }
-    public double[][] getOut1() { return out1; }
-    public double[][] getNet2() { return net2; }
-    public double[][] getOut2() { return out2; }
-    public double[][] getNet3() { return net3; }
-    public double[][] getOut3() { return out3; }
+    /**
+     * Set random seed for reproducible dropout in the allocating overload
+     */
+    public void setRandomSeed(long seed) {
+        random = new SplittableRandom(seed);
+    }
 
     // Getters for batch norm parameters
     public double[][] getGamma1() { return gamma1; }
@@ -0,0 +1,246 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Single-precision version of {@link Forward}: the same three layers, dropout 0.3 on
+ * hidden layer 1 and batch normalization on hidden layer 2, with every weight and
+ * activation held in float.
+ *
+ * The dropout mask and batch-norm statistics are kept on this instance and read back
+ * by {@link BackwardFloat}.
+ * Dropout masks come from {@link Techniques#dropoutMask}, so seeding both generators
+ * identically gives both precisions the same masks.
+ *
+ * Like {@link BatchNormLayer}, each training pass folds the batch mean and unbiased
+ * variance into running averages (momentum 0.1). An evaluation pass
+ * (training = false) skips dropout, normalizes with those running averages and leaves
+ * the state saved for backpropagation untouched, so a prediction does not depend on
+ * the rest of its batch.
+ */
+public class ForwardFloat {
+
+    private static final double DROPOUT_RATE = 0.3;
+    private static final double BN_EPSILON = 1e-8;
+    private static final double BN_MOMENTUM = 0.1;
+
+    float[][] net1, out1, net2, out2;
+    private float[][] net3, out3;
+
+    // Batch normalization parameters and running statistics for evaluation
+    private float[][] gamma1, beta1;
+    private double[] runningMean, runningVariance;
+
+    // Saved for backpropagation
+    private long[] dropoutMask;
+    private double[] bnMean, bnVariance;
+    private float[][] bnNormalized;
+
+    private SplittableRandom random = new SplittableRandom();
+
+    /**
+     * Training pass: dropout on, batch statistics, state saved for {@link BackwardFloat}
+     */
+    public float[][] forward(float[][] X_batch,
+                             float[][] W1, float[][] b1,
+                             float[][] W2, float[][] b2,
+                             float[][] W3, float[][] b3) {
+        return forward(X_batch, W1, b1, W2, b2, W3, b3, true);
+    }
+
+    /**
+     * @param training False for evaluation: no dropout, running statistics, and nothing
+     *                 saved on this instance
+     */
+    public float[][] forward(float[][] X_batch,
+                             float[][] W1, float[][] b1,
+                             float[][] W2, float[][] b2,
+                             float[][] W3, float[][] b3,
+                             boolean training) {
+
+        if (!training) {
+            float[][] hidden1 = FloatOps.relu(FloatOps.affine(X_batch, W1, b1));
+            float[][] hidden2 = FloatOps.relu(FloatOps.affine(hidden1, W2, b2));
+            initializeBatchNorm(hidden2[0].length);
+            return FloatOps.softmax(FloatOps.affine(batchNormalizationInference(hidden2), W3, b3));
+        }
+
+        // Layer 1: Input -> Hidden1
+        net1 = FloatOps.affine(X_batch, W1, b1);
+        out1 = dropout(FloatOps.relu(net1));
+
+        // Layer 2: Hidden1 -> Hidden2
+        net2 = FloatOps.affine(out1, W2, b2);
+        out2 = FloatOps.relu(net2);
+        initializeBatchNorm(out2[0].length);
+        out2 = batchNormalization(out2);
+
+        // Layer 3: Hidden2 -> Output
+        net3 = FloatOps.affine(out2, W3, b3);
+        out3 = FloatOps.softmax(net3);
+
+        return out3;
+    }
+
+    // ======================= DROPOUT =======================
+
+    // In place: the input is the fresh ReLU output
+    private float[][] dropout(float[][] input) {
+        int rows = input.length, cols = input[0].length;
+        if (dropoutMask == null || dropoutMask.length != rows * Techniques.maskWords(cols))
+            dropoutMask = Techniques.newMask(rows, cols);
+        Techniques.dropoutMask(random, DROPOUT_RATE, dropoutMask, rows, cols);
+        return applyMask(input);
+    }
+
+    // In place: dOut is a fresh product owned by the caller
+    float[][] dropoutBackward(float[][] dOut) {
+        return applyMask(dOut);
+    }
+
+    private float[][] applyMask(float[][] values) {
+        int cols = values[0].length, words = Techniques.maskWords(cols);
+        float scale = (float) (1.0 / (1.0 - DROPOUT_RATE));
+
+        for (int i = 0; i < values.length; i++) {
+            float[] row = values[i];
+            for (int j = 0; j < cols; j++) {
+                long bits = dropoutMask[i * words + (j >>> 6)];
+                row[j] = (bits >>> j & 1L) != 0 ? row[j] * scale : 0f;
+            }
+        }
+        return values;
+    }
+
+    // ======================= BATCH NORMALIZATION =======================
+
+    private void initializeBatchNorm(int features) {
+        if (gamma1 != null) return;
+        gamma1 = FloatOps.toFloat(Techniques.initializeGamma(features));
+        beta1 = FloatOps.toFloat(Techniques.initializeBeta(features));
+        runningMean = new double[features];
+        runningVariance = new double[features];
+        Arrays.fill(runningVariance, 1.0);
+    }
+
+    private float[][] batchNormalization(float[][] input) {
+        int batchSize = input.length, features = input[0].length;
+
+        // Single Welford pass in double, as in Techniques.batchNormalization
+        bnMean = new double[features];
+        bnVariance = new double[features];
+        for (int i = 0; i < batchSize; i++) {
+            double weight = 1.0 / (i + 1);
+            for (int j = 0; j < features; j++) {
+                double delta = input[i][j] - bnMean[j];
+                bnMean[j] += delta * weight;
+                bnVariance[j] += delta * (input[i][j] - bnMean[j]);
+            }
+        }
+        double[] invStd = new double[features];
+        double unbiased = batchSize > 1 ? (double) batchSize / (batchSize - 1) : 1.0;
+        for (int j = 0; j < features; j++) {
+            bnVariance[j] /= batchSize;
+            invStd[j] = 1.0 / Math.sqrt(bnVariance[j] + BN_EPSILON);
+            runningMean[j] += BN_MOMENTUM * (bnMean[j] - runningMean[j]);
+            runningVariance[j] += BN_MOMENTUM * (bnVariance[j] * unbiased - runningVariance[j]);
+        }
+
+        bnNormalized = new float[batchSize][features];
+        float[][] result = new float[batchSize][features];
+        for (int i = 0; i < batchSize; i++) {
+            for (int j = 0; j < features; j++) {
+                float normalized = (float) ((input[i][j] - bnMean[j]) * invStd[j]);
+                bnNormalized[i][j] = normalized;
+                result[i][j] = gamma1[0][j] * normalized + beta1[0][j];
+            }
+        }
+
+        return result;
+    }
+
+    // Per-feature scale and shift from the running statistics, as in Techniques.batchNormalizationInference
+    private float[][] batchNormalizationInference(float[][] input) {
+        int features = input[0].length;
+        double[] scale = new double[features], shift = new double[features];
+        for (int j = 0; j < features; j++) {
+            scale[j] = gamma1[0][j] / Math.sqrt(runningVariance[j] + BN_EPSILON);
+            shift[j] = beta1[0][j] - runningMean[j] * scale[j];
+        }
+
+        float[][] result = new float[input.length][features];
+        for (int i = 0; i < input.length; i++)
+            for (int j = 0; j < features; j++)
+                result[i][j] = (float) (input[i][j] * scale[j] + shift[j]);
+        return result;
+    }
+
+    /**
+     * Same formula as {@link Techniques#batchNormBackward}, including its use of the
+     * layer output as {@code originalInput}, so both precisions train identically
+     */
+    float[][] batchNormBackward(float[][] dOut, float[][] originalInput) {
+        int batchSize = dOut.length, features = dOut[0].length;
+        float[][] dInput = new float[batchSize][features];
+
+        for (int j = 0; j < features; j++) {
+            double stdDev = Math.sqrt(bnVariance[j] + BN_EPSILON);
+            double invStd3 = 1.0 / (stdDev * stdDev * stdDev);
+            double g = gamma1[0][j];
+
+            double dVar = 0.0, dMean = 0.0, centeredSum = 0.0;
+            for (int i = 0; i < batchSize; i++) {
+                double centered = originalInput[i][j] - bnMean[j];
+                dVar += dOut[i][j] * g * centered * (-0.5) * invStd3;
+                dMean += dOut[i][j] * g * (-1.0 / stdDev);
+                centeredSum += centered;
+            }
+            dMean += dVar * (-2.0 / batchSize) * centeredSum;
+
+            for (int i = 0; i < batchSize; i++) {
+                dInput[i][j] = (float) (dOut[i][j] * g / stdDev +
+                        dVar * 2.0 * (originalInput[i][j] - bnMean[j]) / batchSize +
+                        dMean / batchSize);
+            }
+        }
+
+        return dInput;
+    }
+
+    float[][] gammaGradient(float[][] dOut) {
+        int batchSize = dOut.length, features = dOut[0].length;
+        float[][] dGamma = new float[1][features];
+
+        for (int j = 0; j < features; j++) {
+            double sum = 0.0;
+            for (int i = 0; i < batchSize; i++) sum += dOut[i][j] * bnNormalized[i][j];
+            dGamma[0][j] = (float) sum;
+        }
+
+        return dGamma;
+    }
+
+    // ======================= UTILITY METHODS =======================
+
+    /**
+     * Set random seed for reproducible dropout
+     */
+    public void setRandomSeed(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    // Getters for backpropagation
+    public float[][] getNet1() { return net1; }
+    public float[][] getOut1() { return out1; }
+    public float[][] getNet2() { return net2; }
+    public float[][] getOut2() { return out2; }
+    public float[][] getNet3() { return net3; }
+    public float[][] getOut3() { return out3; }
+
+    // Getters for batch norm parameters and running statistics
+    public float[][] getGamma1() { return gamma1; }
+    public float[][] getBeta1() { return beta1; }
+    public double[] getRunningMean() { return runningMean; }
+    public double[] getRunningVariance() { return runningVariance; }
+}
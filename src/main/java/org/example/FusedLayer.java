@@ -0,0 +1,98 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Fused kernels for a dense layer, so each pass over a layer's output happens once.
+ *
+ * Forward: net = input * W + b and out = f(net) are written by the GEMM epilogue
+ * ({@link Gemm#multiplyInto(double[][], double[][], double[], Activation, double[][], double[][])}),
+ * without a broadcast copy of the bias or separate add / activation passes.
+ *
+ * Backward: dZ = dOut * f'(.) and the bias gradient db = sum over the batch of dZ are
+ * produced together. Work is split by column ranges, so every task owns its slice of db.
+ */
+public class FusedLayer {
+
+    private static final Kernels KERNELS = Kernels.INSTANCE;
+
+    // ---------------- Forward ---------------- //
+
+    /**
+     * net = input * W + b, out = activation(net)
+     * @param input Layer input [batchSize x in]
+     * @param W Weights [in x out]
+     * @param b Bias [1 x out]
+     * @param net Receives the pre-activation (kept for backpropagation)
+     * @param out Receives the activation (may be net itself)
+     */
+    public static void forward(double[][] input, double[][] W, double[][] b, Activation activation,
+                               double[][] net, double[][] out) {
+        Gemm.multiplyInto(input, W, b[0], activation, net, out);
+    }
+
+    // ---------------- Backward ---------------- //
+
+    /**
+     * dZ = dOut * activation'(.) and db = column sums of dZ
+     * @param dOut Gradient with respect to the activation [batchSize x n]
+     * @param net Pre-activation from the forward pass (used by RELU, LEAKY_RELU)
+     * @param out Activation from the forward pass (used by SIGMOID, TANH, SOFTMAX)
+     * @param dZ Receives the gradient with respect to net (may be dOut itself)
+     * @param db Receives the bias gradient [1 x n]
+     */
+    public static void backward(double[][] dOut, double[][] net, double[][] out, Activation activation,
+                                double[][] dZ, double[][] db) {
+        int rows = dOut.length, cols = dOut[0].length;
+
+        if (activation == Activation.SOFTMAX) {
+            softmaxBackward(dOut, out, dZ, db);
+            return;
+        }
+        if (Parallel.runsInline((long) rows * cols)) {
+            backwardColumns(dOut, net, out, activation, dZ, db, 0, cols);
+            return;
+        }
+        Parallel.forRows(cols, rows, (from, to) -> backwardColumns(dOut, net, out, activation, dZ, db, from, to));
+    }
+
+    /**
+     * Output layer of softmax + cross-entropy: dZ = probabilities - labels, db = column sums of dZ
+     */
+    public static void softmaxCrossEntropyBackward(double[][] probabilities, double[][] labels,
+                                                   double[][] dZ, double[][] db) {
+        int rows = probabilities.length, cols = probabilities[0].length;
+        double[] bias = db[0];
+        Arrays.fill(bias, 0, cols, 0.0);
+
+        for (int i = 0; i < rows; i++) {
+            double[] p = probabilities[i], y = labels[i], d = dZ[i];
+            for (int j = 0; j < cols; j++)
+                bias[j] += d[j] = p[j] - y[j];
+        }
+    }
+
+    private static void backwardColumns(double[][] dOut, double[][] net, double[][] out, Activation activation,
+                                        double[][] dZ, double[][] db, int from, int to) {
+        Arrays.fill(db[0], from, to, 0.0);
+        for (int i = 0; i < dOut.length; i++) {
+            KERNELS.activationBackward(dOut[i], net == null ? null : net[i], out == null ? null : out[i],
+                    activation, dZ[i], db[0], from, to);
+        }
+    }
+
+    // Jacobian-vector product of softmax: dZ = s * (dOut - sum(dOut * s)), row by row
+    private static void softmaxBackward(double[][] dOut, double[][] out, double[][] dZ, double[][] db) {
+        int cols = dOut[0].length;
+        double[] bias = db[0];
+        Arrays.fill(bias, 0, cols, 0.0);
+
+        for (int i = 0; i < dOut.length; i++) {
+            double[] g = dOut[i], s = out[i], d = dZ[i];
+            double dot = 0.0;
+            for (int j = 0; j < cols; j++) dot += g[j] * s[j];
+            for (int j = 0; j < cols; j++)
+                bias[j] += d[j] = s[j] * (g[j] - dot);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.example;
+
+/**
+ * Checks the fused layer kernels against the unfused operations they replace, for every
+ * {@link Activation}, then times both at the MNIST layer shapes.
+ *
+ * Unfused forward is what Forward used to do: add(multiply(X, W), broadcastBias(b)) and
+ * then the activation, i.e. three passes over the output and a batch-sized bias copy.
+ * Unfused backward is dOut * f'(x) followed by a separate column-sum loop for db.
+ * Each pair is timed in alternating trials and the medians are compared.
+ *
+ * Run with: java -cp target/classes org.example.FusedLayerBenchmark
+ * (add --add-modules jdk.incubator.vector to measure the SIMD backend)
+ */
+public class FusedLayerBenchmark {
+
+    private static final double TOLERANCE = 1e-12;
+    private static final int WARMUP_TRIALS = 5, TRIALS = 15;
+    private static final long TRIAL_NANOS = 100_000_000L;
+
+    // { batch, in, out }
+    private static final int[][] SHAPES = {
+            {32, 784, 128},
+            {32, 128, 64},
+            {32, 64, 10},
+            {10000, 784, 128},
+    };
+
+    public static void main(String[] args) {
+        System.out.println("Kernels: " + (Kernels.isVectorized() ? "Vector API" : "scalar"));
+
+        boolean ok = true;
+        for (Activation activation : Activation.values())
+            ok &= check(activation);
+        if (!ok) {
+            System.out.println("❌ Fused kernels disagree with the unfused operations");
+            System.exit(1);
+        }
+        System.out.println("✅ Fused kernels match the unfused operations for every activation");
+
+        System.out.printf("%n%-20s %-8s %13s %13s %8s %13s %13s %8s%n", "shape", "act",
+                "fwd unfused", "fwd fused", "speedup", "bwd unfused", "bwd fused", "speedup");
+        System.out.println("-".repeat(104));
+
+        for (int[] shape : SHAPES) {
+            int m = shape[0], k = shape[1], n = shape[2];
+            Activation activation = n == 10 ? Activation.SOFTMAX : Activation.RELU;
+            double[][] x = GemmBenchmark.randomMatrix(m, k), w = GemmBenchmark.randomMatrix(k, n);
+            double[][] b = GemmBenchmark.randomMatrix(1, n), dOut = GemmBenchmark.randomMatrix(m, n);
+            double[][] net = new double[m][n], out = new double[m][n], dZ = new double[m][n], db = new double[1][n];
+
+            double[] fwd = medianMicros(() -> unfusedForward(x, w, b, activation),
+                    () -> FusedLayer.forward(x, w, b, activation, net, out));
+            double[] bwd = medianMicros(() -> unfusedBackward(dOut, net, out, activation),
+                    () -> FusedLayer.backward(dOut, net, out, activation, dZ, db));
+            double fwdUnfused = fwd[0], fwdFused = fwd[1], bwdUnfused = bwd[0], bwdFused = bwd[1];
+
+            System.out.printf("%-20s %-8s %11.1fus %11.1fus %7.2fx %11.1fus %11.1fus %7.2fx%n",
+                    m + "x" + k + " -> " + n, activation, fwdUnfused, fwdFused, fwdUnfused / fwdFused,
+                    bwdUnfused, bwdFused, bwdUnfused / bwdFused);
+        }
+    }
+
+    // ---------------- Correctness ---------------- //
+
+    private static boolean check(Activation activation) {
+        // Odd sizes so the vector kernels' tails are exercised too
+        int m = 37, k = 53, n = 29;
+        double[][] x = GemmBenchmark.randomMatrix(m, k), w = GemmBenchmark.randomMatrix(k, n);
+        double[][] b = GemmBenchmark.randomMatrix(1, n), dOut = GemmBenchmark.randomMatrix(m, n);
+        scale(w, 0.1);
+
+        double[][] net = new double[m][n], out = new double[m][n];
+        FusedLayer.forward(x, w, b, activation, net, out);
+        double[][] expectedNet = Matrix_Operations.add(Matrix_Operations.multiply(x, w),
+                Matrix_Operations.broadcastBias(b, m));
+        double[][] expectedOut = activate(expectedNet, activation);
+
+        double[][] dZ = new double[m][n], db = new double[1][n];
+        FusedLayer.backward(dOut, net, out, activation, dZ, db);
+        double[][] expectedDZ = unfusedBackward(dOut, expectedNet, expectedOut, activation);
+        double[][] expectedDb = Techniques.computeBetaGradient(expectedDZ);
+
+        double error = Math.max(Math.max(maxError(net, expectedNet), maxError(out, expectedOut)),
+                Math.max(maxError(dZ, expectedDZ), maxError(db, expectedDb)));
+        System.out.printf("%-10s max abs error %.2e%n", activation, error);
+        return error <= TOLERANCE;
+    }
+
+    // ---------------- Unfused Reference ---------------- //
+
+    private static double[][] unfusedForward(double[][] x, double[][] w, double[][] b, Activation activation) {
+        double[][] net = Matrix_Operations.add(Matrix_Operations.multiply(x, w),
+                Matrix_Operations.broadcastBias(b, x.length));
+        return activate(net, activation);
+    }
+
+    private static double[][] activate(double[][] net, Activation activation) {
+        switch (activation) {
+            case IDENTITY: return net;
+            case RELU: return Activation_Function.relu(net);
+            case LEAKY_RELU: return Activation_Function.leakyRelu(net, Activation.LEAKY_RELU_SLOPE);
+            case SIGMOID: return Activation_Function.sigmoid(net);
+            case TANH: return Activation_Function.tanh(net);
+            default: return Activation_Function.softmax(net);
+        }
+    }
+
+    // dZ = dOut * f'(x) via the derivative matrices, then db by a separate column sum
+    private static double[][] unfusedBackward(double[][] dOut, double[][] net, double[][] out, Activation activation) {
+        int rows = dOut.length, cols = dOut[0].length;
+        double[][] dZ = new double[rows][cols];
+
+        if (activation == Activation.SOFTMAX) {
+            for (int i = 0; i < rows; i++) {
+                double dot = Matrix_Operations.dot(dOut[i], out[i]);
+                for (int j = 0; j < cols; j++) dZ[i][j] = out[i][j] * (dOut[i][j] - dot);
+            }
+        } else {
+            double[][] derivative;
+            switch (activation) {
+                case RELU: derivative = Activation_Function.reluDerivativeFromNet(net); break;
+                case LEAKY_RELU: derivative = Activation_Function.leakyReluDerivative(net, Activation.LEAKY_RELU_SLOPE); break;
+                case SIGMOID: derivative = Activation_Function.sigmoidDerivative(out); break;
+                case TANH: derivative = Activation_Function.tanhDerivative(out); break;
+                default: derivative = null;
+            }
+            for (int i = 0; i < rows; i++)
+                for (int j = 0; j < cols; j++)
+                    dZ[i][j] = derivative == null ? dOut[i][j] : dOut[i][j] * derivative[i][j];
+        }
+
+        Techniques.computeBetaGradient(dZ); // db, as its own pass over dZ
+        return dZ;
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    /**
+     * Median time per call of each op, in microseconds, over trials that alternate
+     * between them, so clock drift and JIT recompilation hit both alike
+     */
+    private static double[] medianMicros(Runnable first, Runnable second) {
+        for (int t = 0; t < WARMUP_TRIALS; t++) {
+            micros(first);
+            micros(second);
+        }
+        double[] a = new double[TRIALS], b = new double[TRIALS];
+        for (int t = 0; t < TRIALS; t++) {
+            a[t] = micros(first);
+            b[t] = micros(second);
+        }
+        java.util.Arrays.sort(a);
+        java.util.Arrays.sort(b);
+        return new double[]{a[TRIALS / 2], b[TRIALS / 2]};
+    }
+
+    // One trial: as many calls as fit in TRIAL_NANOS (at least one)
+    private static double micros(Runnable op) {
+        int iterations = 0;
+        long start = System.nanoTime(), elapsed;
+        do {
+            op.run();
+            iterations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < TRIAL_NANOS);
+
+        return elapsed / 1e3 / iterations;
+    }
+
+    private static double maxError(double[][] a, double[][] b) {
+        double max = 0;
+        for (int i = 0; i < a.length; i++)
+            for (int j = 0; j < a[0].length; j++)
+                max = Math.max(max, Math.abs(a[i][j] - b[i][j]));
+        return max;
+    }
+
+    private static void scale(double[][] a, double factor) {
+        for (double[] row : a)
+            for (int j = 0; j < row.length; j++) row[j] *= factor;
+    }
+}
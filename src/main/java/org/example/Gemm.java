@@ -0,0 +1,239 @@
+package org.example;
+
+/**
+ * Cache-blocked matrix multiplication engine used by {@link Matrix_Operations}.
+ *
+ * The kernel walks the product in i-k-j order: the reduction dimension is cut into
+ * KC-sized blocks so the rows of B touched by one block stay in L2, the output
+ * columns into NC-sized blocks so one row segment of C stays in L1, and the
+ * micro-kernel ({@link Kernels#gemm4}) updates four rows of C at once while the
+ * matching four values of A live in registers. The scalar backend's unit-stride inner
+ * loop is auto-vectorized by the JIT; the Vector API backend also keeps the C tile in
+ * registers across the whole reduction block.
+ *
+ * Transposed operands are never materialized: A^T is read column-wise straight from
+ * A, and B^T is packed one KC block at a time into a reusable per-thread panel.
+ *
+ * Products above {@link Parallel#THRESHOLD} multiply-adds are partitioned into output
+ * row/column tiles on the shared ForkJoin pool; every tile is written by exactly one
+ * task, so no synchronization is needed on C.
+ */
+public class Gemm {
+
+    // Reduction block: KC rows of B (x NC columns) are reused by every row of A
+    static final int KC = 256;
+
+    // Column block: one NC-wide segment of a C row stays resident while it is updated
+    static final int NC = 512;
+
+    // Row block of the fused path: 64 rows of C (64 KB at 128 columns) stay in L2 until their epilogue
+    static final int MC = 64;
+
+    // Per-thread scratch for packing A and B, grown on demand and never shrunk
+    private static final ThreadLocal<double[][]> PANEL = new ThreadLocal<>();
+    private static final ThreadLocal<double[]> A_PACK = new ThreadLocal<>();
+
+    private static final Kernels KERNELS = Kernels.INSTANCE;
+
+    // ---------------- Public API ---------------- //
+
+    /**
+     * Compute op(A) * op(B) into a new matrix
+     * @param a Left operand
+     * @param transA Use A^T instead of A
+     * @param b Right operand
+     * @param transB Use B^T instead of B
+     * @return Product [rows(op(A)) x cols(op(B))]
+     */
+    public static double[][] multiply(double[][] a, boolean transA, double[][] b, boolean transB) {
+        int rows = transA ? a[0].length : a.length;
+        int cols = transB ? b.length : b[0].length;
+        double[][] c = new double[rows][cols];
+        multiplyInto(a, transA, b, transB, c, false);
+        return c;
+    }
+
+    /**
+     * Compute op(A) * op(B) into an existing matrix. Large products are split into
+     * output tiles that run on the shared {@link Parallel} pool.
+     * @param a Left operand
+     * @param transA Use A^T instead of A
+     * @param b Right operand
+     * @param transB Use B^T instead of B
+     * @param c Destination [rows(op(A)) x cols(op(B))]
+     * @param accumulate Add to the current contents of c instead of overwriting them
+     */
+    public static void multiplyInto(double[][] a, boolean transA, double[][] b, boolean transB,
+                                    double[][] c, boolean accumulate) {
+        int rows = transA ? a[0].length : a.length;
+        int common = transA ? a.length : a[0].length;
+        int bRows = transB ? b[0].length : b.length;
+        int cols = transB ? b.length : b[0].length;
+
+        if (common != bRows)
+            throw new IllegalArgumentException("Invalid matrix dimensions for multiplication.");
+        if (c.length != rows || c[0].length != cols)
+            throw new IllegalArgumentException("Output matrix has the wrong dimensions.");
+
+        if (Parallel.runsInline((long) rows * cols * common)) {
+            multiplyTile(a, transA, b, transB, c, accumulate, common, 0, rows, 0, cols, null, null, null);
+            return;
+        }
+        Parallel.forTiles(rows, cols, 4, common, (r0, r1, c0, c1) ->
+                multiplyTile(a, transA, b, transB, c, accumulate, common, r0, r1, c0, c1, null, null, null));
+    }
+
+    /**
+     * Fused layer forward pass: net = A * B + bias and out = f(net), in one pass over
+     * the output. The bias add and activation run on each finished block of MC rows
+     * while it is still in cache, outside the blocked kernel; SOFTMAX needs whole
+     * rows, so its products are only split by rows.
+     * @param a Input [m x k]
+     * @param b Weights [k x n]
+     * @param bias Bias row [n]
+     * @param activation Activation f
+     * @param net Destination for the pre-activation [m x n]
+     * @param out Destination for the activation [m x n] (may be net itself)
+     */
+    public static void multiplyInto(double[][] a, double[][] b, double[] bias, Activation activation,
+                                    double[][] net, double[][] out) {
+        int rows = a.length, common = a[0].length, cols = b[0].length;
+
+        if (common != b.length)
+            throw new IllegalArgumentException("Invalid matrix dimensions for multiplication.");
+        if (net.length != rows || net[0].length != cols || out.length != rows || out[0].length != cols)
+            throw new IllegalArgumentException("Output matrix has the wrong dimensions.");
+        if (bias.length != cols)
+            throw new IllegalArgumentException("Bias must have " + cols + " elements.");
+
+        if (Parallel.runsInline((long) rows * cols * common)) {
+            multiplyTile(a, false, b, false, net, false, common, 0, rows, 0, cols, bias, activation, out);
+        } else if (activation.isElementWise()) {
+            Parallel.forTiles(rows, cols, 4, common, (r0, r1, c0, c1) ->
+                    multiplyTile(a, false, b, false, net, false, common, r0, r1, c0, c1, bias, activation, out));
+        } else {
+            Parallel.forRows(rows, (long) cols * common, (r0, r1) ->
+                    multiplyTile(a, false, b, false, net, false, common, r0, r1, 0, cols, bias, activation, out));
+        }
+    }
+
+    // ---------------- Tiles ---------------- //
+
+    // C[r0..r1, c0..c1) (+)= op(A)[r0..r1, :] * op(B)[:, c0..c1), then the optional
+    // epilogue C += bias, out = f(C). With an epilogue the rows go MC at a time, and
+    // each block gets its epilogue as soon as its last reduction step is done, while
+    // that slice of C is still in cache; the blocked kernel itself is the same either way.
+    private static void multiplyTile(double[][] a, boolean transA, double[][] b, boolean transB,
+                                     double[][] c, boolean accumulate, int common,
+                                     int r0, int r1, int c0, int c1,
+                                     double[] bias, Activation activation, double[][] out) {
+        if (!accumulate) {
+            for (int i = r0; i < r1; i++)
+                java.util.Arrays.fill(c[i], c0, c1, 0.0);
+        }
+
+        double[][] panel = transB ? panel(Math.min(common, KC), c1) : null;
+        int rowBlock = activation == null ? r1 - r0 : MC;
+
+        for (int ii = r0; ii < r1; ii += rowBlock) {
+            int iEnd = Math.min(r1, ii + rowBlock);
+
+            for (int kk = 0; kk < common; kk += KC) {
+                int kEnd = Math.min(common, kk + KC);
+
+                // Pack B^T for this reduction block so the kernel always sees rows of op(B)
+                if (transB) {
+                    for (int j = c0; j < c1; j++) {
+                        double[] bj = b[j];
+                        for (int k = kk; k < kEnd; k++)
+                            panel[k - kk][j] = bj[k];
+                    }
+                }
+
+                for (int jj = c0; jj < c1; jj += NC) {
+                    int jEnd = Math.min(c1, jj + NC);
+                    multiplyBlock(a, transA, b, panel, c, ii, iEnd, kk, kEnd, jj, jEnd);
+                }
+            }
+
+            if (activation == null) continue;
+            if (activation.isElementWise()) {
+                for (int i = ii; i < iEnd; i++)
+                    KERNELS.biasActivation(c[i], bias, activation, out[i], c0, c1);
+            } else {
+                for (int i = ii; i < iEnd; i++)
+                    KERNELS.biasActivation(c[i], bias, Activation.IDENTITY, c[i], c0, c1);
+                Activation_Function.softmaxRows(c, out, ii, iEnd);
+            }
+        }
+    }
+
+    // ---------------- Blocked Kernel ---------------- //
+
+    private static void multiplyBlock(double[][] a, boolean transA, double[][] b, double[][] panel,
+                                      double[][] c, int r0, int r1, int kk, int kEnd, int jj, int jEnd) {
+        double[] aPack = aPack();
+        double[][] bRows = panel != null ? panel : b;
+        int bFirst = panel != null ? 0 : kk;
+        int kCount = kEnd - kk;
+        int i = r0;
+
+        // Four rows of C at a time; their A values are interleaved so the micro-kernel
+        // can keep them (and, in the SIMD backend, the C tile) in registers
+        for (; i + 3 < r1; i += 4) {
+            if (transA) {
+                for (int k = kk; k < kEnd; k++) {
+                    double[] ak = a[k];
+                    int p = 4 * (k - kk);
+                    aPack[p] = ak[i];
+                    aPack[p + 1] = ak[i + 1];
+                    aPack[p + 2] = ak[i + 2];
+                    aPack[p + 3] = ak[i + 3];
+                }
+            } else {
+                double[] a0 = a[i], a1 = a[i + 1], a2 = a[i + 2], a3 = a[i + 3];
+                for (int k = kk; k < kEnd; k++) {
+                    int p = 4 * (k - kk);
+                    aPack[p] = a0[k];
+                    aPack[p + 1] = a1[k];
+                    aPack[p + 2] = a2[k];
+                    aPack[p + 3] = a3[k];
+                }
+            }
+            KERNELS.gemm4(aPack, bRows, bFirst, kCount, c[i], c[i + 1], c[i + 2], c[i + 3], jj, jEnd);
+        }
+
+        // Leftover rows
+        for (; i < r1; i++) {
+            for (int k = kk; k < kEnd; k++)
+                aPack[k - kk] = transA ? a[k][i] : a[i][k];
+            KERNELS.gemm1(aPack, bRows, bFirst, kCount, c[i], jj, jEnd);
+        }
+    }
+
+    // ---------------- Scratch ---------------- //
+
+    private static double[][] panel(int rows, int cols) {
+        return scratch(PANEL, rows, cols);
+    }
+
+    private static double[] aPack() {
+        double[] buf = A_PACK.get();
+        if (buf == null) {
+            buf = new double[4 * KC];
+            A_PACK.set(buf);
+        }
+        return buf;
+    }
+
+    private static double[][] scratch(ThreadLocal<double[][]> slot, int rows, int cols) {
+        double[][] buf = slot.get();
+        if (buf == null || buf.length < rows || buf[0].length < cols) {
+            int r = Math.max(rows, buf == null ? 0 : buf.length);
+            int c = Math.max(cols, buf == null ? 0 : buf[0].length);
+            buf = new double[r][c];
+            slot.set(buf);
+        }
+        return buf;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example;
+
+import java.util.Random;
+
+/**
+ * Compares the blocked GEMM engine against the original i-j-k loop at the exact
+ * shapes the MNIST network (784 → 128 → 64 → 10, batch 32) multiplies every step.
+ *
+ * Run with: java -cp target/classes org.example.GemmBenchmark
+ * (add --add-modules jdk.incubator.vector to measure the SIMD backend)
+ */
+public class GemmBenchmark {
+
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    // { m, k, n, transA, transB } where the product is [m x k] * [k x n]
+    private static final int[][] SHAPES = {
+            // Forward
+            {32, 784, 128, 0, 0},
+            {32, 128, 64, 0, 0},
+            {32, 64, 10, 0, 0},
+            // Backward: dW = out^T * dZ
+            {784, 32, 128, 1, 0},
+            {128, 32, 64, 1, 0},
+            {64, 32, 10, 1, 0},
+            // Backward: dA = dZ * W^T
+            {32, 10, 64, 0, 1},
+            {32, 64, 128, 0, 1},
+            // Full test-set evaluation
+            {10000, 784, 128, 0, 0},
+    };
+
+    public static void main(String[] args) {
+        System.out.println("Kernels: " + (Kernels.isVectorized() ? "Vector API" : "scalar"));
+        System.out.printf("%-22s %-6s %12s %12s %9s%n", "shape", "op", "naive GF/s", "gemm GF/s", "speedup");
+        System.out.println("-".repeat(65));
+
+        for (int[] shape : SHAPES) {
+            int m = shape[0], k = shape[1], n = shape[2];
+            boolean transA = shape[3] == 1, transB = shape[4] == 1;
+
+            double[][] a = transA ? randomMatrix(k, m) : randomMatrix(m, k);
+            double[][] b = transB ? randomMatrix(n, k) : randomMatrix(k, n);
+
+            // Baseline: what the callers did before, including the explicit transposes
+            double naive = gflops(m, k, n, () -> naiveMultiply(
+                    transA ? Matrix_Operations.transpose(a) : a,
+                    transB ? Matrix_Operations.transpose(b) : b));
+            double blocked = gflops(m, k, n, () -> Gemm.multiply(a, transA, b, transB));
+
+            String op = transA ? "A^T*B" : transB ? "A*B^T" : "A*B";
+            System.out.printf("%-22s %-6s %12.2f %12.2f %8.1fx%n",
+                    m + "x" + k + " * " + k + "x" + n, op, naive, blocked, blocked / naive);
+        }
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    static double gflops(int m, int k, int n, Runnable op) {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < WARMUP_NANOS) op.run();
+
+        int iterations = 0;
+        start = System.nanoTime();
+        long elapsed;
+        do {
+            op.run();
+            iterations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURE_NANOS);
+
+        double secondsPerOp = elapsed / 1e9 / iterations;
+        return 2.0 * m * k * n / secondsPerOp / 1e9;
+    }
+
+    // The original Matrix_Operations.multiply loop, kept as the reference point
+    static double[][] naiveMultiply(double[][] a, double[][] b) {
+        int rows = a.length, cols = b[0].length, common = a[0].length;
+        double[][] result = new double[rows][cols];
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                for (int k = 0; k < common; k++)
+                    result[i][j] += a[i][k] * b[k][j];
+
+        return result;
+    }
+
+    static double[][] randomMatrix(int rows, int cols) {
+        Random random = new Random(42);
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                m[i][j] = random.nextGaussian();
+        return m;
+    }
+}
@@ -0,0 +1,129 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks {@link HogwildTrainer}:
+ *
+ * 1. With one worker and no shuffling, an epoch is bit-identical to the single-threaded loop.
+ * 2. With four workers it reaches the test accuracy of the synchronous
+ *    {@link DataParallelTrainer} (four workers, 32 rows each) within a tolerance.
+ *    Gradient norms are bounded: the few batches of 32 whose norm is tens of times
+ *    the median would otherwise wreck the weights in some thread interleavings and
+ *    not in others, and the check would pass only some of the time.
+ * 3. With a staleness bound of 1, no applied gradient is older than one update; with
+ *    a bound of 0, updates never overlap and every one is computed from the latest
+ *    weights.
+ *
+ * Prints the throughput, conflict and staleness statistics of each run. Uses the same
+ * data as {@link DataParallelCheck} (MNIST when its four IDX files are passed). Exits
+ * with status 1 on failure.
+ * Run with: java -cp target/classes org.example.HogwildCheck [images labels testImages testLabels]
+ */
+public class HogwildCheck {
+
+    private static final int BATCH = 32, WORKERS = 4, EPOCHS = 3;
+    private static final double LEARNING_RATE = 0.001, L2_LAMBDA = 0.001;
+    private static final double ACCURACY_TOLERANCE = 2.0;    // percentage points
+    private static final double MAX_GRADIENT_NORM = 300.0;   // about the 99th percentile
+
+    public static void main(String[] args) throws IOException {
+        double[][][] data = DataParallelCheck.data(args);
+        double[][] xTrain = data[0], yTrain = data[1], xTest = data[2], yTest = data[3];
+
+        boolean ok = checkSingleWorker(xTrain, yTrain) & checkConvergence(xTrain, yTrain, xTest, yTest)
+                & checkStaleness(xTrain, yTrain, 1) & checkStaleness(xTrain, yTrain, 0);
+        if (!ok) {
+            System.out.println("❌ Hogwild check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Hogwild training matches synchronous training");
+    }
+
+    private static boolean checkSingleWorker(double[][] X, double[][] Y) {
+        // Whole batches plus a short last one
+        int size = X.length - BATCH / 2;
+
+        Sequential expected = DataParallelCheck.model(1, 0);
+        for (int start = 0; start < size; start += BATCH) {
+            int rows = Math.min(BATCH, size - start);
+            expected.forward(DataParallelCheck.slice(X, start, rows), true);
+            expected.backward(DataParallelCheck.slice(Y, start, rows));
+            expected.addWeightDecay(L2_LAMBDA);
+            expected.update(LEARNING_RATE);
+        }
+
+        Sequential actual = DataParallelCheck.model(1, 0);
+        HogwildTrainer trainer = new HogwildTrainer(actual, 1, () -> DataParallelCheck.model(1, 0),
+                BATCH, false, new Random(2));
+        trainer.epoch(samples(X, Y), size, LEARNING_RATE, L2_LAMBDA);
+
+        boolean ok = DataParallelCheck.hash(expected) == DataParallelCheck.hash(actual);
+        System.out.println((ok ? "✔" : "✘") + " one worker: an epoch matches the single-threaded loop bit for bit");
+        return ok;
+    }
+
+    private static boolean checkConvergence(double[][] xTrain, double[][] yTrain, double[][] xTest, double[][] yTest) {
+        Sequential sync = DataParallelCheck.model(3, 0);
+        int[] replica = {1};
+        try (DataParallelTrainer trainer = new DataParallelTrainer(sync, WORKERS,
+                () -> DataParallelCheck.model(3, replica[0]++))) {
+            int batch = BATCH * WORKERS;
+            int[] labels = DataParallelCheck.classes(yTrain);
+            for (int epoch = 0; epoch < EPOCHS; epoch++) {
+                long start = System.nanoTime();
+                for (int s = 0; s + batch <= xTrain.length; s += batch) {
+                    trainer.forwardBackward(DataParallelCheck.slice(xTrain, s, batch), Arrays.copyOfRange(labels, s, s + batch));
+                    sync.addWeightDecay(L2_LAMBDA);
+                    sync.update(LEARNING_RATE);
+                }
+                if (epoch == EPOCHS - 1)
+                    System.out.printf("  synchronous: %.0f samples/sec%n", xTrain.length / ((System.nanoTime() - start) / 1e9));
+            }
+        }
+
+        Sequential async = DataParallelCheck.model(3, 0);
+        HogwildTrainer trainer = new HogwildTrainer(async, WORKERS, () -> DataParallelCheck.model(3, replica[0]++),
+                BATCH, true, new Random(4));
+        trainer.setMaxGradientNorm(MAX_GRADIENT_NORM);
+        HogwildTrainer.Stats stats = null;
+        for (int epoch = 0; epoch < EPOCHS; epoch++)
+            stats = trainer.epoch(samples(xTrain, yTrain), xTrain.length, LEARNING_RATE, L2_LAMBDA);
+        System.out.println("  hogwild:     " + stats);
+
+        double syncAccuracy = DataParallelCheck.accuracy(sync, xTest, yTest);
+        double asyncAccuracy = DataParallelCheck.accuracy(async, xTest, yTest);
+        boolean ok = Math.abs(syncAccuracy - asyncAccuracy) <= ACCURACY_TOLERANCE;
+        System.out.printf("%s test accuracy after %d epochs: synchronous %.2f%%, hogwild %.2f%% (tolerance %.1f pts)%n",
+                ok ? "✔" : "✘", EPOCHS, syncAccuracy, asyncAccuracy, ACCURACY_TOLERANCE);
+        return ok;
+    }
+
+    private static boolean checkStaleness(double[][] X, double[][] Y, int bound) {
+        int[] replica = {1};
+        HogwildTrainer trainer = new HogwildTrainer(DataParallelCheck.model(5, 0), WORKERS,
+                () -> DataParallelCheck.model(5, replica[0]++), BATCH, true, new Random(6));
+        trainer.setMaxStaleness(bound);
+        HogwildTrainer.Stats stats = trainer.epoch(samples(X, Y), X.length, LEARNING_RATE, L2_LAMBDA);
+        System.out.println("  bound " + bound + ":     " + stats);
+
+        boolean ok = stats.maxStaleness() <= bound && stats.updates() == stats.batches()
+                && (bound > 0 || stats.conflicts() == 0);
+        System.out.printf("%s staleness bound %d: every batch applied once, none staler than %d update%s%s%n",
+                ok ? "✔" : "✘", bound, bound, bound == 1 ? "" : "s", bound == 0 ? ", no overlapping updates" : "");
+        return ok;
+    }
+
+    // Rows of in-memory arrays, copied in the given order
+    private static Samples samples(double[][] X, double[][] Y) {
+        int[] labels = DataParallelCheck.classes(Y);
+        return (order, start, x, y) -> {
+            for (int i = 0; i < x.length; i++) {
+                System.arraycopy(X[order[start + i]], 0, x[i], 0, x[i].length);
+                y[i] = labels[order[start + i]];
+            }
+        };
+    }
+}
@@ -0,0 +1,374 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous, lock-free SGD ("Hogwild") for a {@link Sequential} model.
+ *
+ * Worker threads each take the next batch of the epoch, copy the model's current
+ * parameters into their own replica, run forward and backward there, and subtract
+ * learningRate * gradient straight from the model's parameter arrays. Writers take no
+ * lock: two updates may interleave element by element, and a worker's gradient may have
+ * been computed from weights that other workers have updated since (its staleness).
+ *
+ * Nobody waits for anybody: a worker copies the weights as they are, possibly halfway
+ * through another worker's update. Two counters number the updates begun and finished.
+ * A worker notes the finished count before its copy and takes an update number when it
+ * writes; the difference is its staleness, the updates that began before its own but
+ * may be missing from, or only half in, the weights it read. Without a bound the number
+ * comes from a plain increment. With {@link #setMaxStaleness} it is claimed by
+ * compare-and-set only while the staleness is within the bound, so the bound holds at
+ * the moment of writing instead of being checked and then raced; a gradient over the
+ * bound is discarded and the batch recomputed from fresh weights. Every epoch reports
+ * {@link Stats} on throughput, staleness and overlapping updates.
+ *
+ * An applied update cannot be taken back, and the other workers build on it before
+ * anyone sees the loss rise. {@link #setMaxGradientNorm} rescales a gradient whose L2
+ * norm (over all parameters) exceeds a bound, so one freak batch (such as a batch-norm
+ * feature nearly constant over the batch, whose gradient is scaled by
+ * 1 / sqrt(var + 1e-8)) cannot throw the shared weights off.
+ *
+ * Each replica keeps the running statistics of its own forward passes; at the end of an
+ * epoch the model gets their mean weighted by the batches each worker ran, and every
+ * replica starts the next epoch from that mean.
+ *
+ * With one worker and no shuffling, an epoch performs exactly the steps of the
+ * single-threaded loop (forward, backward, weight decay, update).
+ */
+public class HogwildTrainer {
+
+    /**
+     * What one epoch did
+     */
+    public static final class Stats {
+        long nanos, samples, batches, updates, discarded, clipped, conflicts, staleness, maxStaleness, correct;
+        double loss;
+
+        public long samples() { return samples; }
+
+        public long batches() { return batches; }
+
+        // Updates applied to the model (one per batch)
+        public long updates() { return updates; }
+
+        // Gradients thrown away for exceeding the staleness bound
+        public long discarded() { return discarded; }
+
+        // Gradients scaled down to the norm bound
+        public long clipped() { return clipped; }
+
+        // Updates that started while another worker was still writing its own
+        public long conflicts() { return conflicts; }
+
+        public long maxStaleness() { return maxStaleness; }
+
+        // Mean number of other updates applied between a worker's read and its write
+        public double meanStaleness() { return updates == 0 ? 0 : (double) staleness / updates; }
+
+        // Sum of the batches' mean cross-entropy
+        public double loss() { return loss; }
+
+        // Training samples predicted correctly (with the weights each worker read)
+        public long correct() { return correct; }
+
+        public double samplesPerSecond() { return samples / (nanos / 1e9); }
+
+        void add(Stats other) {
+            samples += other.samples;
+            batches += other.batches;
+            updates += other.updates;
+            discarded += other.discarded;
+            clipped += other.clipped;
+            conflicts += other.conflicts;
+            staleness += other.staleness;
+            maxStaleness = Math.max(maxStaleness, other.maxStaleness);
+            correct += other.correct;
+            loss += other.loss;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f samples/sec, %d updates, %d conflicts, staleness mean %.2f max %d, %d discarded, %d clipped",
+                    samplesPerSecond(), updates, conflicts, meanStaleness(), maxStaleness, discarded, clipped);
+        }
+    }
+
+    private final Sequential model;
+    private final Sequential[] replicas;
+    private final int batchSize;
+    private final boolean shuffle;
+    private final Random random;
+
+    private int maxStaleness = -1;
+    private double maxGradientNorm = Double.POSITIVE_INFINITY;
+
+    // Updates begun and finished so far; equal when nobody is writing
+    private final AtomicLong started = new AtomicLong(), finished = new AtomicLong();
+
+    // Next batch of the running epoch
+    private final AtomicInteger next = new AtomicInteger();
+    private int[] order = new int[0];
+
+    /**
+     * @param model The model whose parameters the workers update in place
+     * @param workers Number of worker threads
+     * @param replica Builds a model with the same layers as {@code model}, once per worker
+     * @param batchSize Samples per update
+     * @param shuffle Visit the samples in a new random order every epoch
+     */
+    public HogwildTrainer(Sequential model, int workers, Supplier<Sequential> replica,
+                          int batchSize, boolean shuffle, Random random) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Worker count must be at least 1.");
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+
+        this.model = model;
+        this.batchSize = batchSize;
+        this.shuffle = shuffle;
+        this.random = random;
+
+        replicas = new Sequential[workers];
+        double[][][] params = model.parameters();
+        for (int k = 0; k < workers; k++) {
+            replicas[k] = replica.get();
+            double[][][] other = replicas[k].parameters();
+            boolean same = other.length == params.length;
+            for (int p = 0; same && p < params.length; p++)
+                same = other[p].length == params[p].length && other[p][0].length == params[p][0].length;
+            if (!same)
+                throw new IllegalArgumentException("Replica parameters do not match the model.");
+        }
+    }
+
+    public int workers() {
+        return replicas.length;
+    }
+
+    /**
+     * Discard gradients computed more than this many updates before they would be
+     * applied (0 = only from the latest weights; negative = no bound, the default)
+     */
+    public void setMaxStaleness(int updates) {
+        this.maxStaleness = updates;
+    }
+
+    /**
+     * Scale every gradient whose L2 norm over all parameters exceeds this down to it
+     * (weight decay included; infinity = no bound, the default)
+     */
+    public void setMaxGradientNorm(double norm) {
+        if (!(norm > 0))
+            throw new IllegalArgumentException("Gradient norm bound must be positive.");
+        this.maxGradientNorm = norm;
+    }
+
+    // ---------------- Training ---------------- //
+
+    /**
+     * Train one epoch over samples [0, size) with all workers; returns once every batch
+     * has been applied
+     * @param learningRate Step size of every update
+     * @param l2Lambda Weight decay added to the weight gradients
+     */
+    public Stats epoch(Samples data, int size, double learningRate, double l2Lambda) {
+        if (order.length != size) {
+            order = new int[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+        }
+        if (shuffle) shuffleOrder(order);
+        next.set(0);
+
+        int batches = (size + batchSize - 1) / batchSize;
+        Stats[] perWorker = new Stats[replicas.length];
+        Runnable[] tasks = new Runnable[replicas.length];
+        RuntimeException[] failure = new RuntimeException[1];
+        for (int k = 0; k < tasks.length; k++) {
+            int worker = k;
+            perWorker[k] = new Stats();
+            tasks[k] = () -> {
+                try {
+                    work(replicas[worker], data, size, batches, learningRate, l2Lambda, perWorker[worker]);
+                } catch (RuntimeException e) {
+                    synchronized (failure) {
+                        if (failure[0] == null) failure[0] = e;
+                    }
+                    next.set(batches); // stop the others
+                }
+            };
+        }
+
+        // Worker 0 runs on the calling thread
+        long start = System.nanoTime();
+        Thread[] threads = new Thread[tasks.length];
+        for (int k = 1; k < tasks.length; k++) {
+            threads[k] = new Thread(tasks[k], "hogwild-" + k);
+            threads[k].start();
+        }
+        tasks[0].run();
+        for (int k = 1; k < tasks.length; k++) {
+            try {
+                threads[k].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the workers.", e);
+            }
+        }
+
+        if (failure[0] != null) throw failure[0];
+
+        Stats stats = new Stats();
+        for (Stats s : perWorker) stats.add(s);
+        stats.nanos = System.nanoTime() - start;
+        mergeBuffers(perWorker, stats.batches);
+        return stats;
+    }
+
+    /**
+     * Only the replicas run forward passes. The model gets the mean of their running
+     * statistics weighted by the batches each ran this epoch (a worker the scheduler
+     * starved still holds statistics of old weights), and the replicas all restart from it.
+     */
+    private void mergeBuffers(Stats[] perWorker, long batches) {
+        if (batches == 0) return;
+        double[][][] buffers = model.buffers();
+        for (int p = 0; p < buffers.length; p++)
+            for (int i = 0; i < buffers[p].length; i++) {
+                double[] row = buffers[p][i];
+                Arrays.fill(row, 0.0);
+                for (int k = 0; k < replicas.length; k++) {
+                    double weight = (double) perWorker[k].batches / batches;
+                    double[] r = replicas[k].buffers()[p][i];
+                    for (int j = 0; j < row.length; j++) row[j] += r[j] * weight;
+                }
+                for (Sequential replica : replicas)
+                    System.arraycopy(row, 0, replica.buffers()[p][i], 0, row.length);
+            }
+    }
+
+    private void work(Sequential replica, Samples data, int size, int batches,
+                      double learningRate, double l2Lambda, Stats stats) {
+        double[][] x = new double[batchSize][replica.inputSize()];
+        int[] y = new int[batchSize];
+        int tail = size % batchSize;
+        double[][] tailX = Arrays.copyOf(x, tail);
+        int[] tailY = new int[tail];
+
+        double[][][] shared = model.parameters(), params = replica.parameters(), grads = replica.gradients();
+        for (int b = next.getAndIncrement(); b < batches; b = next.getAndIncrement()) {
+            int start = b * batchSize;
+            boolean full = start + batchSize <= size;
+            double[][] xb = full ? x : tailX;
+            int[] yb = full ? y : tailY;
+            data.load(order, start, xb, yb);
+
+            while (true) {
+                long read = snapshot(shared, params);
+
+                double[][] predictions = replica.forward(xb, true);
+                double loss = replica.backward(yb);
+                replica.addWeightDecay(l2Lambda);
+
+                double scale = 1.0;
+                if (maxGradientNorm != Double.POSITIVE_INFINITY) {
+                    double norm = norm(grads);
+                    if (norm > maxGradientNorm) scale = maxGradientNorm / norm;
+                }
+
+                long ticket = claim(read);
+                if (ticket < 0) {
+                    stats.discarded++;
+                    continue;
+                }
+                long staleness = ticket - read;
+
+                if (scale < 1.0) stats.clipped++;
+                if (finished.get() < ticket) stats.conflicts++;
+                for (int p = 0; p < shared.length; p++) subtract(shared[p], grads[p], learningRate * scale);
+                finished.incrementAndGet();
+
+                stats.updates++;
+                stats.staleness += staleness;
+                stats.maxStaleness = Math.max(stats.maxStaleness, staleness);
+                stats.loss += loss;
+                stats.correct += correct(predictions, yb);
+                break;
+            }
+            stats.batches++;
+            stats.samples += xb.length;
+        }
+    }
+
+    /**
+     * Copy the weights as they are, without waiting for writers; returns the number of
+     * updates finished before the copy began, all of which it contains
+     */
+    private long snapshot(double[][][] shared, double[][][] params) {
+        long read = finished.get();
+        copy(shared, params);
+        return read;
+    }
+
+    /**
+     * Number this worker's update, or return -1 if by then more than maxStaleness
+     * updates have begun since its snapshot
+     */
+    private long claim(long read) {
+        if (maxStaleness < 0) return started.getAndIncrement();
+        while (true) {
+            long ticket = started.get();
+            if (ticket - read > maxStaleness) return -1;
+            if (started.compareAndSet(ticket, ticket + 1)) return ticket;
+        }
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    // param -= learningRate * grad, element by element without synchronization
+    private static void subtract(double[][] param, double[][] grad, double learningRate) {
+        for (int i = 0; i < param.length; i++) {
+            double[] p = param[i], g = grad[i];
+            for (int j = 0; j < p.length; j++) p[j] -= learningRate * g[j];
+        }
+    }
+
+    private static double norm(double[][][] grads) {
+        double sum = 0.0;
+        for (double[][] g : grads)
+            for (double[] row : g)
+                for (double v : row) sum += v * v;
+        return Math.sqrt(sum);
+    }
+
+    private static void copy(double[][][] source, double[][][] target) {
+        for (int p = 0; p < source.length; p++)
+            for (int i = 0; i < source[p].length; i++)
+                System.arraycopy(source[p][i], 0, target[p][i], 0, source[p][i].length);
+    }
+
+    private static int correct(double[][] predictions, int[] labels) {
+        int correct = 0;
+        for (int i = 0; i < predictions.length; i++) {
+            int predicted = 0;
+            for (int j = 1; j < predictions[i].length; j++)
+                if (predictions[i][j] > predictions[i][predicted]) predicted = j;
+            if (predicted == labels[i]) correct++;
+        }
+        return correct;
+    }
+
+    private void shuffleOrder(int[] order) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+
+            // Swap sample indices
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only, memory-mapped view of an IDX file of unsigned bytes (the MNIST format).
+ *
+ * The header is validated when the file is opened: two zero bytes, element type 0x08,
+ * the number of dimensions, then each dimension as a big-endian int, and the file
+ * size must match exactly. Dimension 0 counts samples; the rest make up one sample.
+ *
+ * Nothing is copied on open. The OS pages the data in as samples are read, and
+ * {@link #sample(int)} returns a zero-copy view. Files larger than 2 GB are mapped in
+ * several regions, each holding a whole number of samples.
+ */
+public final class IdxFile {
+
+    private static final int UNSIGNED_BYTE = 0x08;
+
+    private final String path;
+    private final int[] dimensions;
+    private final int count, sampleSize;
+
+    private final MappedByteBuffer[] regions;
+    private final int samplesPerRegion;
+
+    private IdxFile(String path, int[] dimensions, MappedByteBuffer[] regions, int samplesPerRegion) {
+        this.path = path;
+        this.dimensions = dimensions;
+        this.count = dimensions[0];
+        int size = 1;
+        for (int d = 1; d < dimensions.length; d++) size *= dimensions[d];
+        this.sampleSize = size;
+        this.regions = regions;
+        this.samplesPerRegion = samplesPerRegion;
+    }
+
+    /**
+     * Map an IDX file and validate its header against its size
+     * @throws IOException If the file cannot be read or is not a well-formed unsigned-byte IDX file
+     */
+    public static IdxFile map(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+
+            ByteBuffer prefix = ByteBuffer.allocate(4);
+            readFully(channel, prefix, 0, path);
+            if (prefix.get(0) != 0 || prefix.get(1) != 0)
+                throw new IOException(path + ": bad IDX magic number");
+            if ((prefix.get(2) & 0xFF) != UNSIGNED_BYTE)
+                throw new IOException(path + ": unsupported IDX element type 0x"
+                        + Integer.toHexString(prefix.get(2) & 0xFF) + " (expected 0x08, unsigned byte)");
+
+            int rank = prefix.get(3) & 0xFF;
+            if (rank == 0)
+                throw new IOException(path + ": IDX file has no dimensions");
+
+            ByteBuffer header = ByteBuffer.allocate(4 * rank);
+            readFully(channel, header, 4, path);
+            int[] dimensions = new int[rank];
+            long expected = 1;
+            for (int d = 0; d < rank; d++) {
+                dimensions[d] = header.getInt(4 * d);
+                if (dimensions[d] <= 0)
+                    throw new IOException(path + ": invalid IDX dimension " + dimensions[d]);
+                expected *= dimensions[d];
+            }
+
+            long dataOffset = 4L + 4L * rank;
+            if (dataOffset + expected != fileSize)
+                throw new IOException(path + ": header " + Arrays.toString(dimensions) + " needs "
+                        + (dataOffset + expected) + " bytes, file has " + fileSize);
+
+            long sampleBytes = expected / dimensions[0];
+            if (sampleBytes > Integer.MAX_VALUE)
+                throw new IOException(path + ": a single sample is larger than 2 GB");
+
+            // Each region holds a whole number of samples so a sample never straddles two maps
+            int samplesPerRegion = (int) Math.min(dimensions[0], Integer.MAX_VALUE / sampleBytes);
+            int regionCount = (dimensions[0] + samplesPerRegion - 1) / samplesPerRegion;
+            MappedByteBuffer[] regions = new MappedByteBuffer[regionCount];
+            for (int r = 0; r < regionCount; r++) {
+                long first = (long) r * samplesPerRegion;
+                long samples = Math.min(samplesPerRegion, dimensions[0] - first);
+                regions[r] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        dataOffset + first * sampleBytes, samples * sampleBytes);
+            }
+
+            return new IdxFile(path, dimensions, regions, samplesPerRegion);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, String path) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException(path + ": truncated IDX header");
+        }
+    }
+
+    // ---------------- Shape ---------------- //
+
+    public String path() { return path; }
+
+    public int[] dimensions() { return dimensions.clone(); }
+
+    // Number of samples (dimension 0)
+    public int count() { return count; }
+
+    // Bytes per sample (product of the remaining dimensions)
+    public int sampleSize() { return sampleSize; }
+
+    // ---------------- Access ---------------- //
+
+    /**
+     * Zero-copy, read-only view of one sample's bytes (read them with {@code get(j) & 0xFF})
+     */
+    public ByteBuffer sample(int index) {
+        checkIndex(index);
+        return region(index).slice(offset(index), sampleSize).asReadOnlyBuffer();
+    }
+
+    public int unsignedByte(int index, int position) {
+        checkIndex(index);
+        if (position < 0 || position >= sampleSize)
+            throw new IndexOutOfBoundsException("Position " + position + " outside sample of " + sampleSize + " bytes.");
+        return region(index).get(offset(index) + position) & 0xFF;
+    }
+
+    /**
+     * dest[j] = byte[j] / 255.0 for one sample
+     */
+    public void normalize(int index, double[] dest) {
+        checkIndex(index);
+        MappedByteBuffer buffer = region(index);
+        int base = offset(index);
+        for (int j = 0; j < sampleSize; j++)
+            dest[j] = (buffer.get(base + j) & 0xFF) / 255.0;
+    }
+
+    /**
+     * dest[j] = byte[j] / 255 for one sample, in single precision
+     */
+    public void normalize(int index, float[] dest) {
+        checkIndex(index);
+        MappedByteBuffer buffer = region(index);
+        int base = offset(index);
+        for (int j = 0; j < sampleSize; j++)
+            dest[j] = (buffer.get(base + j) & 0xFF) / 255.0f;
+    }
+
+    private MappedByteBuffer region(int index) {
+        return regions[index / samplesPerRegion];
+    }
+
+    private int offset(int index) {
+        return (index % samplesPerRegion) * sampleSize;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Sample " + index + " outside [0, " + count + ").");
+    }
+}
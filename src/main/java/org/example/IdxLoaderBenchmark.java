@@ -0,0 +1,243 @@
+package org.example;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Checks the memory-mapped IDX loader and compares it with the stream loader it replaced.
+ *
+ * A synthetic MNIST-sized training set (60000 x 28 x 28) is written to a temp directory.
+ * The reference reads it byte by byte through a (buffered) DataInputStream and then converts and
+ * normalizes the whole set up front (int[][] -> double[][] -> double[][]), as Main used to.
+ * The mapped loader opens the file and normalizes one batch at a time into a reused
+ * buffer. Decoded values must match exactly, and malformed headers must be rejected.
+ *
+ * Run with: java -cp target/classes org.example.IdxLoaderBenchmark
+ */
+public class IdxLoaderBenchmark {
+
+    private static final int SAMPLES = 60000, ROWS = 28, COLS = 28, BATCH_SIZE = 32;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("idx-bench");
+        String images = dir.resolve("images.idx3-ubyte").toString();
+        String labels = dir.resolve("labels.idx1-ubyte").toString();
+        writeSynthetic(images, labels);
+
+        boolean ok = checkValues(images, labels) & checkRejections(dir) & checkRealLabels();
+        if (!ok) {
+            System.out.println("❌ IDX loader check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Mapped loader matches the stream loader and rejects malformed files");
+
+        // One pass over the data in batch order, as an epoch would
+        int pixels = ROWS * COLS;
+        double[][] x = new double[BATCH_SIZE][pixels];
+        int[] y = new int[BATCH_SIZE];
+        int[] order = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) order[i] = i;
+
+        double streamMs = 0, mappedMs = 0, sink = 0;
+        int runs = 5;
+        for (int run = 0; run < runs + 1; run++) {
+            long start = System.nanoTime();
+            double[][] all = normalizeData(convertToDouble(readImagesStream(images)));
+            readLabelsStream(labels);
+            for (int b = 0; b + BATCH_SIZE <= SAMPLES; b += BATCH_SIZE) sink += all[b][pixels / 2];
+            long stream = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            DataSet data = new Load_dataset().loadData(images, labels);
+            for (int b = 0; b + BATCH_SIZE <= SAMPLES; b += BATCH_SIZE) {
+                data.loadBatch(order, b, x, y);
+                sink += x[0][pixels / 2];
+            }
+            long mapped = System.nanoTime() - start;
+
+            // First run is warm-up
+            if (run > 0) {
+                streamMs += stream / 1e6 / runs;
+                mappedMs += mapped / 1e6 / runs;
+            }
+        }
+
+        long streamBytes = (long) SAMPLES * pixels * (4 + 8);
+        long mappedBytes = (long) BATCH_SIZE * pixels * 8;
+        System.out.printf("%nstream + eager normalize: %8.1f ms/epoch, ~%d MB on heap%n", streamMs, streamBytes >> 20);
+        System.out.printf("mmap + per-batch normalize: %6.1f ms/epoch, ~%d KB on heap%n", mappedMs, mappedBytes >> 10);
+        System.out.printf("speedup: %.2fx (checksum %.1f)%n", streamMs / mappedMs, sink);
+
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    // ---------------- Correctness ---------------- //
+
+    private static boolean checkValues(String images, String labels) throws IOException {
+        int[][] expected = readImagesStream(images);
+        int[] expectedLabels = readLabelsStream(labels);
+        double[][] expectedNormalized = normalizeData(convertToDouble(expected));
+
+        DataSet data = new Load_dataset().loadData(images, labels);
+        boolean ok = data.getSize() == SAMPLES && data.getFeatureCount() == ROWS * COLS
+                && java.util.Arrays.equals(data.getLabels(), expectedLabels);
+
+        int[] order = {0, 1, SAMPLES / 2, SAMPLES - 1};
+        double[][] x = new double[order.length][ROWS * COLS];
+        float[][] xf = new float[order.length][ROWS * COLS];
+        int[] y = new int[order.length], yf = new int[order.length];
+        data.loadBatch(order, 0, x, y);
+        data.loadBatch(order, 0, xf, yf);
+
+        for (int i = 0; i < order.length; i++) {
+            int sample = order[i];
+            ByteBuffer view = data.getImage(sample);
+            ok &= y[i] == expectedLabels[sample] && yf[i] == expectedLabels[sample];
+            for (int j = 0; j < ROWS * COLS; j++) {
+                ok &= (view.get(j) & 0xFF) == expected[sample][j];
+                ok &= x[i][j] == expectedNormalized[sample][j];
+                ok &= xf[i][j] == expected[sample][j] / 255.0f;
+            }
+        }
+        System.out.println((ok ? "✔" : "✘") + " decoded pixels and labels match the stream loader");
+        return ok;
+    }
+
+    private static boolean checkRejections(Path dir) throws IOException {
+        boolean ok = true;
+        ok &= rejects(dir, "bad magic", header(0x01, 0x08, 1, 4), new byte[4]);
+        ok &= rejects(dir, "non-byte element type", header(0x00, 0x0D, 1, 4), new byte[4]);
+        ok &= rejects(dir, "truncated data", header(0x00, 0x08, 1, 4), new byte[3]);
+        ok &= rejects(dir, "trailing data", header(0x00, 0x08, 1, 4), new byte[5]);
+        ok &= rejects(dir, "zero dimension", header(0x00, 0x08, 1, 0), new byte[0]);
+        ok &= rejects(dir, "truncated header", new byte[]{0, 0, 8, 2, 0, 0}, new byte[0]);
+
+        // A label file where an image file is expected, and mismatched counts
+        String labelFile = dir.resolve("l.idx1-ubyte").toString();
+        write(labelFile, header(0x00, 0x08, 1, 2), new byte[]{1, 2});
+        String imageFile = dir.resolve("i.idx3-ubyte").toString();
+        write(imageFile, header(0x00, 0x08, 3, 3, 2, 2), new byte[12]);
+        ok &= loadFails("label file as images", labelFile, labelFile);
+        ok &= loadFails("image/label count mismatch", imageFile, labelFile);
+        return ok;
+    }
+
+    private static boolean checkRealLabels() {
+        boolean ok = true;
+        for (String file : new String[]{"data/train-labels.idx1-ubyte", "data/t10k-labels.idx1-ubyte"}) {
+            if (!new File(file).exists()) continue;
+            try {
+                IdxFile labels = IdxFile.map(file);
+                boolean valid = labels.dimensions().length == 1;
+                for (int i = 0; i < labels.count(); i++) valid &= labels.unsignedByte(i, 0) < 10;
+                System.out.println((valid ? "✔" : "✘") + " " + file + ": " + labels.count() + " labels");
+                ok &= valid;
+            } catch (IOException e) {
+                System.out.println("✘ " + file + ": " + e.getMessage());
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    private static boolean rejects(Path dir, String description, byte[] header, byte[] data) throws IOException {
+        String file = dir.resolve("bad.idx").toString();
+        write(file, header, data);
+        try {
+            IdxFile.map(file);
+            System.out.println("✘ accepted " + description);
+            return false;
+        } catch (IOException e) {
+            System.out.println("✔ rejects " + description + " (" + e.getMessage().replace(file + ": ", "") + ")");
+            return true;
+        }
+    }
+
+    private static boolean loadFails(String description, String images, String labels) {
+        try {
+            new Load_dataset().loadData(images, labels);
+            System.out.println("✘ accepted " + description);
+            return false;
+        } catch (IOException e) {
+            System.out.println("✔ rejects " + description);
+            return true;
+        }
+    }
+
+    // ---------------- Stream Reference ---------------- //
+
+    // The loader Load_dataset used before memory mapping
+    private static int[][] readImagesStream(String file) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            dis.readInt();
+            int numImage = dis.readInt();
+            int numRows = dis.readInt();
+            int numCols = dis.readInt();
+
+            int[][] images = new int[numImage][numRows * numCols];
+            for (int i = 0; i < numImage; i++)
+                for (int j = 0; j < numRows * numCols; j++)
+                    images[i][j] = dis.readUnsignedByte();
+            return images;
+        }
+    }
+
+    private static int[] readLabelsStream(String file) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            dis.readInt();
+            int[] labels = new int[dis.readInt()];
+            for (int i = 0; i < labels.length; i++) labels[i] = dis.readUnsignedByte();
+            return labels;
+        }
+    }
+
+    private static double[][] convertToDouble(int[][] intArray) {
+        double[][] result = new double[intArray.length][intArray[0].length];
+        for (int i = 0; i < intArray.length; i++)
+            for (int j = 0; j < intArray[0].length; j++)
+                result[i][j] = intArray[i][j];
+        return result;
+    }
+
+    private static double[][] normalizeData(double[][] data) {
+        double[][] result = new double[data.length][data[0].length];
+        for (int i = 0; i < data.length; i++)
+            for (int j = 0; j < data[0].length; j++)
+                result[i][j] = data[i][j] / 255.0;
+        return result;
+    }
+
+    // ---------------- Synthetic Files ---------------- //
+
+    private static void writeSynthetic(String images, String labels) throws IOException {
+        Random random = new Random(42);
+        byte[] pixels = new byte[SAMPLES * ROWS * COLS];
+        random.nextBytes(pixels);
+        byte[] classes = new byte[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) classes[i] = (byte) random.nextInt(10);
+
+        write(images, header(0x00, 0x08, 3, SAMPLES, ROWS, COLS), pixels);
+        write(labels, header(0x00, 0x08, 1, SAMPLES), classes);
+    }
+
+    // Magic bytes {0, zero, type, rank} followed by the big-endian dimensions
+    static byte[] header(int zero, int type, int rank, int... dimensions) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 * dimensions.length);
+        buffer.put((byte) 0).put((byte) zero).put((byte) type).put((byte) rank);
+        for (int d : dimensions) buffer.putInt(d);
+        return buffer.array();
+    }
+
+    static void write(String file, byte[] header, byte[] data) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            out.write(header);
+            out.write(data);
+        }
+    }
+}
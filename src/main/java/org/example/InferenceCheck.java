@@ -0,0 +1,252 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks {@link InferenceEngine}:
+ *
+ * 1. For three stacks, with batch norm folded into the preceding dense layer, into the
+ *    following one, and two batch norms composed into a stage of their own, the engine
+ *    matches a layer-by-layer reference that uses the running statistics and skips dropout.
+ * 2. A row predicted alone gets the same output as inside a batch.
+ * 3. Threads sharing one engine get the results of serial calls.
+ * 4. Steady-state predictions, batched and single, allocate nothing.
+ *
+ * Also prints the throughput of the engine next to {@link Sequential#forward(double[][])},
+ * which runs the same GEMMs; expect a ratio near 1.
+ * Uses the same data as {@link DataParallelCheck} (MNIST when its four IDX files are passed).
+ * Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.InferenceCheck [images labels testImages testLabels]
+ */
+public class InferenceCheck {
+
+    private static final int BATCH = 32, STEPS = 50, THREADS = 4;
+    private static final double LEARNING_RATE = 0.001, TOLERANCE = 1e-12;
+
+    public static void main(String[] args) throws Exception {
+        double[][][] data = DataParallelCheck.data(args);
+        double[][] xTrain = data[0], yTrain = data[1], xTest = data[2];
+
+        Sequential mnist = train(DataParallelCheck.model(1, 0), xTrain, yTrain);
+        Sequential foldBack = train(new Sequential(784, new Random(2))
+                .add(new DenseLayer(64, Activation.IDENTITY))
+                .add(new BatchNormLayer())
+                .add(new ActivationLayer(Activation.RELU))
+                .add(new DenseLayer(10, Activation.SOFTMAX)), xTrain, yTrain);
+        Sequential standalone = train(new Sequential(784, new Random(3))
+                .add(new DenseLayer(32, Activation.RELU))
+                .add(new BatchNormLayer())
+                .add(new BatchNormLayer())
+                .add(new ActivationLayer(Activation.TANH))
+                .add(new DenseLayer(10, Activation.SOFTMAX)), xTrain, yTrain);
+
+        boolean ok = checkReference("MNIST stack", mnist, xTest) & checkReference("fold back", foldBack, xTest)
+                & checkReference("standalone", standalone, xTest)
+                & checkRows(mnist, xTest) & checkThreads(mnist, xTest) & checkAllocation(mnist, xTest);
+        benchmark(mnist, xTest);
+        if (!ok) {
+            System.out.println("❌ Inference check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Inference engine matches the model with running statistics");
+    }
+
+    // ---------------- Reference ---------------- //
+
+    private static boolean checkReference(String name, Sequential model, double[][] X) {
+        InferenceEngine engine = new InferenceEngine(model);
+        double[][] expected = reference(model, X), actual = engine.predict(X);
+
+        double worst = 0.0;
+        for (int i = 0; i < X.length; i++)
+            for (int j = 0; j < expected[i].length; j++)
+                worst = Math.max(worst, Math.abs(actual[i][j] - expected[i][j]) / Math.max(1.0, Math.abs(expected[i][j])));
+
+        boolean ok = worst <= TOLERANCE;
+        System.out.printf("%s %-11s %s: max error %.2e on %d rows%n", ok ? "✔" : "✘", name, engine, worst, X.length);
+        return ok;
+    }
+
+    // Layer by layer, with the textbook formulas
+    private static double[][] reference(Sequential model, double[][] X) {
+        double[][] x = X;
+        for (Layer layer : model.layers()) {
+            if (layer instanceof DenseLayer) {
+                DenseLayer dense = (DenseLayer) layer;
+                double[][] W = dense.weights();
+                double[][] z = new double[x.length][dense.units()];
+                for (int i = 0; i < x.length; i++)
+                    for (int j = 0; j < z[i].length; j++) {
+                        double sum = dense.bias()[0][j];
+                        for (int k = 0; k < W.length; k++) sum += x[i][k] * W[k][j];
+                        z[i][j] = sum;
+                    }
+                x = activate(z, dense.activation());
+            } else if (layer instanceof BatchNormLayer) {
+                BatchNormLayer norm = (BatchNormLayer) layer;
+                double[][] y = new double[x.length][x[0].length];
+                for (int i = 0; i < x.length; i++)
+                    for (int j = 0; j < y[i].length; j++)
+                        y[i][j] = norm.gamma()[0][j] * (x[i][j] - norm.runningMean()[0][j])
+                                / Math.sqrt(norm.runningVariance()[0][j] + BatchNormLayer.EPSILON) + norm.beta()[0][j];
+                x = y;
+            } else if (layer instanceof ActivationLayer) {
+                x = activate(x, ((ActivationLayer) layer).activation());
+            }
+        }
+        return x;
+    }
+
+    private static double[][] activate(double[][] z, Activation activation) {
+        double[][] a = new double[z.length][z[0].length];
+        for (int i = 0; i < z.length; i++) {
+            double max = Double.NEGATIVE_INFINITY, sum = 0.0;
+            for (double v : z[i]) max = Math.max(max, v);
+            for (int j = 0; j < z[i].length; j++) {
+                double v = z[i][j];
+                switch (activation) {
+                    case RELU: a[i][j] = Math.max(0.0, v); break;
+                    case LEAKY_RELU: a[i][j] = v > 0 ? v : Activation.LEAKY_RELU_SLOPE * v; break;
+                    case SIGMOID: a[i][j] = 1.0 / (1.0 + Math.exp(-v)); break;
+                    case TANH: a[i][j] = Math.tanh(v); break;
+                    case SOFTMAX: a[i][j] = Math.exp(v - max); sum += a[i][j]; break;
+                    default: a[i][j] = v;
+                }
+            }
+            if (activation == Activation.SOFTMAX)
+                for (int j = 0; j < a[i].length; j++) a[i][j] /= sum;
+        }
+        return a;
+    }
+
+    // ---------------- Rows and threads ---------------- //
+
+    private static boolean checkRows(Sequential model, double[][] X) {
+        InferenceEngine engine = new InferenceEngine(model);
+        double[][] batch = copy(engine.predict(DataParallelCheck.slice(X, 0, BATCH)));
+
+        double worst = 0.0;
+        for (int i = 0; i < BATCH; i++) {
+            double[] single = engine.predict(X[i]);
+            for (int j = 0; j < single.length; j++) worst = Math.max(worst, Math.abs(single[j] - batch[i][j]));
+        }
+
+        boolean ok = worst <= TOLERANCE;
+        System.out.printf("%s a row predicted alone matches the same row in a batch of %d: max difference %.2e%n",
+                ok ? "✔" : "✘", BATCH, worst);
+        return ok;
+    }
+
+    private static boolean checkThreads(Sequential model, double[][] X) throws Exception {
+        InferenceEngine engine = new InferenceEngine(model);
+        int tasks = 4 * THREADS, rows = Math.min(X.length / tasks, 64);
+        long[] expected = new long[tasks];
+        for (int t = 0; t < tasks; t++) expected[t] = hash(engine.predict(DataParallelCheck.slice(X, t * rows, rows)));
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        boolean ok = true;
+        try {
+            List<Future<Long>> results = new ArrayList<>(tasks);
+            for (int t = 0; t < tasks; t++) {
+                int task = t;
+                results.add(pool.submit(() -> {
+                    long h = 0;
+                    for (int repeat = 0; repeat < 20; repeat++)
+                        h = hash(engine.predict(DataParallelCheck.slice(X, task * rows, rows)));
+                    return h;
+                }));
+            }
+            for (int t = 0; t < tasks; t++) ok &= results.get(t).get() == expected[t];
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.printf("%s %d threads sharing one engine match serial predictions bit for bit%n", ok ? "✔" : "✘", THREADS);
+        return ok;
+    }
+
+    // ---------------- Allocation ---------------- //
+
+    private static boolean checkAllocation(Sequential model, double[][] X) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("⚠️ Thread allocation counters are not supported by this JVM");
+            return true;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        InferenceEngine engine = new InferenceEngine(model);
+        double[][] batch = DataParallelCheck.slice(X, 0, BATCH);
+        for (int i = 0; i < 5000; i++) {
+            engine.predict(batch);
+            engine.predict(X[i % X.length]);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 200; i++) {
+            engine.predict(batch);
+            engine.predict(X[i % X.length]);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        boolean ok = allocated == 0;
+        System.out.printf("%s 200 batched and 200 single predictions allocated %d bytes%n", ok ? "✔" : "✘", allocated);
+        return ok;
+    }
+
+    // ---------------- Throughput ---------------- //
+
+    private static void benchmark(Sequential model, double[][] X) {
+        InferenceEngine engine = new InferenceEngine(model);
+        for (int batch : new int[]{1, 256}) {
+            double[][] x = DataParallelCheck.slice(X, 0, batch);
+            int calls = Math.max(20, 20_000 / batch);
+            double sequential = Double.MAX_VALUE, compiled = Double.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                for (int c = 0; c < calls; c++) model.forward(x);
+                sequential = Math.min(sequential, (System.nanoTime() - start) / 1e9);
+
+                start = System.nanoTime();
+                for (int c = 0; c < calls; c++) engine.predict(x);
+                compiled = Math.min(compiled, (System.nanoTime() - start) / 1e9);
+            }
+            System.out.printf("  batch %3d: Sequential.forward %,.0f samples/sec, InferenceEngine %,.0f samples/sec (%.2fx)%n",
+                    batch, calls * batch / sequential, calls * batch / compiled, sequential / compiled);
+        }
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    // A few hundred training steps so the running statistics and weights are not at their initial values
+    private static Sequential train(Sequential model, double[][] X, double[][] Y) {
+        Optimizer adam = new Adam(LEARNING_RATE);
+        for (int b = 0; b < STEPS; b++) {
+            int start = b * BATCH % (X.length - BATCH + 1);
+            model.forward(DataParallelCheck.slice(X, start, BATCH), true);
+            model.backward(DataParallelCheck.slice(Y, start, BATCH));
+            model.update(adam);
+        }
+        return model;
+    }
+
+    private static double[][] copy(double[][] a) {
+        double[][] result = new double[a.length][];
+        for (int i = 0; i < a.length; i++) result[i] = a[i].clone();
+        return result;
+    }
+
+    private static long hash(double[][] a) {
+        long h = 1;
+        for (double[] row : a)
+            for (double v : row) h = 31 * h + Double.doubleToLongBits(v);
+        return h;
+    }
+}
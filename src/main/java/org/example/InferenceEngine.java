@@ -0,0 +1,239 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inference-only form of a trained {@link Sequential} model.
+ *
+ * The layers are compiled once into a short list of stages over copies of the weights:
+ * <ul>
+ *   <li>dropout layers disappear;</li>
+ *   <li>batch norm uses the running statistics, and its per-feature scale
+ *       gamma / sqrt(runningVariance + eps) and shift are folded into the weights and
+ *       bias of the preceding dense layer when that layer has no activation, otherwise
+ *       into the following dense layer (whose rows are scaled and whose bias absorbs
+ *       shift * W); only a batch norm with no dense neighbour to fold into stays a stage;</li>
+ *   <li>an activation layer merges into a preceding stage without an activation.</li>
+ * </ul>
+ * For the MNIST stack this leaves three fused GEMM + bias + activation stages. Results
+ * depend only on each row, not on the rest of the batch.
+ *
+ * Nothing is kept for backpropagation: each stage writes its result straight into one
+ * output buffer. Those buffers belong to the calling thread and are reused for every
+ * call with the same batch size, so an engine can be shared by any number of threads
+ * and a steady stream of predictions allocates nothing. The engine is a snapshot:
+ * later training of the model does not change it.
+ *
+ * It is not faster than {@link Sequential#forward(double[][])}: both run the same fused
+ * GEMMs, which are nearly all of the work, and the folded batch-norm pass is a small
+ * fraction of it. What the engine adds is sharing across threads without allocation.
+ */
+public final class InferenceEngine {
+
+    // Batch sizes each thread keeps buffers for at once
+    private static final int MAX_BATCH_SIZES = 3;
+
+    private static final Kernels KERNELS = Kernels.INSTANCE;
+
+    /**
+     * out = activation(in * weights + bias), or with weights == null the per-feature
+     * out = activation(in * scale + shift) (scale == null meaning 1)
+     */
+    private static final class Stage {
+        final double[][] weights;
+        final double[] scale, shift;
+        final Activation activation;
+        final int width;
+
+        Stage(double[][] weights, double[] scale, double[] shift, Activation activation, int width) {
+            this.weights = weights;
+            this.scale = scale;
+            this.shift = shift;
+            this.activation = activation;
+            this.width = width;
+        }
+
+        Stage withActivation(Activation activation) {
+            return new Stage(weights, scale, shift, activation, width);
+        }
+
+        @Override
+        public String toString() {
+            return (weights != null ? "Dense(" + width + " " : "Affine(" + width + " ") + activation + ")";
+        }
+    }
+
+    // Output chains of one thread, for the last few batch sizes it used
+    private final class Buffers {
+        final int[] sizes = new int[MAX_BATCH_SIZES];
+        final double[][][][] chains = new double[MAX_BATCH_SIZES][][][];
+        final double[][] row = new double[1][];
+        int next;
+
+        double[][][] chain(int batchSize) {
+            for (int c = 0; c < MAX_BATCH_SIZES; c++)
+                if (sizes[c] == batchSize) return chains[c];
+
+            double[][][] chain = new double[stages.length][][];
+            for (int s = 0; s < stages.length; s++) chain[s] = new double[batchSize][stages[s].width];
+            sizes[next] = batchSize;
+            chains[next] = chain;
+            next = (next + 1) % MAX_BATCH_SIZES;
+            return chain;
+        }
+    }
+
+    private final int inputSize, outputSize;
+    private final Stage[] stages;
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Compile a trained model
+     * @throws IllegalArgumentException If the model contains a layer type the engine does not know
+     */
+    public InferenceEngine(Sequential model) {
+        this.inputSize = model.inputSize();
+        this.outputSize = model.outputSize();
+
+        List<Stage> compiled = new ArrayList<>();
+        int width = inputSize;
+
+        // Batch-norm affine (scale, shift) waiting to be folded into the next dense layer
+        double[] scale = null, shift = null;
+
+        for (Layer layer : model.layers()) {
+            if (layer instanceof DropoutLayer) continue;
+
+            if (layer instanceof DenseLayer) {
+                DenseLayer dense = (DenseLayer) layer;
+                double[][] W = copy(dense.weights());
+                double[] b = dense.bias()[0].clone();
+                if (scale != null) {
+                    // (x * scale + shift) W + b = x (diag(scale) W) + (shift W + b)
+                    for (int i = 0; i < W.length; i++)
+                        for (int j = 0; j < b.length; j++) {
+                            b[j] += shift[i] * W[i][j];
+                            W[i][j] *= scale[i];
+                        }
+                    scale = shift = null;
+                }
+                compiled.add(new Stage(W, null, b, dense.activation(), dense.units()));
+                width = dense.units();
+            } else if (layer instanceof BatchNormLayer) {
+                BatchNormLayer norm = (BatchNormLayer) layer;
+                double[] s = new double[width], t = new double[width];
+                for (int j = 0; j < width; j++) {
+                    s[j] = norm.gamma()[0][j] / Math.sqrt(norm.runningVariance()[0][j] + BatchNormLayer.EPSILON);
+                    t[j] = norm.beta()[0][j] - norm.runningMean()[0][j] * s[j];
+                }
+
+                Stage previous = compiled.isEmpty() ? null : compiled.get(compiled.size() - 1);
+                if (scale != null) {
+                    // Two batch norms in a row compose into one affine
+                    for (int j = 0; j < width; j++) {
+                        shift[j] = shift[j] * s[j] + t[j];
+                        scale[j] *= s[j];
+                    }
+                } else if (previous != null && previous.weights != null && previous.activation == Activation.IDENTITY) {
+                    // (x W + b) * s + t = x (W diag(s)) + (b * s + t)
+                    for (double[] row : previous.weights)
+                        for (int j = 0; j < width; j++) row[j] *= s[j];
+                    for (int j = 0; j < width; j++) previous.shift[j] = previous.shift[j] * s[j] + t[j];
+                } else {
+                    scale = s;
+                    shift = t;
+                }
+            } else if (layer instanceof ActivationLayer) {
+                Activation activation = ((ActivationLayer) layer).activation();
+                if (scale != null) {
+                    compiled.add(new Stage(null, scale, shift, activation, width));
+                    scale = shift = null;
+                } else if (!compiled.isEmpty() && compiled.get(compiled.size() - 1).activation == Activation.IDENTITY) {
+                    compiled.set(compiled.size() - 1, compiled.get(compiled.size() - 1).withActivation(activation));
+                } else {
+                    compiled.add(new Stage(null, null, new double[width], activation, width));
+                }
+            } else {
+                throw new IllegalArgumentException("InferenceEngine cannot compile layer type "
+                        + layer.getClass().getSimpleName() + ".");
+            }
+        }
+        if (scale != null) compiled.add(new Stage(null, scale, shift, Activation.IDENTITY, width));
+
+        stages = compiled.toArray(new Stage[0]);
+    }
+
+    public int inputSize() { return inputSize; }
+
+    public int outputSize() { return outputSize; }
+
+    // ---------------- Prediction ---------------- //
+
+    /**
+     * @param input Batch [batchSize x inputSize]
+     * @return Model output [batchSize x outputSize], a buffer of the calling thread that the
+     *         thread's next call with the same batch size overwrites
+     */
+    public double[][] predict(double[][] input) {
+        if (input.length == 0 || input[0].length != inputSize)
+            throw new IllegalArgumentException("Input must be a non-empty batch of " + inputSize + " features.");
+
+        double[][][] chain = buffers.get().chain(input.length);
+        double[][] x = input;
+        for (int s = 0; s < stages.length; s++) {
+            run(stages[s], x, chain[s]);
+            x = chain[s];
+        }
+        return x;
+    }
+
+    /**
+     * Single sample
+     * @return Model output [outputSize], a buffer of the calling thread that its next
+     *         single-sample call overwrites
+     */
+    public double[] predict(double[] input) {
+        double[][] row = buffers.get().row;
+        row[0] = input;
+        try {
+            return predict(row)[0];
+        } finally {
+            row[0] = null;
+        }
+    }
+
+    private static void run(Stage stage, double[][] in, double[][] out) {
+        if (stage.weights != null) {
+            // No pre-activation is kept: net and out are the same buffer
+            Gemm.multiplyInto(in, stage.weights, stage.shift, stage.activation, out, out);
+            return;
+        }
+
+        for (int i = 0; i < in.length; i++) {
+            double[] x = in[i], y = out[i];
+            if (stage.scale == null) System.arraycopy(x, 0, y, 0, stage.width);
+            else for (int j = 0; j < stage.width; j++) y[j] = x[j] * stage.scale[j];
+            if (stage.activation.isElementWise())
+                KERNELS.biasActivation(y, stage.shift, stage.activation, y, 0, stage.width);
+            else
+                for (int j = 0; j < stage.width; j++) y[j] += stage.shift[j];
+        }
+        if (!stage.activation.isElementWise()) Activation_Function.softmax(out, out);
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder().append(inputSize);
+        for (Stage stage : stages) s.append(" → ").append(stage);
+        return s.toString();
+    }
+
+    private static double[][] copy(double[][] a) {
+        double[][] result = new double[a.length][];
+        for (int i = 0; i < a.length; i++) result[i] = a[i].clone();
+        return result;
+    }
+}
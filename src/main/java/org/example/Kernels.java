@@ -0,0 +1,105 @@
+package org.example;
+
+/**
+ * Inner loops shared by the matrix and activation code, with a scalar implementation
+ * and an optional SIMD one built on the JDK Vector API.
+ *
+ * {@link #INSTANCE} is chosen once at startup: the vector backend is used when the
+ * JVM was started with {@code --add-modules jdk.incubator.vector} and the
+ * {@code nn.simd} system property is not {@code false}; otherwise the scalar loops
+ * run. All methods work on the first {@code n} (or [from, to)) elements of plain
+ * double[] rows.
+ */
+interface Kernels {
+
+    Kernels INSTANCE = select();
+
+    // ---------------- GEMM ---------------- //
+
+    /**
+     * c_r[j] += sum_k aPack[4k + r] * bRows[bFirst + k][j] for r in 0..3, j in [from, to)
+     * @param aPack Four A values per reduction step, interleaved by row
+     * @param bRows Rows of op(B)
+     * @param bFirst Index of the first row of op(B) in bRows
+     * @param kCount Number of reduction steps
+     */
+    void gemm4(double[] aPack, double[][] bRows, int bFirst, int kCount,
+               double[] c0, double[] c1, double[] c2, double[] c3, int from, int to);
+
+    /**
+     * c[j] += sum_k aCol[k] * bRows[bFirst + k][j] for j in [from, to)
+     */
+    void gemm1(double[] aCol, double[][] bRows, int bFirst, int kCount, double[] c, int from, int to);
+
+    /**
+     * Single-precision {@link #gemm4}; accumulates in float
+     */
+    void gemm4(float[] aPack, float[][] bRows, int bFirst, int kCount,
+               float[] c0, float[] c1, float[] c2, float[] c3, int from, int to);
+
+    /**
+     * Single-precision {@link #gemm1}; accumulates in float
+     */
+    void gemm1(float[] aCol, float[][] bRows, int bFirst, int kCount, float[] c, int from, int to);
+
+    // ---------------- Element-wise ---------------- //
+
+    void add(double[] a, double[] b, double[] out, int n);
+
+    void scale(double[] a, double scalar, double[] out, int n);
+
+    void relu(double[] in, double[] out, int n);
+
+    void reluDerivative(double[] in, double[] out, int n);
+
+    void leakyRelu(double[] in, double alpha, double[] out, int n);
+
+    void sigmoid(double[] in, double[] out, int n);
+
+    // ---------------- Fused Layer Kernels ---------------- //
+
+    /**
+     * net[j] += bias[j], then out[j] = f(net[j]) for j in [from, to).
+     * Element-wise activations only (out may be net itself).
+     */
+    void biasActivation(double[] net, double[] bias, Activation activation, double[] out, int from, int to);
+
+    /**
+     * dZ[j] = dOut[j] * f'(x_j) and db[j] += dZ[j] for j in [from, to). The derivative is
+     * taken from net for RELU and LEAKY_RELU and from the activation output (out) for
+     * SIGMOID and TANH; the unused one may be null. Element-wise activations only.
+     */
+    void activationBackward(double[] dOut, double[] net, double[] out, Activation activation,
+                            double[] dZ, double[] db, int from, int to);
+
+    // ---------------- Reductions ---------------- //
+
+    double max(double[] row, int n);
+
+    /**
+     * expRow[j] = exp(row[j] - max); returns the sum of expRow[0..n)
+     */
+    double sumExp(double[] row, double max, double[] expRow, int n);
+
+    // ---------------- Selection ---------------- //
+
+    static boolean isVectorized() {
+        return !(INSTANCE instanceof ScalarKernels);
+    }
+
+    private static Kernels select() {
+        boolean enabled = !"false".equalsIgnoreCase(System.getProperty("nn.simd"));
+        boolean available = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+        if (enabled && available) {
+            try {
+                // Loaded reflectively so the scalar path never links against the incubator module
+                return (Kernels) Class.forName("org.example.VectorKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("⚠️ Vector API backend unavailable, using scalar kernels: " + e);
+            }
+        }
+        return new ScalarKernels();
+    }
+}
@@ -0,0 +1,193 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks the exponential and reduction kernels of the active {@link Kernels} backend
+ * against the scalar definitions.
+ *
+ * 1. sumExp, sigmoid and biasActivation (SIGMOID, TANH) stay within {@link #ULP_TOLERANCE}
+ *    ULP of Math.exp and Math.tanh, including overflow, gradual underflow, +-0, infinities
+ *    and NaN.
+ * 2. max returns NaN for any row holding a NaN, wherever it sits, and +0 over -0, on both
+ *    backends.
+ * 3. The kernels return the same bits before and after the JIT has compiled them.
+ *
+ * Timing: sigmoid, tanh and softmax sum-exp on a 32 x 128 batch, scalar loops against the
+ * active backend.
+ *
+ * Exits with status 1 on failure.
+ * Run with: java --add-modules jdk.incubator.vector -cp target/classes org.example.KernelsCheck
+ */
+public class KernelsCheck {
+
+    private static final int ROWS = 32, COLS = 128, WARMUP = 20000;
+    private static final double ULP_TOLERANCE = 2.0;
+
+    private static final Kernels KERNELS = Kernels.INSTANCE;
+    private static final ScalarKernels SCALAR = new ScalarKernels();
+
+    public static void main(String[] args) {
+        System.out.println("Backend: " + KERNELS.getClass().getSimpleName());
+        double[][] cold = outputs();
+        boolean ok = checkAccuracy() & checkMax() & checkWarm(cold);
+        if (!ok) {
+            System.out.println("❌ Kernels check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Exponential kernels match Math within " + ULP_TOLERANCE + " ULP");
+
+        benchmark();
+    }
+
+    // ---------------- Accuracy ---------------- //
+
+    private static boolean checkAccuracy() {
+        double[] x = inputs(-760.0, 760.0);
+        double[] small = inputs(-1e-3, 1e-3);
+        int n = x.length;
+        double[] out = new double[n], net = new double[n], zero = new double[n];
+
+        // exp(x - 0) through the softmax kernel
+        KERNELS.sumExp(x, 0.0, out, n);
+        double exp = worstUlp(x, out, Math::exp);
+
+        KERNELS.sigmoid(x, out, n);
+        double sigmoid = worstUlp(x, out, v -> 1.0 / (1.0 + Math.exp(-v)));
+
+        System.arraycopy(x, 0, net, 0, n);
+        KERNELS.biasActivation(net, zero, Activation.SIGMOID, out, 0, n);
+        double biasSigmoid = worstUlp(x, out, v -> 1.0 / (1.0 + Math.exp(-v)));
+
+        double tanh = 0.0;
+        for (double[] in : new double[][]{inputs(-25.0, 25.0), small}) {
+            System.arraycopy(in, 0, net, 0, n);
+            KERNELS.biasActivation(net, zero, Activation.TANH, out, 0, n);
+            tanh = Math.max(tanh, worstUlp(in, out, Math::tanh));
+        }
+
+        boolean ok = true;
+        String[] names = {"exp (sumExp)", "sigmoid", "bias + sigmoid", "bias + tanh"};
+        double[] worst = {exp, sigmoid, biasSigmoid, tanh};
+        for (int k = 0; k < names.length; k++) {
+            boolean good = worst[k] <= ULP_TOLERANCE;
+            System.out.printf("%s %-15s worst error %.2f ULP (tolerance %.0f)%n",
+                    good ? "✔" : "✘", names[k], worst[k], ULP_TOLERANCE);
+            ok &= good;
+        }
+        return ok;
+    }
+
+    // Evenly spread values in [from, to] with the special cases at the front, where the vector loop sees them
+    private static double[] inputs(double from, double to) {
+        double[] special = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                709.78, 709.79, -708.4, -744.0, -745.2, 1e-300, -1e-300, Double.MIN_VALUE, 20.0, -20.0, 0.5};
+        Random random = new Random(1);
+        double[] x = new double[4096 + 3];
+        System.arraycopy(special, 0, x, 0, special.length);
+        for (int i = special.length; i < x.length; i++) x[i] = from + (to - from) * random.nextDouble();
+        return x;
+    }
+
+    private static double worstUlp(double[] x, double[] actual, java.util.function.DoubleUnaryOperator f) {
+        double worst = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            double expected = f.applyAsDouble(x[i]);
+            if (Double.doubleToLongBits(expected) == Double.doubleToLongBits(actual[i])) continue;
+            double error = Double.isFinite(expected) && Double.isFinite(actual[i])
+                    ? Math.abs(actual[i] - expected) / Math.ulp(expected) : Double.POSITIVE_INFINITY;
+            worst = Math.max(worst, error);
+        }
+        return worst;
+    }
+
+    // ---------------- NaN in max ---------------- //
+
+    private static boolean checkMax() {
+        boolean ok = true;
+        for (int n : new int[]{3, 10, 37}) {
+            for (int at = 0; at < n; at++) {
+                double[] row = new double[n];
+                for (int j = 0; j < n; j++) row[j] = j - n / 2.0;
+                row[at] = Double.NaN;
+                ok &= Double.isNaN(KERNELS.max(row, n)) && Double.isNaN(SCALAR.max(row, n));
+            }
+        }
+        double[] zeros = new double[17];
+        Arrays.fill(zeros, -0.0);
+        zeros[16] = 0.0;
+        boolean signed = Double.doubleToRawLongBits(KERNELS.max(zeros, 17)) == 0L
+                && Double.doubleToRawLongBits(SCALAR.max(zeros, 17)) == 0L;
+
+        System.out.println((ok ? "✔" : "✘") + " max is NaN for every NaN position on both backends");
+        System.out.println((signed ? "✔" : "✘") + " max prefers +0 over -0 on both backends");
+        return ok && signed;
+    }
+
+    // ---------------- JIT tiers ---------------- //
+
+    // sumExp, sigmoid and tanh of the same inputs, one row each
+    private static double[][] outputs() {
+        double[] x = inputs(-40.0, 40.0), zero = new double[x.length];
+        double[][] out = new double[4][x.length];
+        out[0][0] = KERNELS.sumExp(x, 40.0, out[1], x.length);
+        KERNELS.sigmoid(x, out[2], x.length);
+        KERNELS.biasActivation(x.clone(), zero, Activation.TANH, out[3], 0, x.length);
+        return out;
+    }
+
+    private static boolean checkWarm(double[][] cold) {
+        for (int i = 0; i < WARMUP; i++) outputs();
+        boolean same = Arrays.deepEquals(cold, outputs());
+        System.out.println((same ? "✔" : "✘") + " interpreted and compiled kernels give the same bits");
+        return same;
+    }
+
+    // ---------------- Timing ---------------- //
+
+    private static void benchmark() {
+        Random random = new Random(2);
+        double[][] z = new double[ROWS][COLS], out = new double[ROWS][COLS];
+        for (double[] row : z)
+            for (int j = 0; j < COLS; j++) row[j] = 3.0 * random.nextGaussian();
+        double[] zero = new double[COLS];
+
+        Kernels[] backends = {SCALAR, KERNELS};
+        double[][] best = new double[3][2];
+        for (double[] b : best) Arrays.fill(b, Double.MAX_VALUE);
+        int reps = 5000;
+        double sink = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int b = 0; b < backends.length; b++) {
+                Kernels k = backends[b];
+                long start = System.nanoTime();
+                for (int r = 0; r < reps; r++)
+                    for (int i = 0; i < ROWS; i++) k.sigmoid(z[i], out[i], COLS);
+                best[0][b] = Math.min(best[0][b], (System.nanoTime() - start) / (double) reps);
+
+                start = System.nanoTime();
+                for (int r = 0; r < reps; r++)
+                    for (int i = 0; i < ROWS; i++) {
+                        System.arraycopy(z[i], 0, out[i], 0, COLS);
+                        k.biasActivation(out[i], zero, Activation.TANH, out[i], 0, COLS);
+                    }
+                best[1][b] = Math.min(best[1][b], (System.nanoTime() - start) / (double) reps);
+
+                start = System.nanoTime();
+                for (int r = 0; r < reps; r++)
+                    for (int i = 0; i < ROWS; i++) sink += k.sumExp(z[i], k.max(z[i], COLS), out[i], COLS);
+                best[2][b] = Math.min(best[2][b], (System.nanoTime() - start) / (double) reps);
+            }
+        }
+
+        System.out.printf("%n%d x %d, best of 5 (microseconds per batch)%n", ROWS, COLS);
+        System.out.printf("%-20s %10s %10s %9s%n", "kernel", "scalar", "active", "speedup");
+        System.out.println("-".repeat(52));
+        String[] names = {"sigmoid", "bias + tanh", "max + sumExp"};
+        for (int k = 0; k < names.length; k++)
+            System.out.printf("%-20s %10.2f %10.2f %8.2fx%n", names[k], best[k][0] / 1e3, best[k][1] / 1e3,
+                    best[k][0] / best[k][1]);
+        if (sink == 0) System.out.println();
+    }
+}
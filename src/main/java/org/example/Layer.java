@@ -0,0 +1,93 @@
+package org.example;
+
+import java.util.Random;
+
+/**
+ * One stage of a {@link Sequential} model.
+ *
+ * A layer owns its parameters and their gradients (sized once in {@link #build}),
+ * while everything that depends on the batch size lives in a {@link State} created by
+ * {@link #allocate}. The model keeps one chain of states per batch size and reuses it,
+ * so a training step writes into the same buffers every time.
+ */
+public interface Layer {
+
+    /**
+     * Per-batch-size buffers of a layer. Subclasses add whatever the backward pass needs
+     * (pre-activations, masks, statistics).
+     */
+    class State {
+        final int batchSize, inputSize;
+
+        // Forward result [batchSize x outputSize]
+        final double[][] output;
+
+        // Gradient with respect to the layer input, created by the first backward pass
+        // that needs it (so inference-only batch sizes and the first layer never do)
+        private double[][] inputGradient;
+
+        State(int batchSize, int inputSize, int outputSize) {
+            this.batchSize = batchSize;
+            this.inputSize = inputSize;
+            output = new double[batchSize][outputSize];
+        }
+
+        double[][] inputGradient() {
+            if (inputGradient == null) inputGradient = new double[batchSize][inputSize];
+            return inputGradient;
+        }
+    }
+
+    /**
+     * Create the parameters for this input width
+     * @param random Source for weight initialization, or null to leave the weights zero
+     *               because they are about to be overwritten (e.g. by a {@link Checkpoint})
+     * @return The output width
+     */
+    int build(int inputSize, Random random);
+
+    State allocate(int batchSize);
+
+    /**
+     * Compute state.output from input
+     * @param training False at inference (dropout off)
+     */
+    double[][] forward(double[][] input, State state, boolean training);
+
+    /**
+     * Overwrite this layer's parameter gradients with those of dOut and, if asked, write
+     * the gradient with respect to input into state.inputGradient()
+     * @param input The input of the last forward call with this state
+     * @return state.inputGradient(), or null when inputGradient is false
+     */
+    double[][] backward(double[][] input, double[][] dOut, State state, boolean inputGradient);
+
+    /**
+     * Trainable parameters, in the same order as {@link #gradients()}
+     */
+    default double[][][] parameters() {
+        return new double[0][][];
+    }
+
+    /**
+     * Gradients of the last backward pass, one per parameter
+     */
+    default double[][][] gradients() {
+        return new double[0][][];
+    }
+
+    /**
+     * Parameters subject to weight decay (weights, not biases or batch-norm scales)
+     */
+    default double[][][] regularized() {
+        return new double[0][][];
+    }
+
+    /**
+     * State that is learned but not trained by gradients (e.g. running statistics);
+     * saved in checkpoints next to the parameters
+     */
+    default double[][][] buffers() {
+        return new double[0][][];
+    }
+}
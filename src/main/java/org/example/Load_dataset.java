@@ -1,17 +1,37 @@
 package org.example;
 import java.io.*;
+import java.nio.ByteBuffer;
 
+/**
+ * A dataset whose images stay in their memory-mapped IDX file. Pixels are decoded and
+ * normalized only for the rows a batch actually needs, straight into the caller's
+ * buffers and in the caller's precision.
+ */
 class DataSet {
-    private final int[][] images;
+    private final IdxFile images;
     private final int[] labels;
 
-    public DataSet(int[][] images, int[] labels) {
+    public DataSet(IdxFile images, int[] labels) {
         this.images = images;
         this.labels = labels;
     }
 
+    /**
+     * Copy of every image as raw 0-255 pixels; prefer loadBatch, which decodes on demand
+     */
     public int[][] getImages() {
-        return images;
+        int[][] result = new int[images.count()][images.sampleSize()];
+        for (int i = 0; i < result.length; i++)
+            for (int j = 0; j < result[i].length; j++)
+                result[i][j] = images.unsignedByte(i, j);
+        return result;
+    }
+
+    /**
+     * Zero-copy view of one image's pixels
+     */
+    public ByteBuffer getImage(int index) {
+        return images.sample(index);
     }
 
     public int[] getLabels() {
@@ -19,56 +39,89 @@ class DataSet {
     }
 
     public int getSize() {
-        return images.length;
+        return images.count();
     }
-}
 
-public class Load_dataset {
+    // Pixels per image
+    public int getFeatureCount() {
+        return images.sampleSize();
+    }
 
-    private int[][] readImages(String file) throws IOException {
-        DataInputStream dis =new DataInputStream(new FileInputStream(file));
+    /**
+     * Decode samples order[start .. start + x.length) into x (pixels / 255) and their
+     * labels into y
+     */
+    public void loadBatch(int[] order, int start, double[][] x, int[] y) {
+        for (int i = 0; i < x.length; i++) {
+            int sample = order[start + i];
+            images.normalize(sample, x[i]);
+            y[i] = labels[sample];
+        }
+    }
 
-        int magic = dis.readInt();
-        int numImage = dis.readInt();
-        int numRows = dis.readInt();
-        int numCols = dis.readInt();
+    /**
+     * Single-precision loadBatch
+     */
+    public void loadBatch(int[] order, int start, float[][] x, int[] y) {
+        for (int i = 0; i < x.length; i++) {
+            int sample = order[start + i];
+            images.normalize(sample, x[i]);
+            y[i] = labels[sample];
+        }
+    }
 
-        int[][] images = new int[numImage][numRows*numCols];
+    /**
+     * Every image normalized to [0, 1] in one pass (for full-set evaluation)
+     */
+    public double[][] normalizedImages() {
+        double[][] result = new double[images.count()][images.sampleSize()];
+        for (int i = 0; i < result.length; i++)
+            images.normalize(i, result[i]);
+        return result;
+    }
 
-        for (int i=0 ; i<numImage; i++){
-            for (int j = 0; j < numRows * numCols; j++){
-                images[i][j] = dis.readUnsignedByte();
-            }
-        }
-        dis.close();
-        return images;
+    public float[][] normalizedImagesFloat() {
+        float[][] result = new float[images.count()][images.sampleSize()];
+        for (int i = 0; i < result.length; i++)
+            images.normalize(i, result[i]);
+        return result;
     }
+}
+
+public class Load_dataset {
 
-    private int[] readLabels(String file) throws IOException{
-        DataInputStream dis = new DataInputStream(new FileInputStream(file));
-        int magic =dis.readInt();
-        int numLabels=dis.readInt();
+    private IdxFile readImages(String file) throws IOException {
+        IdxFile images = IdxFile.map(file);
+        if (images.dimensions().length < 2)
+            throw new IOException(file + ": expected an image file (at least 2 dimensions), got "
+                    + images.dimensions().length);
+        return images;
+    }
 
-        int[] imageLabels =new int[numLabels];
+    private int[] readLabels(String file) throws IOException {
+        IdxFile labels = IdxFile.map(file);
+        if (labels.dimensions().length != 1)
+            throw new IOException(file + ": expected a label file (1 dimension), got "
+                    + labels.dimensions().length);
 
-        for (int i=0 ; i<numLabels; i++){
-            imageLabels[i]=dis.readUnsignedByte();
+        int[] imageLabels = new int[labels.count()];
+        for (int i = 0; i < imageLabels.length; i++) {
+            imageLabels[i] = labels.unsignedByte(i, 0);
         }
-        dis.close();
         return imageLabels;
     }
 
     public DataSet loadData(String fileImages , String fileImagesLabels) throws IOException {
 
-        int[][] images = readImages(fileImages);
+        IdxFile images = readImages(fileImages);
 
         int[] imagesLabels = readLabels(fileImagesLabels);
 
-        return new DataSet(images,imagesLabels);
-
-    }
-
+        if (images.count() != imagesLabels.length)
+            throw new IOException(fileImages + " has " + images.count() + " images but "
+                    + fileImagesLabels + " has " + imagesLabels.length + " labels");
 
+        return new DataSet(images, imagesLabels);
 
-
-}
\ No newline at end of file
+    }
+}
@@ -19,57 +19,41 @@ public class Loss {
         }
     }
 
-    private double [] computeLogPredictions(double[] predictions){
+    /**
+     * Cross-entropy of one sample, without temporary arrays and without modifying the predictions
+     */
+    public double calculate_loss(double[] groundTruth, double[] predictions){
 
-        double [] logOfPredictions = new double[predictions.length];
+        validateInput(groundTruth,predictions);
 
+        double sum = 0.0;
         for (int i = 0; i < predictions.length; i++){
-
-            predictions[i] += EPSILON;
-
-            logOfPredictions[i]=Math.log(predictions[i]);
-
-        }
-
-        return logOfPredictions;
-    }
-
-    private double [] multiplyElementwise(double[] groundTruth, double [] LogOfPredictions){
-
-        double[] elementwiseProduct = new double[groundTruth.length];
-
-        for (int i = 0 ; i < groundTruth.length; i++){
-
-            elementwiseProduct[i] = groundTruth[i] * LogOfPredictions[i] ;
-
+            sum += groundTruth[i] * Math.log(predictions[i] + EPSILON);
         }
 
-        return elementwiseProduct;
+        return -sum;
 
     }
 
-    private double computeNegativeSum(double[] values){
+    /**
+     * Mean cross-entropy over a batch, computed row by row without temporary arrays
+     * and without modifying the predictions
+     */
+    public double calculate_batch_loss(double[][] groundTruth, double[][] predictions){
 
-        double sum=0.0;
+        double totalLoss = 0.0;
 
-        for (int i = 0; i < values.length; i++){
+        for (int i = 0; i < predictions.length; i++){
 
-            sum += values[i];
+            validateInput(groundTruth[i], predictions[i]);
 
+            double sum = 0.0;
+            for (int j = 0; j < predictions[i].length; j++){
+                sum += groundTruth[i][j] * Math.log(predictions[i][j] + EPSILON);
+            }
+            totalLoss += -sum;
         }
 
-        return -sum;
-
-    }
-    public double calculate_loss(double[] groundTruth, double[] predictions){
-
-        validateInput(groundTruth,predictions);
-
-        double[] logOfPredictions=computeLogPredictions(predictions);
-
-        double[] elementwiseProduct = multiplyElementwise(groundTruth,logOfPredictions);
-
-        return computeNegativeSum(elementwiseProduct);
-
+        return totalLoss / predictions.length;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,347 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Checks the losses fused with the output activation ({@link LossFunction}) and measures
+ * what fusing saves.
+ *
+ * 1. Dense one-hot and sparse labels give the same loss and gradient, for each loss and
+ *    for every parameter of a {@link Sequential}.
+ * 2. Gradients match central differences of the summed loss with respect to the logits.
+ * 3. Softmax cross-entropy agrees with {@link Loss#calculate_batch_loss}, and its outputs
+ *    and dZ are bit-identical to softmax followed by {@link FusedLayer#softmaxCrossEntropyBackward}.
+ * 4. Logits around +-1e4 give finite losses and gradients.
+ * 5. A fused pass allocates nothing.
+ * 6. {@link Sequential} learns with sigmoid (binary cross-entropy) and identity (squared
+ *    error) outputs.
+ *
+ * Timing: the fused pass against softmax + calculate_batch_loss + gradient, and against
+ * the per-sample calculate_loss, for 10 and 1000 classes.
+ *
+ * Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.LossCheck
+ */
+public class LossCheck {
+
+    private static final int BATCH = 32, CLASSES = 10;
+    private static final double STEP = 1e-6, TOLERANCE = 1e-6;
+    private static final LossFunction[] LOSSES = {
+            SoftmaxCrossEntropy.INSTANCE, BinaryCrossEntropy.INSTANCE, MeanSquaredError.INSTANCE};
+
+    public static void main(String[] args) {
+        boolean ok = checkSparse() & checkGradients() & checkLegacy() & checkStability()
+                & checkAllocation() & checkTraining();
+        if (!ok) {
+            System.out.println("❌ Loss check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Fused losses match their definitions and numerical gradients");
+
+        benchmark(CLASSES);
+        benchmark(1000);
+    }
+
+    // ---------------- Dense and sparse labels ---------------- //
+
+    private static boolean checkSparse() {
+        Random random = new Random(1);
+        double[][] z = logits(BATCH, CLASSES, random, 3.0);
+        int[] labels = labels(BATCH, CLASSES, random);
+        double[][] y = oneHot(labels, CLASSES);
+
+        boolean ok = true;
+        for (LossFunction loss : LOSSES) {
+            double[][] out = new double[BATCH][CLASSES], dZ = new double[BATCH][CLASSES], db = new double[1][CLASSES];
+            double[][] sOut = new double[BATCH][CLASSES], sdZ = new double[BATCH][CLASSES], sdb = new double[1][CLASSES];
+            double dense = loss.forwardBackward(z, y, out, dZ, db);
+            double sparse = loss.forwardBackward(z, labels, sOut, sdZ, sdb);
+            double error = Math.max(Math.abs(dense - sparse), Math.max(worst(dZ, sdZ), worst(db, sdb)));
+            double outputs = Math.abs(loss.loss(out, y) - loss.loss(out, labels));
+
+            boolean same = Arrays.deepEquals(out, sOut) && error <= 1e-12 && outputs <= 1e-12;
+            System.out.printf("%s %-19s dense vs sparse labels: loss %.6f, worst difference %.1e%n",
+                    same ? "✔" : "✘", name(loss), dense, Math.max(error, outputs));
+            ok &= same;
+        }
+
+        // Same dropout mask for both passes, so the gradients must agree bit for bit
+        double[][] x = logits(BATCH, 20, random, 1.0);
+        Sequential dense = model(), sparse = model();
+        dense.forward(x, true);
+        double denseLoss = dense.backward(y);
+        sparse.forward(x, true);
+        double sparseLoss = sparse.backward(labels);
+        boolean same = Arrays.deepEquals(dense.gradients(), sparse.gradients()) && Math.abs(denseLoss - sparseLoss) <= 1e-12;
+        System.out.println((same ? "✔" : "✘") + " Sequential.backward(int[]) gradients match one-hot labels bit for bit");
+        return ok && same;
+    }
+
+    private static Sequential model() {
+        return new Sequential(20, new Random(9))
+                .add(new DenseLayer(32, Activation.RELU))
+                .add(new DropoutLayer(0.3, new SplittableRandom(10)))
+                .add(new DenseLayer(CLASSES, Activation.SOFTMAX));
+    }
+
+    // ---------------- Numerical gradients ---------------- //
+
+    private static boolean checkGradients() {
+        Random random = new Random(2);
+        boolean ok = true;
+        for (LossFunction loss : LOSSES) {
+            double[][] z = logits(BATCH, CLASSES, random, 3.0);
+            double[][] y = loss == MeanSquaredError.INSTANCE ? logits(BATCH, CLASSES, random, 1.0)
+                    : loss == BinaryCrossEntropy.INSTANCE ? probabilities(BATCH, CLASSES, random)
+                    : oneHot(labels(BATCH, CLASSES, random), CLASSES);
+            double[][] out = new double[BATCH][CLASSES], dZ = new double[BATCH][CLASSES];
+            loss.forwardBackward(z, y, out, dZ, null);
+
+            double worst = 0.0;
+            for (int i = 0; i < BATCH; i++)
+                for (int j = 0; j < CLASSES; j++) {
+                    double original = z[i][j];
+                    z[i][j] = original + STEP;
+                    double plus = loss.forwardBackward(z, y, out, new double[BATCH][CLASSES], null);
+                    z[i][j] = original - STEP;
+                    double minus = loss.forwardBackward(z, y, out, new double[BATCH][CLASSES], null);
+                    z[i][j] = original;
+
+                    // The returned loss is the mean, the gradient that of the sum
+                    double numeric = (plus - minus) * BATCH / (2 * STEP);
+                    worst = Math.max(worst, Math.abs(numeric - dZ[i][j]) / Math.max(1.0, Math.abs(numeric)));
+                }
+            boolean good = worst <= TOLERANCE;
+            System.out.printf("%s %-19s dZ vs central differences: %.2e (tolerance %.0e)%n",
+                    good ? "✔" : "✘", name(loss), worst, TOLERANCE);
+            ok &= good;
+        }
+        return ok;
+    }
+
+    // ---------------- Former path ---------------- //
+
+    private static boolean checkLegacy() {
+        Random random = new Random(3);
+        double[][] z = logits(BATCH, CLASSES, random, 3.0);
+        double[][] y = oneHot(labels(BATCH, CLASSES, random), CLASSES);
+
+        double[][] p = Activation_Function.softmax(z);
+        double[][] dZ = new double[BATCH][CLASSES], db = new double[1][CLASSES];
+        FusedLayer.softmaxCrossEntropyBackward(p, y, dZ, db);
+        double expected = new Loss().calculate_batch_loss(y, p);
+
+        double[][] out = new double[BATCH][CLASSES], fdZ = new double[BATCH][CLASSES], fdb = new double[1][CLASSES];
+        double fused = SoftmaxCrossEntropy.INSTANCE.forwardBackward(z, y, out, fdZ, fdb);
+
+        boolean identical = Arrays.deepEquals(p, out) && Arrays.deepEquals(dZ, fdZ) && Arrays.deepEquals(db, fdb);
+        // They differ only by the epsilon guard inside the log
+        boolean close = Math.abs(fused - expected) <= 1e-9;
+        System.out.println((identical ? "✔" : "✘") + " probabilities, dZ and db match softmax + softmaxCrossEntropyBackward bit for bit");
+        System.out.printf("%s loss %.12f vs calculate_batch_loss %.12f%n", close ? "✔" : "✘", fused, expected);
+        return identical && close;
+    }
+
+    // ---------------- Extreme logits ---------------- //
+
+    private static boolean checkStability() {
+        Random random = new Random(4);
+        double[][] z = logits(BATCH, CLASSES, random, 1e4);
+        int[] labels = labels(BATCH, CLASSES, random);
+
+        boolean ok = true;
+        for (LossFunction loss : LOSSES) {
+            double[][] out = new double[BATCH][CLASSES], dZ = new double[BATCH][CLASSES];
+            double value = loss.forwardBackward(z, labels, out, dZ, null);
+            boolean finite = Double.isFinite(value) && finite(out) && finite(dZ);
+            System.out.printf("%s %-19s logits of +-1e4: loss %.4g%s%n", finite ? "✔" : "✘", name(loss), value,
+                    finite ? "" : ", with non-finite values");
+            ok &= finite;
+        }
+
+        // log(p + 1e-15) caps the loss of a confident mistake at about 34.5; the fused loss keeps it exact
+        double[][] wrong = {{0.0, 100.0}};
+        double exact = SoftmaxCrossEntropy.INSTANCE.forwardBackward(wrong, new int[]{0},
+                new double[1][2], new double[1][2], null);
+        double capped = new Loss().calculate_batch_loss(new double[][]{{1.0, 0.0}}, Activation_Function.softmax(wrong));
+        boolean good = Math.abs(exact - 100.0) <= 1e-9;
+        System.out.printf("%s confident mistake by 100: loss %.4f (via log(p + epsilon): %.4f)%n",
+                good ? "✔" : "✘", exact, capped);
+        return ok && good;
+    }
+
+    // ---------------- Allocation ---------------- //
+
+    private static boolean checkAllocation() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("⚠️ Thread allocation counters are not supported by this JVM");
+            return true;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Random random = new Random(5);
+        double[][] z = logits(BATCH, CLASSES, random, 3.0);
+        int[] labels = labels(BATCH, CLASSES, random);
+        double[][] y = oneHot(labels, CLASSES);
+        double[][] out = new double[BATCH][CLASSES], dZ = new double[BATCH][CLASSES], db = new double[1][CLASSES];
+
+        double sink = 0;
+        for (int step = 0; step < 20000; step++)
+            for (LossFunction loss : LOSSES)
+                sink += loss.forwardBackward(z, y, out, dZ, db) + loss.forwardBackward(z, labels, out, dZ, db);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int step = 0; step < 1000; step++)
+            for (LossFunction loss : LOSSES)
+                sink += loss.forwardBackward(z, y, out, dZ, db) + loss.forwardBackward(z, labels, out, dZ, db);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        boolean ok = allocated == 0;
+        System.out.printf("%s fused passes allocated %d bytes over 6000 calls%n", ok ? "✔" : "✘", allocated);
+        if (sink == 0) System.out.println();
+        return ok;
+    }
+
+    // ---------------- Training ---------------- //
+
+    private static boolean checkTraining() {
+        return train(Activation.SIGMOID) & train(Activation.IDENTITY);
+    }
+
+    // A small network on a learnable task (class = position of the largest of the first CLASSES inputs)
+    private static boolean train(Activation output) {
+        Random random = new Random(6);
+        int inputs = 20;
+        double[][] x = logits(256, inputs, random, 1.0);
+        int[] labels = new int[x.length];
+        for (int i = 0; i < x.length; i++) labels[i] = argmax(x[i], CLASSES);
+        double[][] y = oneHot(labels, CLASSES);
+
+        Sequential model = new Sequential(inputs, new Random(7))
+                .add(new DenseLayer(32, Activation.RELU))
+                .add(new DenseLayer(CLASSES, output));
+        double first = 0, last = 0;
+        for (int epoch = 0; epoch < 200; epoch++) {
+            model.forward(x, true);
+            last = model.backward(y);
+            if (epoch == 0) first = last;
+            model.update(output == Activation.SIGMOID ? 0.002 : 0.005);
+        }
+
+        double[][] predictions = model.forward(x);
+        int correct = 0;
+        for (int i = 0; i < x.length; i++) if (argmax(predictions[i], CLASSES) == labels[i]) correct++;
+        double reported = LossFunction.forOutput(output).loss(predictions, labels);
+
+        boolean ok = last < 0.5 * first && correct > x.length / 2 && Math.abs(reported - last) < 0.05 * first;
+        System.out.printf("%s %-8s output: loss %.4f -> %.4f, %d of %d correct%n",
+                ok ? "✔" : "✘", output, first, last, correct, x.length);
+        return ok;
+    }
+
+    // ---------------- Timing ---------------- //
+
+    private static void benchmark(int classes) {
+        Random random = new Random(8);
+        double[][] z = logits(BATCH, classes, random, 3.0);
+        int[] labels = labels(BATCH, classes, random);
+        double[][] y = oneHot(labels, classes);
+        double[][] p = new double[BATCH][classes], dZ = new double[BATCH][classes], db = new double[1][classes];
+        Loss loss = new Loss();
+        LossFunction fused = SoftmaxCrossEntropy.INSTANCE;
+
+        int reps = Math.max(1000, 2_000_000 / classes);
+        double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double sink = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                Activation_Function.softmax(z, p);
+                sink += loss.calculate_batch_loss(y, p);
+                FusedLayer.softmaxCrossEntropyBackward(p, y, dZ, db);
+            }
+            best[0] = Math.min(best[0], (System.nanoTime() - start) / (double) reps);
+
+            start = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                Activation_Function.softmax(z, p);
+                for (int i = 0; i < BATCH; i++) sink += loss.calculate_loss(y[i], p[i]);
+                FusedLayer.softmaxCrossEntropyBackward(p, y, dZ, db);
+            }
+            best[1] = Math.min(best[1], (System.nanoTime() - start) / (double) reps);
+
+            start = System.nanoTime();
+            for (int r = 0; r < reps; r++) sink += fused.forwardBackward(z, y, p, dZ, db);
+            best[2] = Math.min(best[2], (System.nanoTime() - start) / (double) reps);
+
+            start = System.nanoTime();
+            for (int r = 0; r < reps; r++) sink += fused.forwardBackward(z, labels, p, dZ, db);
+            best[3] = Math.min(best[3], (System.nanoTime() - start) / (double) reps);
+        }
+
+        System.out.printf("%nSoftmax cross-entropy, %d x %d, best of 5 (microseconds per batch)%n", BATCH, classes);
+        System.out.printf("%-40s %10s %9s%n", "path", "time", "speedup");
+        System.out.println("-".repeat(61));
+        String[] names = {"softmax + batch loss + gradient", "softmax + per-sample loss + gradient",
+                "fused, dense labels", "fused, sparse labels"};
+        for (int k = 0; k < names.length; k++)
+            System.out.printf("%-40s %10.2f %8.2fx%n", names[k], best[k] / 1e3, best[0] / best[k]);
+        if (sink == 0) System.out.println();
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    private static String name(LossFunction loss) {
+        return loss.getClass().getSimpleName();
+    }
+
+    private static double[][] logits(int rows, int cols, Random random, double scale) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m)
+            for (int j = 0; j < cols; j++) row[j] = scale * random.nextGaussian();
+        return m;
+    }
+
+    private static double[][] probabilities(int rows, int cols, Random random) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m)
+            for (int j = 0; j < cols; j++) row[j] = random.nextDouble();
+        return m;
+    }
+
+    private static int[] labels(int rows, int classes, Random random) {
+        int[] labels = new int[rows];
+        for (int i = 0; i < rows; i++) labels[i] = random.nextInt(classes);
+        return labels;
+    }
+
+    private static double[][] oneHot(int[] labels, int classes) {
+        double[][] y = new double[labels.length][classes];
+        for (int i = 0; i < labels.length; i++) y[i][labels[i]] = 1.0;
+        return y;
+    }
+
+    private static int argmax(double[] row, int n) {
+        int best = 0;
+        for (int j = 1; j < n; j++) if (row[j] > row[best]) best = j;
+        return best;
+    }
+
+    private static boolean finite(double[][] m) {
+        for (double[] row : m)
+            for (double v : row) if (!Double.isFinite(v)) return false;
+        return true;
+    }
+
+    private static double worst(double[][] a, double[][] b) {
+        double worst = 0.0;
+        for (int i = 0; i < a.length; i++)
+            for (int j = 0; j < a[i].length; j++) worst = Math.max(worst, Math.abs(a[i][j] - b[i][j]));
+        return worst;
+    }
+}
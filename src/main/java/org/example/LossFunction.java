@@ -0,0 +1,65 @@
+package org.example;
+
+/**
+ * Training loss fused with the activation of the output layer.
+ *
+ * Implementations start from the logits (the output layer's pre-activation) and, in one
+ * pass over each row, write the activated outputs, the loss and its gradient with respect
+ * to the logits, without allocating. Working from logits keeps the loss exact where the
+ * activated output underflows (a log-softmax instead of log(p + epsilon)). Gradients
+ * are those of the loss summed over the batch, as everywhere in {@link Backward} and
+ * {@link Sequential}; the returned loss is the mean per row, as {@link Loss} reports it.
+ *
+ * Labels are either dense [batchSize x outputs] or sparse: one class index per row,
+ * standing for the one-hot row, which skips the multiplications by zero. An instance
+ * keeps no state and can be shared by any number of threads.
+ */
+public interface LossFunction {
+
+    /**
+     * Output activation this loss is fused with
+     */
+    Activation activation();
+
+    /**
+     * outputs = activation(logits), dZ = d(summed loss)/d(logits), db = column sums of dZ
+     * @param outputs May be a buffer that already holds activation(logits), e.g. the layer output
+     * @param db Bias gradient [1 x outputs], or null to skip it
+     * @return Mean loss per row
+     */
+    double forwardBackward(double[][] logits, double[][] labels, double[][] outputs, double[][] dZ, double[][] db);
+
+    /**
+     * Same with one class index per row
+     */
+    double forwardBackward(double[][] logits, int[] labels, double[][] outputs, double[][] dZ, double[][] db);
+
+    /**
+     * Mean loss per row of already activated outputs, e.g. predictions of an {@link InferenceEngine}
+     */
+    double loss(double[][] outputs, double[][] labels);
+
+    /**
+     * Same with one class index per row
+     */
+    double loss(double[][] outputs, int[] labels);
+
+    /**
+     * The loss trained with an output layer of this activation: softmax cross-entropy,
+     * binary cross-entropy for sigmoid, mean squared error for identity
+     */
+    static LossFunction forOutput(Activation activation) {
+        switch (activation) {
+            case SOFTMAX: return SoftmaxCrossEntropy.INSTANCE;
+            case SIGMOID: return BinaryCrossEntropy.INSTANCE;
+            case IDENTITY: return MeanSquaredError.INSTANCE;
+            default:
+                throw new IllegalArgumentException("No loss is fused with a " + activation + " output; use SOFTMAX, SIGMOID or IDENTITY.");
+        }
+    }
+
+    static void checkLabel(int label, int classes) {
+        if (label < 0 || label >= classes)
+            throw new IllegalArgumentException("Label must be between 0 and " + (classes - 1) + ", got " + label + ".");
+    }
+}
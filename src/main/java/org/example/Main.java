@@ -1,7 +1,10 @@
 package org.example;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
 
@@ -17,6 +20,32 @@ public class Main {
     private static final double LEARNING_RATE = 0.001;
     private static final double L2_LAMBDA = 0.001;
 
+    // Batches the loader thread prepares ahead of training
+    private static final int PREFETCH = 4;
+
+    // Threads each batch is split across (-Dnn.workers=4 trains on four shards at once)
+    private static final int WORKERS = Integer.getInteger("nn.workers", 1);
+
+    // Lock-free asynchronous updates by the workers instead of one all-reduced update per batch
+    private static final boolean HOGWILD = Boolean.getBoolean("nn.hogwild");
+
+    // Hogwild updates land before anyone sees the loss rise; outlier gradients are scaled down to this norm
+    private static final double HOGWILD_MAX_GRADIENT_NORM = 300.0;
+
+    // Checkpoint resumed from at startup and rewritten in the background every few epochs
+    private static final Path CHECKPOINT = Path.of(System.getProperty("nn.checkpoint", "models/mnist.ckpt"));
+    private static final int CHECKPOINT_EVERY = 5;
+
+    // Test-set scoring: rows decoded per chunk, chunks spread over the cores
+    private static final int EVAL_CHUNK = 512;
+    private static final int EVAL_THREADS = Runtime.getRuntime().availableProcessors();
+
+    // Score the test set in the background while the next epoch trains (-Dnn.asyncEval=true)
+    private static final boolean ASYNC_EVAL = Boolean.getBoolean("nn.asyncEval");
+
+    // Numeric precision (-Dnn.precision=float halves the memory of weights, activations and data)
+    private static final Precision PRECISION = Precision.fromSystemProperty();
+
     // File paths for MNIST dataset
     private static final String TRAIN_IMAGES_PATH = "D:\\NN-From-Scratch-in-Java\\data\\train-images.idx3-ubyte";
     private static final String TRAIN_LABELS_PATH = "D:\\NN-From-Scratch-in-Java\\data\\train-labels.idx1-ubyte";
@@ -28,14 +57,13 @@ public class Main {
         System.out.println("=" .repeat(60));
 
         try {
+            // Hogwild workers subtract learningRate * gradient themselves; there is no shared optimizer state
+            if (HOGWILD && !(Optimizer.fromSystemProperty(LEARNING_RATE) instanceof SGD))
+                throw new IllegalArgumentException("nn.hogwild supports only nn.optimizer=sgd, not "
+                        + System.getProperty("nn.optimizer"));
+
             // Initialize components
             Load_dataset dataLoader = new Load_dataset();
-            Forward forward = new Forward();
-            Backward backward = new Backward();
-            Loss lossFunction = new Loss();
-
-            // Set forward and loss in backward
-            backward.setForwardAndLoss(forward, lossFunction);
 
             // Load datasets
             System.out.println("📂 Loading MNIST dataset...");
@@ -45,22 +73,52 @@ public class Main {
             System.out.printf("✅ Training set: %d samples\n", trainSet.getSize());
             System.out.printf("✅ Test set: %d samples\n", testSet.getSize());
 
-            // Initialize network weights and biases
-            System.out.println("\n🔧 Initializing network parameters...");
-            double[][] W1 = initializeWeights(INPUT_SIZE, HIDDEN1_SIZE);
-            double[][] W2 = initializeWeights(HIDDEN1_SIZE, HIDDEN2_SIZE);
-            double[][] W3 = initializeWeights(HIDDEN2_SIZE, OUTPUT_SIZE);
-
-            double[][] b1 = initializeBiases(1, HIDDEN1_SIZE);
-            double[][] b2 = initializeBiases(1, HIDDEN2_SIZE);
-            double[][] b3 = initializeBiases(1, OUTPUT_SIZE);
-
-            // Convert training data
-            double[][] X_train = normalizeData(convertToDouble(trainSet.getImages()));
-            double[][] Y_train = oneHotEncode(trainSet.getLabels(), OUTPUT_SIZE);
+            if (PRECISION == Precision.FLOAT) {
+                trainFloat(trainSet, testSet);
+                return;
+            }
 
-            double[][] X_test = normalizeData(convertToDouble(testSet.getImages()));
-            double[][] Y_test = oneHotEncode(testSet.getLabels(), OUTPUT_SIZE);
+            // Build the network; every layer creates its own parameters
+            System.out.println("\n🔧 Initializing network parameters...");
+            Sequential model = buildModel();
+            Optimizer optimizer = Optimizer.fromSystemProperty(LEARNING_RATE);
+
+            // AdamW decays the weights itself; the coupled L2 term would decay them twice and pass through its moments
+            double l2Lambda = optimizer.weightDecay() == 0.0 ? L2_LAMBDA : 0.0;
+
+            // Resume from the last checkpoint, if there is one
+            int firstEpoch = 0;
+            if (Files.exists(CHECKPOINT)) {
+                try {
+                    Checkpoint checkpoint = Checkpoint.load(CHECKPOINT);
+                    model = checkpoint.model();
+                    if (checkpoint.optimizer().equals(optimizer.getClass().getSimpleName())) checkpoint.restore(optimizer);
+                    else System.out.println("⚠️ Checkpoint optimizer state is for " + checkpoint.optimizer() + ", starting it fresh");
+                    firstEpoch = checkpoint.epoch();
+                    System.out.printf("💾 Resuming from %s after epoch %d\n", CHECKPOINT, firstEpoch);
+                } catch (IOException e) {
+                    System.out.println("⚠️ Ignoring unreadable checkpoint: " + e.getMessage());
+                }
+            }
+            CheckpointWriter checkpoints = new CheckpointWriter(CHECKPOINT);
+
+            // Synchronous: worker 0 trains the model itself, the others train replicas and all-reduce
+            // the gradients; training batches are shuffled, decoded and normalized on a background
+            // thread, BATCH_SIZE rows per worker so each shard keeps enough rows for batch norm.
+            // Hogwild: every worker loads its own batches and updates the model without locks.
+            int trainSize = trainSet.getSize();
+            DataParallelTrainer trainer = HOGWILD ? null : new DataParallelTrainer(model, WORKERS, Main::buildModel);
+            DataLoader loader = HOGWILD ? null : new DataLoader(trainSet, BATCH_SIZE * WORKERS, PREFETCH, Precision.DOUBLE, true);
+            HogwildTrainer hogwild = HOGWILD
+                    ? new HogwildTrainer(model, WORKERS, Main::buildModel, BATCH_SIZE, true, new Random())
+                    : null;
+            if (HOGWILD) hogwild.setMaxGradientNorm(HOGWILD_MAX_GRADIENT_NORM);
+
+            // The test set is decoded chunk by chunk, never materialized
+            int testSize = testSet.getSize();
+            Evaluator evaluator = new Evaluator(OUTPUT_SIZE, EVAL_CHUNK, EVAL_THREADS);
+            CompletableFuture<Evaluator.Report> pending = null;
+            int pendingEpoch = 0;
 
             System.out.printf("🎯 Network Architecture: %d → %d → %d → %d\n",
                     INPUT_SIZE, HIDDEN1_SIZE, HIDDEN2_SIZE, OUTPUT_SIZE);
@@ -68,41 +126,34 @@ public class Main {
             System.out.println("=" .repeat(60));
 
             // Training loop
-            for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            for (int epoch = firstEpoch; epoch < EPOCHS; epoch++) {
                 double epochLoss = 0.0;
                 int correct = 0;
-                int totalBatches = (int) Math.ceil((double) X_train.length / BATCH_SIZE);
-
-                // Shuffle data for each epoch
-                shuffleData(X_train, Y_train);
-
-                for (int batchIdx = 0; batchIdx < totalBatches; batchIdx++) {
-                    // Clear cache before each batch
-                    Techniques.clearCache();
+                int totalBatches = HOGWILD ? 0 : loader.batchesPerEpoch();
 
-                    // Create batch
-                    int startIdx = batchIdx * BATCH_SIZE;
-                    int endIdx = Math.min(startIdx + BATCH_SIZE, X_train.length);
-                    int currentBatchSize = endIdx - startIdx;
+                if (HOGWILD) {
+                    HogwildTrainer.Stats stats = hogwild.epoch(trainSet::loadBatch, trainSize, LEARNING_RATE, l2Lambda);
+                    totalBatches = (int) stats.batches();
+                    correct = (int) stats.correct();
 
-                    double[][] X_batch = new double[currentBatchSize][INPUT_SIZE];
-                    double[][] Y_batch = new double[currentBatchSize][OUTPUT_SIZE];
+                    // Regularization at the end of the epoch, for every batch
+                    epochLoss = stats.loss() + totalBatches * model.l2Regularization(l2Lambda);
+                    System.out.println("   " + stats);
+                }
 
-                    for (int i = 0; i < currentBatchSize; i++) {
-                        X_batch[i] = X_train[startIdx + i].clone();
-                        Y_batch[i] = Y_train[startIdx + i].clone();
-                    }
+                // The loader reshuffles for each epoch
+                for (DataLoader.Batch batch = HOGWILD ? null : loader.next(); batch != null; batch = loader.next()) {
+                    double[][] X_batch = batch.inputs();
+                    int[] Y_batch = batch.labels();
 
-                    // Forward pass
-                    double[][] predictions = forward.forward(X_batch, W1, b1, W2, b2, W3, b3);
+                    // Forward and backward pass (the model reuses its buffers for every batch of this size)
+                    double[][] predictions = trainer.forwardBackward(X_batch, Y_batch);
 
-                    // Calculate batch loss
-                    double batchLoss = calculateBatchLoss(predictions, Y_batch, lossFunction);
+                    // Batch loss, from the same pass as the gradients
+                    double batchLoss = trainer.loss();
 
                     // Add regularization
-                    double regLoss = Techniques.l2Regularization(W1, L2_LAMBDA) +
-                            Techniques.l2Regularization(W2, L2_LAMBDA) +
-                            Techniques.l2Regularization(W3, L2_LAMBDA);
+                    double regLoss = model.l2Regularization(l2Lambda);
                     batchLoss += regLoss;
 
                     epochLoss += batchLoss;
@@ -110,47 +161,72 @@ public class Main {
                     // Calculate accuracy
                     correct += calculateCorrectPredictions(predictions, Y_batch);
 
-                    // Backward pass
-                    backward.computeGradients(X_batch, Y_batch, W1, W2, W3, b1, b2, b3);
-
                     // Add regularization to gradients
-                    addRegularizationGradients(backward, W1, W2, W3, L2_LAMBDA);
+                    if (l2Lambda != 0.0) model.addWeightDecay(l2Lambda);
 
-                    // Update weights
-                    backward.updateWeights(W1, W2, W3, b1, b2, b3, LEARNING_RATE);
+                    // Update weights (-Dnn.optimizer=momentum, nesterov, rmsprop, adam or adamw; default sgd)
+                    model.update(optimizer);
                 }
 
                 // Calculate epoch metrics
                 double avgLoss = epochLoss / totalBatches;
-                double trainAccuracy = (double) correct / X_train.length * 100;
+                double trainAccuracy = (double) correct / trainSize * 100;
+
+                // A background evaluation started after the previous epoch has finished by now
+                if (pending != null) {
+                    System.out.printf("   Test after epoch %d: %s\n", pendingEpoch, pending.join());
+                    pending = null;
+                }
 
                 // Test accuracy every 5 epochs
+                boolean evaluate = (epoch + 1) % 5 == 0 || epoch == EPOCHS - 1;
                 double testAccuracy = 0.0;
-                if ((epoch + 1) % 5 == 0 || epoch == EPOCHS - 1) {
-                    testAccuracy = evaluateModel(forward, X_test, Y_test, W1, b1, W2, b2, W3, b3);
+                if (evaluate && ASYNC_EVAL && epoch < EPOCHS - 1) {
+                    // Scored from a snapshot of this epoch's weights while the next one trains
+                    pending = evaluator.evaluateAsync(model, testSet::loadBatch, testSize);
+                    pendingEpoch = epoch + 1;
+                    evaluate = false;
+                } else if (evaluate) {
+                    testAccuracy = evaluator.evaluate(new InferenceEngine(model), testSet::loadBatch, testSize).accuracy();
                 }
 
                 // Print progress
-                if ((epoch + 1) % 5 == 0 || epoch == EPOCHS - 1) {
+                if (evaluate) {
                     System.out.printf("Epoch %3d/%d | Loss: %.4f | Train Acc: %6.2f%% | Test Acc: %6.2f%%\n",
                             epoch + 1, EPOCHS, avgLoss, trainAccuracy, testAccuracy);
                 } else {
                     System.out.printf("Epoch %3d/%d | Loss: %.4f | Train Acc: %6.2f%%\n",
                             epoch + 1, EPOCHS, avgLoss, trainAccuracy);
                 }
+
+                // Snapshot now, write on the checkpoint thread while the next epochs train
+                if ((epoch + 1) % CHECKPOINT_EVERY == 0 && epoch < EPOCHS - 1)
+                    checkpoints.save(model, optimizer, epoch + 1);
             }
 
+            // The final checkpoint is written synchronously, after any write still in progress
+            checkpoints.close();
+            Checkpoint.save(CHECKPOINT, model, optimizer, EPOCHS);
+            System.out.println("💾 Model saved to " + CHECKPOINT);
+
+            if (!HOGWILD) {
+                loader.close();
+                trainer.close();
+            }
             System.out.println("=" .repeat(60));
             System.out.println("🎉 Training completed successfully!");
 
             // Final evaluation
             System.out.println("\n📊 Final Model Evaluation:");
-            double finalTestAccuracy = evaluateModel(forward, X_test, Y_test, W1, b1, W2, b2, W3, b3);
-            System.out.printf("🎯 Final Test Accuracy: %.2f%%\n", finalTestAccuracy);
+            InferenceEngine engine = new InferenceEngine(model);
+            Evaluator.Report report = evaluator.evaluate(engine, testSet::loadBatch, testSize);
+            evaluator.close();
+            System.out.printf("🎯 Final Test Accuracy: %.2f%% | Test Loss: %.4f\n", report.accuracy(), report.loss());
+            System.out.print(report.table());
 
             // Test on a few samples
             System.out.println("\n🔍 Sample Predictions:");
-            testSamplePredictions(forward, X_test, testSet.getLabels(), W1, b1, W2, b2, W3, b3);
+            testSamplePredictions(engine, testSet);
 
         } catch (IOException e) {
             System.err.println("❌ Error loading dataset: " + e.getMessage());
@@ -165,89 +241,123 @@ public class Main {
         }
     }
 
-    // Helper methods
+    private static Sequential buildModel() {
+        return new Sequential(INPUT_SIZE)
+                .add(new DenseLayer(HIDDEN1_SIZE, Activation.RELU))
+                .add(new DropoutLayer(0.3))
+                .add(new DenseLayer(HIDDEN2_SIZE, Activation.RELU))
+                .add(new BatchNormLayer())
+                .add(new DenseLayer(OUTPUT_SIZE, Activation.SOFTMAX));
+    }
 
-    private static double[][] initializeWeights(int rows, int cols) {
-        double[][] weights = new double[rows][cols];
+    /**
+     * Same training loop as main(), with weights, activations, gradients and the
+     * training batches held in float. Pixels go straight from int to normalized float,
+     * and the test set is scored one evaluator chunk at a time, so no copy of either
+     * dataset is ever built.
+     */
+    private static void trainFloat(DataSet trainSet, DataSet testSet) {
+        ForwardFloat forward = new ForwardFloat();
+        BackwardFloat backward = new BackwardFloat();
+        backward.setForward(forward);
+
+        System.out.println("\n🔧 Initializing network parameters (float32)...");
         Random random = new Random();
-        double std = Math.sqrt(2.0 / rows); // He initialization
+        float[][] W1 = FloatOps.initializeWeights(INPUT_SIZE, HIDDEN1_SIZE, random);
+        float[][] W2 = FloatOps.initializeWeights(HIDDEN1_SIZE, HIDDEN2_SIZE, random);
+        float[][] W3 = FloatOps.initializeWeights(HIDDEN2_SIZE, OUTPUT_SIZE, random);
+
+        float[][] b1 = new float[1][HIDDEN1_SIZE];
+        float[][] b2 = new float[1][HIDDEN2_SIZE];
+        float[][] b3 = new float[1][OUTPUT_SIZE];
+
+        int trainSize = trainSet.getSize();
+        DataLoader loader = new DataLoader(trainSet, BATCH_SIZE, PREFETCH, Precision.FLOAT, true);
+        // The test set is decoded chunk by chunk and scored by the evaluation pass, which only
+        // reads the weights and running statistics, so the evaluator's workers can share it
+        int testSize = testSet.getSize();
+        Evaluator evaluator = new Evaluator(OUTPUT_SIZE, EVAL_CHUNK, EVAL_THREADS);
+        Evaluator.Predictor network = x ->
+                FloatOps.toDouble(forward.forward(FloatOps.toFloat(x), W1, b1, W2, b2, W3, b3, false));
+
+        System.out.printf("🎯 Network Architecture: %d → %d → %d → %d\n",
+                INPUT_SIZE, HIDDEN1_SIZE, HIDDEN2_SIZE, OUTPUT_SIZE);
+        System.out.println("\n🏋️ Starting training...");
+        System.out.println("=" .repeat(60));
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                weights[i][j] = random.nextGaussian() * std;
-            }
-        }
-        return weights;
-    }
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            double epochLoss = 0.0;
+            int correct = 0;
+            int totalBatches = loader.batchesPerEpoch();
 
-    private static double[][] initializeBiases(int rows, int cols) {
-        return new double[rows][cols]; // Initialize to zeros
-    }
+            for (DataLoader.Batch batch = loader.next(); batch != null; batch = loader.next()) {
+                float[][] X_batch = batch.inputsFloat();
+                int[] Y_batch = batch.labels();
 
-    // Alternative: Create bias with batch size
-    private static double[][] initializeBiasesForBatch(int batchSize, int cols) {
-        return new double[batchSize][cols]; // Initialize to zeros
-    }
+                // One forward pass: its predictions give the loss and the gradients
+                float[][] predictions = backward.forwardBackward(X_batch, Y_batch, W1, W2, W3, b1, b2, b3);
 
-    private static double[][] convertToDouble(int[][] intArray) {
-        double[][] doubleArray = new double[intArray.length][intArray[0].length];
-        for (int i = 0; i < intArray.length; i++) {
-            for (int j = 0; j < intArray[0].length; j++) {
-                doubleArray[i][j] = intArray[i][j];
+                double batchLoss = calculateBatchLoss(predictions, Y_batch);
+                batchLoss += FloatOps.l2Regularization(W1, L2_LAMBDA) +
+                        FloatOps.l2Regularization(W2, L2_LAMBDA) +
+                        FloatOps.l2Regularization(W3, L2_LAMBDA);
+                epochLoss += batchLoss;
+
+                for (int i = 0; i < predictions.length; i++)
+                    if (argmax(predictions[i]) == Y_batch[i]) correct++;
+
+                FloatOps.addWeightDecay(backward.dW1, W1, (float) L2_LAMBDA);
+                FloatOps.addWeightDecay(backward.dW2, W2, (float) L2_LAMBDA);
+                FloatOps.addWeightDecay(backward.dW3, W3, (float) L2_LAMBDA);
+
+                backward.updateWeights(W1, W2, W3, b1, b2, b3, (float) LEARNING_RATE);
             }
-        }
-        return doubleArray;
-    }
 
-    private static double[][] normalizeData(double[][] data) {
-        double[][] normalized = new double[data.length][data[0].length];
-        for (int i = 0; i < data.length; i++) {
-            for (int j = 0; j < data[0].length; j++) {
-                normalized[i][j] = data[i][j] / 255.0; // Normalize to [0,1]
+            double avgLoss = epochLoss / totalBatches;
+            double trainAccuracy = (double) correct / trainSize * 100;
+
+            if ((epoch + 1) % 5 == 0 || epoch == EPOCHS - 1) {
+                double testAccuracy = evaluator.evaluate(network, INPUT_SIZE, testSet::loadBatch, testSize).accuracy();
+                System.out.printf("Epoch %3d/%d | Loss: %.4f | Train Acc: %6.2f%% | Test Acc: %6.2f%%\n",
+                        epoch + 1, EPOCHS, avgLoss, trainAccuracy, testAccuracy);
+            } else {
+                System.out.printf("Epoch %3d/%d | Loss: %.4f | Train Acc: %6.2f%%\n",
+                        epoch + 1, EPOCHS, avgLoss, trainAccuracy);
             }
         }
-        return normalized;
-    }
 
-    private static double[][] oneHotEncode(int[] labels, int numClasses) {
-        double[][] encoded = new double[labels.length][numClasses];
-        for (int i = 0; i < labels.length; i++) {
-            encoded[i][labels[i]] = 1.0;
-        }
-        return encoded;
-    }
+        loader.close();
+        System.out.println("=" .repeat(60));
+        System.out.println("🎉 Training completed successfully!");
 
-    private static void shuffleData(double[][] X, double[][] Y) {
-        Random random = new Random();
-        for (int i = X.length - 1; i > 0; i--) {
-            int j = random.nextInt(i + 1);
-
-            // Swap X
-            double[] tempX = X[i];
-            X[i] = X[j];
-            X[j] = tempX;
-
-            // Swap Y
-            double[] tempY = Y[i];
-            Y[i] = Y[j];
-            Y[j] = tempY;
-        }
+        Evaluator.Report report = evaluator.evaluate(network, INPUT_SIZE, testSet::loadBatch, testSize);
+        evaluator.close();
+        System.out.printf("🎯 Final Test Accuracy: %.2f%% | Test Loss: %.4f\n", report.accuracy(), report.loss());
+        System.out.print(report.table());
     }
 
-    private static double calculateBatchLoss(double[][] predictions, double[][] labels, Loss lossFunction) {
+    // Helper methods
+
+    // Cross-entropy of float predictions, same EPSILON guard as Loss
+    private static double calculateBatchLoss(float[][] predictions, int[] labels) {
         double totalLoss = 0.0;
-        for (int i = 0; i < predictions.length; i++) {
-            totalLoss += lossFunction.calculate_loss(labels[i], predictions[i]);
-        }
+        for (int i = 0; i < predictions.length; i++)
+            totalLoss -= Math.log(predictions[i][labels[i]] + 1e-15);
         return totalLoss / predictions.length;
     }
 
-    private static int calculateCorrectPredictions(double[][] predictions, double[][] labels) {
+    private static int argmax(float[] array) {
+        int maxIndex = 0;
+        for (int i = 1; i < array.length; i++)
+            if (array[i] > array[maxIndex]) maxIndex = i;
+        return maxIndex;
+    }
+
+    private static int calculateCorrectPredictions(double[][] predictions, int[] labels) {
         int correct = 0;
         for (int i = 0; i < predictions.length; i++) {
             int predictedClass = argmax(predictions[i]);
-            int actualClass = argmax(labels[i]);
-            if (predictedClass == actualClass) {
+            if (predictedClass == labels[i]) {
                 correct++;
             }
         }
@@ -266,42 +376,21 @@ public class Main {
         return maxIndex;
     }
 
-    private static void addRegularizationGradients(Backward backward, double[][] W1, double[][] W2, double[][] W3, double lambda) {
-        // Add L2 regularization gradients
-        double[][] regGrad1 = Techniques.weightDecayGradient(W1, lambda);
-        double[][] regGrad2 = Techniques.weightDecayGradient(W2, lambda);
-        double[][] regGrad3 = Techniques.weightDecayGradient(W3, lambda);
-
-        // Add to existing gradients
-        backward.dW1 = Matrix_Operations.add(backward.dW1, regGrad1);
-        backward.dW2 = Matrix_Operations.add(backward.dW2, regGrad2);
-        backward.dW3 = Matrix_Operations.add(backward.dW3, regGrad3);
-    }
-
-    private static double evaluateModel(Forward forward, double[][] X_test, double[][] Y_test,
-                                        double[][] W1, double[][] b1, double[][] W2, double[][] b2,
-                                        double[][] W3, double[][] b3) {
-        Techniques.clearCache();
-        double[][] predictions = forward.forward(X_test, W1, b1, W2, b2, W3, b3);
-        int correct = calculateCorrectPredictions(predictions, Y_test);
-        return (double) correct / X_test.length * 100;
-    }
-
-    private static void testSamplePredictions(Forward forward, double[][] X_test, int[] actualLabels,
-                                              double[][] W1, double[][] b1, double[][] W2, double[][] b2,
-                                              double[][] W3, double[][] b3) {
+    // Inference path: batch norm with running statistics folded into the weights, no dropout
+    private static void testSamplePredictions(InferenceEngine engine, DataSet testSet) {
         Random random = new Random();
+        double[][] x = new double[1][INPUT_SIZE];
+        int[] y = new int[1];
 
         for (int i = 0; i < 5; i++) {
-            int sampleIdx = random.nextInt(X_test.length);
-            double[][] sampleInput = {X_test[sampleIdx]};
+            int sampleIdx = random.nextInt(testSet.getSize());
+            testSet.loadBatch(new int[]{sampleIdx}, 0, x, y);
 
-            Techniques.clearCache();
-            double[][] prediction = forward.forward(sampleInput, W1, b1, W2, b2, W3, b3);
+            double[] prediction = engine.predict(x[0]);
 
-            int predictedClass = argmax(prediction[0]);
-            int actualClass = actualLabels[sampleIdx];
-            double confidence = prediction[0][predictedClass] * 100;
+            int predictedClass = argmax(prediction);
+            int actualClass = y[0];
+            double confidence = prediction[predictedClass] * 100;
 
             String status = (predictedClass == actualClass) ? "✅" : "❌";
             System.out.printf("%s Sample %d: Predicted = %d, Actual = %d, Confidence = %.1f%%\n",
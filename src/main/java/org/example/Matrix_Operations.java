@@ -11,8 +11,7 @@ public class Matrix_Operations {
         double[][] result = new double[rows][cols];
 
         for (int i = 0; i < rows; i++)
-            for (int j = 0; j < cols; j++)
-                result[i][j] = a[i][j] + b[i][j];
+            Kernels.INSTANCE.add(a[i], b[i], result[i], cols);
 
         return result;
     }
@@ -39,14 +38,8 @@ public class Matrix_Operations {
 
     // Subtraction
     public static double[][] subtract(double[][] a, double[][] b) {
-        validateSameDimension(a, b);
-        int rows = a.length, cols = a[0].length;
-        double[][] result = new double[rows][cols];
-
-        for (int i = 0; i < rows; i++)
-            for (int j = 0; j < cols; j++)
-                result[i][j] = a[i][j] - b[i][j];
-
+        double[][] result = new double[a.length][a[0].length];
+        subtract(a, b, result);
         return result;
     }
 
@@ -56,26 +49,24 @@ public class Matrix_Operations {
         double[][] result = new double[rows][cols];
 
         for (int i = 0; i < rows; i++)
-            for (int j = 0; j < cols; j++)
-                result[i][j] = a[i][j] * scalar;
+            Kernels.INSTANCE.scale(a[i], scalar, result[i], cols);
 
         return result;
     }
 
-    // Matrix Multiplication
+    // Matrix Multiplication (blocked kernel, see Gemm)
     public static double[][] multiply(double[][] a, double[][] b) {
-        if (a[0].length != b.length)
-            throw new IllegalArgumentException("Invalid matrix dimensions for multiplication.");
-
-        int rows = a.length, cols = b[0].length, common = a[0].length;
-        double[][] result = new double[rows][cols];
+        return Gemm.multiply(a, false, b, false);
+    }
 
-        for (int i = 0; i < rows; i++)
-            for (int j = 0; j < cols; j++)
-                for (int k = 0; k < common; k++)
-                    result[i][j] += a[i][k] * b[k][j];
+    // Matrix Multiplication with the left operand transposed: A^T * B
+    public static double[][] multiplyTransposeA(double[][] a, double[][] b) {
+        return Gemm.multiply(a, true, b, false);
+    }
 
-        return result;
+    // Matrix Multiplication with the right operand transposed: A * B^T
+    public static double[][] multiplyTransposeB(double[][] a, double[][] b) {
+        return Gemm.multiply(a, false, b, true);
     }
 
     // Dot Product (for vectors)
@@ -182,21 +173,12 @@ public class Matrix_Operations {
     }
     // Helper: Find max value in a row
     static double findMax(double[] row) {
-        double max = Double.NEGATIVE_INFINITY;
-        for (double v : row) {
-            if (v > max) max = v;
-        }
-        return max;
-}
+        return Kernels.INSTANCE.max(row, row.length);
+    }
     // Helper: Compute exp(x - max) for each element and return their sum
     static double sumExp(double[] row, double max, double[] expRow) {
-        double sum = 0;
-        for (int j = 0; j < row.length; j++) {
-            expRow[j] = Math.exp(row[j] - max);
-            sum += expRow[j];
-        }
-        return sum;
-}
+        return Kernels.INSTANCE.sumExp(row, max, expRow, row.length);
+    }
 
     // Flatten
     public static double[] flatten(double[][] a) {
@@ -226,6 +208,60 @@ public class Matrix_Operations {
         return reshaped;
     }
 
+    // ---------------- Output Variants (no allocation) ---------------- //
+
+    // Subtraction into result (may alias a or b)
+    public static void subtract(double[][] a, double[][] b, double[][] result) {
+        validateSameDimension(a, b);
+        validateSameDimension(a, result);
+        int rows = a.length, cols = a[0].length;
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                result[i][j] = a[i][j] - b[i][j];
+    }
+
+    // Matrix Multiplication into result (must not alias a or b)
+    public static void multiply(double[][] a, double[][] b, double[][] result) {
+        Gemm.multiplyInto(a, false, b, false, result, false);
+    }
+
+    // A^T * B into result
+    public static void multiplyTransposeA(double[][] a, double[][] b, double[][] result) {
+        Gemm.multiplyInto(a, true, b, false, result, false);
+    }
+
+    // A * B^T into result
+    public static void multiplyTransposeB(double[][] a, double[][] b, double[][] result) {
+        Gemm.multiplyInto(a, false, b, true, result, false);
+    }
+
+    /**
+     * Add a [1 x features] bias row to every row of the matrix, in place.
+     * Same result as add(matrix, broadcastBias(bias, rows)) without the two copies.
+     */
+    public static void addBiasInPlace(double[][] matrix, double[][] bias) {
+        int cols = matrix[0].length;
+        if (bias[0].length != cols)
+            throw new IllegalArgumentException("Bias must be [1 x " + cols + "].");
+
+        for (double[] row : matrix)
+            Kernels.INSTANCE.add(row, bias[0], row, cols);
+    }
+
+    /**
+     * Sum over the batch dimension: [m x n] -> result [1 x n]
+     */
+    public static void columnSums(double[][] a, double[][] result) {
+        int rows = a.length, cols = a[0].length;
+
+        for (int j = 0; j < cols; j++) {
+            double sum = 0;
+            for (int i = 0; i < rows; i++) sum += a[i][j];
+            result[0][j] = sum;
+        }
+    }
+
     // ---------------- Validation ---------------- //
 
     private static void validateSameDimension(double[][] a, double[][] b) {
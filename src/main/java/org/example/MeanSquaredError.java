@@ -0,0 +1,94 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Mean squared error of a linear (identity) output, for regression.
+ *
+ * Per row: loss = sum_j (z_j - y_j)^2 / outputs and dZ = 2 (z - y) / outputs; the outputs
+ * are the logits themselves. A sparse label stands for the one-hot target row.
+ */
+public class MeanSquaredError implements LossFunction {
+
+    static final MeanSquaredError INSTANCE = new MeanSquaredError();
+
+    @Override
+    public Activation activation() {
+        return Activation.IDENTITY;
+    }
+
+    @Override
+    public double forwardBackward(double[][] logits, double[][] labels, double[][] outputs, double[][] dZ, double[][] db) {
+        int cols = logits[0].length;
+        double scale = 2.0 / cols;
+        if (db != null) Arrays.fill(db[0], 0, cols, 0.0);
+
+        double total = 0.0;
+        for (int i = 0; i < logits.length; i++) {
+            double[] z = logits[i], y = labels[i], out = outputs[i], d = dZ[i];
+            double sum = 0.0;
+            for (int j = 0; j < cols; j++) {
+                double diff = z[j] - y[j];
+                out[j] = z[j];
+                sum += diff * diff;
+                d[j] = scale * diff;
+            }
+            total += sum / cols;
+            if (db != null) SoftmaxCrossEntropy.addTo(db[0], d, cols);
+        }
+        return total / logits.length;
+    }
+
+    @Override
+    public double forwardBackward(double[][] logits, int[] labels, double[][] outputs, double[][] dZ, double[][] db) {
+        int cols = logits[0].length;
+        double scale = 2.0 / cols;
+        if (db != null) Arrays.fill(db[0], 0, cols, 0.0);
+
+        double total = 0.0;
+        for (int i = 0; i < logits.length; i++) {
+            int label = labels[i];
+            LossFunction.checkLabel(label, cols);
+            double[] z = logits[i], out = outputs[i], d = dZ[i];
+            double sum = 0.0;
+            for (int j = 0; j < cols; j++) {
+                double diff = j == label ? z[j] - 1.0 : z[j];
+                out[j] = z[j];
+                sum += diff * diff;
+                d[j] = scale * diff;
+            }
+            total += sum / cols;
+            if (db != null) SoftmaxCrossEntropy.addTo(db[0], d, cols);
+        }
+        return total / logits.length;
+    }
+
+    @Override
+    public double loss(double[][] outputs, double[][] labels) {
+        double total = 0.0;
+        for (int i = 0; i < outputs.length; i++) {
+            double sum = 0.0;
+            for (int j = 0; j < outputs[i].length; j++) {
+                double diff = outputs[i][j] - labels[i][j];
+                sum += diff * diff;
+            }
+            total += sum / outputs[i].length;
+        }
+        return total / outputs.length;
+    }
+
+    @Override
+    public double loss(double[][] outputs, int[] labels) {
+        double total = 0.0;
+        for (int i = 0; i < outputs.length; i++) {
+            LossFunction.checkLabel(labels[i], outputs[i].length);
+            double sum = 0.0;
+            for (int j = 0; j < outputs[i].length; j++) {
+                double diff = j == labels[i] ? outputs[i][j] - 1.0 : outputs[i][j];
+                sum += diff * diff;
+            }
+            total += sum / outputs[i].length;
+        }
+        return total / outputs.length;
+    }
+}
@@ -0,0 +1,177 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces single-sample predictions from many threads into batches.
+ *
+ * Callers submit one input row each. A dispatcher thread takes the first waiting row,
+ * then keeps collecting rows until the batch is full or maxWait has passed since that
+ * first row, and runs the whole batch through one {@link InferenceEngine#predict(double[][])}
+ * call, so concurrent requests share a single GEMM per layer instead of one
+ * matrix-vector product each. Rows that are already queued when the wait is over still
+ * join the batch. With maxWait 0 a request never waits for company, but it is still
+ * batched with whatever arrived while the previous batch ran.
+ *
+ * Results do not depend on the batch a row lands in: the engine computes every row on
+ * its own.
+ */
+public class MicroBatcher implements AutoCloseable {
+
+    /**
+     * Most probable class of one sample and its softmax probability
+     */
+    public static final class Prediction {
+        private final int digit;
+        private final double confidence;
+
+        Prediction(int digit, double confidence) {
+            this.digit = digit;
+            this.confidence = confidence;
+        }
+
+        public int digit() { return digit; }
+
+        public double confidence() { return confidence; }
+
+        @Override
+        public String toString() {
+            return String.format("Predicted = %d, Confidence = %.1f%%", digit, 100 * confidence);
+        }
+    }
+
+    private static final class Request {
+        final double[] input;
+        final CompletableFuture<Prediction> result = new CompletableFuture<>();
+
+        Request(double[] input) {
+            this.input = input;
+        }
+    }
+
+    private final InferenceEngine engine;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private final AtomicLong batches = new AtomicLong(), requests = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param maxBatch Most rows predicted at once
+     * @param maxWaitNanos Longest time the first row of a batch waits for more rows
+     */
+    public MicroBatcher(InferenceEngine engine, int maxBatch, long maxWaitNanos) {
+        if (maxBatch < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        if (maxWaitNanos < 0)
+            throw new IllegalArgumentException("Maximum wait must not be negative.");
+
+        this.engine = engine;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWaitNanos;
+        this.dispatcher = new Thread(this::dispatch, "micro-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public int inputSize() { return engine.inputSize(); }
+
+    // Batches predicted so far
+    public long batches() { return batches.get(); }
+
+    // Rows predicted so far
+    public long requests() { return requests.get(); }
+
+    // ---------------- Requests ---------------- //
+
+    /**
+     * Queue one sample; the input must not change until the result is complete
+     */
+    public CompletableFuture<Prediction> submit(double[] input) {
+        if (input.length != engine.inputSize())
+            throw new IllegalArgumentException("Input must have " + engine.inputSize() + " features.");
+        if (closed)
+            throw new IllegalStateException("Micro-batcher is closed.");
+
+        Request request = new Request(input);
+        queue.add(request);
+        // close() may have drained the queue between the check and the add
+        if (closed) request.result.completeExceptionally(new IllegalStateException("Micro-batcher is closed."));
+        return request.result;
+    }
+
+    /**
+     * Submit one sample and wait for its prediction
+     */
+    public Prediction predict(double[] input) {
+        return submit(input).join();
+    }
+
+    /**
+     * Stop the dispatcher; requests still queued fail
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Request request; (request = queue.poll()) != null; )
+            request.result.completeExceptionally(new IllegalStateException("Micro-batcher is closed."));
+    }
+
+    // ---------------- Dispatcher ---------------- //
+
+    private void dispatch() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    long left = deadline - System.nanoTime();
+                    Request next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                run(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            for (Request request : batch)
+                request.result.completeExceptionally(new IllegalStateException("Micro-batcher is closed."));
+        }
+    }
+
+    private void run(List<Request> batch) {
+        double[][] rows = new double[batch.size()][];
+        for (int i = 0; i < rows.length; i++) rows[i] = batch.get(i).input;
+
+        double[][] outputs;
+        try {
+            outputs = engine.predict(rows);
+        } catch (RuntimeException e) {
+            for (Request request : batch) request.result.completeExceptionally(e);
+            return;
+        }
+        batches.incrementAndGet();
+        requests.addAndGet(rows.length);
+
+        for (int i = 0; i < rows.length; i++) {
+            double[] p = outputs[i];
+            int digit = 0;
+            for (int j = 1; j < p.length; j++)
+                if (p[j] > p[digit]) digit = j;
+            batch.get(i).result.complete(new Prediction(digit, p[digit]));
+        }
+    }
+}
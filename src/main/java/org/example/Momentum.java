@@ -0,0 +1,82 @@
+package org.example;
+
+/**
+ * Gradient descent with momentum: v = mu * v + g, then p -= learningRate * v, or with
+ * Nesterov's look-ahead p -= learningRate * (g + mu * v). Decoupled weight decay shrinks
+ * decayed tensors by (1 - learningRate * weightDecay) in the same pass.
+ */
+public class Momentum implements Optimizer {
+
+    private double learningRate;
+    private final double momentum, weightDecay;
+    private final boolean nesterov;
+
+    // One velocity per parameter element, in parameter order
+    private double[] velocity;
+
+    public Momentum(double learningRate, double momentum, boolean nesterov) {
+        this(learningRate, momentum, nesterov, 0.0);
+    }
+
+    /**
+     * @param momentum Velocity decay mu in [0, 1)
+     * @param nesterov Step from the look-ahead point instead of the current velocity
+     * @param weightDecay Decoupled weight decay (0 for none)
+     */
+    public Momentum(double learningRate, double momentum, boolean nesterov, double weightDecay) {
+        Optimizer.checkLearningRate(learningRate);
+        if (momentum < 0.0 || momentum >= 1.0)
+            throw new IllegalArgumentException("Momentum must be in [0, 1).");
+        if (weightDecay < 0.0)
+            throw new IllegalArgumentException("Weight decay must not be negative.");
+        this.learningRate = learningRate;
+        this.momentum = momentum;
+        this.nesterov = nesterov;
+        this.weightDecay = weightDecay;
+    }
+
+    @Override
+    public void update(double[][][] parameters, double[][][] gradients, boolean[] decay) {
+        if (velocity == null) velocity = new double[Optimizer.size(parameters)];
+        Optimizer.checkState(velocity, parameters);
+
+        double[] v = velocity;
+        double mu = momentum, lr = learningRate;
+        int k = 0;
+        for (int t = 0; t < parameters.length; t++) {
+            double shrink = decay[t] ? 1.0 - lr * weightDecay : 1.0;
+            for (int i = 0; i < parameters[t].length; i++) {
+                double[] p = parameters[t][i], g = gradients[t][i];
+                for (int j = 0; j < p.length; j++, k++) {
+                    double vk = mu * v[k] + g[j];
+                    v[k] = vk;
+                    p[j] = shrink * p[j] - lr * (nesterov ? g[j] + mu * vk : vk);
+                }
+            }
+        }
+    }
+
+    @Override
+    public double[][] state() {
+        return velocity == null ? new double[0][] : new double[][]{velocity};
+    }
+
+    @Override
+    public void restore(double[][] state, long steps) {
+        if (state.length != 1)
+            throw new IllegalArgumentException("Momentum state is one velocity buffer.");
+        velocity = state[0].clone();
+    }
+
+    @Override
+    public double learningRate() { return learningRate; }
+
+    @Override
+    public double weightDecay() { return weightDecay; }
+
+    @Override
+    public void setLearningRate(double learningRate) {
+        Optimizer.checkLearningRate(learningRate);
+        this.learningRate = learningRate;
+    }
+}
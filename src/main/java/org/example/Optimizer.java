@@ -0,0 +1,107 @@
+package org.example;
+
+/**
+ * Update rule applied to a model's parameters after each backward pass.
+ *
+ * Implementations keep their per-element state (velocities, moment estimates) in flat
+ * arrays allocated on the first update, one slot per parameter element in the order
+ * the parameters are passed, and update each tensor in a single in-place pass that
+ * also applies the optional decoupled weight decay. After the first call an update
+ * allocates nothing. An optimizer instance belongs to one model.
+ */
+public interface Optimizer {
+
+    /**
+     * Apply one step to every parameter
+     * @param parameters Tensors to update in place
+     * @param gradients Gradients aligned with parameters
+     * @param decay Which tensors take decoupled weight decay (weights, not biases or batch-norm scales)
+     */
+    void update(double[][][] parameters, double[][][] gradients, boolean[] decay);
+
+    double learningRate();
+
+    /**
+     * Decoupled weight decay applied to the decayed tensors (0 for none); a caller
+     * that also adds an L2 gradient would decay the weights twice
+     */
+    double weightDecay();
+
+    /**
+     * Live state buffers (velocities, moments), empty before the first update; saved
+     * in checkpoints
+     */
+    default double[][] state() {
+        return new double[0][];
+    }
+
+    /**
+     * Updates applied so far, where the rule depends on it (Adam's bias correction)
+     */
+    default long steps() {
+        return 0;
+    }
+
+    /**
+     * Continue from saved state and step count, e.g. from a {@link Checkpoint}
+     */
+    default void restore(double[][] state, long steps) {
+        if (state.length != 0)
+            throw new IllegalArgumentException(getClass().getSimpleName() + " keeps no state.");
+    }
+
+    /**
+     * Change the step size (e.g. for a schedule); the accumulated state is kept
+     */
+    void setLearningRate(double learningRate);
+
+    /**
+     * Optimizer named by the {@code nn.optimizer} system property: sgd (default),
+     * momentum, nesterov, rmsprop, adam or adamw, with the usual default hyperparameters
+     */
+    static Optimizer fromSystemProperty(double learningRate) {
+        String configured = System.getProperty("nn.optimizer", "sgd").trim();
+        switch (configured.toLowerCase()) {
+            case "sgd":
+                return new SGD(learningRate);
+            case "momentum":
+                return new Momentum(learningRate, 0.9, false);
+            case "nesterov":
+                return new Momentum(learningRate, 0.9, true);
+            case "rmsprop":
+                return new RMSProp(learningRate);
+            case "adam":
+                return new Adam(learningRate);
+            case "adamw":
+                return new Adam(learningRate, 0.9, 0.999, 1e-8, 0.01);
+            default:
+                throw new IllegalArgumentException("Unknown nn.optimizer: " + configured
+                        + " (expected sgd, momentum, nesterov, rmsprop, adam or adamw)");
+        }
+    }
+
+    /**
+     * Number of elements over all tensors (the length of a flat state buffer)
+     */
+    static int size(double[][][] parameters) {
+        long size = 0;
+        for (double[][] p : parameters)
+            for (double[] row : p) size += row.length;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many parameters for a flat optimizer buffer.");
+        return (int) size;
+    }
+
+    /**
+     * Fail if a state buffer was built for a different set of parameters
+     */
+    static void checkState(double[] state, double[][][] parameters) {
+        if (state.length != size(parameters))
+            throw new IllegalArgumentException("Optimizer state was built for a different set of parameters.");
+    }
+
+    static void checkLearningRate(double learningRate) {
+        if (!(learningRate > 0.0))
+            throw new IllegalArgumentException("Learning rate must be positive.");
+    }
+}
@@ -0,0 +1,235 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Checks the {@link Optimizer} implementations:
+ *
+ * 1. Each fused update matches a textbook, tensor-by-tensor implementation of its
+ *    formulas over several steps, with decoupled weight decay on some tensors.
+ * 2. {@link SGD} without weight decay is bit-identical to {@link Sequential#update(double)}.
+ * 3. A steady-state update allocates nothing.
+ * 4. Every optimizer trains the MNIST stack; the training loss after one epoch is printed
+ *    next to plain SGD's, and the adaptive and momentum methods must beat it.
+ *
+ * Uses the same data as {@link DataParallelCheck} (MNIST when its four IDX files are passed).
+ * Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.OptimizerCheck [images labels testImages testLabels]
+ */
+public class OptimizerCheck {
+
+    private static final int BATCH = 32, STEPS = 5;
+    private static final double LEARNING_RATE = 0.001, TOLERANCE = 1e-12;
+
+    public static void main(String[] args) throws IOException {
+        double[][][] data = DataParallelCheck.data(args);
+        double[][] xTrain = data[0], yTrain = data[1];
+
+        boolean ok = checkFormulas() & checkSgd(xTrain, yTrain) & checkAllocation() & checkTraining(xTrain, yTrain);
+        if (!ok) {
+            System.out.println("❌ Optimizer check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Optimizers match their reference formulas");
+    }
+
+    // ---------------- Formulas ---------------- //
+
+    private static boolean checkFormulas() {
+        boolean ok = true;
+        ok &= checkFormula("SGD + decay", new SGD(0.1, 0.01), new Reference(0.1, 0.01) {
+            double step(int k, double p, double g, double shrink) {
+                return shrink * p - lr * g;
+            }
+        });
+        ok &= checkFormula("Momentum", new Momentum(0.1, 0.9, false, 0.01), new Reference(0.1, 0.01) {
+            double step(int k, double p, double g, double shrink) {
+                a[k] = 0.9 * a[k] + g;
+                return shrink * p - lr * a[k];
+            }
+        });
+        ok &= checkFormula("Nesterov", new Momentum(0.1, 0.9, true, 0.01), new Reference(0.1, 0.01) {
+            double step(int k, double p, double g, double shrink) {
+                a[k] = 0.9 * a[k] + g;
+                return shrink * p - lr * (g + 0.9 * a[k]);
+            }
+        });
+        ok &= checkFormula("RMSProp", new RMSProp(0.01, 0.9, 1e-8, 0.01), new Reference(0.01, 0.01) {
+            double step(int k, double p, double g, double shrink) {
+                a[k] = 0.9 * a[k] + 0.1 * g * g;
+                return shrink * p - lr * g / (Math.sqrt(a[k]) + 1e-8);
+            }
+        });
+        ok &= checkFormula("AdamW", new Adam(0.01, 0.9, 0.999, 1e-8, 0.01), new Reference(0.01, 0.01) {
+            double step(int k, double p, double g, double shrink) {
+                a[k] = 0.9 * a[k] + 0.1 * g;
+                b[k] = 0.999 * b[k] + 0.001 * g * g;
+                double mHat = a[k] / (1 - Math.pow(0.9, t)), vHat = b[k] / (1 - Math.pow(0.999, t));
+                return shrink * p - lr * mHat / (Math.sqrt(vHat) + 1e-8);
+            }
+        });
+        return ok;
+    }
+
+    // Per-element reference: a and b are the optimizer's state, t the step number (from 1)
+    private abstract static class Reference {
+        final double lr, weightDecay;
+        double[] a = new double[0], b = new double[0];
+        int t;
+
+        Reference(double lr, double weightDecay) {
+            this.lr = lr;
+            this.weightDecay = weightDecay;
+        }
+
+        abstract double step(int k, double p, double g, double shrink);
+
+        void update(double[][][] params, double[][][] grads, boolean[] decay) {
+            if (a.length == 0) {
+                a = new double[Optimizer.size(params)];
+                b = new double[a.length];
+            }
+            t++;
+            int k = 0;
+            for (int s = 0; s < params.length; s++)
+                for (int i = 0; i < params[s].length; i++)
+                    for (int j = 0; j < params[s][i].length; j++, k++)
+                        params[s][i][j] = step(k, params[s][i][j], grads[s][i][j],
+                                decay[s] ? 1.0 - lr * weightDecay : 1.0);
+        }
+    }
+
+    private static boolean checkFormula(String name, Optimizer optimizer, Reference reference) {
+        Random random = new Random(name.hashCode());
+        int[][] shapes = {{7, 5}, {1, 5}, {5, 3}, {1, 3}};
+        boolean[] decay = {true, false, true, false};
+        double[][][] params = new double[shapes.length][][], expected = new double[shapes.length][][];
+        double[][][] grads = new double[shapes.length][][];
+        for (int s = 0; s < shapes.length; s++) {
+            params[s] = gaussian(shapes[s][0], shapes[s][1], random);
+            expected[s] = copy(params[s]);
+            grads[s] = new double[shapes[s][0]][shapes[s][1]];
+        }
+
+        double worst = 0.0;
+        for (int step = 0; step < STEPS; step++) {
+            for (int s = 0; s < shapes.length; s++) grads[s] = gaussian(shapes[s][0], shapes[s][1], random);
+            optimizer.update(params, grads, decay);
+            reference.update(expected, grads, decay);
+        }
+        for (int s = 0; s < shapes.length; s++)
+            for (int i = 0; i < params[s].length; i++)
+                for (int j = 0; j < params[s][i].length; j++) {
+                    double x = params[s][i][j], y = expected[s][i][j];
+                    worst = Math.max(worst, Math.abs(x - y) / Math.max(1.0, Math.abs(y)));
+                }
+
+        boolean ok = worst <= TOLERANCE;
+        System.out.printf("%s %-12s %d steps vs reference formulas: max error %.2e%n", ok ? "✔" : "✘", name, STEPS, worst);
+        return ok;
+    }
+
+    // ---------------- SGD ---------------- //
+
+    private static boolean checkSgd(double[][] X, double[][] Y) {
+        Sequential expected = DataParallelCheck.model(1, 0), actual = DataParallelCheck.model(1, 0);
+        Optimizer sgd = new SGD(LEARNING_RATE);
+        for (int start = 0; start + BATCH <= 20 * BATCH; start += BATCH) {
+            double[][] x = DataParallelCheck.slice(X, start, BATCH), y = DataParallelCheck.slice(Y, start, BATCH);
+            expected.forward(x, true);
+            expected.backward(y);
+            expected.update(LEARNING_RATE);
+            actual.forward(x, true);
+            actual.backward(y);
+            actual.update(sgd);
+        }
+
+        boolean ok = DataParallelCheck.hash(expected) == DataParallelCheck.hash(actual);
+        System.out.println((ok ? "✔" : "✘") + " SGD optimizer matches Sequential.update(learningRate) bit for bit");
+        return ok;
+    }
+
+    // ---------------- Allocation ---------------- //
+
+    private static boolean checkAllocation() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("⚠️ Thread allocation counters are not supported by this JVM");
+            return true;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Sequential model = DataParallelCheck.model(2, 0);
+        Optimizer[] optimizers = optimizers();
+        for (int step = 0; step < 5000; step++)
+            for (Optimizer optimizer : optimizers) model.update(optimizer);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int step = 0; step < 200; step++)
+            for (Optimizer optimizer : optimizers) model.update(optimizer);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        boolean ok = allocated == 0;
+        System.out.printf("%s %d updates of every optimizer allocated %d bytes%n", ok ? "✔" : "✘", 200, allocated);
+        return ok;
+    }
+
+    // ---------------- Training ---------------- //
+
+    private static boolean checkTraining(double[][] X, double[][] Y) {
+        String[] names = {"sgd", "momentum", "nesterov", "rmsprop", "adam", "adamw"};
+        Optimizer[] optimizers = optimizers();
+        double sgdLoss = 0.0;
+        boolean ok = true;
+        for (int o = 0; o < optimizers.length; o++) {
+            Sequential model = DataParallelCheck.model(3, 0);
+            Loss loss = new Loss();
+            double lastQuarter = 0.0;
+            int batches = X.length / BATCH;
+            for (int b = 0; b < batches; b++) {
+                double[][] x = DataParallelCheck.slice(X, b * BATCH, BATCH), y = DataParallelCheck.slice(Y, b * BATCH, BATCH);
+                double[][] predictions = model.forward(x, true);
+                if (b >= batches - batches / 4) lastQuarter += loss.calculate_batch_loss(y, predictions) / (batches / 4);
+                model.backward(y);
+                model.update(optimizers[o]);
+            }
+
+            if (o == 0) sgdLoss = lastQuarter;
+            boolean better = o == 0 || lastQuarter < sgdLoss;
+            ok &= better;
+            System.out.printf("%s %-9s training loss over the last quarter of an epoch: %.4f%n",
+                    better ? "✔" : "✘", names[o], lastQuarter);
+        }
+        return ok;
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    // One of each, in the order of the names above
+    private static Optimizer[] optimizers() {
+        return new Optimizer[]{
+                new SGD(LEARNING_RATE),
+                new Momentum(LEARNING_RATE, 0.9, false),
+                new Momentum(LEARNING_RATE, 0.9, true),
+                new RMSProp(LEARNING_RATE),
+                new Adam(LEARNING_RATE),
+                new Adam(LEARNING_RATE, 0.9, 0.999, 1e-8, 0.01),
+        };
+    }
+
+    private static double[][] gaussian(int rows, int cols, Random random) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m)
+            for (int j = 0; j < cols; j++) row[j] = random.nextGaussian();
+        return m;
+    }
+
+    private static double[][] copy(double[][] a) {
+        double[][] result = new double[a.length][];
+        for (int i = 0; i < a.length; i++) result[i] = a[i].clone();
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package org.example;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Shared ForkJoin pool used by the matrix kernels and activation functions.
+ *
+ * Parallelism defaults to the number of available processors and can be set with the
+ * {@code nn.parallelism} system property or {@link #setParallelism(int)}. Work below
+ * {@link #THRESHOLD} (counted in multiply-adds or elements) always runs on the calling
+ * thread, so the small products of a single sample never pay scheduling overhead.
+ */
+public class Parallel {
+
+    // Minimum amount of work (multiply-adds / elements) worth handing to the pool
+    static final long THRESHOLD = 1L << 18;
+
+    // Tasks per worker, so uneven tiles still balance out
+    private static final int TASKS_PER_THREAD = 4;
+
+    private static volatile ForkJoinPool pool = new ForkJoinPool(defaultParallelism());
+
+    public interface RowRange {
+        void run(int from, int to);
+    }
+
+    public interface Tile {
+        void run(int rowFrom, int rowTo, int colFrom, int colTo);
+    }
+
+    // ---------------- Configuration ---------------- //
+
+    public static int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Replace the shared pool with one of the given size (1 = always single-threaded).
+     * Safe while other threads run kernels: work already in the old pool finishes there,
+     * and a call that read the old pool just before the switch resubmits to the new one.
+     */
+    public static synchronized void setParallelism(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        if (threads == pool.getParallelism()) return;
+
+        ForkJoinPool old = pool;
+        pool = new ForkJoinPool(threads);
+        old.shutdown();
+    }
+
+    private static int defaultParallelism() {
+        String configured = System.getProperty("nn.parallelism");
+        if (configured != null) {
+            try {
+                return Math.max(1, Integer.parseInt(configured.trim()));
+            } catch (NumberFormatException e) {
+                System.err.println("⚠️ Ignoring invalid nn.parallelism: " + configured);
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    // ---------------- Execution ---------------- //
+
+    /**
+     * True when this much work would run on the calling thread anyway. Hot callers check
+     * this first and call their body directly, so the inline path allocates no lambda.
+     */
+    public static boolean runsInline(long work) {
+        return pool.getParallelism() == 1 || work < THRESHOLD;
+    }
+
+    /**
+     * Run body over [0, rows), split into row ranges when the total work is large enough
+     * @param rows Number of rows
+     * @param workPerRow Cost of one row (e.g. its number of columns)
+     * @param body Invoked once per disjoint range
+     */
+    public static void forRows(int rows, long workPerRow, RowRange body) {
+        forTiles(rows, 1, 1, workPerRow, (r0, r1, c0, c1) -> body.run(r0, r1));
+    }
+
+    /**
+     * Run body over the [rows x cols] output, split into disjoint 2D tiles when the
+     * total work is large enough. Rows are split on multiples of {@code rowAlign} so
+     * register-blocked kernels keep their full row groups.
+     * @param rows Number of output rows
+     * @param cols Number of output columns
+     * @param rowAlign Row split granularity
+     * @param workPerCell Cost of one output element (e.g. the reduction length)
+     * @param body Invoked once per tile
+     */
+    public static void forTiles(int rows, int cols, int rowAlign, long workPerCell, Tile body) {
+        ForkJoinPool p = pool;
+        long total = (long) rows * cols * workPerCell;
+
+        if (p.getParallelism() == 1 || total < THRESHOLD) {
+            body.run(0, rows, 0, cols);
+            return;
+        }
+
+        long grain = Math.max(THRESHOLD / 2, total / ((long) p.getParallelism() * TASKS_PER_THREAD));
+        TileTask task = new TileTask(body, 0, rows, 0, cols, rowAlign, workPerCell, grain);
+
+        if (ForkJoinTask.getPool() == p) {
+            task.invoke();
+        } else {
+            try {
+                p.invoke(task);
+            } catch (RejectedExecutionException e) {
+                // setParallelism shut p down after it was read; the task never started
+                if (!p.isShutdown()) throw e;
+                forTiles(rows, cols, rowAlign, workPerCell, body);
+            }
+        }
+    }
+
+    @SuppressWarnings("serial") // Never serialized; RecursiveAction is Serializable by inheritance
+    private static final class TileTask extends RecursiveAction {
+        // Columns are split on multiples of this so each tile keeps a vectorizable width
+        private static final int COL_ALIGN = 64;
+
+        private final Tile body;
+        private final int r0, r1, c0, c1, rowAlign;
+        private final long workPerCell, grain;
+
+        TileTask(Tile body, int r0, int r1, int c0, int c1, int rowAlign, long workPerCell, long grain) {
+            this.body = body;
+            this.r0 = r0;
+            this.r1 = r1;
+            this.c0 = c0;
+            this.c1 = c1;
+            this.rowAlign = rowAlign;
+            this.workPerCell = workPerCell;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = r1 - r0, cols = c1 - c0;
+            long work = (long) rows * cols * workPerCell;
+
+            if (work > grain) {
+                // Row splits keep the full output width for the vectorized inner loop,
+                // so columns are only split once the row groups run out
+                if (rows >= 2 * rowAlign) {
+                    int mid = r0 + (rows / 2 / rowAlign) * rowAlign;
+                    invokeAll(new TileTask(body, r0, mid, c0, c1, rowAlign, workPerCell, grain),
+                            new TileTask(body, mid, r1, c0, c1, rowAlign, workPerCell, grain));
+                    return;
+                }
+                if (cols >= 2 * COL_ALIGN) {
+                    int mid = c0 + (cols / 2 / COL_ALIGN) * COL_ALIGN;
+                    invokeAll(new TileTask(body, r0, r1, c0, mid, rowAlign, workPerCell, grain),
+                            new TileTask(body, r0, r1, mid, c1, rowAlign, workPerCell, grain));
+                    return;
+                }
+            }
+
+            body.run(r0, r1, c0, c1);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.example;
+
+/**
+ * Thread-scaling numbers for the parallel GEMM at the two shapes Main runs:
+ * a training batch (32x784 * 784x128) and the full test-set evaluation
+ * (10000x784 * 784x128).
+ *
+ * Run with: java -cp target/classes org.example.ParallelBenchmark
+ */
+public class ParallelBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+
+    private static final int[][] SHAPES = {
+            {32, 784, 128},
+            {10000, 784, 128},
+    };
+
+    public static void main(String[] args) {
+        System.out.printf("Available processors: %d%n%n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-22s %8s %12s %9s%n", "shape", "threads", "GFLOP/s", "scaling");
+        System.out.println("-".repeat(54));
+
+        for (int[] shape : SHAPES) {
+            int m = shape[0], k = shape[1], n = shape[2];
+            double[][] a = GemmBenchmark.randomMatrix(m, k);
+            double[][] b = GemmBenchmark.randomMatrix(k, n);
+            double[][] c = new double[m][n];
+
+            double base = 0;
+            for (int threads : THREADS) {
+                Parallel.setParallelism(threads);
+                double gflops = GemmBenchmark.gflops(m, k, n,
+                        () -> Gemm.multiplyInto(a, false, b, false, c, false));
+                if (threads == 1) base = gflops;
+
+                System.out.printf("%-22s %8d %12.2f %8.2fx%n",
+                        m + "x" + k + " * " + k + "x" + n, threads, gflops, gflops / base);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.example;
+
+/**
+ * Numeric precision used for weights, activations, gradients and the dataset.
+ * Selected with {@code -Dnn.precision=float|double} (default double).
+ */
+public enum Precision {
+    DOUBLE,
+    FLOAT;
+
+    public static Precision fromSystemProperty() {
+        String configured = System.getProperty("nn.precision", "double").trim();
+        switch (configured.toLowerCase()) {
+            case "double":
+            case "fp64":
+                return DOUBLE;
+            case "float":
+            case "fp32":
+                return FLOAT;
+            default:
+                throw new IllegalArgumentException("Unknown nn.precision: " + configured + " (expected float or double)");
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.example;
+
+import java.util.Random;
+
+/**
+ * Trains the double network (Forward/Backward) and the float network
+ * (ForwardFloat/BackwardFloat) side by side on the same synthetic 784-feature,
+ * 10-class data, from the same initial weights and with the same dropout masks,
+ * then compares gradients, weights and accuracy. Exits with status 1 if the two
+ * precisions drift apart beyond the tolerances below.
+ *
+ * Weights are compared after a fixed number of steps rather than at the end: the
+ * batch-norm backward pass divides by sqrt(var + 1e-8), so features that are almost
+ * constant over a batch amplify any rounding difference, and over a few epochs the
+ * two runs (like two double runs with different summation orders) follow different
+ * but equally good trajectories. Final accuracy is compared instead.
+ *
+ * The float network's evaluation pass is checked too: without dropout and with the
+ * running batch-norm statistics, two passes agree bit for bit, a row scores the same
+ * alone as inside the test batch, and the pass leaves the training state alone.
+ *
+ * Run with: java -cp target/classes org.example.PrecisionParityCheck
+ */
+public class PrecisionParityCheck {
+
+    private static final int INPUT = 784, H1 = 128, H2 = 64, OUTPUT = 10;
+    private static final int TRAIN = 2048, TEST = 512, BATCH = 32, EPOCHS = 3;
+    private static final double LEARNING_RATE = 0.01;
+
+    private static final double GRADIENT_TOLERANCE = 1e-3;   // relative, first step
+    private static final int WEIGHT_CHECK_STEPS = 8;
+    private static final double WEIGHT_TOLERANCE = 5e-3;     // relative, after WEIGHT_CHECK_STEPS
+    private static final double ACCURACY_TOLERANCE = 2.0;    // percentage points, after training
+    private static final double ROW_TOLERANCE = 1e-5;        // absolute, one row alone vs in the batch
+    private static final int SINGLE_ROWS = 16;
+
+    public static void main(String[] args) {
+        Random random = new Random(7);
+        double[][] prototypes = new double[OUTPUT][INPUT];
+        for (double[] p : prototypes)
+            for (int j = 0; j < INPUT; j++) p[j] = random.nextDouble();
+
+        int[] trainLabels = new int[TRAIN], testLabels = new int[TEST];
+        double[][] xTrain = sample(prototypes, trainLabels, random);
+        double[][] xTest = sample(prototypes, testLabels, random);
+        double[][] yTrain = oneHot(trainLabels);
+
+        // Identical initial parameters, rounded once to float for the float network
+        double[][] W1 = GemmBenchmark.randomMatrix(INPUT, H1), W2 = GemmBenchmark.randomMatrix(H1, H2),
+                W3 = GemmBenchmark.randomMatrix(H2, OUTPUT);
+        scale(W1, Math.sqrt(2.0 / INPUT));
+        scale(W2, Math.sqrt(2.0 / H1));
+        scale(W3, Math.sqrt(2.0 / H2));
+        double[][] b1 = new double[1][H1], b2 = new double[1][H2], b3 = new double[1][OUTPUT];
+        roundToFloat(W1);
+        roundToFloat(W2);
+        roundToFloat(W3);
+
+        float[][] fW1 = FloatOps.toFloat(W1), fW2 = FloatOps.toFloat(W2), fW3 = FloatOps.toFloat(W3);
+        float[][] fb1 = new float[1][H1], fb2 = new float[1][H2], fb3 = new float[1][OUTPUT];
+        float[][] fxTrain = FloatOps.toFloat(xTrain), fyTrain = FloatOps.toFloat(yTrain);
+
+        Forward forward = new Forward();
+        Backward backward = new Backward();
+        backward.setForward(forward);
+        ForwardFloat fForward = new ForwardFloat();
+        BackwardFloat fBackward = new BackwardFloat();
+        fBackward.setForward(fForward);
+
+        forward.setRandomSeed(11);
+        fForward.setRandomSeed(11);
+
+        double firstStepGradientError = -1, weightError = -1;
+        int step = 0;
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            for (int start = 0; start < TRAIN; start += BATCH) {
+                int end = Math.min(TRAIN, start + BATCH);
+                double[][] x = java.util.Arrays.copyOfRange(xTrain, start, end);
+                double[][] y = java.util.Arrays.copyOfRange(yTrain, start, end);
+                float[][] fx = java.util.Arrays.copyOfRange(fxTrain, start, end);
+                float[][] fy = java.util.Arrays.copyOfRange(fyTrain, start, end);
+
+                // Same call sequence as Main, so both networks consume their RNGs identically
+                Workspace gradients = backward.computeGradients(x, y, W1, W2, W3, b1, b2, b3);
+                fBackward.computeGradients(fx, fy, fW1, fW2, fW3, fb1, fb2, fb3);
+
+                if (firstStepGradientError < 0) {
+                    firstStepGradientError = Math.max(relativeError(gradients.dW1, fBackward.dW1),
+                            Math.max(relativeError(gradients.dW2, fBackward.dW2),
+                                    relativeError(gradients.dW3, fBackward.dW3)));
+                }
+
+                backward.updateWeights(W1, W2, W3, b1, b2, b3, LEARNING_RATE, gradients);
+                fBackward.updateWeights(fW1, fW2, fW3, fb1, fb2, fb3, (float) LEARNING_RATE);
+
+                if (++step == WEIGHT_CHECK_STEPS) {
+                    weightError = Math.max(relativeError(W1, fW1),
+                            Math.max(relativeError(W2, fW2), relativeError(W3, fW3)));
+                }
+            }
+        }
+
+        double doubleAccuracy = accuracy(FloatOps.toFloat(forward.forward(xTest, W1, b1, W2, b2, W3, b3)), testLabels);
+        double floatAccuracy = accuracy(fForward.forward(FloatOps.toFloat(xTest), fW1, fb1, fW2, fb2, fW3, fb3), testLabels);
+
+        // Evaluation pass: nothing it computes may depend on the batch or touch the training state
+        float[][] fxTest = FloatOps.toFloat(xTest), trainingOut3 = fForward.getOut3();
+        double[] runningMean = fForward.getRunningMean().clone();
+        float[][] evaluated = fForward.forward(fxTest, fW1, fb1, fW2, fb2, fW3, fb3, false);
+        double rowError = 0;
+        for (int i = 0; i < SINGLE_ROWS; i++) {
+            float[] alone = fForward.forward(new float[][]{fxTest[i]}, fW1, fb1, fW2, fb2, fW3, fb3, false)[0];
+            for (int j = 0; j < OUTPUT; j++) rowError = Math.max(rowError, Math.abs(alone[j] - evaluated[i][j]));
+        }
+        boolean repeatable = java.util.Arrays.deepEquals(evaluated,
+                fForward.forward(fxTest, fW1, fb1, fW2, fb2, fW3, fb3, false));
+        boolean untouched = fForward.getOut3() == trainingOut3
+                && java.util.Arrays.equals(runningMean, fForward.getRunningMean());
+        double evalAccuracy = accuracy(evaluated, testLabels);
+
+        System.out.printf("First-step gradient relative error: %.2e (tolerance %.0e)%n", firstStepGradientError, GRADIENT_TOLERANCE);
+        System.out.printf("Weight relative error after %d steps: %.2e (tolerance %.0e)%n",
+                WEIGHT_CHECK_STEPS, weightError, WEIGHT_TOLERANCE);
+        System.out.printf("Test accuracy: double %.2f%%, float %.2f%% (tolerance %.1f pts)%n",
+                doubleAccuracy, floatAccuracy, ACCURACY_TOLERANCE);
+        System.out.printf("Float evaluation pass: test accuracy %.2f%%, %s, %d rows alone vs in the batch differ by %.1e "
+                + "(tolerance %.0e), training state %s%n", evalAccuracy, repeatable ? "repeatable" : "not repeatable",
+                SINGLE_ROWS, rowError, ROW_TOLERANCE, untouched ? "untouched" : "modified");
+
+        boolean ok = firstStepGradientError <= GRADIENT_TOLERANCE
+                && weightError <= WEIGHT_TOLERANCE
+                && Math.abs(doubleAccuracy - floatAccuracy) <= ACCURACY_TOLERANCE
+                && repeatable && rowError <= ROW_TOLERANCE && untouched;
+        System.out.println(ok ? "✅ float32 matches float64" : "❌ float32 diverged from float64");
+        if (!ok) System.exit(1);
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    // Noisy copies of one prototype per class, clipped to [0, 1] like normalized pixels
+    private static double[][] sample(double[][] prototypes, int[] labels, Random random) {
+        double[][] x = new double[labels.length][INPUT];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = random.nextInt(OUTPUT);
+            for (int j = 0; j < INPUT; j++)
+                x[i][j] = Math.min(1, Math.max(0, prototypes[labels[i]][j] + 0.5 * random.nextGaussian()));
+        }
+        return x;
+    }
+
+    private static double[][] oneHot(int[] labels) {
+        double[][] y = new double[labels.length][OUTPUT];
+        for (int i = 0; i < labels.length; i++) y[i][labels[i]] = 1.0;
+        return y;
+    }
+
+    private static void scale(double[][] a, double factor) {
+        for (double[] row : a)
+            for (int j = 0; j < row.length; j++) row[j] *= factor;
+    }
+
+    private static void roundToFloat(double[][] a) {
+        for (double[] row : a)
+            for (int j = 0; j < row.length; j++) row[j] = (float) row[j];
+    }
+
+    // ||a - b|| / ||a|| in the Frobenius norm
+    private static double relativeError(double[][] a, float[][] b) {
+        double diff = 0, norm = 0;
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < a[0].length; j++) {
+                double d = a[i][j] - b[i][j];
+                diff += d * d;
+                norm += a[i][j] * a[i][j];
+            }
+        }
+        return Math.sqrt(diff / Math.max(norm, Double.MIN_NORMAL));
+    }
+
+    private static double accuracy(float[][] predictions, int[] labels) {
+        int correct = 0;
+        for (int i = 0; i < predictions.length; i++) {
+            int best = 0;
+            for (int j = 1; j < predictions[i].length; j++)
+                if (predictions[i][j] > predictions[i][best]) best = j;
+            if (best == labels[i]) correct++;
+        }
+        return 100.0 * correct / predictions.length;
+    }
+}
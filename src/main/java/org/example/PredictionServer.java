@@ -0,0 +1,154 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Serves a trained model over HTTP on the loopback interface.
+ *
+ * {@code POST /predict} takes one image as its body: the raw 0-255 pixels, one byte
+ * each, in the order of the IDX files (784 bytes for MNIST). They are normalized like
+ * {@link DataSet#loadBatch} and predicted through a {@link MicroBatcher}, so requests
+ * that arrive together share one forward pass. The answer is
+ * {@code {"digit":7,"confidence":0.9931}}, the most probable class and its softmax
+ * probability. Malformed requests get status 400, other methods 405.
+ *
+ * Idle keep-alive connections sit on the HTTP server's selector and hold no thread.
+ * Each request in flight is read, parsed and parked on a handler thread while it waits
+ * in the batch: a virtual thread per request ({@link ThreadMode#VIRTUAL}, Java 21+), so
+ * the requests waiting at once are not capped by a pool, or one of a fixed pool of
+ * platform threads. Handlers never run the network: forward passes stay on the
+ * batcher's platform thread and the shared {@link Parallel} pool, which also keeps
+ * {@link InferenceEngine}'s per-thread buffers to a single set.
+ *
+ * Run with: java -cp target/classes org.example.PredictionServer [checkpoint]
+ * (-Dnn.port=8080, -Dnn.maxBatch=64, -Dnn.maxWaitMicros=1000, -Dnn.threads=virtual|platform|auto)
+ */
+public class PredictionServer implements AutoCloseable {
+
+    // Platform handler threads, and so the most requests in flight without virtual threads
+    private static final int HANDLER_THREADS = 64;
+
+    // Headers and body leave in separate writes; with Nagle's algorithm the body would wait for a delayed ACK (~40 ms)
+    static {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final MicroBatcher batcher;
+    private final ExecutorService handlers;
+    private final ThreadMode threads;
+
+    /**
+     * Start serving
+     * @param port Loopback port, 0 for any free one
+     * @param threads Request handler threads; VIRTUAL falls back to PLATFORM before Java 21
+     */
+    public PredictionServer(InferenceEngine engine, int port, int maxBatch, long maxWaitNanos,
+                            ThreadMode threads) throws IOException {
+        this.threads = threads == ThreadMode.VIRTUAL && !ThreadMode.virtualThreadsAvailable() ? ThreadMode.PLATFORM : threads;
+        this.batcher = new MicroBatcher(engine, maxBatch, maxWaitNanos);
+        this.handlers = this.threads.handlers("prediction-handler", HANDLER_THREADS);
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), HANDLER_THREADS);
+        server.createContext("/predict", this::handle);
+        server.setExecutor(handlers);
+        server.start();
+    }
+
+    // Port actually bound
+    public int port() { return server.getAddress().getPort(); }
+
+    public MicroBatcher batcher() { return batcher; }
+
+    // Handler threads actually used
+    public ThreadMode threads() { return threads; }
+
+    /**
+     * Stop accepting requests, then stop the batcher and handler threads
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        batcher.close();
+        handlers.shutdown();
+    }
+
+    // ---------------- Requests ---------------- //
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"POST an image to /predict\"}");
+                return;
+            }
+
+            byte[] pixels;
+            try (InputStream body = exchange.getRequestBody()) {
+                pixels = body.readAllBytes();
+            }
+            if (pixels.length != batcher.inputSize()) {
+                respond(exchange, 400, "{\"error\":\"expected " + batcher.inputSize() + " pixel bytes, got " + pixels.length + "\"}");
+                return;
+            }
+
+            double[] input = new double[pixels.length];
+            for (int j = 0; j < pixels.length; j++) input[j] = (pixels[j] & 0xFF) / 255.0;
+
+            MicroBatcher.Prediction prediction;
+            try {
+                prediction = batcher.predict(input);
+            } catch (CompletionException e) {
+                respond(exchange, 503, "{\"error\":\"" + e.getCause().getMessage() + "\"}");
+                return;
+            }
+            respond(exchange, 200, json(prediction));
+        }
+    }
+
+    // Shortest decimal that parses back to the same confidence
+    static String json(MicroBatcher.Prediction prediction) {
+        return String.format(Locale.ROOT, "{\"digit\":%d,\"confidence\":%s}",
+                prediction.digit(), Double.toString(prediction.confidence()));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // ---------------- Main ---------------- //
+
+    public static void main(String[] args) throws IOException {
+        Path path = Path.of(args.length > 0 ? args[0] : System.getProperty("nn.checkpoint", "models/mnist.ckpt"));
+        int port = Integer.getInteger("nn.port", 8080);
+        int maxBatch = Integer.getInteger("nn.maxBatch", 64);
+        long maxWait = Long.getLong("nn.maxWaitMicros", 1000L) * 1000;
+        ThreadMode threads = ThreadMode.fromSystemProperty();
+
+        InferenceEngine engine = new InferenceEngine(Checkpoint.load(path).model());
+        PredictionServer server = new PredictionServer(engine, port, maxBatch, maxWait, threads);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        if (server.threads() != threads)
+            System.out.printf("⚠️ Virtual threads need Java 21, this is Java %d: using %d platform handler threads%n",
+                    Runtime.version().feature(), HANDLER_THREADS);
+        System.out.printf("🚀 Serving %s (%s) on http://localhost:%d/predict, batches of up to %d, max wait %d us, %s handler threads%n",
+                path, engine, server.port(), maxBatch, maxWait / 1000, server.threads().name().toLowerCase());
+    }
+}
@@ -0,0 +1,255 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks {@link PredictionServer} and measures it under load.
+ *
+ * Correctness: answers for test images, sent one by one and from many clients at once,
+ * carry the digit and confidence {@link InferenceEngine} gives for the same pixels, and
+ * malformed requests are refused (400 for a wrong body size, 405 for GET). Thousands of
+ * idle connections start no threads and do not keep a request from being answered.
+ *
+ * Load: a built-in generator runs closed-loop clients, each sending its next image as
+ * soon as the previous answer arrives, over keep-alive loopback connections. It prints
+ * throughput, p50/p99 latency and the mean batch size, for one row per forward pass
+ * and for micro-batches with a maximum wait of 0 and 1 ms. The benefit of batching
+ * grows with the number of cores the handler threads can run on. With more clients
+ * than platform handler threads, requests queue for a handler before they reach the
+ * batcher; virtual handler threads (Java 21+) are compared when the JVM has them.
+ *
+ * Uses the same data as {@link DataParallelCheck} (MNIST when its four IDX files are
+ * passed). Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.PredictionServerBenchmark [images labels testImages testLabels]
+ */
+public class PredictionServerBenchmark {
+
+    private static final int BATCH = 32, STEPS = 100, CHECKED = 200;
+    private static final int CLIENTS = 32, MANY_CLIENTS = 256, REQUESTS = 300, WARMUP = 50, IDLE = 5000;
+
+    public static void main(String[] args) throws Exception {
+        double[][][] data = DataParallelCheck.data(args);
+        Sequential model = DataParallelCheck.model(1, 0);
+        Optimizer adam = new Adam(0.001);
+        for (int b = 0; b < STEPS; b++) {
+            model.forward(DataParallelCheck.slice(data[0], b * BATCH, BATCH), true);
+            model.backward(DataParallelCheck.slice(data[1], b * BATCH, BATCH));
+            model.update(adam);
+        }
+        InferenceEngine engine = new InferenceEngine(model);
+        byte[][] images = pixels(data[2]);
+
+        boolean ok;
+        ThreadMode threads = ThreadMode.fromSystemProperty();
+        try (PredictionServer server = new PredictionServer(engine, 0, 64, 1_000_000, threads)) {
+            ok = checkAnswers(server, engine, images) & checkConcurrent(server, engine, images) & checkErrors(server)
+                    & checkIdle(server, engine, images);
+        }
+        if (!ok) {
+            System.out.println("❌ Prediction server check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Prediction server answers match the inference engine");
+
+        System.out.printf("%nclosed-loop clients x %d requests, %d CPUs, handler threads: %s%n", REQUESTS,
+                Runtime.getRuntime().availableProcessors(), ThreadMode.virtualThreadsAvailable()
+                        ? "virtual or platform" : "platform only (virtual threads need Java 21, this is Java " + Runtime.version().feature() + ")");
+        System.out.printf("%-34s %8s %12s %10s %10s %8s%n", "server", "clients", "requests/s", "p50 us", "p99 us", "batch");
+        System.out.println("-".repeat(86));
+        load("one row per pass", engine, 1, 0, ThreadMode.PLATFORM, CLIENTS, images);
+        load("micro-batch, wait 0", engine, 64, 0, ThreadMode.PLATFORM, CLIENTS, images);
+        load("micro-batch, wait 1 ms", engine, 64, 1_000_000, ThreadMode.PLATFORM, CLIENTS, images);
+        load("micro-batch 256, platform handlers", engine, MANY_CLIENTS, 1_000_000, ThreadMode.PLATFORM, MANY_CLIENTS, images);
+        if (ThreadMode.virtualThreadsAvailable())
+            load("micro-batch 256, virtual handlers", engine, MANY_CLIENTS, 1_000_000, ThreadMode.VIRTUAL, MANY_CLIENTS, images);
+    }
+
+    // ---------------- Correctness ---------------- //
+
+    private static boolean checkAnswers(PredictionServer server, InferenceEngine engine, byte[][] images) throws IOException {
+        int wrong = 0, rows = Math.min(CHECKED, images.length);
+        for (int i = 0; i < rows; i++)
+            if (!expected(engine, images[i]).equals(post(server.port(), images[i]).body)) wrong++;
+
+        boolean ok = wrong == 0;
+        System.out.printf("%s %d sequential requests: %d answers differ from the engine%n", ok ? "✔" : "✘", rows, wrong);
+        return ok;
+    }
+
+    private static boolean checkConcurrent(PredictionServer server, InferenceEngine engine, byte[][] images) throws Exception {
+        long batchesBefore = server.batcher().batches(), requestsBefore = server.batcher().requests();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        int wrong = 0;
+        try {
+            List<Future<Integer>> results = new ArrayList<>(CLIENTS);
+            for (int c = 0; c < CLIENTS; c++) {
+                int client = c;
+                results.add(clients.submit(() -> {
+                    int errors = 0;
+                    for (int r = 0; r < 20; r++) {
+                        byte[] image = images[(client * 20 + r) % images.length];
+                        if (!expected(engine, image).equals(post(server.port(), image).body)) errors++;
+                    }
+                    return errors;
+                }));
+            }
+            for (Future<Integer> result : results) wrong += result.get();
+        } finally {
+            clients.shutdown();
+        }
+
+        long batches = server.batcher().batches() - batchesBefore, requests = server.batcher().requests() - requestsBefore;
+        boolean ok = wrong == 0 && requests == CLIENTS * 20L;
+        System.out.printf("%s %d concurrent requests in %d batches: %d answers differ from the engine%n",
+                ok ? "✔" : "✘", requests, batches, wrong);
+        return ok;
+    }
+
+    private static boolean checkErrors(PredictionServer server) throws IOException {
+        int shortBody = post(server.port(), new byte[10]).status;
+        HttpURLConnection get = (HttpURLConnection) new URL("http://localhost:" + server.port() + "/predict").openConnection();
+        int method = get.getResponseCode();
+        drain(get);
+
+        boolean ok = shortBody == 400 && method == 405;
+        System.out.printf("%s malformed requests refused: 10-byte body %d, GET %d%n", ok ? "✔" : "✘", shortBody, method);
+        return ok;
+    }
+
+    private static boolean checkIdle(PredictionServer server, InferenceEngine engine, byte[][] images) throws Exception {
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        List<Socket> idle = new ArrayList<>(IDLE);
+        boolean answered;
+        int threadsWhileIdle;
+        try {
+            for (int i = 0; i < IDLE; i++) idle.add(new Socket(InetAddress.getLoopbackAddress(), server.port()));
+            Thread.sleep(200);
+            threadsWhileIdle = ManagementFactory.getThreadMXBean().getThreadCount();
+            answered = expected(engine, images[0]).equals(post(server.port(), images[0]).body);
+        } finally {
+            for (Socket socket : idle) socket.close();
+        }
+
+        boolean ok = answered && threadsWhileIdle - threadsBefore <= 1;
+        System.out.printf("%s %d idle connections: thread count %+d, a request is still answered%n",
+                ok ? "✔" : "✘", IDLE, threadsWhileIdle - threadsBefore);
+        return ok;
+    }
+
+    private static String expected(InferenceEngine engine, byte[] image) {
+        double[] input = new double[image.length];
+        for (int j = 0; j < image.length; j++) input[j] = (image[j] & 0xFF) / 255.0;
+        double[] p = engine.predict(input);
+        int digit = 0;
+        for (int j = 1; j < p.length; j++)
+            if (p[j] > p[digit]) digit = j;
+        return PredictionServer.json(new MicroBatcher.Prediction(digit, p[digit]));
+    }
+
+    // ---------------- Load ---------------- //
+
+    private static void load(String name, InferenceEngine engine, int maxBatch, long maxWaitNanos, ThreadMode threads,
+                             int count, byte[][] images) throws Exception {
+        try (PredictionServer server = new PredictionServer(engine, 0, maxBatch, maxWaitNanos, threads)) {
+            ExecutorService clients = Executors.newFixedThreadPool(count);
+            long[][] latencies = new long[count][];
+            long batches, requests, elapsed;
+            try {
+                run(clients, server, images, WARMUP, new long[count][]);
+                batches = server.batcher().batches();
+                requests = server.batcher().requests();
+                long start = System.nanoTime();
+                run(clients, server, images, REQUESTS, latencies);
+                elapsed = System.nanoTime() - start;
+                batches = server.batcher().batches() - batches;
+                requests = server.batcher().requests() - requests;
+            } finally {
+                clients.shutdown();
+            }
+
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            System.out.printf("%-34s %8d %,12.0f %10.0f %10.0f %8.1f%n", name, count, all.length / (elapsed / 1e9),
+                    percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, (double) requests / batches);
+        }
+    }
+
+    // Every client sends count requests back to back, recording each round trip
+    private static void run(ExecutorService clients, PredictionServer server, byte[][] images, int count,
+                            long[][] latencies) throws Exception {
+        List<Future<?>> done = new ArrayList<>(latencies.length);
+        for (int c = 0; c < latencies.length; c++) {
+            int client = c;
+            done.add(clients.submit(() -> {
+                long[] times = new long[count];
+                for (int r = 0; r < count; r++) {
+                    long start = System.nanoTime();
+                    post(server.port(), images[(client * count + r) % images.length]);
+                    times[r] = System.nanoTime() - start;
+                }
+                latencies[client] = times;
+                return null;
+            }));
+        }
+        for (Future<?> f : done) f.get();
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(q * sorted.length) - 1)];
+    }
+
+    // ---------------- HTTP ---------------- //
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    // The JDK keeps the connection alive for the thread's next request once the body is read
+    private static Response post(int port, byte[] image) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/predict").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(image.length);
+        connection.setRequestProperty("Content-Type", "application/octet-stream");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(image);
+        }
+        int status = connection.getResponseCode();
+        return new Response(status, drain(connection));
+    }
+
+    private static String drain(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Test rows back to the 0-255 pixels of an IDX file
+    private static byte[][] pixels(double[][] X) {
+        byte[][] images = new byte[X.length][X[0].length];
+        for (int i = 0; i < X.length; i++)
+            for (int j = 0; j < X[i].length; j++)
+                images[i][j] = (byte) Math.round(Math.max(0.0, Math.min(1.0, X[i][j])) * 255);
+        return images;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example;
+
+/**
+ * RMSProp: s = rho * s + (1 - rho) * g^2, then p -= learningRate * g / (sqrt(s) + epsilon).
+ * Decoupled weight decay shrinks decayed tensors by (1 - learningRate * weightDecay)
+ * in the same pass.
+ */
+public class RMSProp implements Optimizer {
+
+    private double learningRate;
+    private final double rho, epsilon, weightDecay;
+
+    // Running mean of squared gradients, one per parameter element
+    private double[] meanSquare;
+
+    public RMSProp(double learningRate) {
+        this(learningRate, 0.9, 1e-8, 0.0);
+    }
+
+    /**
+     * @param rho Decay of the squared-gradient average, in [0, 1)
+     * @param epsilon Added to the root mean square to avoid dividing by zero
+     * @param weightDecay Decoupled weight decay (0 for none)
+     */
+    public RMSProp(double learningRate, double rho, double epsilon, double weightDecay) {
+        Optimizer.checkLearningRate(learningRate);
+        if (rho < 0.0 || rho >= 1.0)
+            throw new IllegalArgumentException("Rho must be in [0, 1).");
+        if (!(epsilon > 0.0))
+            throw new IllegalArgumentException("Epsilon must be positive.");
+        if (weightDecay < 0.0)
+            throw new IllegalArgumentException("Weight decay must not be negative.");
+        this.learningRate = learningRate;
+        this.rho = rho;
+        this.epsilon = epsilon;
+        this.weightDecay = weightDecay;
+    }
+
+    @Override
+    public void update(double[][][] parameters, double[][][] gradients, boolean[] decay) {
+        if (meanSquare == null) meanSquare = new double[Optimizer.size(parameters)];
+        Optimizer.checkState(meanSquare, parameters);
+
+        double[] s = meanSquare;
+        double lr = learningRate;
+        int k = 0;
+        for (int t = 0; t < parameters.length; t++) {
+            double shrink = decay[t] ? 1.0 - lr * weightDecay : 1.0;
+            for (int i = 0; i < parameters[t].length; i++) {
+                double[] p = parameters[t][i], g = gradients[t][i];
+                for (int j = 0; j < p.length; j++, k++) {
+                    double gj = g[j];
+                    double sk = rho * s[k] + (1.0 - rho) * gj * gj;
+                    s[k] = sk;
+                    p[j] = shrink * p[j] - lr * gj / (Math.sqrt(sk) + epsilon);
+                }
+            }
+        }
+    }
+
+    @Override
+    public double[][] state() {
+        return meanSquare == null ? new double[0][] : new double[][]{meanSquare};
+    }
+
+    @Override
+    public void restore(double[][] state, long steps) {
+        if (state.length != 1)
+            throw new IllegalArgumentException("RMSProp state is one mean-square buffer.");
+        meanSquare = state[0].clone();
+    }
+
+    @Override
+    public double learningRate() { return learningRate; }
+
+    @Override
+    public double weightDecay() { return weightDecay; }
+
+    @Override
+    public void setLearningRate(double learningRate) {
+        Optimizer.checkLearningRate(learningRate);
+        this.learningRate = learningRate;
+    }
+}
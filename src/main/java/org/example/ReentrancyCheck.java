@@ -0,0 +1,149 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks that training passes keep no shared mutable state:
+ *
+ * 1. One {@link Forward} and one {@link Backward} with shared, fixed weights serve many
+ *    threads at once, each thread with its own seeded {@link Workspace}. Every task's
+ *    outputs and gradients must be bit-identical to the same task run serially.
+ * 2. Several independent {@link Sequential} models train concurrently and end with
+ *    bit-identical parameters to the same models trained one after another.
+ *
+ * The serial reference runs first, largely interpreted, and the concurrent runs later
+ * on compiled code, so a kernel whose bits change under the JIT fails here too. Both
+ * kernel backends must pass: run it once as below and once with
+ * --add-modules jdk.incubator.vector.
+ *
+ * Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.ReentrancyCheck
+ */
+public class ReentrancyCheck {
+
+    private static final int INPUT = 784, H1 = 128, H2 = 64, OUTPUT = 10, BATCH = 32;
+    private static final int THREADS = 8, TASKS = 32, PASSES = 20, MODEL_STEPS = 50;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Kernels: " + Kernels.INSTANCE.getClass().getSimpleName());
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            boolean ok = checkSharedNetwork(executor) & checkIndependentModels(executor);
+            if (!ok) {
+                System.out.println("❌ Reentrancy check failed");
+                System.exit(1);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        System.out.println("✅ Concurrent passes match serial runs bit for bit");
+    }
+
+    // ---------------- Shared Forward / Backward ---------------- //
+
+    private static boolean checkSharedNetwork(ExecutorService executor) throws Exception {
+        Random random = new Random(7);
+        double[][] X = randomMatrix(TASKS * BATCH, INPUT, random, 1.0);
+        double[][] Y = new double[TASKS * BATCH][OUTPUT];
+        for (double[] row : Y) row[random.nextInt(OUTPUT)] = 1.0;
+
+        double[][] W1 = randomMatrix(INPUT, H1, random, Math.sqrt(2.0 / INPUT));
+        double[][] W2 = randomMatrix(H1, H2, random, Math.sqrt(2.0 / H1));
+        double[][] W3 = randomMatrix(H2, OUTPUT, random, Math.sqrt(2.0 / H2));
+        double[][] b1 = new double[1][H1], b2 = new double[1][H2], b3 = new double[1][OUTPUT];
+
+        Forward forward = new Forward();
+        Backward backward = new Backward();
+        backward.setForward(forward);
+
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int t = 0; t < TASKS; t++) {
+            int task = t;
+            tasks.add(() -> {
+                Workspace ws = new Workspace(BATCH, INPUT, H1, H2, OUTPUT);
+                ws.setRandomSeed(100 + task);
+                double[][] x = ws.loadBatch(X, Y, task * BATCH), y = ws.labels();
+
+                long hash = 17;
+                for (int pass = 0; pass < PASSES; pass++) {
+                    backward.computeGradients(x, y, W1, W2, W3, b1, b2, b3, ws);
+                    hash = hash(hash, ws.out3, ws.dW1, ws.db1, ws.dW2, ws.db2,
+                            ws.dW3, ws.db3, ws.dGamma1, ws.dBeta1);
+                }
+                return hash;
+            });
+        }
+
+        int mismatches = compare(executor, tasks);
+        boolean ok = mismatches == 0;
+        System.out.printf("%s %d tasks x %d passes on one Forward/Backward across %d threads: %d mismatches%n",
+                ok ? "✔" : "✘", TASKS, PASSES, THREADS, mismatches);
+        return ok;
+    }
+
+    // ---------------- Independent Models ---------------- //
+
+    private static boolean checkIndependentModels(ExecutorService executor) throws Exception {
+        double[][] x = randomMatrix(BATCH, INPUT, new Random(8), 1.0);
+        double[][] y = new double[BATCH][OUTPUT];
+        for (int i = 0; i < BATCH; i++) y[i][i % OUTPUT] = 1.0;
+
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int task = t;
+            tasks.add(() -> {
+                Sequential model = SequentialCheck.mnistModel(new Random(task), new SplittableRandom(1000 + task));
+                for (int step = 0; step < MODEL_STEPS; step++) {
+                    model.forward(x, true);
+                    model.backward(y);
+                    model.addWeightDecay(0.001);
+                    model.update(0.01);
+                }
+                return hash(17, model.parameters());
+            });
+        }
+
+        int mismatches = compare(executor, tasks);
+        boolean ok = mismatches == 0;
+        System.out.printf("%s %d models x %d training steps, concurrent vs serial: %d mismatches%n",
+                ok ? "✔" : "✘", THREADS, MODEL_STEPS, mismatches);
+        return ok;
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    // Runs every task serially, then all of them concurrently; returns how many results differ
+    private static int compare(ExecutorService executor, List<Callable<Long>> tasks) throws Exception {
+        long[] serial = new long[tasks.size()];
+        for (int t = 0; t < tasks.size(); t++) serial[t] = tasks.get(t).call();
+
+        List<Future<Long>> concurrent = executor.invokeAll(tasks);
+        int mismatches = 0;
+        for (int t = 0; t < tasks.size(); t++)
+            if (concurrent.get(t).get() != serial[t]) mismatches++;
+        return mismatches;
+    }
+
+    // Hash of the exact bit patterns, so any difference in rounding shows up
+    private static long hash(long seed, double[][]... matrices) {
+        long h = seed;
+        for (double[][] m : matrices)
+            for (double[] row : m)
+                for (double v : row) h = 31 * h + Double.doubleToLongBits(v);
+        return h;
+    }
+
+    private static double[][] randomMatrix(int rows, int cols, Random random, double scale) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m)
+            for (int j = 0; j < cols; j++) row[j] = random.nextGaussian() * scale;
+        return m;
+    }
+}
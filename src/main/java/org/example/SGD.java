@@ -0,0 +1,53 @@
+package org.example;
+
+/**
+ * Plain gradient descent: p -= learningRate * (g + weightDecay * p) for decayed tensors,
+ * p -= learningRate * g for the rest. Keeps no state.
+ */
+public class SGD implements Optimizer {
+
+    private double learningRate;
+    private final double weightDecay;
+
+    public SGD(double learningRate) {
+        this(learningRate, 0.0);
+    }
+
+    /**
+     * @param weightDecay Decoupled weight decay (0 for none)
+     */
+    public SGD(double learningRate, double weightDecay) {
+        Optimizer.checkLearningRate(learningRate);
+        if (weightDecay < 0.0)
+            throw new IllegalArgumentException("Weight decay must not be negative.");
+        this.learningRate = learningRate;
+        this.weightDecay = weightDecay;
+    }
+
+    @Override
+    public void update(double[][][] parameters, double[][][] gradients, boolean[] decay) {
+        for (int t = 0; t < parameters.length; t++) {
+            double shrink = decay[t] ? 1.0 - learningRate * weightDecay : 1.0;
+            for (int i = 0; i < parameters[t].length; i++) {
+                double[] p = parameters[t][i], g = gradients[t][i];
+                if (shrink == 1.0) {
+                    for (int j = 0; j < p.length; j++) p[j] -= learningRate * g[j];
+                } else {
+                    for (int j = 0; j < p.length; j++) p[j] = shrink * p[j] - learningRate * g[j];
+                }
+            }
+        }
+    }
+
+    @Override
+    public double learningRate() { return learningRate; }
+
+    @Override
+    public double weightDecay() { return weightDecay; }
+
+    @Override
+    public void setLearningRate(double learningRate) {
+        Optimizer.checkLearningRate(learningRate);
+        this.learningRate = learningRate;
+    }
+}
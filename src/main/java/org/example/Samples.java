@@ -0,0 +1,10 @@
+package org.example;
+
+/**
+ * Source of labelled samples, e.g. {@code DataSet::loadBatch}: decode samples
+ * order[start .. start + x.length) into x and their class indices into y.
+ * Implementations are called from several threads at once, each with its own buffers.
+ */
+public interface Samples {
+    void load(int[] order, int start, double[][] x, int[] y);
+}
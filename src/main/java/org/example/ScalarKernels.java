@@ -0,0 +1,181 @@
+package org.example;
+
+/**
+ * Plain-Java kernels. The unit-stride inner loops are left simple enough for C2 to
+ * auto-vectorize where it can.
+ */
+class ScalarKernels implements Kernels {
+
+    // ---------------- GEMM ---------------- //
+
+    @Override
+    public void gemm4(double[] aPack, double[][] bRows, int bFirst, int kCount,
+                      double[] c0, double[] c1, double[] c2, double[] c3, int from, int to) {
+        for (int k = 0; k < kCount; k++) {
+            double x0 = aPack[4 * k], x1 = aPack[4 * k + 1], x2 = aPack[4 * k + 2], x3 = aPack[4 * k + 3];
+            double[] bk = bRows[bFirst + k];
+            for (int j = from; j < to; j++) {
+                double bv = bk[j];
+                c0[j] += x0 * bv;
+                c1[j] += x1 * bv;
+                c2[j] += x2 * bv;
+                c3[j] += x3 * bv;
+            }
+        }
+    }
+
+    @Override
+    public void gemm1(double[] aCol, double[][] bRows, int bFirst, int kCount, double[] c, int from, int to) {
+        for (int k = 0; k < kCount; k++) {
+            double x = aCol[k];
+            double[] bk = bRows[bFirst + k];
+            for (int j = from; j < to; j++)
+                c[j] += x * bk[j];
+        }
+    }
+
+    @Override
+    public void gemm4(float[] aPack, float[][] bRows, int bFirst, int kCount,
+                      float[] c0, float[] c1, float[] c2, float[] c3, int from, int to) {
+        for (int k = 0; k < kCount; k++) {
+            float x0 = aPack[4 * k], x1 = aPack[4 * k + 1], x2 = aPack[4 * k + 2], x3 = aPack[4 * k + 3];
+            float[] bk = bRows[bFirst + k];
+            for (int j = from; j < to; j++) {
+                float bv = bk[j];
+                c0[j] += x0 * bv;
+                c1[j] += x1 * bv;
+                c2[j] += x2 * bv;
+                c3[j] += x3 * bv;
+            }
+        }
+    }
+
+    @Override
+    public void gemm1(float[] aCol, float[][] bRows, int bFirst, int kCount, float[] c, int from, int to) {
+        for (int k = 0; k < kCount; k++) {
+            float x = aCol[k];
+            float[] bk = bRows[bFirst + k];
+            for (int j = from; j < to; j++)
+                c[j] += x * bk[j];
+        }
+    }
+
+    // ---------------- Element-wise ---------------- //
+
+    @Override
+    public void add(double[] a, double[] b, double[] out, int n) {
+        for (int j = 0; j < n; j++)
+            out[j] = a[j] + b[j];
+    }
+
+    @Override
+    public void scale(double[] a, double scalar, double[] out, int n) {
+        for (int j = 0; j < n; j++)
+            out[j] = a[j] * scalar;
+    }
+
+    @Override
+    public void relu(double[] in, double[] out, int n) {
+        for (int j = 0; j < n; j++)
+            out[j] = Math.max(0, in[j]);
+    }
+
+    @Override
+    public void reluDerivative(double[] in, double[] out, int n) {
+        for (int j = 0; j < n; j++)
+            out[j] = in[j] > 0 ? 1.0 : 0.0;
+    }
+
+    @Override
+    public void leakyRelu(double[] in, double alpha, double[] out, int n) {
+        for (int j = 0; j < n; j++)
+            out[j] = in[j] > 0 ? in[j] : alpha * in[j];
+    }
+
+    @Override
+    public void sigmoid(double[] in, double[] out, int n) {
+        for (int j = 0; j < n; j++)
+            out[j] = 1.0 / (1.0 + Math.exp(-in[j]));
+    }
+
+    // ---------------- Fused Layer Kernels ---------------- //
+
+    @Override
+    public void biasActivation(double[] net, double[] bias, Activation activation, double[] out, int from, int to) {
+        switch (activation) {
+            case IDENTITY:
+                for (int j = from; j < to; j++)
+                    out[j] = net[j] += bias[j];
+                break;
+            case RELU:
+                for (int j = from; j < to; j++)
+                    out[j] = Math.max(0, net[j] += bias[j]);
+                break;
+            case LEAKY_RELU:
+                for (int j = from; j < to; j++) {
+                    double x = net[j] += bias[j];
+                    out[j] = x > 0 ? x : Activation.LEAKY_RELU_SLOPE * x;
+                }
+                break;
+            case SIGMOID:
+                for (int j = from; j < to; j++)
+                    out[j] = 1.0 / (1.0 + Math.exp(-(net[j] += bias[j])));
+                break;
+            case TANH:
+                for (int j = from; j < to; j++)
+                    out[j] = Math.tanh(net[j] += bias[j]);
+                break;
+            default:
+                throw new IllegalArgumentException(activation + " is not an element-wise activation.");
+        }
+    }
+
+    @Override
+    public void activationBackward(double[] dOut, double[] net, double[] out, Activation activation,
+                                   double[] dZ, double[] db, int from, int to) {
+        switch (activation) {
+            case IDENTITY:
+                for (int j = from; j < to; j++)
+                    db[j] += dZ[j] = dOut[j];
+                break;
+            case RELU:
+                for (int j = from; j < to; j++)
+                    db[j] += dZ[j] = net[j] > 0 ? dOut[j] : 0.0;
+                break;
+            case LEAKY_RELU:
+                for (int j = from; j < to; j++)
+                    db[j] += dZ[j] = net[j] > 0 ? dOut[j] : Activation.LEAKY_RELU_SLOPE * dOut[j];
+                break;
+            case SIGMOID:
+                for (int j = from; j < to; j++)
+                    db[j] += dZ[j] = dOut[j] * out[j] * (1.0 - out[j]);
+                break;
+            case TANH:
+                for (int j = from; j < to; j++)
+                    db[j] += dZ[j] = dOut[j] * (1.0 - out[j] * out[j]);
+                break;
+            default:
+                throw new IllegalArgumentException(activation + " is not an element-wise activation.");
+        }
+    }
+
+    // ---------------- Reductions ---------------- //
+
+    @Override
+    public double max(double[] row, int n) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < n; j++)
+            max = Math.max(max, row[j]);
+        return max;
+    }
+
+    @Override
+    public double sumExp(double[] row, double max, double[] expRow, int n) {
+        double sum = 0;
+        for (int j = 0; j < n; j++) {
+            expRow[j] = Math.exp(row[j] - max);
+            sum += expRow[j];
+        }
+        return sum;
+    }
+}
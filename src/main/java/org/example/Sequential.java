@@ -0,0 +1,269 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A stack of {@link Layer}s trained end to end, e.g. the MNIST network of {@link Main}:
+ * <pre>
+ * new Sequential(784)
+ *         .add(new DenseLayer(128, Activation.RELU))
+ *         .add(new DropoutLayer(0.3))
+ *         .add(new DenseLayer(64, Activation.RELU))
+ *         .add(new BatchNormLayer())
+ *         .add(new DenseLayer(10, Activation.SOFTMAX));
+ * </pre>
+ * The model owns every parameter and gradient. For each batch size it meets it
+ * allocates one chain of layer states (outputs, saved values, input gradients) and
+ * reuses it, so after the first batch of a given size forward, backward and update
+ * allocate nothing. The output of {@link #forward} is one of those buffers and is
+ * overwritten by the next call with the same batch size. Not thread-safe.
+ */
+public class Sequential {
+
+    // Chains kept at once: typically the training batch, a short last batch and evaluation
+    private static final int MAX_GRAPHS = 3;
+
+    private final int inputSize;
+    private final Random random;
+    private final List<Layer> layerList = new ArrayList<>();
+    private int outputSize;
+
+    // Flattened after each add() so the hot loops iterate plain arrays
+    private Layer[] layers = new Layer[0];
+    private double[][][] parameters = new double[0][][], gradients = new double[0][][];
+
+    // Non-trainable layer state (running statistics), in layer order
+    private double[][][] buffers = new double[0][][];
+
+    // Weight matrices subject to weight decay, and their gradients
+    private double[][][] regularized = new double[0][][], regularizedGradients = new double[0][][];
+
+    // decay[p]: parameters[p] is one of the regularized weight matrices
+    private boolean[] decay = new boolean[0];
+
+    private final Map<Integer, Graph> graphs = new LinkedHashMap<>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Graph> eldest) {
+            return size() > MAX_GRAPHS;
+        }
+    };
+
+    // Graph of the last forward pass, which backward() continues from
+    private Graph last;
+
+    private static final class Graph {
+        final Layer.State[] states;
+
+        // inputs[i] is what layer i saw; inputs[layers] is the model output
+        final double[][][] inputs;
+
+        Graph(Layer[] layers, int batchSize) {
+            states = new Layer.State[layers.length];
+            for (int i = 0; i < layers.length; i++) states[i] = layers[i].allocate(batchSize);
+            inputs = new double[layers.length + 1][][];
+        }
+    }
+
+    public Sequential(int inputSize) {
+        this(inputSize, new Random());
+    }
+
+    /**
+     * @param random Source for weight initialization, or null for zero weights that the
+     *               caller fills in (see {@link Layer#build})
+     */
+    public Sequential(int inputSize, Random random) {
+        if (inputSize < 1)
+            throw new IllegalArgumentException("Input size must be at least 1.");
+        this.inputSize = inputSize;
+        this.outputSize = inputSize;
+        this.random = random;
+    }
+
+    /**
+     * Append a layer, creating its parameters for the current output width
+     */
+    public Sequential add(Layer layer) {
+        outputSize = layer.build(outputSize, random);
+        layerList.add(layer);
+        graphs.clear();
+        last = null;
+
+        layers = layerList.toArray(new Layer[0]);
+        List<double[][]> p = new ArrayList<>(), g = new ArrayList<>(), r = new ArrayList<>(), rg = new ArrayList<>();
+        List<double[][]> bf = new ArrayList<>();
+        for (Layer l : layers) {
+            double[][][] lp = l.parameters(), lg = l.gradients();
+            p.addAll(List.of(lp));
+            g.addAll(List.of(lg));
+            bf.addAll(List.of(l.buffers()));
+            for (double[][] w : l.regularized())
+                for (int k = 0; k < lp.length; k++)
+                    if (lp[k] == w) {
+                        r.add(w);
+                        rg.add(lg[k]);
+                    }
+        }
+        parameters = p.toArray(new double[0][][]);
+        gradients = g.toArray(new double[0][][]);
+        buffers = bf.toArray(new double[0][][]);
+        regularized = r.toArray(new double[0][][]);
+        regularizedGradients = rg.toArray(new double[0][][]);
+        decay = new boolean[parameters.length];
+        for (int k = 0; k < parameters.length; k++) decay[k] = r.contains(parameters[k]);
+        return this;
+    }
+
+    public int inputSize() { return inputSize; }
+
+    public int outputSize() { return outputSize; }
+
+    public List<Layer> layers() { return List.of(layers); }
+
+    // ---------------- Forward ---------------- //
+
+    /**
+     * Inference forward pass (dropout off)
+     */
+    public double[][] forward(double[][] input) {
+        return forward(input, false);
+    }
+
+    /**
+     * @param input Batch [batchSize x inputSize]
+     * @param training True for a training step (dropout on; enables {@link #backward})
+     * @return The model output [batchSize x outputSize], a reused buffer
+     */
+    public double[][] forward(double[][] input, boolean training) {
+        if (input[0].length != inputSize)
+            throw new IllegalArgumentException("Input has " + input[0].length + " features, model expects " + inputSize + ".");
+
+        Graph graph = graphs.get(input.length);
+        if (graph == null) {
+            graph = new Graph(layers, input.length);
+            graphs.put(input.length, graph);
+        }
+
+        double[][] x = input;
+        for (int i = 0; i < layers.length; i++) {
+            graph.inputs[i] = x;
+            x = layers[i].forward(x, graph.states[i], training);
+        }
+        graph.inputs[layers.length] = x;
+
+        last = training ? graph : null;
+        return x;
+    }
+
+    // ---------------- Backward ---------------- //
+
+    /**
+     * Gradients of the loss against dense labels, for the last training forward pass.
+     * The output layer must be a {@link DenseLayer}, and its activation picks the loss
+     * ({@link LossFunction#forOutput}): cross-entropy for SOFTMAX, whose gradient is
+     * probabilities - labels as in {@link Backward}, binary cross-entropy for SIGMOID,
+     * mean squared error for IDENTITY. The loss comes out of the same pass, from the
+     * output layer's logits.
+     * @return Mean loss of the batch (without regularization)
+     */
+    public double backward(double[][] labels) {
+        DenseLayer output = outputLayer();
+        Graph graph = last;
+        int n = layers.length;
+        double loss = output.lossGradient(labels, LossFunction.forOutput(output.activation()), graph.states[n - 1]);
+        backpropagate(graph);
+        return loss;
+    }
+
+    /**
+     * Same with one class index per row, for classification: no label matrix is built,
+     * and the loss reads only the labelled column of each row
+     * @return Mean loss of the batch (without regularization)
+     */
+    public double backward(int[] labels) {
+        DenseLayer output = outputLayer();
+        Graph graph = last;
+        int n = layers.length;
+        double loss = output.lossGradient(labels, LossFunction.forOutput(output.activation()), graph.states[n - 1]);
+        backpropagate(graph);
+        return loss;
+    }
+
+    private DenseLayer outputLayer() {
+        if (last == null)
+            throw new IllegalStateException("backward() needs a preceding forward(input, true).");
+        int n = layers.length;
+        if (n == 0 || !(layers[n - 1] instanceof DenseLayer))
+            throw new IllegalArgumentException("Backward needs a DenseLayer as the output layer.");
+        return (DenseLayer) layers[n - 1];
+    }
+
+    // From the output layer's dZ, already set by the loss, down to the first layer
+    private void backpropagate(Graph graph) {
+        int n = layers.length;
+        double[][] d = ((DenseLayer) layers[n - 1]).backwardLinear(graph.inputs[n - 1], graph.states[n - 1], n > 1);
+        for (int i = n - 2; i >= 0; i--)
+            d = layers[i].backward(graph.inputs[i], d, graph.states[i], i > 0);
+    }
+
+    // ---------------- Parameters ---------------- //
+
+    /**
+     * Every trainable parameter, in layer order; gradients() is aligned with it
+     */
+    public double[][][] parameters() {
+        return parameters;
+    }
+
+    public double[][][] gradients() {
+        return gradients;
+    }
+
+    /**
+     * Every layer's non-trainable state (batch-norm running statistics), in layer order
+     */
+    public double[][][] buffers() {
+        return buffers;
+    }
+
+    /**
+     * Plain gradient descent: p -= learningRate * grad for every parameter
+     */
+    public void update(double learningRate) {
+        for (int p = 0; p < parameters.length; p++) {
+            double[][] param = parameters[p], grad = gradients[p];
+            for (int i = 0; i < param.length; i++)
+                for (int j = 0; j < param[i].length; j++)
+                    param[i][j] -= learningRate * grad[i][j];
+        }
+    }
+
+    /**
+     * One step of the given optimizer over every parameter; decoupled weight decay, if
+     * the optimizer has any, applies to the weight matrices only
+     */
+    public void update(Optimizer optimizer) {
+        optimizer.update(parameters, gradients, decay);
+    }
+
+    /**
+     * L2 penalty of the weight matrices (see {@link Techniques#l2Regularization})
+     */
+    public double l2Regularization(double lambda) {
+        double sum = 0.0;
+        for (double[][] w : regularized) sum += Techniques.l2Regularization(w, lambda);
+        return sum;
+    }
+
+    /**
+     * Add lambda * W to the gradient of every weight matrix
+     */
+    public void addWeightDecay(double lambda) {
+        for (int k = 0; k < regularized.length; k++)
+            Techniques.addWeightDecay(regularizedGradients[k], regularized[k], lambda);
+    }
+}
@@ -0,0 +1,229 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Checks {@link Sequential} against the hardcoded network and against numerical gradients.
+ *
+ * 1. The MNIST stack built from layers, given the same weights and dropout seed as
+ *    {@link Forward}, produces bit-identical outputs, and {@link Backward} agrees on the
+ *    gradients that do not pass through batch-norm backward (output layer, gamma, beta).
+ *    The lower layers differ on purpose: Backward feeds the batch-norm output where the
+ *    layer input belongs, BatchNormLayer uses the input.
+ * 2. Every parameter gradient of a small stack using each layer type matches central
+ *    differences of the summed cross-entropy.
+ * 3. A steady-state training step (forward, backward, weight decay, update) allocates nothing.
+ * 4. A deeper stack (five hidden layers) reduces its loss on a learnable synthetic task.
+ *
+ * Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.SequentialCheck
+ */
+public class SequentialCheck {
+
+    private static final int INPUT = 784, H1 = 128, H2 = 64, OUTPUT = 10, BATCH = 32;
+    private static final double GRADIENT_TOLERANCE = 1e-6;
+
+    public static void main(String[] args) {
+        boolean ok = checkParity() & checkGradients() & checkAllocation() & checkDeepTraining();
+        if (!ok) {
+            System.out.println("❌ Sequential check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Sequential matches the hardcoded network and numerical gradients");
+    }
+
+    static Sequential mnistModel(Random random, SplittableRandom dropout) {
+        return new Sequential(INPUT, random)
+                .add(new DenseLayer(H1, Activation.RELU))
+                .add(new DropoutLayer(0.3, dropout))
+                .add(new DenseLayer(H2, Activation.RELU))
+                .add(new BatchNormLayer())
+                .add(new DenseLayer(OUTPUT, Activation.SOFTMAX));
+    }
+
+    // ---------------- Parity ---------------- //
+
+    private static boolean checkParity() {
+        Sequential model = mnistModel(new Random(1), new SplittableRandom(5));
+        DenseLayer l1 = (DenseLayer) model.layers().get(0), l2 = (DenseLayer) model.layers().get(2),
+                l3 = (DenseLayer) model.layers().get(4);
+
+        double[][] x = GemmBenchmark.randomMatrix(BATCH, INPUT), y = oneHot(BATCH, new Random(2));
+        double[][] W1 = copy(l1.weights()), W2 = copy(l2.weights()), W3 = copy(l3.weights());
+        double[][] b1 = copy(l1.bias()), b2 = copy(l2.bias()), b3 = copy(l3.bias());
+
+        Forward forward = new Forward();
+        Backward backward = new Backward();
+        backward.setForward(forward);
+        Workspace ws = new Workspace(BATCH, INPUT, H1, H2, OUTPUT);
+
+        // Backward re-runs the forward pass, so it draws the same dropout mask as the model
+        ws.setRandomSeed(5);
+        backward.computeGradients(x, y, W1, W2, W3, b1, b2, b3, ws);
+        double[][] expected = copy(ws.out3);
+
+        double[][] actual = model.forward(x, true);
+        model.backward(y);
+
+        double[][][] g = model.gradients();
+        boolean outputs = Arrays.deepEquals(expected, actual);
+        // Parameter order: W1, b1, W2, b2, gamma, beta, W3, b3
+        boolean gradients = Arrays.deepEquals(g[4], ws.dGamma1) && Arrays.deepEquals(g[5], ws.dBeta1)
+                && Arrays.deepEquals(g[6], ws.dW3) && Arrays.deepEquals(g[7], ws.db3);
+
+        System.out.println((outputs ? "✔" : "✘") + " forward output matches Forward bit for bit");
+        System.out.println((gradients ? "✔" : "✘") + " dW3, db3, dGamma, dBeta match Backward bit for bit");
+        return outputs && gradients;
+    }
+
+    // ---------------- Numerical Gradients ---------------- //
+
+    private static boolean checkGradients() {
+        Random random = new Random(3);
+        Sequential model = new Sequential(7, random)
+                .add(new DenseLayer(6, Activation.TANH))
+                .add(new BatchNormLayer())
+                .add(new DenseLayer(5, Activation.IDENTITY))
+                .add(new ActivationLayer(Activation.SIGMOID))
+                .add(new DenseLayer(5, Activation.LEAKY_RELU))
+                .add(new DropoutLayer(0.0))
+                .add(new DenseLayer(4, Activation.SOFTMAX));
+
+        int batch = 6;
+        double[][] x = new double[batch][7];
+        for (double[] row : x)
+            for (int j = 0; j < row.length; j++) row[j] = random.nextGaussian();
+        double[][] y = new double[batch][4];
+        for (int i = 0; i < batch; i++) y[i][random.nextInt(4)] = 1.0;
+
+        model.forward(x, true);
+        model.backward(y);
+
+        double worst = 0.0;
+        double[][][] params = model.parameters(), grads = model.gradients();
+        for (int p = 0; p < params.length; p++) {
+            double[][] analytic = copy(grads[p]);
+            for (int i = 0; i < params[p].length; i++) {
+                for (int j = 0; j < params[p][i].length; j++) {
+                    double saved = params[p][i][j], h = 1e-6;
+                    params[p][i][j] = saved + h;
+                    double plus = crossEntropy(model.forward(x, true), y);
+                    params[p][i][j] = saved - h;
+                    double minus = crossEntropy(model.forward(x, true), y);
+                    params[p][i][j] = saved;
+
+                    double numeric = (plus - minus) / (2 * h);
+                    double error = Math.abs(numeric - analytic[i][j]) / Math.max(1.0, Math.abs(numeric) + Math.abs(analytic[i][j]));
+                    worst = Math.max(worst, error);
+                }
+            }
+        }
+
+        boolean ok = worst <= GRADIENT_TOLERANCE;
+        System.out.printf("%s analytic gradients of all layer types vs central differences: max error %.2e%n",
+                ok ? "✔" : "✘", worst);
+        return ok;
+    }
+
+    // Summed over the batch: the loss whose gradient is probabilities - labels
+    private static double crossEntropy(double[][] probabilities, double[][] labels) {
+        double loss = 0.0;
+        for (int i = 0; i < probabilities.length; i++)
+            for (int j = 0; j < probabilities[i].length; j++)
+                if (labels[i][j] != 0) loss -= labels[i][j] * Math.log(probabilities[i][j]);
+        return loss;
+    }
+
+    // ---------------- Allocation ---------------- //
+
+    private static boolean checkAllocation() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("⚠️ Thread allocation counters are not supported by this JVM");
+            return true;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // Above the threshold the parallel path allocates ForkJoin tasks (see AllocationCheck)
+        int parallelism = Parallel.parallelism();
+        Parallel.setParallelism(1);
+
+        Sequential model = mnistModel(new Random(4), new SplittableRandom(4));
+        double[][] x = GemmBenchmark.randomMatrix(BATCH, INPUT), y = oneHot(BATCH, new Random(5));
+        for (int step = 0; step < 10000; step++) step(model, x, y);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int step = 0; step < 500; step++) step(model, x, y);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        Parallel.setParallelism(parallelism);
+
+        boolean ok = allocated == 0;
+        System.out.printf("%s training step allocated %d bytes over 500 steps%n", ok ? "✔" : "✘", allocated);
+        return ok;
+    }
+
+    private static void step(Sequential model, double[][] x, double[][] y) {
+        model.forward(x, true);
+        model.backward(y);
+        model.addWeightDecay(0.001);
+        model.update(0.001);
+    }
+
+    // ---------------- Depth ---------------- //
+
+    private static boolean checkDeepTraining() {
+        Random random = new Random(6);
+        Sequential model = new Sequential(20, random);
+        for (int layer = 0; layer < 5; layer++)
+            model.add(new DenseLayer(32, Activation.RELU)).add(new BatchNormLayer());
+        model.add(new DenseLayer(4, Activation.SOFTMAX));
+
+        // The class is the index of the largest of the first four features
+        double[][] x = new double[256][20], y = new double[256][4];
+        for (int i = 0; i < x.length; i++) {
+            for (int j = 0; j < 20; j++) x[i][j] = random.nextGaussian();
+            int label = 0;
+            for (int j = 1; j < 4; j++) if (x[i][j] > x[i][label]) label = j;
+            y[i][label] = 1.0;
+        }
+
+        double[][] xb = new double[BATCH][], yb = new double[BATCH][];
+        double first = 0.0, lastLoss = 0.0;
+        for (int epoch = 0; epoch < 30; epoch++) {
+            double loss = 0.0;
+            for (int start = 0; start < x.length; start += BATCH) {
+                for (int i = 0; i < BATCH; i++) {
+                    xb[i] = x[start + i];
+                    yb[i] = y[start + i];
+                }
+                loss += crossEntropy(model.forward(xb, true), yb) / x.length;
+                model.backward(yb);
+                model.update(0.01);
+            }
+            if (epoch == 0) first = loss;
+            lastLoss = loss;
+        }
+
+        boolean ok = lastLoss < 0.5 * first;
+        System.out.printf("%s 11-layer stack: loss %.3f -> %.3f over 30 epochs%n", ok ? "✔" : "✘", first, lastLoss);
+        return ok;
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    private static double[][] oneHot(int rows, Random random) {
+        double[][] y = new double[rows][OUTPUT];
+        for (int i = 0; i < rows; i++) y[i][random.nextInt(OUTPUT)] = 1.0;
+        return y;
+    }
+
+    private static double[][] copy(double[][] a) {
+        double[][] result = new double[a.length][];
+        for (int i = 0; i < a.length; i++) result[i] = a[i].clone();
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Cross-entropy of a softmax output, from the logits.
+ *
+ * Per row: with m = max(z) and s = sum(exp(z - m)), p = exp(z - m) / s and
+ * log p_j = z_j - m - log(s), so loss = sum_j y_j (m + log(s) - z_j) and
+ * dZ = p * sum(y) - y, which is p - y for one-hot labels. The exponentials come from the
+ * same kernels as {@link Activation_Function#softmax}, so p is bit-identical to the
+ * softmax the forward pass produced.
+ */
+public class SoftmaxCrossEntropy implements LossFunction {
+
+    static final SoftmaxCrossEntropy INSTANCE = new SoftmaxCrossEntropy();
+
+    // Same guard as Loss, for loss(outputs, labels) on probabilities
+    private static final double EPSILON = 1e-15;
+
+    private static final Kernels KERNELS = Kernels.INSTANCE;
+
+    @Override
+    public Activation activation() {
+        return Activation.SOFTMAX;
+    }
+
+    @Override
+    public double forwardBackward(double[][] logits, double[][] labels, double[][] outputs, double[][] dZ, double[][] db) {
+        int cols = logits[0].length;
+        if (db != null) Arrays.fill(db[0], 0, cols, 0.0);
+
+        double total = 0.0;
+        for (int i = 0; i < logits.length; i++) {
+            double[] z = logits[i], y = labels[i], p = outputs[i], d = dZ[i];
+            double logSum = softmax(z, p, cols);
+
+            double weight = 0.0;
+            for (int j = 0; j < cols; j++) {
+                if (y[j] == 0.0) continue;
+                weight += y[j];
+                total += y[j] * (logSum - z[j]);
+            }
+            for (int j = 0; j < cols; j++) d[j] = p[j] * weight - y[j];
+            if (db != null) addTo(db[0], d, cols);
+        }
+        return total / logits.length;
+    }
+
+    @Override
+    public double forwardBackward(double[][] logits, int[] labels, double[][] outputs, double[][] dZ, double[][] db) {
+        int cols = logits[0].length;
+        if (db != null) Arrays.fill(db[0], 0, cols, 0.0);
+
+        double total = 0.0;
+        for (int i = 0; i < logits.length; i++) {
+            int label = labels[i];
+            LossFunction.checkLabel(label, cols);
+            double[] z = logits[i], p = outputs[i], d = dZ[i];
+
+            total += softmax(z, p, cols) - z[label];
+            System.arraycopy(p, 0, d, 0, cols);
+            d[label] -= 1.0;
+            if (db != null) addTo(db[0], d, cols);
+        }
+        return total / logits.length;
+    }
+
+    @Override
+    public double loss(double[][] outputs, double[][] labels) {
+        double total = 0.0;
+        for (int i = 0; i < outputs.length; i++)
+            for (int j = 0; j < outputs[i].length; j++)
+                if (labels[i][j] != 0.0) total -= labels[i][j] * Math.log(outputs[i][j] + EPSILON);
+        return total / outputs.length;
+    }
+
+    @Override
+    public double loss(double[][] outputs, int[] labels) {
+        double total = 0.0;
+        for (int i = 0; i < outputs.length; i++) {
+            LossFunction.checkLabel(labels[i], outputs[i].length);
+            total -= Math.log(outputs[i][labels[i]] + EPSILON);
+        }
+        return total / outputs.length;
+    }
+
+    // p = softmax(z); returns log(sum(exp(z))) = max + log(sum(exp(z - max)))
+    private static double softmax(double[] z, double[] p, int cols) {
+        double max = KERNELS.max(z, cols);
+        double sum = KERNELS.sumExp(z, max, p, cols);
+        for (int j = 0; j < cols; j++) p[j] /= sum;
+        return max + Math.log(sum);
+    }
+
+    static void addTo(double[] sum, double[] row, int cols) {
+        for (int j = 0; j < cols; j++) sum[j] += row[j];
+    }
+}
@@ -1,227 +1,286 @@
 package org.example;
 
-import java.util.Random;
-
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Dropout, batch normalization and regularization helpers. They keep no state of
+ * their own: masks, batch statistics and random generators are passed in by the caller
+ * (a {@link Workspace} or a {@link Layer.State}), so the helpers are safe to call from
+ * several threads and for several models at once. The only scratch is per thread.
+ */
 public class Techniques {
 
-    private static Random random = new Random();
-
-    // Store dropout mask for backpropagation
-    private static boolean[][] lastDropoutMask;
-
-    // Store batch norm statistics for backpropagation
-    private static double[] lastMean;
-    private static double[] lastVariance;
-    private static double[][] lastNormalized;
+    // Per-feature 1 / sqrt(variance + epsilon) of the batch being normalized
+    private static final ThreadLocal<double[]> INV_STD = ThreadLocal.withInitial(() -> new double[0]);
 
     // ======================= DROPOUT =======================
 
-    public static double[][] dropout(double[][] input, double dropoutRate, boolean isTraining) {
-        if (!isTraining || dropoutRate <= 0.0) {
-            return input; // No dropout during inference or if rate is 0
-        }
+    // SplitMix64 increment, as in SplittableRandom
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
 
-        int rows = input.length;
-        int cols = input[0].length;
-        double[][] result = new double[rows][cols];
+    /**
+     * Words of a dropout mask for rows of this width: one bit per unit, each row
+     * starting on a fresh word
+     */
+    public static int maskWords(int cols) {
+        return (cols + 63) >>> 6;
+    }
 
-        // Create and store dropout mask for backpropagation
-        lastDropoutMask = new boolean[rows][cols];
+    public static long[] newMask(int rows, int cols) {
+        return new long[rows * maskWords(cols)];
+    }
 
-        // Scale factor to maintain expected output during training
-        double scale = 1.0 / (1.0 - dropoutRate);
+    /**
+     * Whether the mask kept unit (row, col) of rows cols wide
+     */
+    public static boolean kept(long[] mask, int cols, int row, int col) {
+        return (mask[row * maskWords(cols) + (col >>> 6)] >>> col & 1L) != 0;
+    }
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                if (random.nextDouble() > dropoutRate) {
-                    lastDropoutMask[i][j] = true;
-                    result[i][j] = input[i][j] * scale;
-                } else {
-                    lastDropoutMask[i][j] = false;
-                    result[i][j] = 0.0;
+    /**
+     * Draw a dropout mask: each unit is kept with probability 1 - dropoutRate.
+     *
+     * One value is taken from random per call; the bits come from the SplitMix64
+     * sequence (SplittableRandom's generator) that value starts, two units per 64-bit
+     * draw. Each row reads its own stretch of that sequence, so rows are filled on any
+     * number of threads and always give the same mask for the same generator state.
+     */
+    public static void dropoutMask(SplittableRandom random, double dropoutRate, long[] mask, int rows, int cols) {
+        long seed = random.nextLong();
+
+        // Keep when a 32-bit uniform is at least rate * 2^32
+        long threshold = (long) (dropoutRate * 0x1p32);
+        if (Parallel.runsInline((long) rows * cols))
+            maskRows(seed, threshold, mask, cols, 0, rows);
+        else
+            Parallel.forRows(rows, cols, (from, to) -> maskRows(seed, threshold, mask, cols, from, to));
+    }
+
+    private static void maskRows(long seed, long threshold, long[] mask, int cols, int from, int to) {
+        int words = maskWords(cols);
+        for (int i = from; i < to; i++) {
+            // Row i starts 32 draws per word into the sequence
+            long state = seed + GOLDEN_GAMMA * ((long) i * words * 32);
+            for (int k = 0; k < words; k++) {
+                int units = Math.min(64, cols - (k << 6));
+                long bits = 0;
+                for (int t = 0; t < units; t += 2) {
+                    long z = mix64(state += GOLDEN_GAMMA);
+                    if ((z & 0xFFFFFFFFL) >= threshold) bits |= 1L << t;
+                    if ((z >>> 32) >= threshold) bits |= 2L << t;
                 }
+                // Clear the bit past an odd-width row
+                if (units < 64) bits &= (1L << units) - 1;
+                mask[i * words + k] = bits;
+                state += GOLDEN_GAMMA * (32 - ((units + 1) >>> 1));
             }
         }
+    }
 
-        return result;
+    /**
+     * Training-mode dropout into caller-owned buffers (result may be the input itself)
+     * @param random Generator the mask is drawn from (see {@link #dropoutMask})
+     * @param mask Receives the kept positions [rows x maskWords(cols)], for
+     *             {@link #dropoutBackward(double[][], double, long[], double[][])}
+     */
+    public static void dropout(double[][] input, double dropoutRate, SplittableRandom random,
+                               long[] mask, double[][] result) {
+        int rows = input.length;
+        int cols = input[0].length;
+        dropoutMask(random, dropoutRate, mask, rows, cols);
+        applyMask(input, dropoutRate, mask, result);
     }
 
     /**
-     * Backpropagation through dropout layer
+     * Backpropagation through dropout with an explicit mask, into dInput (may be dOut itself)
      */
-    public static double[][] dropoutBackward(double[][] dOut, double dropoutRate) {
-        if (lastDropoutMask == null) {
-            return dOut; // No dropout was applied in forward pass
-        }
+    public static void dropoutBackward(double[][] dOut, double dropoutRate, long[] mask, double[][] dInput) {
+        applyMask(dOut, dropoutRate, mask, dInput);
+    }
 
-        int rows = dOut.length;
-        int cols = dOut[0].length;
-        double[][] dInput = new double[rows][cols];
+    // result = kept ? input * scale : 0, element by element
+    private static void applyMask(double[][] input, double dropoutRate, long[] mask, double[][] result) {
+        int rows = input.length;
+        int cols = input[0].length;
+        int words = maskWords(cols);
 
+        // Scale factor to maintain expected output during training
         double scale = 1.0 / (1.0 - dropoutRate);
 
         for (int i = 0; i < rows; i++) {
+            double[] in = input[i], out = result[i];
             for (int j = 0; j < cols; j++) {
-                if (lastDropoutMask[i][j]) {
-                    dInput[i][j] = dOut[i][j] * scale;
-                } else {
-                    dInput[i][j] = 0.0;
-                }
+                long bits = mask[i * words + (j >>> 6)];
+                out[j] = (bits >>> j & 1L) != 0 ? in[j] * scale : 0.0;
             }
         }
+    }
 
-        return dInput;
+    // Stafford's variant 13 finalizer, the output function of SplitMix64
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 
     // ======================= BATCH NORMALIZATION =======================
 
+    /**
+     * Batch normalization by the batch's own mean and variance, as in training; the
+     * statistics are computed and discarded. Inference with running averages is
+     * {@link #batchNormalizationInference}.
+     */
     public static double[][] batchNormalization(double[][] input, double[][] gamma,
                                                 double[][] beta, double epsilon) {
         int batchSize = input.length;
         int features = input[0].length;
 
-        // Calculate mean for each feature
-        lastMean = new double[features];
-        for (int j = 0; j < features; j++) {
-            double sum = 0.0;
-            for (int i = 0; i < batchSize; i++) {
-                sum += input[i][j];
+        double[][] result = new double[batchSize][features];
+        batchNormalization(input, gamma, beta, epsilon, new double[features], new double[features],
+                new double[batchSize][features], result);
+
+        return result;
+    }
+
+    /**
+     * Batch normalization with default epsilon
+     */
+    public static double[][] batchNormalization(double[][] input, double[][] gamma, double[][] beta) {
+        return batchNormalization(input, gamma, beta, 1e-8);
+    }
+
+    /**
+     * Batch normalization into caller-owned buffers (result may be the input itself).
+     * Mean and variance come from one row-by-row Welford pass, which is stable for
+     * large offsets, and the normalize pass multiplies by a per-feature 1 / sqrt(var + eps)
+     * computed once.
+     * @param mean Receives the per-feature batch mean
+     * @param variance Receives the per-feature batch variance
+     * @param normalized Receives (x - mean) / sqrt(variance + epsilon)
+     */
+    public static void batchNormalization(double[][] input, double[][] gamma, double[][] beta, double epsilon,
+                                          double[] mean, double[] variance, double[][] normalized,
+                                          double[][] result) {
+        int batchSize = input.length;
+        int features = input[0].length;
+
+        // Welford: running mean, and the sum of squared deviations in variance
+        Arrays.fill(mean, 0, features, 0.0);
+        Arrays.fill(variance, 0, features, 0.0);
+        for (int i = 0; i < batchSize; i++) {
+            double[] x = input[i];
+            double weight = 1.0 / (i + 1);
+            for (int j = 0; j < features; j++) {
+                double delta = x[j] - mean[j];
+                mean[j] += delta * weight;
+                variance[j] += delta * (x[j] - mean[j]);
             }
-            lastMean[j] = sum / batchSize;
         }
 
-        // Calculate variance for each feature
-        lastVariance = new double[features];
+        double[] invStd = invStdScratch(features);
         for (int j = 0; j < features; j++) {
-            double sum = 0.0;
-            for (int i = 0; i < batchSize; i++) {
-                double diff = input[i][j] - lastMean[j];
-                sum += diff * diff;
-            }
-            lastVariance[j] = sum / batchSize;
+            variance[j] /= batchSize;
+            invStd[j] = 1.0 / Math.sqrt(variance[j] + epsilon);
         }
 
-        // Store normalized values for backprop
-        lastNormalized = new double[batchSize][features];
-
         // Normalize and apply gamma/beta
-        double[][] result = new double[batchSize][features];
+        double[] g = gamma[0], b = beta[0];
         for (int i = 0; i < batchSize; i++) {
+            double[] x = input[i], n = normalized[i], y = result[i];
             for (int j = 0; j < features; j++) {
-                // Normalize
-                double normalized = (input[i][j] - lastMean[j]) / Math.sqrt(lastVariance[j] + epsilon);
-                lastNormalized[i][j] = normalized;
-
-                // Scale and shift
-                result[i][j] = gamma[0][j] * normalized + beta[0][j];
+                double norm = (x[j] - mean[j]) * invStd[j];
+                n[j] = norm;
+                y[j] = g[j] * norm + b[j];
             }
         }
-
-        return result;
     }
 
     /**
-     * Batch normalization with default epsilon
+     * Inference-mode batch normalization with fixed statistics (the running averages),
+     * so each row is normalized independently of the rest of the batch
+     * @param scale Scratch [features], receives gamma / sqrt(variance + epsilon)
+     * @param shift Scratch [features], receives beta - mean * scale
      */
-    public static double[][] batchNormalization(double[][] input, double[][] gamma, double[][] beta) {
-        return batchNormalization(input, gamma, beta, 1e-8);
+    public static void batchNormalizationInference(double[][] input, double[][] gamma, double[][] beta,
+                                                   double epsilon, double[] mean, double[] variance,
+                                                   double[] scale, double[] shift, double[][] result) {
+        int features = input[0].length;
+        for (int j = 0; j < features; j++) {
+            scale[j] = gamma[0][j] / Math.sqrt(variance[j] + epsilon);
+            shift[j] = beta[0][j] - mean[j] * scale[j];
+        }
+        for (int i = 0; i < input.length; i++) {
+            double[] x = input[i], y = result[i];
+            for (int j = 0; j < features; j++) y[j] = x[j] * scale[j] + shift[j];
+        }
     }
 
     /**
-     * Backpropagation through batch normalization
+     * Backpropagation through batch normalization with explicit statistics, into dInput
      */
-    public static double[][] batchNormBackward(double[][] dOut, double[][] originalInput,
-                                               double[][] gamma, double[][] beta) {
-        if (lastMean == null || lastVariance == null || lastNormalized == null) {
-            return dOut; // No batch norm was applied
-        }
-
+    public static void batchNormBackward(double[][] dOut, double[][] originalInput, double[][] gamma,
+                                         double[] mean, double[] variance, double[][] dInput) {
         int batchSize = dOut.length;
         int features = dOut[0].length;
         double epsilon = 1e-8;
 
-        double[][] dInput = new double[batchSize][features];
-
         for (int j = 0; j < features; j++) {
-            double stdDev = Math.sqrt(lastVariance[j] + epsilon);
-
-            // Calculate intermediate gradients
-            double dVar = 0.0;
-            double dMean = 0.0;
-
-            // dVar calculation
-            for (int i = 0; i < batchSize; i++) {
-                dVar += dOut[i][j] * gamma[0][j] * (originalInput[i][j] - lastMean[j]) * (-0.5) * Math.pow(stdDev, -3);
-            }
+            // Per-feature factors, computed once instead of per element
+            double invStd = 1.0 / Math.sqrt(variance[j] + epsilon);
+            double g = gamma[0][j];
 
-            // dMean calculation
+            // One pass for the three sums: dOut, dOut * (x - mean) and (x - mean)
+            double dOutSum = 0.0, dOutCentered = 0.0, centeredSum = 0.0;
             for (int i = 0; i < batchSize; i++) {
-                dMean += dOut[i][j] * gamma[0][j] * (-1.0 / stdDev);
+                double centered = originalInput[i][j] - mean[j];
+                dOutSum += dOut[i][j];
+                dOutCentered += dOut[i][j] * centered;
+                centeredSum += centered;
             }
-            dMean += dVar * (-2.0 / batchSize) * sumColumn(originalInput, lastMean[j], j);
+            double dVar = -0.5 * g * dOutCentered * invStd * invStd * invStd;
+            double dMean = -g * invStd * dOutSum + dVar * (-2.0 / batchSize) * centeredSum;
 
             // Final dInput calculation
+            double a = g * invStd, c = 2.0 * dVar / batchSize, d = dMean / batchSize;
             for (int i = 0; i < batchSize; i++) {
-                dInput[i][j] = dOut[i][j] * gamma[0][j] / stdDev +
-                        dVar * 2.0 * (originalInput[i][j] - lastMean[j]) / batchSize +
-                        dMean / batchSize;
+                dInput[i][j] = dOut[i][j] * a + c * (originalInput[i][j] - mean[j]) + d;
             }
         }
-
-        return dInput;
     }
 
     /**
-     * Compute gamma gradients for batch normalization
+     * Gamma gradients from explicit normalized values, into dGamma [1 x features]
      */
-    public static double[][] computeGammaGradient(double[][] dOut, double[][] batchNormOutput) {
-        if (lastNormalized == null) {
-            return new double[1][dOut[0].length]; // Return zeros if no batch norm
-        }
-
+    public static void computeGammaGradient(double[][] dOut, double[][] normalized, double[][] dGamma) {
         int features = dOut[0].length;
         int batchSize = dOut.length;
-        double[][] dGamma = new double[1][features];
 
         for (int j = 0; j < features; j++) {
             double sum = 0.0;
             for (int i = 0; i < batchSize; i++) {
-                sum += dOut[i][j] * lastNormalized[i][j];
+                sum += dOut[i][j] * normalized[i][j];
             }
             dGamma[0][j] = sum;
         }
-
-        return dGamma;
     }
 
     /**
      * Compute beta gradients for batch normalization
      */
     public static double[][] computeBetaGradient(double[][] dOut) {
-        int features = dOut[0].length;
-        int batchSize = dOut.length;
-        double[][] dBeta = new double[1][features];
-
-        for (int j = 0; j < features; j++) {
-            double sum = 0.0;
-            for (int i = 0; i < batchSize; i++) {
-                sum += dOut[i][j];
-            }
-            dBeta[0][j] = sum;
-        }
-
+        double[][] dBeta = new double[1][dOut[0].length];
+        Matrix_Operations.columnSums(dOut, dBeta);
         return dBeta;
     }
 
-    /**
-     * Helper method for batch norm backprop
-     */
-    private static double sumColumn(double[][] matrix, double mean, int col) {
-        double sum = 0.0;
-        for (int i = 0; i < matrix.length; i++) {
-            sum += (matrix[i][col] - mean);
+    private static double[] invStdScratch(int features) {
+        double[] scratch = INV_STD.get();
+        if (scratch.length < features) {
+            scratch = new double[features];
+            INV_STD.set(scratch);
         }
-        return sum;
+        return scratch;
     }
 
     // ======================= REGULARIZATION =======================
@@ -297,17 +356,19 @@ public class Techniques {
         return gradient;
     }
 
-    // ======================= UTILITY METHODS =======================
-
-
-
     /**
-     * Set random seed for reproducible dropout
+     * Add the weight decay gradient (lambda * weights) to an existing gradient, in place
      */
-    public static void setRandomSeed(long seed) {
-        random = new Random(seed);
+    public static void addWeightDecay(double[][] gradient, double[][] weights, double lambda) {
+        for (int i = 0; i < gradient.length; i++) {
+            for (int j = 0; j < gradient[0].length; j++) {
+                gradient[i][j] += lambda * weights[i][j];
+            }
+        }
     }
 
+    // ======================= UTILITY METHODS =======================
+
     /**
      * Initialize gamma parameters for batch normalization (usually to 1.0)
      */
@@ -329,14 +390,4 @@ public class Techniques {
         }
         return beta;
     }
-
-    /**
-     * Clear stored values (call this between batches if needed)
-     */
-    public static void clearCache() {
-        lastDropoutMask = null;
-        lastMean = null;
-        lastVariance = null;
-        lastNormalized = null;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package org.example;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads that handle requests (I/O and waiting), as opposed to the fixed platform
+ * threads that compute forward passes.
+ * Selected with {@code -Dnn.threads=virtual|platform|auto} (default auto: virtual when
+ * the JVM has them).
+ *
+ * The project targets Java 17, so virtual threads (final in Java 21) are looked up by
+ * reflection; on an older JVM, or one that refuses them, VIRTUAL falls back to a
+ * bounded pool of platform threads.
+ */
+public enum ThreadMode {
+    VIRTUAL,
+    PLATFORM;
+
+    public static ThreadMode fromSystemProperty() {
+        String configured = System.getProperty("nn.threads", "auto").trim();
+        switch (configured.toLowerCase()) {
+            case "auto":
+                return virtualThreadsAvailable() ? VIRTUAL : PLATFORM;
+            case "virtual":
+                return VIRTUAL;
+            case "platform":
+                return PLATFORM;
+            default:
+                throw new IllegalArgumentException("Unknown nn.threads: " + configured + " (expected virtual, platform or auto)");
+        }
+    }
+
+    /**
+     * Whether this JVM can start virtual threads (Java 21 or later)
+     */
+    public static boolean virtualThreadsAvailable() {
+        ExecutorService executor = virtualPerTask();
+        if (executor == null) return false;
+        executor.shutdown();
+        return true;
+    }
+
+    /**
+     * Executor for request handlers: one new virtual thread per task, or for PLATFORM
+     * (and VIRTUAL without virtual-thread support) a fixed pool of daemon platform
+     * threads named name-0, name-1, ...
+     * @param platformThreads Size of the platform pool, which bounds the requests in flight
+     */
+    public ExecutorService handlers(String name, int platformThreads) {
+        if (this == VIRTUAL) {
+            ExecutorService executor = virtualPerTask();
+            if (executor != null) return executor;
+        }
+        AtomicInteger created = new AtomicInteger();
+        return Executors.newFixedThreadPool(platformThreads, task -> {
+            Thread thread = new Thread(task, name + "-" + created.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor(), or null before Java 21 (preview only in 19 and 20)
+    private static ExecutorService virtualPerTask() {
+        if (Runtime.version().feature() < 21) return null;
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
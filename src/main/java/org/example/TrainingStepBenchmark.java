@@ -0,0 +1,222 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Checks {@link Backward#forwardBackward} and measures what the single forward pass saves.
+ *
+ * Correctness: a step reports probabilities and leaves gradients. Replaying the network
+ * with the dropout mask saved in the workspace must reproduce the reported loss exactly,
+ * central differences of that loss (mask held fixed) must match the gradient of W3, and
+ * the first hidden layer must get gradient exactly where that mask kept a unit whose
+ * ReLU was active. (W1 and W2 are not compared with differences: their gradient runs
+ * through the batch-norm backward of {@link Backward}, which is given the layer output
+ * rather than its input.) The former sequence, a forward pass for the loss and another
+ * inside computeGradients, is held to the same mask: its gradients follow a second one.
+ *
+ * Timing: epochs of the double (workspace) and float networks, with one forward pass
+ * per step and with two.
+ *
+ * Uses the same data as {@link DataParallelCheck} (MNIST when its four IDX files are
+ * passed). Exits with status 1 on failure.
+ * Run with: java -cp target/classes org.example.TrainingStepBenchmark [images labels testImages testLabels]
+ */
+public class TrainingStepBenchmark {
+
+    private static final int INPUT = 784, H1 = 128, H2 = 64, OUTPUT = 10, BATCH = 32;
+    private static final double DROPOUT = 0.3, STEP = 1e-6, TOLERANCE = 1e-5;
+    private static final int PROBES = 20, EPOCHS = 5;
+
+    public static void main(String[] args) throws IOException {
+        double[][][] data = DataParallelCheck.data(args);
+        double[][] X = data[0], Y = data[1];
+
+        boolean ok = checkMask(X, Y);
+        if (!ok) {
+            System.out.println("❌ Training step check failed");
+            System.exit(1);
+        }
+        System.out.println("✅ Gradients follow the dropout mask of the reported loss");
+
+        benchmark(X, Y);
+    }
+
+    // ---------------- Mask consistency ---------------- //
+
+    private static boolean checkMask(double[][] X, double[][] Y) {
+        Random random = new Random(1);
+        double[][] W1 = scaled(INPUT, H1, random), W2 = scaled(H1, H2, random), W3 = scaled(H2, OUTPUT, random);
+        double[][] b1 = new double[1][H1], b2 = new double[1][H2], b3 = new double[1][OUTPUT];
+        double[][] x = DataParallelCheck.slice(X, 0, BATCH), y = DataParallelCheck.slice(Y, 0, BATCH);
+
+        Forward forward = new Forward();
+        Backward backward = new Backward();
+        backward.setForward(forward);
+        Workspace ws = new Workspace(BATCH, INPUT, H1, H2, OUTPUT, new SplittableRandom(2));
+
+        // One step: the loss it reports and the gradients it leaves
+        double reported = sumLoss(backward.forwardBackward(x, y, W1, W2, W3, b1, b2, b3, ws), y);
+        long[] mask = ws.dropoutMask.clone();
+        double[][] dW3 = copy(ws.dW3);
+        double replayed = replay(x, y, W1, b1, W2, b2, W3, b3, forward, mask);
+        double errorW3 = worstDifference(W3, dW3, x, y, W1, b1, W2, b2, W3, b3, forward, mask);
+        int misplaced = misplaced(ws, mask);
+
+        // The former step: loss from one pass, gradients from another with a fresh mask
+        forward.forward(x, W1, b1, W2, b2, W3, b3, ws);
+        long[] lossMask = ws.dropoutMask.clone();
+        backward.computeGradients(x, y, W1, W2, W3, b1, b2, b3, ws);
+        double twoPassW3 = worstDifference(W3, copy(ws.dW3), x, y, W1, b1, W2, b2, W3, b3, forward, lossMask);
+        int twoPassMisplaced = misplaced(ws, lossMask);
+
+        boolean same = reported == replayed, gradients = errorW3 <= TOLERANCE, placed = misplaced == 0;
+        System.out.printf("%s reported loss %s the replay with the saved mask (%.6f)%n",
+                same ? "✔" : "✘", same ? "equals" : "differs from", reported / BATCH);
+        System.out.printf("%s W3 gradient vs central differences under that mask: %.2e (tolerance %.0e)%n",
+                gradients ? "✔" : "✘", errorW3, TOLERANCE);
+        System.out.printf("%s hidden-layer gradient where that mask and ReLU pass: %d of %d entries misplaced%n",
+                placed ? "✔" : "✘", misplaced, BATCH * H1);
+        System.out.printf("  two forward passes: W3 gradient off by %.2e, %d hidden-layer entries misplaced%n",
+                twoPassW3, twoPassMisplaced);
+        return same && gradients && placed;
+    }
+
+    // Entries of the first hidden layer's gradient (ws.dZ1) that are zero where mask and ReLU let it through, or the reverse
+    private static int misplaced(Workspace ws, long[] mask) {
+        int count = 0;
+        for (int i = 0; i < BATCH; i++)
+            for (int j = 0; j < H1; j++)
+                if ((ws.dZ1[i][j] != 0.0) != (Techniques.kept(mask, H1, i, j) && ws.net1[i][j] > 0.0)) count++;
+        return count;
+    }
+
+    // Largest relative difference between gradient entries and central differences of the summed loss
+    private static double worstDifference(double[][] parameter, double[][] gradient, double[][] x, double[][] y,
+                                          double[][] W1, double[][] b1, double[][] W2, double[][] b2,
+                                          double[][] W3, double[][] b3, Forward forward, long[] mask) {
+        Random random = new Random(3);
+        double worst = 0.0;
+        for (int probe = 0; probe < PROBES; probe++) {
+            int i = random.nextInt(parameter.length), j = random.nextInt(parameter[0].length);
+            double original = parameter[i][j];
+            parameter[i][j] = original + STEP;
+            double plus = replay(x, y, W1, b1, W2, b2, W3, b3, forward, mask);
+            parameter[i][j] = original - STEP;
+            double minus = replay(x, y, W1, b1, W2, b2, W3, b3, forward, mask);
+            parameter[i][j] = original;
+
+            double numeric = (plus - minus) / (2 * STEP);
+            worst = Math.max(worst, Math.abs(numeric - gradient[i][j]) / Math.max(1.0, Math.abs(numeric)));
+        }
+        return worst;
+    }
+
+    // Forward pass of the network with a fixed dropout mask; returns the summed cross-entropy
+    private static double replay(double[][] x, double[][] y, double[][] W1, double[][] b1, double[][] W2,
+                                 double[][] b2, double[][] W3, double[][] b3, Forward forward, long[] mask) {
+        double[][] net1 = new double[BATCH][H1], out1 = new double[BATCH][H1];
+        FusedLayer.forward(x, W1, b1, Activation.RELU, net1, out1);
+        double scale = 1.0 / (1.0 - DROPOUT);
+        for (int i = 0; i < BATCH; i++)
+            for (int j = 0; j < H1; j++) out1[i][j] = Techniques.kept(mask, H1, i, j) ? out1[i][j] * scale : 0.0;
+
+        double[][] net2 = new double[BATCH][H2], out2 = new double[BATCH][H2];
+        FusedLayer.forward(out1, W2, b2, Activation.RELU, net2, out2);
+        Techniques.batchNormalization(out2, forward.getGamma1(), forward.getBeta1(), 1e-8,
+                new double[H2], new double[H2], new double[BATCH][H2], out2);
+
+        double[][] net3 = new double[BATCH][OUTPUT], out3 = new double[BATCH][OUTPUT];
+        FusedLayer.forward(out2, W3, b3, Activation.SOFTMAX, net3, out3);
+        return sumLoss(out3, y);
+    }
+
+    // Backward's gradients are those of the summed (not averaged) cross-entropy
+    private static double sumLoss(double[][] predictions, double[][] labels) {
+        return new Loss().calculate_batch_loss(labels, predictions) * predictions.length;
+    }
+
+    // ---------------- Timing ---------------- //
+
+    private static void benchmark(double[][] X, double[][] Y) {
+        int steps = X.length / BATCH;
+        Random random = new Random(4);
+        double[][] W1 = scaled(INPUT, H1, random), W2 = scaled(H1, H2, random), W3 = scaled(H2, OUTPUT, random);
+        double[][] b1 = new double[1][H1], b2 = new double[1][H2], b3 = new double[1][OUTPUT];
+
+        Forward forward = new Forward();
+        Backward backward = new Backward();
+        Loss loss = new Loss();
+        backward.setForward(forward);
+        Workspace ws = new Workspace(BATCH, INPUT, H1, H2, OUTPUT, new SplittableRandom(5));
+
+        ForwardFloat fForward = new ForwardFloat();
+        BackwardFloat fBackward = new BackwardFloat();
+        fBackward.setForward(fForward);
+        float[][] fW1 = FloatOps.toFloat(W1), fW2 = FloatOps.toFloat(W2), fW3 = FloatOps.toFloat(W3);
+        float[][] fb1 = FloatOps.toFloat(b1), fb2 = FloatOps.toFloat(b2), fb3 = FloatOps.toFloat(b3);
+        float[][][] fx = new float[steps][][], fy = new float[steps][][];
+        for (int s = 0; s < steps; s++) {
+            fx[s] = FloatOps.toFloat(DataParallelCheck.slice(X, s * BATCH, BATCH));
+            fy[s] = FloatOps.toFloat(DataParallelCheck.slice(Y, s * BATCH, BATCH));
+        }
+
+        // Gradients only: weights stay put so both variants time the same work
+        double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double sink = 0;
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            long start = System.nanoTime();
+            for (int s = 0; s < steps; s++) {
+                double[][] xb = ws.loadBatch(X, Y, s * BATCH);
+                double[][] p = forward.forward(xb, W1, b1, W2, b2, W3, b3, ws);
+                sink += loss.calculate_batch_loss(ws.labels(), p);
+                backward.computeGradients(xb, ws.labels(), W1, W2, W3, b1, b2, b3, ws);
+            }
+            best[0] = Math.min(best[0], (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            for (int s = 0; s < steps; s++) {
+                double[][] xb = ws.loadBatch(X, Y, s * BATCH);
+                sink += loss.calculate_batch_loss(ws.labels(), backward.forwardBackward(xb, ws.labels(), W1, W2, W3, b1, b2, b3, ws));
+            }
+            best[1] = Math.min(best[1], (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            for (int s = 0; s < steps; s++) {
+                sink += fForward.forward(fx[s], fW1, fb1, fW2, fb2, fW3, fb3)[0][0];
+                fBackward.computeGradients(fx[s], fy[s], fW1, fW2, fW3, fb1, fb2, fb3);
+            }
+            best[2] = Math.min(best[2], (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            for (int s = 0; s < steps; s++)
+                sink += fBackward.forwardBackward(fx[s], fy[s], fW1, fW2, fW3, fb1, fb2, fb3)[0][0];
+            best[3] = Math.min(best[3], (System.nanoTime() - start) / 1e6);
+        }
+
+        System.out.printf("%n%d steps of %d per epoch, best of %d%n", steps, BATCH, EPOCHS);
+        System.out.printf("%-10s %16s %16s %10s%n", "network", "two passes", "one pass", "speedup");
+        System.out.println("-".repeat(56));
+        System.out.printf("%-10s %14.1fms %14.1fms %9.2fx%n", "double", best[0], best[1], best[0] / best[1]);
+        System.out.printf("%-10s %14.1fms %14.1fms %9.2fx%n", "float", best[2], best[3], best[2] / best[3]);
+        if (sink == 0) System.out.println();
+    }
+
+    // ---------------- Helpers ---------------- //
+
+    // He-scaled Gaussian weights, so activations stay in a sensible range
+    private static double[][] scaled(int rows, int cols, Random random) {
+        double[][] m = new double[rows][cols];
+        double scale = Math.sqrt(2.0 / rows);
+        for (double[] row : m)
+            for (int j = 0; j < cols; j++) row[j] = scale * random.nextGaussian();
+        return m;
+    }
+
+    private static double[][] copy(double[][] a) {
+        double[][] result = new double[a.length][];
+        for (int i = 0; i < a.length; i++) result[i] = a[i].clone();
+        return result;
+    }
+}
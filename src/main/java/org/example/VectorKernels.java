@@ -0,0 +1,495 @@
+package org.example;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels on the JDK Vector API (jdk.incubator.vector), using the widest
+ * double and float species the CPU supports. Only loaded by {@link Kernels} when the incubator
+ * module is present. Tails shorter than one vector fall back to the scalar loops.
+ *
+ * Exponentials (sigmoid, tanh, softmax) use {@link #exp} and {@link #tanh} below rather
+ * than the EXP and TANH operators: those give different bits interpreted and C2-compiled
+ * in the same JVM (SVML intrinsics against the Java fallback), so a result would depend
+ * on how warm the code is. The polynomial uses only lanewise add, mul, fma and bit
+ * operations, which are exact or correctly rounded on every tier, and stays within 2 ULP
+ * of Math.exp and Math.tanh (see {@link KernelsCheck}). Sums across lanes are folded in lane order for the same reason
+ * (reduceLanes leaves the order of a floating-point ADD open).
+ */
+class VectorKernels implements Kernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    // Same shape as SPECIES, for the bits of a double. reinterpretShape with this constant keeps
+    // the vector class known to C2; reinterpretAsLongs looks the species up at run time
+    private static final VectorSpecies<Long> L_SPECIES = SPECIES.withLanes(long.class);
+
+    private static final VectorSpecies<Float> F_SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int F_LANES = F_SPECIES.length();
+
+    private final ScalarKernels scalar = new ScalarKernels();
+
+    // ---------------- GEMM ---------------- //
+
+    @Override
+    public void gemm4(double[] aPack, double[][] bRows, int bFirst, int kCount,
+                      double[] c0, double[] c1, double[] c2, double[] c3, int from, int to) {
+        int j = from;
+
+        // 4 rows x 2 vectors of C stay in registers for the whole reduction block
+        for (; j + 2 * LANES <= to; j += 2 * LANES) {
+            DoubleVector s0 = DoubleVector.fromArray(SPECIES, c0, j);
+            DoubleVector s1 = DoubleVector.fromArray(SPECIES, c1, j);
+            DoubleVector s2 = DoubleVector.fromArray(SPECIES, c2, j);
+            DoubleVector s3 = DoubleVector.fromArray(SPECIES, c3, j);
+            DoubleVector t0 = DoubleVector.fromArray(SPECIES, c0, j + LANES);
+            DoubleVector t1 = DoubleVector.fromArray(SPECIES, c1, j + LANES);
+            DoubleVector t2 = DoubleVector.fromArray(SPECIES, c2, j + LANES);
+            DoubleVector t3 = DoubleVector.fromArray(SPECIES, c3, j + LANES);
+
+            for (int k = 0; k < kCount; k++) {
+                double[] bk = bRows[bFirst + k];
+                DoubleVector b0 = DoubleVector.fromArray(SPECIES, bk, j);
+                DoubleVector b1 = DoubleVector.fromArray(SPECIES, bk, j + LANES);
+                DoubleVector x0 = DoubleVector.broadcast(SPECIES, aPack[4 * k]);
+                DoubleVector x1 = DoubleVector.broadcast(SPECIES, aPack[4 * k + 1]);
+                DoubleVector x2 = DoubleVector.broadcast(SPECIES, aPack[4 * k + 2]);
+                DoubleVector x3 = DoubleVector.broadcast(SPECIES, aPack[4 * k + 3]);
+
+                s0 = b0.fma(x0, s0);
+                s1 = b0.fma(x1, s1);
+                s2 = b0.fma(x2, s2);
+                s3 = b0.fma(x3, s3);
+                t0 = b1.fma(x0, t0);
+                t1 = b1.fma(x1, t1);
+                t2 = b1.fma(x2, t2);
+                t3 = b1.fma(x3, t3);
+            }
+
+            s0.intoArray(c0, j);
+            s1.intoArray(c1, j);
+            s2.intoArray(c2, j);
+            s3.intoArray(c3, j);
+            t0.intoArray(c0, j + LANES);
+            t1.intoArray(c1, j + LANES);
+            t2.intoArray(c2, j + LANES);
+            t3.intoArray(c3, j + LANES);
+        }
+
+        for (; j + LANES <= to; j += LANES) {
+            DoubleVector s0 = DoubleVector.fromArray(SPECIES, c0, j);
+            DoubleVector s1 = DoubleVector.fromArray(SPECIES, c1, j);
+            DoubleVector s2 = DoubleVector.fromArray(SPECIES, c2, j);
+            DoubleVector s3 = DoubleVector.fromArray(SPECIES, c3, j);
+
+            for (int k = 0; k < kCount; k++) {
+                DoubleVector b0 = DoubleVector.fromArray(SPECIES, bRows[bFirst + k], j);
+                s0 = b0.fma(DoubleVector.broadcast(SPECIES, aPack[4 * k]), s0);
+                s1 = b0.fma(DoubleVector.broadcast(SPECIES, aPack[4 * k + 1]), s1);
+                s2 = b0.fma(DoubleVector.broadcast(SPECIES, aPack[4 * k + 2]), s2);
+                s3 = b0.fma(DoubleVector.broadcast(SPECIES, aPack[4 * k + 3]), s3);
+            }
+
+            s0.intoArray(c0, j);
+            s1.intoArray(c1, j);
+            s2.intoArray(c2, j);
+            s3.intoArray(c3, j);
+        }
+
+        if (j < to)
+            scalar.gemm4(aPack, bRows, bFirst, kCount, c0, c1, c2, c3, j, to);
+    }
+
+    @Override
+    public void gemm1(double[] aCol, double[][] bRows, int bFirst, int kCount, double[] c, int from, int to) {
+        int j = from;
+        for (; j + LANES <= to; j += LANES) {
+            DoubleVector s = DoubleVector.fromArray(SPECIES, c, j);
+            for (int k = 0; k < kCount; k++)
+                s = DoubleVector.fromArray(SPECIES, bRows[bFirst + k], j)
+                        .fma(DoubleVector.broadcast(SPECIES, aCol[k]), s);
+            s.intoArray(c, j);
+        }
+
+        if (j < to)
+            scalar.gemm1(aCol, bRows, bFirst, kCount, c, j, to);
+    }
+
+    @Override
+    public void gemm4(float[] aPack, float[][] bRows, int bFirst, int kCount,
+                      float[] c0, float[] c1, float[] c2, float[] c3, int from, int to) {
+        int j = from;
+
+        for (; j + 2 * F_LANES <= to; j += 2 * F_LANES) {
+            FloatVector s0 = FloatVector.fromArray(F_SPECIES, c0, j);
+            FloatVector s1 = FloatVector.fromArray(F_SPECIES, c1, j);
+            FloatVector s2 = FloatVector.fromArray(F_SPECIES, c2, j);
+            FloatVector s3 = FloatVector.fromArray(F_SPECIES, c3, j);
+            FloatVector t0 = FloatVector.fromArray(F_SPECIES, c0, j + F_LANES);
+            FloatVector t1 = FloatVector.fromArray(F_SPECIES, c1, j + F_LANES);
+            FloatVector t2 = FloatVector.fromArray(F_SPECIES, c2, j + F_LANES);
+            FloatVector t3 = FloatVector.fromArray(F_SPECIES, c3, j + F_LANES);
+
+            for (int k = 0; k < kCount; k++) {
+                float[] bk = bRows[bFirst + k];
+                FloatVector b0 = FloatVector.fromArray(F_SPECIES, bk, j);
+                FloatVector b1 = FloatVector.fromArray(F_SPECIES, bk, j + F_LANES);
+                FloatVector x0 = FloatVector.broadcast(F_SPECIES, aPack[4 * k]);
+                FloatVector x1 = FloatVector.broadcast(F_SPECIES, aPack[4 * k + 1]);
+                FloatVector x2 = FloatVector.broadcast(F_SPECIES, aPack[4 * k + 2]);
+                FloatVector x3 = FloatVector.broadcast(F_SPECIES, aPack[4 * k + 3]);
+
+                s0 = b0.fma(x0, s0);
+                s1 = b0.fma(x1, s1);
+                s2 = b0.fma(x2, s2);
+                s3 = b0.fma(x3, s3);
+                t0 = b1.fma(x0, t0);
+                t1 = b1.fma(x1, t1);
+                t2 = b1.fma(x2, t2);
+                t3 = b1.fma(x3, t3);
+            }
+
+            s0.intoArray(c0, j);
+            s1.intoArray(c1, j);
+            s2.intoArray(c2, j);
+            s3.intoArray(c3, j);
+            t0.intoArray(c0, j + F_LANES);
+            t1.intoArray(c1, j + F_LANES);
+            t2.intoArray(c2, j + F_LANES);
+            t3.intoArray(c3, j + F_LANES);
+        }
+
+        for (; j + F_LANES <= to; j += F_LANES) {
+            FloatVector s0 = FloatVector.fromArray(F_SPECIES, c0, j);
+            FloatVector s1 = FloatVector.fromArray(F_SPECIES, c1, j);
+            FloatVector s2 = FloatVector.fromArray(F_SPECIES, c2, j);
+            FloatVector s3 = FloatVector.fromArray(F_SPECIES, c3, j);
+
+            for (int k = 0; k < kCount; k++) {
+                FloatVector b0 = FloatVector.fromArray(F_SPECIES, bRows[bFirst + k], j);
+                s0 = b0.fma(FloatVector.broadcast(F_SPECIES, aPack[4 * k]), s0);
+                s1 = b0.fma(FloatVector.broadcast(F_SPECIES, aPack[4 * k + 1]), s1);
+                s2 = b0.fma(FloatVector.broadcast(F_SPECIES, aPack[4 * k + 2]), s2);
+                s3 = b0.fma(FloatVector.broadcast(F_SPECIES, aPack[4 * k + 3]), s3);
+            }
+
+            s0.intoArray(c0, j);
+            s1.intoArray(c1, j);
+            s2.intoArray(c2, j);
+            s3.intoArray(c3, j);
+        }
+
+        if (j < to)
+            scalar.gemm4(aPack, bRows, bFirst, kCount, c0, c1, c2, c3, j, to);
+    }
+
+    @Override
+    public void gemm1(float[] aCol, float[][] bRows, int bFirst, int kCount, float[] c, int from, int to) {
+        int j = from;
+        for (; j + F_LANES <= to; j += F_LANES) {
+            FloatVector s = FloatVector.fromArray(F_SPECIES, c, j);
+            for (int k = 0; k < kCount; k++)
+                s = FloatVector.fromArray(F_SPECIES, bRows[bFirst + k], j)
+                        .fma(FloatVector.broadcast(F_SPECIES, aCol[k]), s);
+            s.intoArray(c, j);
+        }
+
+        if (j < to)
+            scalar.gemm1(aCol, bRows, bFirst, kCount, c, j, to);
+    }
+
+    // ---------------- Element-wise ---------------- //
+
+    @Override
+    public void add(double[] a, double[] b, double[] out, int n) {
+        int j = 0;
+        for (int bound = SPECIES.loopBound(n); j < bound; j += LANES)
+            DoubleVector.fromArray(SPECIES, a, j).add(DoubleVector.fromArray(SPECIES, b, j)).intoArray(out, j);
+        for (; j < n; j++)
+            out[j] = a[j] + b[j];
+    }
+
+    @Override
+    public void scale(double[] a, double scalar, double[] out, int n) {
+        int j = 0;
+        for (int bound = SPECIES.loopBound(n); j < bound; j += LANES)
+            DoubleVector.fromArray(SPECIES, a, j).mul(scalar).intoArray(out, j);
+        for (; j < n; j++)
+            out[j] = a[j] * scalar;
+    }
+
+    @Override
+    public void relu(double[] in, double[] out, int n) {
+        int j = 0;
+        for (int bound = SPECIES.loopBound(n); j < bound; j += LANES)
+            DoubleVector.fromArray(SPECIES, in, j).max(0.0).intoArray(out, j);
+        for (; j < n; j++)
+            out[j] = Math.max(0, in[j]);
+    }
+
+    @Override
+    public void reluDerivative(double[] in, double[] out, int n) {
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        int j = 0;
+        for (int bound = SPECIES.loopBound(n); j < bound; j += LANES) {
+            VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, in, j).compare(VectorOperators.GT, 0.0);
+            zero.blend(one, positive).intoArray(out, j);
+        }
+        for (; j < n; j++)
+            out[j] = in[j] > 0 ? 1.0 : 0.0;
+    }
+
+    @Override
+    public void leakyRelu(double[] in, double alpha, double[] out, int n) {
+        int j = 0;
+        for (int bound = SPECIES.loopBound(n); j < bound; j += LANES) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, in, j);
+            v.mul(alpha).blend(v, v.compare(VectorOperators.GT, 0.0)).intoArray(out, j);
+        }
+        for (; j < n; j++)
+            out[j] = in[j] > 0 ? in[j] : alpha * in[j];
+    }
+
+    @Override
+    public void sigmoid(double[] in, double[] out, int n) {
+        int j = exp(in, -1.0, 0.0, out, 0, n);
+        logistic(out, 0, j);
+        for (; j < n; j++)
+            out[j] = 1.0 / (1.0 + Math.exp(-in[j]));
+    }
+
+    // ---------------- Fused Layer Kernels ---------------- //
+
+    @Override
+    public void biasActivation(double[] net, double[] bias, Activation activation, double[] out, int from, int to) {
+        int j = from, bound = from + SPECIES.loopBound(to - from);
+
+        switch (activation) {
+            case IDENTITY:
+                for (; j < bound; j += LANES)
+                    biased(net, bias, j).intoArray(out, j);
+                break;
+            case RELU:
+                for (; j < bound; j += LANES)
+                    biased(net, bias, j).max(0.0).intoArray(out, j);
+                break;
+            case LEAKY_RELU:
+                for (; j < bound; j += LANES) {
+                    DoubleVector x = biased(net, bias, j);
+                    x.mul(Activation.LEAKY_RELU_SLOPE).blend(x, x.compare(VectorOperators.GT, 0.0)).intoArray(out, j);
+                }
+                break;
+            case SIGMOID:
+                for (; j < bound; j += LANES)
+                    biased(net, bias, j);
+                exp(net, -1.0, 0.0, out, from, to);
+                logistic(out, from, j);
+                break;
+            case TANH:
+                for (; j < bound; j += LANES)
+                    biased(net, bias, j);
+                tanh(net, out, from, to);
+                break;
+            default:
+                throw new IllegalArgumentException(activation + " is not an element-wise activation.");
+        }
+        scalar.biasActivation(net, bias, activation, out, j, to);
+    }
+
+    // net[j..j+LANES) += bias[j..j+LANES), returning the sum
+    private static DoubleVector biased(double[] net, double[] bias, int j) {
+        DoubleVector x = DoubleVector.fromArray(SPECIES, net, j).add(DoubleVector.fromArray(SPECIES, bias, j));
+        x.intoArray(net, j);
+        return x;
+    }
+
+    @Override
+    public void activationBackward(double[] dOut, double[] net, double[] out, Activation activation,
+                                   double[] dZ, double[] db, int from, int to) {
+        int j = from, bound = from + SPECIES.loopBound(to - from);
+
+        switch (activation) {
+            case IDENTITY:
+                for (; j < bound; j += LANES)
+                    accumulate(DoubleVector.fromArray(SPECIES, dOut, j), dZ, db, j);
+                break;
+            case RELU:
+                for (; j < bound; j += LANES) {
+                    VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, net, j).compare(VectorOperators.GT, 0.0);
+                    accumulate(DoubleVector.zero(SPECIES).blend(DoubleVector.fromArray(SPECIES, dOut, j), positive), dZ, db, j);
+                }
+                break;
+            case LEAKY_RELU:
+                for (; j < bound; j += LANES) {
+                    DoubleVector g = DoubleVector.fromArray(SPECIES, dOut, j);
+                    VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, net, j).compare(VectorOperators.GT, 0.0);
+                    accumulate(g.mul(Activation.LEAKY_RELU_SLOPE).blend(g, positive), dZ, db, j);
+                }
+                break;
+            case SIGMOID:
+                for (; j < bound; j += LANES) {
+                    DoubleVector y = DoubleVector.fromArray(SPECIES, out, j);
+                    accumulate(DoubleVector.fromArray(SPECIES, dOut, j).mul(y).mul(y.neg().add(1.0)), dZ, db, j);
+                }
+                break;
+            case TANH:
+                for (; j < bound; j += LANES) {
+                    DoubleVector y = DoubleVector.fromArray(SPECIES, out, j);
+                    accumulate(DoubleVector.fromArray(SPECIES, dOut, j).mul(y.mul(y).neg().add(1.0)), dZ, db, j);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(activation + " is not an element-wise activation.");
+        }
+        scalar.activationBackward(dOut, net, out, activation, dZ, db, j, to);
+    }
+
+    // dZ[j..j+LANES) = g, db[j..j+LANES) += g
+    private static void accumulate(DoubleVector g, double[] dZ, double[] db, int j) {
+        g.intoArray(dZ, j);
+        DoubleVector.fromArray(SPECIES, db, j).add(g).intoArray(db, j);
+    }
+
+    // ---------------- Reductions ---------------- //
+
+    @Override
+    public double max(double[] row, int n) {
+        double max = Double.NEGATIVE_INFINITY;
+        int j = 0;
+        int bound = SPECIES.loopBound(n);
+        if (bound > 0) {
+            DoubleVector acc = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+            for (; j < bound; j += LANES)
+                acc = acc.max(DoubleVector.fromArray(SPECIES, row, j));
+            max = acc.reduceLanes(VectorOperators.MAX);
+        }
+        for (; j < n; j++)
+            max = Math.max(max, row[j]);
+        return max;
+    }
+
+    @Override
+    public double sumExp(double[] row, double max, double[] expRow, int n) {
+        exp(row, 1.0, max, expRow, 0, n);
+
+        double sum = 0;
+        int j = 0;
+        int bound = SPECIES.loopBound(n);
+        if (bound > 0) {
+            DoubleVector acc = DoubleVector.zero(SPECIES);
+            for (; j < bound; j += LANES)
+                acc = acc.add(DoubleVector.fromArray(SPECIES, expRow, j));
+            for (int lane = 0; lane < LANES; lane++)
+                sum += acc.lane(lane);
+        }
+        for (; j < n; j++) {
+            expRow[j] = Math.exp(row[j] - max);
+            sum += expRow[j];
+        }
+        return sum;
+    }
+
+    // ---------------- Exponentials ---------------- //
+
+    // The constants of the exponential loops are vectors: an operation on a constant needs no
+    // type check, and C2 gives up on type checks after about a hundred in one method, boxing
+    // every vector from then on
+    private static final DoubleVector LOG2_E = DoubleVector.broadcast(SPECIES, 1.4426950408889634);
+    // -ln 2 split so that n * LN2_HI is exact for |n| < 2^11
+    private static final DoubleVector MINUS_LN2_HI = DoubleVector.broadcast(SPECIES, -6.93147180369123816490e-01),
+            MINUS_LN2_LO = DoubleVector.broadcast(SPECIES, -1.90821492927058770002e-10);
+    // Adding 1.5 * 2^52 rounds to an integer, which lands in the low bits of the mantissa
+    private static final double SHIFTER = 0x1.8p52;
+    private static final DoubleVector SHIFTERS = DoubleVector.broadcast(SPECIES, SHIFTER);
+    // Exponent bits of 2^0 less the bits of SHIFTER
+    private static final LongVector UNBIAS = LongVector.broadcast(L_SPECIES, Double.doubleToRawLongBits(SHIFTER) - 1023L),
+            BIAS = LongVector.broadcast(L_SPECIES, 1023L);
+    // Taylor coefficients 1/k! of expm1(r), |r| <= ln(2) / 2
+    private static final DoubleVector C2 = taylor(2), C3 = taylor(3), C4 = taylor(4), C5 = taylor(5), C6 = taylor(6),
+            C7 = taylor(7), C8 = taylor(8), C9 = taylor(9), C10 = taylor(10), C11 = taylor(11), C12 = taylor(12),
+            C13 = taylor(13);
+    private static final DoubleVector ONE = DoubleVector.broadcast(SPECIES, 1.0), TWO = DoubleVector.broadcast(SPECIES, 2.0);
+
+    private static DoubleVector taylor(int k) {
+        double factorial = 1.0;
+        for (int i = 2; i <= k; i++) factorial *= i;
+        return DoubleVector.broadcast(SPECIES, 1.0 / factorial);
+    }
+
+    /**
+     * out[j] = exp(sign * in[j] - shift) over the whole vectors of [from, to), returning where
+     * the scalar tail starts.
+     *
+     * x = n ln 2 + r with |r| <= ln(2) / 2, so e^x = 2^n (1 + expm1(r)). 2^n is applied as two
+     * halves, so overflow to infinity and gradual underflow come out of the last multiplication;
+     * NaN stays NaN.
+     *
+     * This loop and {@link #tanh} take no mode flags and call no helpers: C2 stops inlining
+     * helpers in the large callers, and a vector that goes through a call or a blend it cannot
+     * fold loses its exact class and is boxed.
+     */
+    private static int exp(double[] in, double sign, double shift, double[] out, int from, int to) {
+        DoubleVector signs = DoubleVector.broadcast(SPECIES, sign), shifts = DoubleVector.broadcast(SPECIES, -shift);
+        DoubleVector low = DoubleVector.broadcast(SPECIES, -746.0), high = DoubleVector.broadcast(SPECIES, 710.0);
+
+        int j = from, bound = from + SPECIES.loopBound(to - from);
+        for (; j < bound; j += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, in, j).fma(signs, shifts).max(low).min(high);
+
+            DoubleVector shifted = x.fma(LOG2_E, SHIFTERS);
+            DoubleVector n = shifted.sub(SHIFTERS);
+            DoubleVector r = n.fma(MINUS_LN2_HI, x).add(n.mul(MINUS_LN2_LO));
+            DoubleVector p = C13.fma(r, C12).fma(r, C11).fma(r, C10).fma(r, C9).fma(r, C8).fma(r, C7).fma(r, C6)
+                    .fma(r, C5).fma(r, C4).fma(r, C3).fma(r, C2).fma(r.mul(r), r);
+
+            LongVector k = ((LongVector) shifted.reinterpretShape(L_SPECIES, 0)).sub(UNBIAS);
+            LongVector k1 = k.sub(BIAS).lanewise(VectorOperators.ASHR, 1);
+            DoubleVector s1 = (DoubleVector) k1.add(BIAS).lanewise(VectorOperators.LSHL, 52).reinterpretShape(SPECIES, 0);
+            DoubleVector s2 = (DoubleVector) k.sub(k1).lanewise(VectorOperators.LSHL, 52).reinterpretShape(SPECIES, 0);
+
+            p.fma(s1, s1).mul(s2).intoArray(out, j);
+        }
+        return j;
+    }
+
+    // out[j] = 1 / (1 + out[j]) for j in [from, to), which must be whole vectors
+    private static void logistic(double[] out, int from, int to) {
+        for (int j = from; j < to; j += LANES)
+            ONE.div(DoubleVector.fromArray(SPECIES, out, j).add(ONE)).intoArray(out, j);
+    }
+
+    /**
+     * out[j] = tanh(in[j]) over the whole vectors of [from, to), returning where the scalar tail
+     * starts. tanh x = -m / (m + 2) with m = expm1(-2x), which does not cancel near 0; |x| is
+     * clamped to 20, where tanh rounds to 1, so 2^n needs no splitting.
+     */
+    private static int tanh(double[] in, double[] out, int from, int to) {
+        DoubleVector low = DoubleVector.broadcast(SPECIES, -20.0), high = DoubleVector.broadcast(SPECIES, 20.0);
+        DoubleVector minusTwo = DoubleVector.broadcast(SPECIES, -2.0);
+
+        int j = from, bound = from + SPECIES.loopBound(to - from);
+        for (; j < bound; j += LANES) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, in, j);
+            DoubleVector x = v.max(low).min(high).mul(minusTwo);
+
+            DoubleVector shifted = x.fma(LOG2_E, SHIFTERS);
+            DoubleVector n = shifted.sub(SHIFTERS);
+            DoubleVector r = n.fma(MINUS_LN2_HI, x).add(n.mul(MINUS_LN2_LO));
+            DoubleVector p = C13.fma(r, C12).fma(r, C11).fma(r, C10).fma(r, C9).fma(r, C8).fma(r, C7).fma(r, C6)
+                    .fma(r, C5).fma(r, C4).fma(r, C3).fma(r, C2).fma(r.mul(r), r);
+
+            DoubleVector s = (DoubleVector) ((LongVector) shifted.reinterpretShape(L_SPECIES, 0)).sub(UNBIAS)
+                    .lanewise(VectorOperators.LSHL, 52).reinterpretShape(SPECIES, 0);
+            DoubleVector m = p.fma(s, s.sub(ONE));
+
+            // tanh(+-0) is the input itself; the polynomial gives +0 for both
+            m.neg().div(m.add(TWO)).blend(v, v.compare(VectorOperators.EQ, 0.0)).intoArray(out, j);
+        }
+        return j;
+    }
+}
@@ -0,0 +1,131 @@
+package org.example;
+
+import java.util.SplittableRandom;
+
+/**
+ * Preallocated buffers for one training step of the 3-layer network at a fixed batch size.
+ *
+ * {@link Forward#forward(double[][], double[][], double[][], double[][], double[][], double[][], double[][], Workspace)}
+ * and {@link Backward#computeGradients(double[][], double[][], double[][], double[][], double[][], double[][], double[][], double[][], Workspace)}
+ * write every activation, dropout mask, batch-norm statistic and gradient into these
+ * arrays instead of allocating new ones, so once a workspace exists a training step
+ * creates no garbage. Create one per (architecture, batch size) and reuse it for every
+ * batch of that size. A workspace also carries the generator its dropout masks are
+ * drawn from, so a pass depends on nothing outside its arguments: threads that each
+ * own a workspace can share the weights and Forward/Backward instances. A workspace
+ * itself is not safe to share between threads.
+ */
+public class Workspace {
+
+    private final int batchSize;
+
+    // Batch rows, pointing into the training set or a loader's batch buffers
+    final double[][] xBatch, yBatch;
+
+    // Forward pass: out1 is relu+dropout of net1, out2 is relu+batch norm of net2
+    final double[][] net1, out1, net2, out2, net3, out3;
+
+    // Dropout generator (seed with setRandomSeed for reproducible masks)
+    SplittableRandom random;
+
+    // Saved for backpropagation; one bit per unit of out1 (see Techniques.kept)
+    final long[] dropoutMask;
+    final double[] bnMean, bnVariance;
+    final double[][] bnNormalized;
+
+    // Backward pass intermediates
+    final double[][] dZ3, dA2, dZ2, dZ1;
+
+    // Gradients for weights, biases and batch normalization
+    final double[][] dW1, dW2, dW3;
+    final double[][] db1, db2, db3;
+    final double[][] dGamma1, dBeta1;
+
+    // Backward.updateWeights(..., Optimizer, ws): the parameters are filled in per call,
+    // the gradients in the same order never change
+    final double[][][] parameters = new double[8][][];
+    final double[][][] gradients;
+
+    public Workspace(int batchSize, int inputSize, int hidden1Size, int hidden2Size, int outputSize) {
+        this(batchSize, inputSize, hidden1Size, hidden2Size, outputSize, new SplittableRandom());
+    }
+
+    /**
+     * @param random Dropout generator; may be shared with other workspaces used on the same thread
+     */
+    public Workspace(int batchSize, int inputSize, int hidden1Size, int hidden2Size, int outputSize,
+                     SplittableRandom random) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        this.batchSize = batchSize;
+        this.random = random;
+
+        xBatch = new double[batchSize][];
+        yBatch = new double[batchSize][];
+
+        net1 = new double[batchSize][hidden1Size];
+        out1 = new double[batchSize][hidden1Size];
+        net2 = new double[batchSize][hidden2Size];
+        out2 = new double[batchSize][hidden2Size];
+        net3 = new double[batchSize][outputSize];
+        out3 = new double[batchSize][outputSize];
+
+        dropoutMask = Techniques.newMask(batchSize, hidden1Size);
+        bnMean = new double[hidden2Size];
+        bnVariance = new double[hidden2Size];
+        bnNormalized = new double[batchSize][hidden2Size];
+
+        dZ3 = new double[batchSize][outputSize];
+        dA2 = new double[batchSize][hidden2Size];
+        dZ2 = new double[batchSize][hidden2Size];
+        dZ1 = new double[batchSize][hidden1Size];
+
+        dW1 = new double[inputSize][hidden1Size];
+        dW2 = new double[hidden1Size][hidden2Size];
+        dW3 = new double[hidden2Size][outputSize];
+        db1 = new double[1][hidden1Size];
+        db2 = new double[1][hidden2Size];
+        db3 = new double[1][outputSize];
+        dGamma1 = new double[1][hidden2Size];
+        dBeta1 = new double[1][hidden2Size];
+        gradients = new double[][][]{dW1, db1, dW2, db2, dGamma1, dBeta1, dW3, db3};
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set random seed for reproducible dropout
+     */
+    public void setRandomSeed(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Point the batch rows at X[start .. start + batchSize) and Y[...] without copying
+     * @return The batch inputs [batchSize x inputSize]
+     */
+    public double[][] loadBatch(double[][] X, double[][] Y, int start) {
+        if (start < 0 || start + batchSize > X.length)
+            throw new IllegalArgumentException("Batch [" + start + ", " + (start + batchSize) + ") is out of range.");
+
+        for (int i = 0; i < batchSize; i++) {
+            xBatch[i] = X[start + i];
+            yBatch[i] = Y[start + i];
+        }
+        return xBatch;
+    }
+
+    /**
+     * Labels of the batch selected by the last loadBatch call
+     */
+    public double[][] labels() {
+        return yBatch;
+    }
+
+    void requireBatchSize(int rows) {
+        if (rows != batchSize)
+            throw new IllegalArgumentException("Workspace holds batches of " + batchSize + " rows, got " + rows + ".");
+    }
+}